@@ -3,17 +3,35 @@ package it.unicam.cs.pa.robotswarmsim.app;
 import it.unicam.cs.pa.robotswarmsim.library.CommandsParser;
 import it.unicam.cs.pa.robotswarmsim.library.Environment;
 import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.entity.OffHeapRobotStore;
 import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
-import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RobotCommand;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.SimulationMetrics;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.TickProfiler;
+import it.unicam.cs.pa.robotswarmsim.library.net.StateServer;
+import it.unicam.cs.pa.robotswarmsim.library.program.Program;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.AsyncConsolePrinter;
 import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+import it.unicam.cs.pa.robotswarmsim.library.trace.Checkpoint;
+import it.unicam.cs.pa.robotswarmsim.library.trace.CheckpointWriter;
+import it.unicam.cs.pa.robotswarmsim.library.trace.TraceWriter;
+import it.unicam.cs.pa.robotswarmsim.library.trace.TransitionWriter;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The App class is the main class that starts the robot swarm simulation.
@@ -22,18 +40,61 @@ import java.util.Random;
  */
 public class App {
 
+    private static final int REQUIRED_ARGUMENTS = 7; // Number of positional arguments
+    private static final String HEADLESS_OPTION = "headless";
+    private static final String REAL_TIME_FACTOR_OPTION = "real-time-factor";
+    private static final String THREADS_OPTION = "threads";
+    private static final String STOP_WHEN_DONE_OPTION = "stop-when-done";
+    private static final String QUIET_OPTION = "quiet";
+    private static final String TRACE_OPTION = "trace";
+    private static final String OUTPUT_OPTION = "output";
+    private static final String BACKPRESSURE_OPTION = "backpressure";
+    private static final String TRACE_PRECISION_OPTION = "trace-precision";
+    private static final String KEYFRAME_INTERVAL_OPTION = "keyframe-interval";
+    private static final String CHECKPOINT_OPTION = "checkpoint";
+    private static final String CHECKPOINT_INTERVAL_OPTION = "checkpoint-interval";
+    private static final String RESTORE_OPTION = "restore";
+    private static final String STREAM_OPTION = "stream";
+    private static final String TRANSITIONS_OPTION = "transitions";
+    private static final String PROFILE_OPTION = "profile";
+    private static final String METRICS_OPTION = "metrics";
+    private static final String OFF_HEAP_OPTION = "off-heap";
+    private static final String STATE_FILE_OPTION = "state-file";
+    private static final int DEFAULT_KEYFRAME_INTERVAL = 100; // Steps between keyframes of a compressed trace
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 1000; // Steps between two checkpoints
+    private static final Set<String> OPTIONS = Set.of(HEADLESS_OPTION, REAL_TIME_FACTOR_OPTION, THREADS_OPTION,
+            STOP_WHEN_DONE_OPTION, QUIET_OPTION, TRACE_OPTION, OUTPUT_OPTION, BACKPRESSURE_OPTION,
+            TRACE_PRECISION_OPTION, KEYFRAME_INTERVAL_OPTION, CHECKPOINT_OPTION, CHECKPOINT_INTERVAL_OPTION,
+            RESTORE_OPTION, STREAM_OPTION, TRANSITIONS_OPTION, PROFILE_OPTION,
+            METRICS_OPTION, OFF_HEAP_OPTION, STATE_FILE_OPTION);
+
     /**
      * The main method that starts the robot swarm simulation.
      *
      * @param args Command line arguments: <timePerInstruction> <simulationTime> <environmentType>
-     *             <environmentPath> <programType> <programPath> <numberOfRobots>
+     *             <environmentPath> <programType> <programPath> <numberOfRobots> [options], where options are
+     *             --headless to run as fast as possible, --real-time-factor=<factor> to pace the run
+     *             --threads=<n> to step the robots on n threads, --stop-when-done to end the run
+     *             once every robot has completed its commands, --quiet to print nothing to the console
+     *             --trace=<file> to record the run in a binary trace file, compressed when
+     *             --trace-precision=<p> sets the quantization step, with a keyframe every
+     *             --keyframe-interval=<k> steps, --output=<file> to print to a file
+     *             instead of the console, --backpressure=<block|drop|sample> to choose what happens when
+     *             the printer falls behind the simulation, --checkpoint=<file> to save the state of the run
+     *             every --checkpoint-interval=<n> steps and when it ends, and --restore=<file> to continue
+     *             a run from a checkpoint, --stream=<port> to stream the state of the robots to local
+     *             viewers over TCP, --transitions=<file> to record every area entry and exit in a binary file,
+     *             --profile to print the time spent in each phase of the ticks when the run ends, and
+     *             --metrics to count the work of the ticks, expose the counters over JMX during the run
+     *             and print them when it ends, --off-heap to keep the state of the robots outside the Java heap,
+     *             and --state-file=<file> to keep it in a memory-mapped file other processes can read.
      * @throws IOException              If an input/output error occurs while reading files.
      * @throws IllegalArgumentException If the provided arguments are insufficient or invalid.
      */
     public static void main(String[] args) throws IOException {
-        if (args.length < 7) {
+        if (args.length < REQUIRED_ARGUMENTS) {
             throw new IllegalArgumentException(
-                    "Not enough arguments. Usage: <timePerInstruction> <simulationTime> <environmentType> <environmentPath> <programType> <programPath> <numberOfRobots>");
+                    "Not enough arguments. Usage: <timePerInstruction> <simulationTime> <environmentType> <environmentPath> <programType> <programPath> <numberOfRobots> [--headless] [--real-time-factor=<factor>] [--threads=<n>] [--stop-when-done] [--quiet] [--trace=<file>] [--trace-precision=<p>] [--keyframe-interval=<k>] [--output=<file>] [--backpressure=<block|drop|sample>] [--checkpoint=<file>] [--checkpoint-interval=<n>] [--restore=<file>] [--stream=<port>] [--transitions=<file>] [--profile] [--metrics] [--off-heap] [--state-file=<file>]");
         }
 
         long timePerInstruction = Long.parseLong(args[0]);
@@ -70,16 +131,264 @@ public class App {
             throw new IllegalArgumentException("Number of robots cannot be negative.");
         }
 
+        Map<String, String> options = parseOptions(args);
+
         // Load or parse environment and robot commands
         Environment environment = loadEnvironment(environmentType, environmentPath);
-        List<RobotCommand> robotCommands = loadRobotCommands(programType, programPath);
+        CommandsParser program = loadRobotProgram(programType, programPath);
+        if (program.getMaxFollowDistance() > 0) {
+            // Size the robot grid after the widest FOLLOW query of the program
+            environment.setCellSize(program.getMaxFollowDistance());
+        }
+
+        // Keep the state of the robots off the heap, in direct buffers or in a memory-mapped file
+        OffHeapRobotStore offHeapStore = createOffHeapStore(options, numberOfRobots, environment,
+                program.getProgram());
+        if (offHeapStore != null) {
+            environment.setRobotStore(offHeapStore);
+        }
 
         // Create and add robots to the environment
-        List<Robot> robots = createRobots(numberOfRobots, environment, robotCommands);
+        List<Robot> robots = createRobots(numberOfRobots, environment, program.getProgram());
 
         // Create a simulator and run the simulation
         RobotSimulator simulator = new RobotSimulator(robots);
-        simulator.simulate(timePerInstruction, simulationTime);
+        configurePacing(simulator, options);
+        // Share one pool between the robots and the trace encoder, so that they do not compete for the cores
+        ForkJoinPool pool = null;
+        if (options.containsKey(THREADS_OPTION)) {
+            int threads = Integer.parseInt(options.get(THREADS_OPTION));
+            simulator.setParallelism(threads);
+            if (threads > 1) {
+                pool = new ForkJoinPool(threads);
+                simulator.setPool(pool);
+            }
+        }
+        simulator.setStopWhenAllCompleted(options.containsKey(STOP_WHEN_DONE_OPTION));
+        if (options.containsKey(RESTORE_OPTION)) {
+            simulator.restore(Checkpoint.read(checkedPath(options.get(RESTORE_OPTION), "Restore")));
+        }
+        List<Closeable> outputs = new ArrayList<>();
+        try {
+            if (!options.containsKey(QUIET_OPTION)) {
+                attachPrinter(simulator, environment, options, outputs);
+            }
+            if (options.containsKey(TRACE_OPTION)) {
+                attachTrace(simulator, environment, pool, options, outputs);
+            }
+            if (options.containsKey(CHECKPOINT_OPTION)) {
+                attachCheckpoints(simulator, options, outputs);
+            }
+            if (options.containsKey(TRANSITIONS_OPTION)) {
+                TransitionWriter transitions = new TransitionWriter(
+                        checkedPath(options.get(TRANSITIONS_OPTION), "Transitions"), environment);
+                outputs.add(transitions);
+                simulator.addListener(transitions);
+            }
+            if (options.containsKey(STREAM_OPTION)) {
+                StateServer server = new StateServer(Integer.parseInt(options.get(STREAM_OPTION)),
+                        environment.getLabels());
+                outputs.add(server);
+                simulator.addListener(server);
+            }
+            if (options.containsKey(PROFILE_OPTION)) {
+                simulator.setProfiler(new TickProfiler());
+            }
+            if (options.containsKey(METRICS_OPTION)) {
+                SimulationMetrics metrics = new SimulationMetrics();
+                metrics.registerMBean("simulation");
+                simulator.setMetrics(metrics);
+            }
+            simulator.simulate(timePerInstruction, simulationTime);
+            if (simulator.getProfiler() != null) {
+                System.err.print(simulator.getProfiler().report());
+            }
+            if (simulator.getMetrics() != null) {
+                System.err.print(simulator.getMetrics().report());
+            }
+        } finally {
+            if (simulator.getMetrics() != null) {
+                simulator.getMetrics().unregisterMBean();
+            }
+            if (offHeapStore != null) {
+                offHeapStore.force();
+            }
+            // Close the outputs in reverse order, so that printers are flushed before their streams are closed
+            for (int i = outputs.size() - 1; i >= 0; i--) {
+                outputs.get(i).close();
+            }
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Attaches a printer formatting the run on a background thread, writing to the console or to a file.
+     *
+     * @param simulator   The simulator to observe.
+     * @param environment The environment of the robots, whose labels are printed.
+     * @param options     The parsed optional arguments.
+     * @param outputs     The outputs to close once the run is over, receiving the printer and its file.
+     * @throws IOException              If the output file cannot be created.
+     * @throws IllegalArgumentException If the backpressure policy or the output path is invalid.
+     */
+    private static void attachPrinter(RobotSimulator simulator, Environment environment, Map<String, String> options,
+                                      List<Closeable> outputs) throws IOException {
+        AsyncConsolePrinter.Backpressure backpressure = AsyncConsolePrinter.Backpressure.BLOCK;
+        if (options.containsKey(BACKPRESSURE_OPTION)) {
+            try {
+                backpressure = AsyncConsolePrinter.Backpressure.valueOf(
+                        options.get(BACKPRESSURE_OPTION).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Backpressure must be 'block', 'drop' or 'sample'.");
+            }
+        }
+        OutputStream out = System.out;
+        if (options.containsKey(OUTPUT_OPTION)) {
+            String outputPath = options.get(OUTPUT_OPTION);
+            if (isInvalidPath(outputPath)) {
+                throw new IllegalArgumentException("Output path is not a valid file path.");
+            }
+            out = Files.newOutputStream(Paths.get(outputPath));
+            outputs.add(out);
+        }
+        AsyncConsolePrinter printer = new AsyncConsolePrinter(out, environment.getLabels(),
+                AsyncConsolePrinter.DEFAULT_CAPACITY, backpressure, AsyncConsolePrinter.DEFAULT_SAMPLING_INTERVAL);
+        outputs.add(printer);
+        simulator.addListener(printer);
+    }
+
+    /**
+     * Attaches a writer recording the run in a trace file, compressed if a precision is given.
+     *
+     * @param simulator   The simulator to observe.
+     * @param environment The environment of the robots.
+     * @param pool        The pool stepping the robots, which also encodes a compressed trace, or null.
+     * @param options     The parsed optional arguments.
+     * @param outputs     The outputs to close once the run is over, receiving the writer.
+     * @throws IOException              If the trace file cannot be created.
+     * @throws IllegalArgumentException If the trace path, the precision or the keyframe interval is invalid.
+     */
+    private static void attachTrace(RobotSimulator simulator, Environment environment, ForkJoinPool pool,
+                                    Map<String, String> options, List<Closeable> outputs) throws IOException {
+        String tracePath = options.get(TRACE_OPTION);
+        if (isInvalidPath(tracePath)) {
+            throw new IllegalArgumentException("Trace path is not a valid file path.");
+        }
+        TraceWriter trace;
+        if (options.containsKey(TRACE_PRECISION_OPTION)) {
+            int keyframeInterval = options.containsKey(KEYFRAME_INTERVAL_OPTION)
+                    ? Integer.parseInt(options.get(KEYFRAME_INTERVAL_OPTION))
+                    : DEFAULT_KEYFRAME_INTERVAL;
+            trace = new TraceWriter(Paths.get(tracePath), environment,
+                    Double.parseDouble(options.get(TRACE_PRECISION_OPTION)), keyframeInterval);
+        } else {
+            trace = new TraceWriter(Paths.get(tracePath), environment);
+        }
+        trace.setPool(pool);
+        outputs.add(trace);
+        simulator.addListener(trace);
+    }
+
+    /**
+     * Attaches a writer saving the state of the run to a checkpoint file at regular intervals and when it ends.
+     *
+     * @param simulator The simulator to save.
+     * @param options   The parsed optional arguments.
+     * @param outputs   The outputs to close once the run is over, receiving the writer.
+     * @throws IllegalArgumentException If the checkpoint path or interval is invalid.
+     */
+    private static void attachCheckpoints(RobotSimulator simulator, Map<String, String> options,
+                                          List<Closeable> outputs) {
+        int interval = options.containsKey(CHECKPOINT_INTERVAL_OPTION)
+                ? Integer.parseInt(options.get(CHECKPOINT_INTERVAL_OPTION))
+                : DEFAULT_CHECKPOINT_INTERVAL;
+        CheckpointWriter checkpoints = new CheckpointWriter(simulator,
+                checkedPath(options.get(CHECKPOINT_OPTION), "Checkpoint"), interval);
+        outputs.add(checkpoints);
+        simulator.addListener(checkpoints);
+    }
+
+    /**
+     * Creates the off-heap store of the robots requested by the options, sized for the swarm, for the labels
+     * known once the environment and the program are loaded, and for the REPEAT blocks of the program.
+     *
+     * @param options        The parsed options.
+     * @param numberOfRobots The number of robots of the swarm.
+     * @param environment    The environment of the robots, whose registry receives the labels of the program.
+     * @param program        The program of the robots.
+     * @return The store, mapped from the state file if one is given, or null to keep the state on the heap.
+     * @throws IOException              If the state file cannot be created or mapped.
+     * @throws IllegalArgumentException If the state file path is not valid.
+     */
+    private static OffHeapRobotStore createOffHeapStore(Map<String, String> options, int numberOfRobots,
+                                                        Environment environment, Program program)
+            throws IOException {
+        int capacity = Math.max(1, numberOfRobots);
+        LabelRegistry labels = environment.getLabels();
+        program.getLabels().forEach(labels::intern);
+        int signalWords = OffHeapRobotStore.signalWordsFor(labels.size());
+        int loopCounters = program.getLoopCounterCount();
+        if (options.containsKey(STATE_FILE_OPTION)) {
+            return OffHeapRobotStore.mapped(checkedPath(options.get(STATE_FILE_OPTION), "State file"), capacity,
+                    signalWords, loopCounters);
+        }
+        return options.containsKey(OFF_HEAP_OPTION)
+                ? new OffHeapRobotStore(capacity, signalWords, loopCounters)
+                : null;
+    }
+
+    /**
+     * Converts the value of a file option to a path.
+     *
+     * @param path The value of the option.
+     * @param name The name of the file, for the error message.
+     * @return The path.
+     * @throws IllegalArgumentException If the value is not a valid file path.
+     */
+    private static Path checkedPath(String path, String name) {
+        if (isInvalidPath(path)) {
+            throw new IllegalArgumentException(name + " path is not a valid file path.");
+        }
+        return Paths.get(path);
+    }
+
+    /**
+     * Parses the optional arguments following the positional ones.
+     * Each option has the form --name or --name=value.
+     *
+     * @param args Command line arguments.
+     * @return A map from option names to their values, an empty string for options without a value.
+     * @throws IllegalArgumentException If an option is malformed or unknown.
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = REQUIRED_ARGUMENTS; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String[] option = args[i].substring(2).split("=", 2);
+            if (!OPTIONS.contains(option[0])) {
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        return options;
+    }
+
+    /**
+     * Configures how the simulator paces its ticks against the wall clock.
+     *
+     * @param simulator The simulator to configure.
+     * @param options   The parsed optional arguments.
+     * @throws IllegalArgumentException If the real-time factor is not a positive number.
+     */
+    private static void configurePacing(RobotSimulator simulator, Map<String, String> options) {
+        simulator.setHeadless(options.containsKey(HEADLESS_OPTION));
+        if (options.containsKey(REAL_TIME_FACTOR_OPTION)) {
+            simulator.setRealTimeFactor(Double.parseDouble(options.get(REAL_TIME_FACTOR_OPTION)));
+        }
     }
 
     /**
@@ -138,14 +447,14 @@ public class App {
     }
 
     /**
-     * Loads robot commands based on the specified program type and path.
+     * Loads the robot program based on the specified program type and path.
      *
      * @param progType The type of the robot program, either "file" or "string".
      * @param progPath The path to the robot program file or the actual program string.
-     * @return A list of RobotCommand objects representing the loaded robot program.
+     * @return The parser holding the loaded robot program.
      * @throws IOException If an input/output error occurs while reading the file.
      */
-    private static List<RobotCommand> loadRobotCommands(String progType, String progPath) throws IOException {
+    private static CommandsParser loadRobotProgram(String progType, String progPath) throws IOException {
         if (progType.equals("file")) {
             return loadRobotProgramFromFile(progPath);
         } else {
@@ -157,10 +466,10 @@ public class App {
      * Loads robot commands from a file specified by the given file path.
      *
      * @param filePath The path to the file containing the robot program.
-     * @return A list of RobotCommand objects representing the loaded robot program.
+     * @return The parser holding the loaded robot program.
      * @throws IOException If an input/output error occurs while reading the file.
      */
-    private static List<RobotCommand> loadRobotProgramFromFile(String filePath) throws IOException {
+    private static CommandsParser loadRobotProgramFromFile(String filePath) throws IOException {
         String content = Files.readString(Paths.get(filePath));
         return parseRobotProgramFromString(content);
     }
@@ -169,23 +478,23 @@ public class App {
      * Parses a robot program from the given string representation.
      *
      * @param programData The string representation of the robot program.
-     * @return A list of RobotCommand objects parsed from the program data.
+     * @return The parser holding the robot program parsed from the program data.
      */
-    private static List<RobotCommand> parseRobotProgramFromString(String programData) {
+    private static CommandsParser parseRobotProgramFromString(String programData) {
         CommandsParser handler = new CommandsParser();
         handler.processCommandString(programData, false);
-        return handler.getRobotCommands();
+        return handler;
     }
 
     /**
-     * Creates a specified number of robots with random initial positions and assigns them the given commands.
+     * Creates a specified number of robots with random initial positions and assigns them the given program.
      *
      * @param numRobots   The number of robots to create.
      * @param environment The environment in which the robots will operate.
-     * @param commands    The list of commands to assign to each robot.
+     * @param program     The compiled program shared by every robot.
      * @return A list of Robot objects representing the created robots.
      */
-    private static List<Robot> createRobots(int numRobots, Environment environment, List<RobotCommand> commands) {
+    private static List<Robot> createRobots(int numRobots, Environment environment, Program program) {
         List<Robot> robots = new ArrayList<>();
         Random random = new Random();
 
@@ -194,7 +503,7 @@ public class App {
             int y = random.nextInt(51); // Range from 0 to 50
 
             Robot robot = new Robot(new Point(x, y), environment);
-            robot.setCommands(new ArrayList<>(commands)); // Each robot gets a copy of the commands
+            robot.setProgram(program); // Robots share the program and keep their own execution state
             robots.add(robot);
             environment.addRobot(robot);
         }
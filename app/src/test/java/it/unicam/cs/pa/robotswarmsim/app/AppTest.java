@@ -53,4 +53,33 @@ public class AppTest {
                 "Should throw IllegalArgumentException for negative number of robots.");
     }
 
+    @Test
+    public void testMainWithHeadlessOption() {
+        String[] args = {
+                "1",
+                "1000",
+                "string",
+                "Z1 RECTANGLE 1 1 80 80",
+                "string",
+                "SIGNAL Z1\nMOVE 1 0 1\nSTOP",
+                "2",
+                "--headless"
+        };
+        assertDoesNotThrow(() -> App.main(args), "A headless run should complete without waiting.");
+    }
+
+    @Test
+    public void testMainWithUnknownOption() {
+        String[] args = {"1", "5", "string", "Z1 RECTANGLE 1 1 2 2", "string", "STOP", "1", "--unknown"};
+        assertThrows(IllegalArgumentException.class, () -> App.main(args),
+                "Should throw IllegalArgumentException for unknown options.");
+    }
+
+    @Test
+    public void testMainWithInvalidRealTimeFactor() {
+        String[] args = {"1", "5", "string", "Z1 RECTANGLE 1 1 2 2", "string", "STOP", "1", "--real-time-factor=0"};
+        assertThrows(IllegalArgumentException.class, () -> App.main(args),
+                "Should throw IllegalArgumentException for a non-positive real-time factor.");
+    }
+
 }
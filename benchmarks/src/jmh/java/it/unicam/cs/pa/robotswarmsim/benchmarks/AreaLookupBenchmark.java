@@ -0,0 +1,56 @@
+package it.unicam.cs.pa.robotswarmsim.benchmarks;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the refresh of the area labels of a robot, run by every {@link Robot#setPosition(Point)},
+ * in environments with many areas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AreaLookupBenchmark {
+
+    private static final int POSITIONS = 4096; // Number of precomputed positions, a power of two
+
+    @Param({"10", "1000", "10000"})
+    public int areas;
+
+    private Robot robot;
+    private final Point[] positions = new Point[POSITIONS];
+    private int next = 0; // Next position to move to
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        double size = Math.sqrt(areas) * 10;
+        Environment environment = new Environment(42);
+        Swarms.addAreas(environment, areas, size, 42);
+        robot = new Robot(new Point(0, 0), environment);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < POSITIONS; i++) {
+            positions[i] = new Point(random.nextDouble() * size, random.nextDouble() * size);
+        }
+        robot.setPosition(positions[0]); // Builds the area index
+    }
+
+    /**
+     * Moves the robot to the next precomputed position, refreshing its area labels.
+     *
+     * @return The number of areas containing the robot, consumed by JMH.
+     */
+    @Benchmark
+    public int updateCurrentAreaLabels() {
+        robot.setPosition(positions[next]);
+        next = (next + 1) & (POSITIONS - 1);
+        return robot.getCurrentAreaLabels().size();
+    }
+}
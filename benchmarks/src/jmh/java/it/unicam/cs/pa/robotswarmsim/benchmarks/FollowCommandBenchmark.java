@@ -0,0 +1,48 @@
+package it.unicam.cs.pa.robotswarmsim.benchmarks;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.FollowCommand;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link FollowCommand#execute(Robot, double)} for followers surrounded by signalling leaders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FollowCommandBenchmark {
+
+    @Param({"1000", "100000"})
+    public int robots;
+
+    private List<Robot> swarm;
+    private FollowCommand command;
+    private int next = 1; // Follower executing the next command
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Environment environment = new Environment(42);
+        swarm = Swarms.leadersAndFollowers(environment, robots, 42);
+        for (int i = 0; i < swarm.size(); i += 2) {
+            swarm.get(i).signalLabel(Swarms.LEADER_LABEL);
+        }
+        swarm.forEach(Robot::commitState);
+        command = new FollowCommand(Swarms.LEADER_LABEL, Swarms.FOLLOW_RANGE, 1);
+    }
+
+    /**
+     * Runs the command on each follower in turn.
+     */
+    @Benchmark
+    public void execute() {
+        command.execute(swarm.get(next), 1.0);
+        next = next + 2 >= swarm.size() ? 1 : next + 2;
+    }
+}
@@ -0,0 +1,108 @@
+package it.unicam.cs.pa.robotswarmsim.benchmarks;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.kinematics.PositionIntegrator;
+import it.unicam.cs.pa.robotswarmsim.library.program.Program;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.ContinueCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveCommand;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of moving robots in a straight line: one robot at a time through its command ("none"),
+ * batched with the scalar integrator, and batched with the preferred integrator, which is the SIMD one
+ * when the Vector API is enabled. Whole ticks of a swarm running a long CONTINUE are measured, as well as
+ * the integration kernel alone over the columns of the swarm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KinematicsBenchmark {
+
+    private static final int TICKS = 10; // Ticks simulated by each invocation
+
+    @Param({"10000", "100000"})
+    public int robots;
+
+    @Param({"none", "scalar", "preferred"})
+    public String integrator;
+
+    private RobotSimulator simulator;
+    private PositionIntegrator kernel; // Integrator of the kernel benchmark
+    private double[] x;
+    private double[] y;
+    private double[] speed;
+    private double[] headingX;
+    private double[] headingY;
+    private int[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Environment environment = new Environment(42);
+        Program program = Program.compile(List.of(new MoveCommand(0.6, 0.8, 1), new ContinueCommand(1e9)));
+        double size = Swarms.worldSize(robots);
+        List<Robot> swarm = new ArrayList<>(robots);
+        for (int i = 0; i < robots; i++) {
+            Robot robot = new Robot(new Point(i % size, i / size), environment);
+            robot.setProgram(program);
+            environment.addRobot(robot);
+            swarm.add(robot);
+        }
+        kernel = switch (integrator) {
+            case "scalar" -> PositionIntegrator.scalar();
+            case "preferred" -> PositionIntegrator.preferred();
+            default -> null;
+        };
+        simulator = new RobotSimulator(swarm);
+        simulator.setHeadless(true);
+        simulator.setPositionIntegrator(kernel);
+
+        x = new double[robots];
+        y = new double[robots];
+        speed = new double[robots];
+        headingX = new double[robots];
+        headingY = new double[robots];
+        Arrays.fill(speed, 1);
+        Arrays.fill(headingX, 0.6);
+        Arrays.fill(headingY, 0.8);
+        ids = new int[robots];
+        Arrays.setAll(ids, i -> i);
+    }
+
+    /**
+     * Simulates a batch of ticks; the reported time is per tick.
+     */
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public void tick() {
+
+        simulator.simulate(1.0, TICKS);
+    }
+
+    /**
+     * Integrates the positions of every robot once, without the rest of the tick.
+     * Without an integrator, each robot is moved by the same arithmetic as its command.
+     */
+    @Benchmark
+    public void integrate() {
+        if (kernel != null) {
+            kernel.integrate(x, y, speed, headingX, headingY, ids, robots, 0.01);
+            return;
+        }
+        for (int id = 0; id < robots; id++) {
+            double distance = speed[id] * 0.01;
+            x[id] = x[id] + distance * headingX[id];
+            y[id] = y[id] + distance * headingY[id];
+        }
+    }
+}
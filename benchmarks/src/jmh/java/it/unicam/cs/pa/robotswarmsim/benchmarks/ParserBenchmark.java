@@ -0,0 +1,103 @@
+package it.unicam.cs.pa.robotswarmsim.benchmarks;
+
+import it.unicam.cs.pa.robotswarmsim.library.CommandsParser;
+import it.unicam.cs.pa.robotswarmsim.utilities.FollowMeParser;
+import it.unicam.cs.pa.robotswarmsim.utilities.FollowMeParserException;
+import it.unicam.cs.pa.robotswarmsim.utilities.ShapeData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link FollowMeParser} on large generated programs and environments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"1000", "100000"})
+    public int lines;
+
+    private String program;
+    private String environment;
+    private FollowMeParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        program = generateProgram(lines);
+        environment = generateEnvironment(lines);
+        parser = new FollowMeParser(new CommandsParser());
+    }
+
+    /**
+     * Parses a program of the given number of lines, building its commands.
+     */
+    @Benchmark
+    public void parseRobotProgram() throws FollowMeParserException {
+
+        parser.parseRobotProgram(program);
+    }
+
+    /**
+     * Parses an environment with one area per line.
+     *
+     * @return The parsed shapes, consumed by JMH.
+     */
+    @Benchmark
+    public List<ShapeData> parseEnvironment() throws FollowMeParserException {
+
+        return parser.parseEnvironment(environment);
+    }
+
+    /**
+     * Generates a program mixing every command, with nested blocks.
+     *
+     * @param lines The approximate number of lines.
+     * @return The program text.
+     */
+    private static String generateProgram(int lines) {
+        String[] block = {
+                "SIGNAL A", "MOVE 1 0 1", "REPEAT 3", "MOVE RANDOM -1 1 -1 1 2", "FOLLOW A 5 1", "DONE",
+                "UNTIL B", "MOVE 0 1 1", "CONTINUE 2", "DONE", "UNSIGNAL A", "STOP"
+        };
+        StringBuilder source = new StringBuilder();
+        for (int line = 0; line < lines; line++) {
+            source.append(block[line % block.length]).append('\n');
+        }
+        // Close a block left open by the cut
+        int position = lines % block.length;
+        if (position > 2 && position <= 5 || position > 6 && position <= 9) {
+            source.append("DONE\n");
+        }
+        return source.toString();
+    }
+
+    /**
+     * Generates an environment of circles and rectangles.
+     *
+     * @param areas The number of areas.
+     * @return The environment text.
+     */
+    private static String generateEnvironment(int areas) {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < areas; i++) {
+            if (i % 2 == 0) {
+                source.append("Z").append(i % 100).append(" CIRCLE ")
+                        .append(random.nextInt(1000)).append(' ').append(random.nextInt(1000)).append(' ')
+                        .append(1 + random.nextInt(10)).append('\n');
+            } else {
+                source.append("Z").append(i % 100).append(" RECTANGLE ")
+                        .append(random.nextInt(1000)).append(' ').append(random.nextInt(1000)).append(' ')
+                        .append(1 + random.nextInt(10)).append(' ').append(1 + random.nextInt(10)).append('\n');
+            }
+        }
+        return source.toString();
+    }
+}
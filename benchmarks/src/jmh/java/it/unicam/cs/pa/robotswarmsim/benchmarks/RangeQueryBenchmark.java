@@ -0,0 +1,48 @@
+package it.unicam.cs.pa.robotswarmsim.benchmarks;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Robot#getRobotsWithinRange(double)} in swarms of growing size at constant density.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeQueryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int robots;
+
+    @Param({"5", "20"})
+    public double range;
+
+    private List<Robot> swarm;
+    private int next = 0; // Robot issuing the next query
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Environment environment = new Environment(42);
+        swarm = Swarms.leadersAndFollowers(environment, robots, 42);
+        swarm.forEach(Robot::commitState);
+    }
+
+    /**
+     * Queries the neighbours of each robot in turn.
+     *
+     * @return The neighbours, consumed by JMH.
+     */
+    @Benchmark
+    public List<Robot> robotsWithinRange() {
+        Robot robot = swarm.get(next);
+        next = next + 1 == swarm.size() ? 0 : next + 1;
+        return robot.getRobotsWithinRange(range);
+    }
+}
@@ -0,0 +1,176 @@
+package it.unicam.cs.pa.robotswarmsim.benchmarks;
+
+import it.unicam.cs.pa.robotswarmsim.library.metrics.LatencyHistogram;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.TickProfiler;
+import it.unicam.cs.pa.robotswarmsim.library.scenario.Scenario;
+import it.unicam.cs.pa.robotswarmsim.library.scenario.ScenarioParameters;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This program sweeps generated scenarios over robot and thread counts and prints a scaling table:
+ * ticks per second, heap retained per robot and the p50 and p99 tick latency.
+ * Each scenario is generated, warmed up for a few ticks, then simulated headless with a {@link TickProfiler}.
+ * Run it with: gradle :benchmarks:scaling -PscalingArgs="--robots=1000,10000,100000 --threads=1,0"
+ */
+public final class ScalingRunner {
+
+    private static final String DEFAULT_ROBOTS = "1000,10000,100000,1000000";
+    private static final String DEFAULT_THREADS = "1,0"; // 0 uses every available core
+    private static final int DEFAULT_TICKS = 100; // Measured ticks per scenario
+    private static final int DEFAULT_WARMUP = 20; // Ticks run before measuring
+    private static final Set<String> OPTIONS = Set.of("robots", "threads", "ticks", "warmup", "areas",
+            "circle-share", "world-size", "signal-share", "follow-share", "seed"); // Names of the accepted options
+
+    private ScalingRunner() {
+    }
+
+    /**
+     * Runs the sweep.
+     *
+     * @param args Options of the form --name=value: --robots and --threads take comma-separated lists,
+     *             --ticks and --warmup the measured and warm-up ticks, and --areas, --circle-share,
+     *             --world-size, --signal-share, --follow-share and --seed the parameters of the scenarios.
+     * @throws IllegalArgumentException If an option is malformed or unknown.
+     */
+    public static void main(String[] args) {
+        Map<String, String> options = parseOptions(args);
+        int[] robotCounts = parseList(options.getOrDefault("robots", DEFAULT_ROBOTS));
+        int[] threadCounts = parseList(options.getOrDefault("threads", DEFAULT_THREADS));
+        int ticks = Integer.parseInt(options.getOrDefault("ticks", String.valueOf(DEFAULT_TICKS)));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", String.valueOf(DEFAULT_WARMUP)));
+        if (ticks <= 0 || warmup < 0) {
+            throw new IllegalArgumentException("Ticks must be positive and warm-up ticks cannot be negative.");
+        }
+
+        System.out.printf(Locale.ROOT, "%10s %8s %8s %14s %14s %12s %12s%n",
+                "Robots", "Areas", "Threads", "Ticks/s", "Bytes/robot", "p50 us", "p99 us");
+        for (int robots : robotCounts) {
+            ScenarioParameters parameters = parameters(options, robots);
+            for (int threads : threadCounts) {
+                Row row = measure(parameters, threads == 0 ? Runtime.getRuntime().availableProcessors() : threads,
+                        warmup, ticks);
+                System.out.printf(Locale.ROOT, "%10d %8d %8d %14.1f %14.1f %12.1f %12.1f%n",
+                        robots, parameters.areas(), row.threads(), row.ticksPerSecond(), row.bytesPerRobot(),
+                        row.p50Micros(), row.p99Micros());
+            }
+        }
+    }
+
+    /**
+     * One line of the scaling table.
+     *
+     * @param threads        The number of threads stepping the robots.
+     * @param ticksPerSecond The measured ticks per second of wall-clock time.
+     * @param bytesPerRobot  The heap retained by the scenario, divided by its number of robots.
+     * @param p50Micros      The median tick latency in microseconds.
+     * @param p99Micros      The 99th percentile of the tick latency in microseconds.
+     */
+    private record Row(int threads, double ticksPerSecond, double bytesPerRobot, double p50Micros,
+                       double p99Micros) {
+    }
+
+    /**
+     * Generates a scenario and measures its ticks.
+     *
+     * @param parameters The parameters of the scenario.
+     * @param threads    The number of threads stepping the robots.
+     * @param warmup     The number of ticks run before measuring.
+     * @param ticks      The number of measured ticks.
+     * @return The measurements.
+     */
+    private static Row measure(ScenarioParameters parameters, int threads, int warmup, int ticks) {
+        long heapBefore = usedHeap();
+        Scenario scenario = Scenario.generate(parameters);
+        double bytesPerRobot = (double) (usedHeap() - heapBefore) / Math.max(1, parameters.robots());
+
+        RobotSimulator simulator = new RobotSimulator(scenario.getRobots());
+        simulator.setHeadless(true);
+        simulator.setParallelism(threads);
+        if (warmup > 0) {
+            simulator.simulate(1.0, warmup);
+        }
+        TickProfiler profiler = new TickProfiler();
+        simulator.setProfiler(profiler);
+        long start = System.nanoTime();
+        simulator.simulate(1.0, ticks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        LatencyHistogram latency = profiler.getTickHistogram();
+        return new Row(threads, ticks / seconds, bytesPerRobot, latency.getValueAtPercentile(50) / 1e3,
+                latency.getValueAtPercentile(99) / 1e3);
+    }
+
+    /**
+     * Builds the parameters of the scenarios of a given size from the options.
+     *
+     * @param options The parsed options.
+     * @param robots  The number of robots.
+     * @return The parameters.
+     */
+    private static ScenarioParameters parameters(Map<String, String> options, int robots) {
+        ScenarioParameters defaults = ScenarioParameters.defaults(robots, 42);
+        return new ScenarioParameters(robots,
+                Integer.parseInt(options.getOrDefault("areas", String.valueOf(defaults.areas()))),
+                Double.parseDouble(options.getOrDefault("circle-share", String.valueOf(defaults.circleShare()))),
+                Double.parseDouble(options.getOrDefault("world-size", String.valueOf(defaults.worldSize()))),
+                Double.parseDouble(options.getOrDefault("signal-share", String.valueOf(defaults.signalShare()))),
+                Double.parseDouble(options.getOrDefault("follow-share", String.valueOf(defaults.followShare()))),
+                Long.parseLong(options.getOrDefault("seed", String.valueOf(defaults.seed()))));
+    }
+
+    /**
+     * Returns the heap in use once the garbage collector has reclaimed what it can.
+     *
+     * @return The used heap in bytes.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Parses a comma-separated list of non-negative integers.
+     *
+     * @param list The list.
+     * @return The integers.
+     * @throws IllegalArgumentException If an element is negative or not an integer.
+     */
+    private static int[] parseList(String list) {
+        int[] values = Arrays.stream(list.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        if (Arrays.stream(values).anyMatch(value -> value < 0)) {
+            throw new IllegalArgumentException("Counts cannot be negative: " + list);
+        }
+        return values;
+    }
+
+    /**
+     * Parses options of the form --name=value.
+     *
+     * @param args The command line arguments.
+     * @return A map from option names to their values.
+     * @throws IllegalArgumentException If an argument is not an option with a value, or the option is unknown.
+     */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.startsWith("--") ? arg.substring(2).split("=", 2) : new String[0];
+            if (option.length != 2) {
+                throw new IllegalArgumentException("Expected an option of the form --name=value: " + arg);
+            }
+            if (!OPTIONS.contains(option[0])) {
+                throw new IllegalArgumentException("Unknown option: --" + option[0]);
+            }
+            options.put(option[0], option[1]);
+        }
+        return options;
+    }
+}
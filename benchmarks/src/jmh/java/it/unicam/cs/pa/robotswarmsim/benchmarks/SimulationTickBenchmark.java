@@ -0,0 +1,66 @@
+package it.unicam.cs.pa.robotswarmsim.benchmarks;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures whole simulation ticks of a swarm of leaders and followers, on one thread and on every core.
+ * The parallel runs share one ForkJoin pool per trial, so no invocation pays for starting threads.
+ * Each run still commits and re-indexes every robot once before its first tick, about the work of
+ * the commit and indexing phases of a single tick, so a run simulates enough ticks to make it negligible.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationTickBenchmark {
+
+    private static final int TICKS = 100; // Ticks simulated by each invocation
+
+    @Param({"1000", "10000", "100000"})
+    public int robots;
+
+    @Param({"1", "0"})
+    public int threads; // 0 uses every available core
+
+    private RobotSimulator simulator;
+    private ForkJoinPool pool; // Pool of the trial, null on one thread
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Environment environment = new Environment(42);
+        List<Robot> swarm = Swarms.leadersAndFollowers(environment, robots, 42);
+        simulator = new RobotSimulator(swarm);
+        simulator.setHeadless(true);
+        int parallelism = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        if (parallelism > 1) {
+            pool = new ForkJoinPool(parallelism);
+            simulator.setPool(pool);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Simulates a batch of ticks; the reported time is per tick.
+     */
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public void tick() {
+
+        simulator.simulate(1.0, TICKS);
+    }
+}
@@ -0,0 +1,115 @@
+package it.unicam.cs.pa.robotswarmsim.benchmarks;
+
+import it.unicam.cs.pa.robotswarmsim.library.CommandsParser;
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
+import it.unicam.cs.pa.robotswarmsim.library.area.Rectangle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.program.Program;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * This class builds the swarms and environments shared by the benchmarks.
+ * Robots are spread uniformly at a constant density of one robot every 100 square meters, so that
+ * the number of neighbours within a FOLLOW range does not depend on the size of the swarm.
+ */
+final class Swarms {
+
+    /**
+     * The label signalled by leaders and followed by followers.
+     */
+    static final String LEADER_LABEL = "Leader";
+
+    /**
+     * The range of the FOLLOW command of followers.
+     */
+    static final double FOLLOW_RANGE = 5;
+
+    /**
+     * The program of leaders: signal, then wander forever.
+     */
+    static final String LEADER_PROGRAM = "SIGNAL " + LEADER_LABEL + "\nDO FOREVER\nMOVE RANDOM -10 10 -10 10 1\nDONE";
+
+    /**
+     * The program of followers: follow the nearby leaders forever.
+     */
+    static final String FOLLOWER_PROGRAM = "DO FOREVER\nFOLLOW " + LEADER_LABEL + " " + FOLLOW_RANGE + " 1\nDONE";
+
+    private static final double AREA_PER_ROBOT = 100; // Square meters per robot
+
+    private Swarms() {
+    }
+
+    /**
+     * Returns the side of the square world holding the given number of robots at the benchmark density.
+     *
+     * @param robots The number of robots.
+     * @return The side of the world in meters.
+     */
+    static double worldSize(int robots) {
+
+        return Math.sqrt(robots * AREA_PER_ROBOT);
+    }
+
+    /**
+     * Parses and compiles a robot program.
+     *
+     * @param source The program text.
+     * @return The compiled program.
+     */
+    static Program compile(String source) {
+        CommandsParser parser = new CommandsParser();
+        parser.processCommandString(source, false);
+        return parser.getProgram();
+    }
+
+    /**
+     * Creates a swarm in which one robot in two is a leader and the others follow them.
+     *
+     * @param environment The environment of the swarm.
+     * @param robots      The number of robots.
+     * @param seed        The seed of the initial positions.
+     * @return The robots, already added to the environment.
+     */
+    static List<Robot> leadersAndFollowers(Environment environment, int robots, long seed) {
+        Program leader = compile(LEADER_PROGRAM);
+        Program follower = compile(FOLLOWER_PROGRAM);
+        SplittableRandom random = new SplittableRandom(seed);
+        double size = worldSize(robots);
+        List<Robot> swarm = new ArrayList<>(robots);
+        for (int i = 0; i < robots; i++) {
+            Robot robot = new Robot(new Point(random.nextDouble() * size, random.nextDouble() * size), environment);
+            robot.setProgram(i % 2 == 0 ? leader : follower);
+            environment.addRobot(robot);
+            swarm.add(robot);
+        }
+        environment.setCellSize(FOLLOW_RANGE);
+        return swarm;
+    }
+
+    /**
+     * Adds circles and rectangles of random size, spread uniformly over a square world.
+     *
+     * @param environment The environment receiving the areas.
+     * @param areas       The number of areas.
+     * @param size        The side of the world.
+     * @param seed        The seed of the areas.
+     */
+    static void addAreas(Environment environment, int areas, double size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < areas; i++) {
+            Point corner = new Point(random.nextDouble() * size, random.nextDouble() * size);
+            String label = "Z" + (i % 200);
+            if (i % 2 == 0) {
+                environment.addArea(new Circle(corner, 1 + random.nextDouble() * 5, label));
+            } else {
+                environment.addArea(new Rectangle(corner, 1 + random.nextDouble() * 10, 1 + random.nextDouble() * 10,
+                        label));
+            }
+        }
+    }
+}
@@ -6,6 +6,8 @@ import it.unicam.cs.pa.robotswarmsim.utilities.FollowMeParserHandler;
 import it.unicam.cs.pa.robotswarmsim.library.robotcommand.*;
 import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
 import it.unicam.cs.pa.robotswarmsim.library.area.Rectangle;
+import it.unicam.cs.pa.robotswarmsim.library.jfr.ParseEvent;
+import it.unicam.cs.pa.robotswarmsim.library.program.Program;
 import it.unicam.cs.pa.robotswarmsim.utilities.ShapeData;
 
 import java.util.*;
@@ -22,6 +24,8 @@ public class CommandsParser implements FollowMeParserHandler {
 
     private Environment environment = new Environment();
     private final FollowMeParser parser;
+    private double maxFollowDistance = 0; // Largest range of the parsed FOLLOW commands
+    private Program program; // Compiled form of the parsed commands, built on first request
 
     /**
      * Constructs a new CommandsParser.
@@ -41,6 +45,29 @@ public class CommandsParser implements FollowMeParserHandler {
         return commands;
     }
 
+    /**
+     * Gets the parsed robot commands compiled into a program that can be shared by every robot.
+     *
+     * @return The compiled program.
+     */
+    public Program getProgram() {
+        if (program == null) {
+            program = Program.compile(commands);
+        }
+        return program;
+    }
+
+    /**
+     * Gets the largest search distance among the parsed FOLLOW commands.
+     * It is a good cell size for the grid answering the range queries of the program.
+     *
+     * @return The largest FOLLOW distance, or 0 if the program has no FOLLOW command.
+     */
+    public double getMaxFollowDistance() {
+
+        return maxFollowDistance;
+    }
+
     /**
      * Gets the parsed environment.
      *
@@ -54,11 +81,16 @@ public class CommandsParser implements FollowMeParserHandler {
     /**
      * Processes the input command string, distinguishing between environment and robot commands.
      * This method parses and handles commands based on the specified isEnvironment parameter.
+     * Each run is recorded as a {@link ParseEvent} for JDK Flight Recorder.
      *
      * @param commandString  The input command string.
      * @param isEnvironment  Indicates whether the command is related to the environment.
      */
     public void processCommandString(String commandString, boolean isEnvironment) {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        event.environment = isEnvironment;
+        event.characters = commandString.length();
         try {
             String formattedCommandString = commandString.replace("\\n", "\n");
 
@@ -68,13 +100,17 @@ public class CommandsParser implements FollowMeParserHandler {
                 for (ShapeData shapeData : shapeDataList) {
                     createAreaFromShapeData(shapeData);
                 }
+                event.items = shapeDataList.size();
             } else {
                 // Parse and handle robot program commands
                 parser.parseRobotProgram(formattedCommandString);
+                event.items = commands.size();
             }
+            event.succeeded = true;
         } catch (FollowMeParserException e) {
             System.err.println("Error during parsing: " + e.getMessage());
         }
+        event.commit();
     }
 
     /**
@@ -109,6 +145,8 @@ public class CommandsParser implements FollowMeParserHandler {
         environment = new Environment();
         commandStack.clear();
         currentCommands = commands;
+        maxFollowDistance = 0;
+        program = null;
     }
 
     /**
@@ -172,6 +210,7 @@ public class CommandsParser implements FollowMeParserHandler {
     public void followCommand(String label, double[] args) {
         FollowCommand command = new FollowCommand(label, args[0], args[1]);
         currentCommands.add(command);
+        maxFollowDistance = Math.max(maxFollowDistance, args[0]);
     }
 
     /**
@@ -1,24 +1,124 @@
 package it.unicam.cs.pa.robotswarmsim.library;
 
 import it.unicam.cs.pa.robotswarmsim.library.area.Area;
+import it.unicam.cs.pa.robotswarmsim.library.entity.HeapRobotStore;
 import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.entity.RobotStore;
+import it.unicam.cs.pa.robotswarmsim.library.jfr.RangeQueryEvent;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.SimulationMetrics;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.TickProfiler;
+import it.unicam.cs.pa.robotswarmsim.library.spatial.AreaIndex;
+import it.unicam.cs.pa.robotswarmsim.library.spatial.SpatialGrid;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * This class represents the environment in which robots operate.
+ * The committed positions of the robots added to the environment are indexed in a uniform grid,
+ * so that range queries only visit the robots of nearby cells.
+ * Areas are indexed in a bounding volume hierarchy, built once after the areas have been added,
+ * so that finding the areas containing a point only tests the areas whose bounds contain it.
+ * The labels of the areas and of the signals of the robots are interned in a registry owned by the environment.
  */
 public class Environment {
+    /**
+     * The default side of a cell of the robot grid.
+     */
+    public static final double DEFAULT_CELL_SIZE = 10;
+
+    private static final ThreadLocal<HitCounter> HIT_COUNTERS = ThreadLocal.withInitial(HitCounter::new);
+    private static final ThreadLocal<RobotVisitor> ROBOT_VISITORS = ThreadLocal.withInitial(RobotVisitor::new);
+
+    private final LabelRegistry labels; // Labels of the areas and of the signals of the robots
     private final List<Area> areas; // List of areas in the environment
+    private volatile AreaIndex areaIndex; // Index over the areas, null until first needed after a change
     private final List<Robot> robots; // List of robots in the environment
+    private final List<Area> areasView; // Read-only view of the areas
+    private final List<Robot> robotsView; // Read-only view of the robots
+    private final List<Robot> robotsById; // Robots added to the environment, indexed by id
+    private SpatialGrid robotGrid; // Grid over the committed positions of the robots
+    private RobotStore robotStore; // State of every robot created in the environment
+    private final SplittableRandom seeds; // Source of the robots' random seeds
+    private TickProfiler profiler; // Profiler timing the area and neighbour lookups, null when not profiling
+    private SimulationMetrics metrics; // Counters of the area and neighbour lookups, null when not counting
 
     /**
-     * Constructs a new Environment object.
+     * Constructs a new Environment object with a random seed.
      */
     public Environment() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Constructs a new Environment object whose robots draw reproducible random numbers.
+     *
+     * @param seed The seed from which the robots' random streams are derived.
+     */
+    public Environment(long seed) {
+        this.labels = new LabelRegistry();
         this.areas = new ArrayList<>();
         this.robots = new ArrayList<>();
+        this.robotsById = new ArrayList<>();
+        this.areasView = Collections.unmodifiableList(areas);
+        this.robotsView = Collections.unmodifiableList(robots);
+        this.robotGrid = new SpatialGrid(DEFAULT_CELL_SIZE);
+        this.robotStore = new HeapRobotStore();
+        this.seeds = new SplittableRandom(seed);
+    }
+
+    /**
+     * Gets the registry in which the labels of the areas and of the signals of the robots are interned.
+     *
+     * @return The label registry of the environment.
+     */
+    public LabelRegistry getLabels() {
+
+        return labels;
+    }
+
+    /**
+     * Gets the store holding the state of every robot created in this environment.
+     *
+     * @return The robot store of the environment.
+     */
+    public RobotStore getRobotStore() {
+
+        return robotStore;
+    }
+
+    /**
+     * Replaces the store that will hold the state of the robots created in this environment,
+     * for example with an {@link it.unicam.cs.pa.robotswarmsim.library.entity.OffHeapRobotStore}.
+     * Robots keep the store they were created with, so it can only be replaced before the first robot.
+     *
+     * @param robotStore The new, empty robot store.
+     * @throws IllegalArgumentException if the new store is null or not empty.
+     * @throws IllegalStateException    if robots were already created in this environment.
+     */
+    public void setRobotStore(RobotStore robotStore) {
+        if (robotStore == null || robotStore.size() > 0) {
+            throw new IllegalArgumentException("The robot store must be empty.");
+        }
+        if (this.robotStore.size() > 0) {
+            throw new IllegalStateException("The robot store cannot be replaced after robots were created.");
+        }
+        this.robotStore = robotStore;
+    }
+
+    /**
+     * Returns the seed of the random stream of the next robot created in this environment.
+     *
+     * @return A seed for a robot's random stream.
+     */
+    public long nextRobotSeed() {
+
+        return seeds.nextLong();
     }
 
     /**
@@ -27,8 +127,78 @@ public class Environment {
      * @param area The area to add.
      */
     public void addArea(Area area) {
-
+        labels.intern(area.getLabel());
         areas.add(area);
+        areaIndex = null;
+    }
+
+    /**
+     * Gets the index over the areas of the environment, building it if areas were added since the last lookup.
+     * The index is immutable, so it can be shared by the threads stepping the robots.
+     *
+     * @return The area index.
+     */
+    public AreaIndex getAreaIndex() {
+        AreaIndex index = areaIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = areaIndex;
+                if (index == null) {
+                    index = new AreaIndex(areas, labels);
+                    areaIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Visits every area of the environment containing the given point.
+     * Only the areas whose bounding box contains the point are tested.
+     *
+     * @param point  The point.
+     * @param action The action receiving each area containing the point.
+     */
+    public void forEachAreaContaining(Point point, Consumer<Area> action) {
+
+        getAreaIndex().forEachContaining(point, action);
+    }
+
+    /**
+     * Visits the label id of every area of the environment containing the given point.
+     *
+     * @param point  The point.
+     * @param action The action receiving the label id of each area containing the point.
+     */
+    public void forEachAreaLabelContaining(Point point, IntConsumer action) {
+
+        forEachAreaLabelContaining(point.x(), point.y(), action);
+    }
+
+    /**
+     * Visits the label id of every area of the environment containing the point with the given coordinates,
+     * without allocating.
+     *
+     * @param x      The x-coordinate of the point.
+     * @param y      The y-coordinate of the point.
+     * @param action The action receiving the label id of each area containing the point.
+     */
+    public void forEachAreaLabelContaining(double x, double y, IntConsumer action) {
+        TickProfiler timing = profiler;
+        SimulationMetrics counters = metrics;
+        if (timing == null && counters == null) {
+            getAreaIndex().forEachLabelContaining(x, y, action);
+            return;
+        }
+        long start = timing == null ? 0 : System.nanoTime();
+        int tests = getAreaIndex().forEachLabelContaining(x, y, action);
+        if (counters != null) {
+            counters.add(SimulationMetrics.Counter.AREA_QUERIES, 1);
+            counters.add(SimulationMetrics.Counter.AREA_TESTS, tests);
+        }
+        if (timing != null) {
+            timing.addNested(TickProfiler.Phase.AREA_UPDATE, System.nanoTime() - start);
+        }
     }
 
     /**
@@ -37,28 +207,205 @@ public class Environment {
      * @param robot The robot to add.
      */
     public void addRobot(Robot robot) {
-
         robots.add(robot);
+        int id = robot.getId();
+        while (robotsById.size() <= id) {
+            robotsById.add(null);
+        }
+        robotsById.set(id, robot);
+        robotGrid.insert(id, robotStore.getSnapshotX(id), robotStore.getSnapshotY(id));
+    }
+
+    /**
+     * Moves a robot to its committed position in the grid used by range queries.
+     * Must be called, from one thread at a time, after the state of the robot has been committed.
+     *
+     * @param robot The robot whose committed position changed.
+     */
+    public void updateRobotIndex(Robot robot) {
+        int id = robot.getId();
+        if (robotGrid.contains(id)) {
+            robotGrid.move(id, robotStore.getSnapshotX(id), robotStore.getSnapshotY(id));
+        }
+    }
+
+    /**
+     * Visits every robot of the environment whose committed position is within the given range of a point.
+     * Only the grid cells overlapping the search circle are scanned.
+     * While a flight recording collects them, a sample of the queries is recorded as {@link RangeQueryEvent}s.
+     *
+     * @param x      The x-coordinate of the center of the search.
+     * @param y      The y-coordinate of the center of the search.
+     * @param range  The search radius.
+     * @param action The action receiving each robot within range.
+     */
+    public void forEachRobotWithinRange(double x, double y, double range, Consumer<Robot> action) {
+        RobotVisitor visitor = ROBOT_VISITORS.get();
+        List<Robot> outerRobots = visitor.robots;
+        Consumer<Robot> outerAction = visitor.action;
+        visitor.robots = robotsById;
+        visitor.action = action;
+        try {
+            forEachRobotIdWithinRange(x, y, range, visitor);
+        } finally {
+            visitor.robots = outerRobots;
+            visitor.action = outerAction;
+        }
+    }
+
+    /**
+     * Visits the id of every robot of the environment whose committed position is within the given range
+     * of a point. Given an action that does not allocate, the query allocates nothing, even while it is timed,
+     * counted or recorded; the robot of an id is returned by {@link #getRobot(int)} and its committed position
+     * by the robot store.
+     *
+     * @param x      The x-coordinate of the center of the search.
+     * @param y      The y-coordinate of the center of the search.
+     * @param range  The search radius.
+     * @param action The action receiving the id of each robot within range.
+     */
+    public void forEachRobotIdWithinRange(double x, double y, double range, IntConsumer action) {
+        TickProfiler timing = profiler;
+        SimulationMetrics counters = metrics;
+        RangeQueryEvent event = RangeQueryEvent.sample();
+        if (timing == null && counters == null && event == null) {
+            robotGrid.forEachWithinRange(x, y, range, action);
+            return;
+        }
+        long start = timing == null ? 0 : System.nanoTime();
+        HitCounter counter = HIT_COUNTERS.get();
+        IntConsumer outerAction = counter.action;
+        int outerHits = counter.hits;
+        counter.action = action;
+        counter.hits = 0;
+        int candidates = robotGrid.forEachWithinRange(x, y, range, counter);
+        int hits = counter.hits;
+        counter.action = outerAction;
+        counter.hits = outerHits;
+        if (event != null) {
+            event.range = range;
+            event.candidates = candidates;
+            event.hits = hits;
+            event.commit();
+        }
+        if (counters != null) {
+            counters.add(SimulationMetrics.Counter.NEIGHBOUR_QUERIES, 1);
+            counters.add(SimulationMetrics.Counter.NEIGHBOUR_CANDIDATES, candidates);
+            counters.add(SimulationMetrics.Counter.NEIGHBOUR_HITS, hits);
+        }
+        if (timing != null) {
+            timing.addNested(TickProfiler.Phase.NEIGHBOUR_QUERY, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Returns a robot added to the environment.
+     *
+     * @param id The id of the robot.
+     * @return The robot with that id.
+     */
+    public Robot getRobot(int id) {
+
+        return robotsById.get(id);
+    }
+
+    /**
+     * Sets the profiler timing the area-label lookups and the neighbour queries of the robots.
+     * It must be set between runs, before the robots are stepped.
+     *
+     * @param profiler The profiler, or null to stop timing.
+     */
+    public void setProfiler(TickProfiler profiler) {
+
+        this.profiler = profiler;
+    }
+
+    /**
+     * Sets the registry counting the area-label lookups and the neighbour queries of the robots.
+     * It must be set between runs, before the robots are stepped.
+     *
+     * @param metrics The registry, or null to stop counting.
+     */
+    public void setMetrics(SimulationMetrics metrics) {
+
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the side of the cells of the robot grid and rebuilds it.
+     * Range queries are cheapest when the cell size is close to the typical query range.
+     *
+     * @param cellSize The new cell size.
+     * @throws IllegalArgumentException if the cell size is not a positive finite number.
+     */
+    public void setCellSize(double cellSize) {
+        SpatialGrid grid = new SpatialGrid(cellSize);
+        for (Robot robot : robots) {
+            int id = robot.getId();
+            grid.insert(id, robotStore.getSnapshotX(id), robotStore.getSnapshotY(id));
+        }
+        this.robotGrid = grid;
     }
 
     /**
      * Gets a list of robots in the environment.
      *
-     * @return A list of robots in the environment.
+     * @return A read-only view of the robots in the environment, reflecting later additions.
      */
     public List<Robot> getRobots() {
 
-        return new ArrayList<>(robots);
+        return robotsView;
     }
 
     /**
      * Gets a list of areas in the environment.
      *
-     * @return A list of areas in the environment.
+     * @return A read-only view of the areas in the environment, reflecting later additions.
      */
     public List<Area> getAreas() {
 
-        return new ArrayList<>(areas);
+        return areasView;
     }
 
+    /**
+     * This class passes the robots of a neighbour query to an action taking robots. One instance per thread
+     * is reused by every query, so that visiting robots rather than ids allocates no capturing lambda.
+     */
+    private static final class RobotVisitor implements IntConsumer {
+
+        private List<Robot> robots; // Robots by id of the environment of the current query
+        private Consumer<Robot> action; // Action of the current query
+
+        /**
+         * Passes the robot of an id within range to the action of the query.
+         *
+         * @param id The id of the robot.
+         */
+        @Override
+        public void accept(int id) {
+
+            action.accept(robots.get(id));
+        }
+    }
+
+    /**
+     * This class counts the robots a neighbour query passes to its action. One instance per thread is reused
+     * by every instrumented query, so that counting the hits allocates nothing.
+     */
+    private static final class HitCounter implements IntConsumer {
+
+        private IntConsumer action; // Action of the current query
+        private int hits; // Robots passed to the action so far
+
+        /**
+         * Counts a robot within range and passes it to the action of the query.
+         *
+         * @param id The id of the robot.
+         */
+        @Override
+        public void accept(int id) {
+            hits++;
+            action.accept(id);
+        }
+    }
 }
@@ -14,10 +14,35 @@ public interface Area {
      */
     boolean contains(Point point);
 
+    /**
+     * Checks if the point with the given coordinates is inside the area, without creating a point.
+     * The default creates one; the areas of the library override it.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @return true if the point is inside the area, otherwise false.
+     */
+    default boolean contains(double x, double y) {
+
+        return contains(new Point(x, y));
+    }
+
     /**
      * Returns the label of the area.
      *
      * @return The label of the area.
      */
     String getLabel();
+
+    /**
+     * Returns a box enclosing every point the area contains.
+     * Spatial indexes only test an area against the points inside its bounds, so the box must never
+     * be smaller than the area; the default covers the whole plane.
+     *
+     * @return The bounding box of the area.
+     */
+    default Bounds getBounds() {
+
+        return Bounds.UNBOUNDED;
+    }
 }
@@ -0,0 +1,30 @@
+package it.unicam.cs.pa.robotswarmsim.library.area;
+
+/**
+ * This record represents an axis-aligned bounding box, used to discard areas that cannot contain a point.
+ *
+ * @param minX The smallest x-coordinate of the box.
+ * @param minY The smallest y-coordinate of the box.
+ * @param maxX The largest x-coordinate of the box.
+ * @param maxY The largest y-coordinate of the box.
+ */
+public record Bounds(double minX, double minY, double maxX, double maxY) {
+
+    /**
+     * A box covering the whole plane, for areas whose extent is unknown.
+     */
+    public static final Bounds UNBOUNDED = new Bounds(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    /**
+     * Checks if the box contains the given coordinates, borders included.
+     *
+     * @param x The x-coordinate to check.
+     * @param y The y-coordinate to check.
+     * @return true if the point is inside the box, otherwise false.
+     */
+    public boolean contains(double x, double y) {
+
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+}
@@ -31,7 +31,20 @@ public class Circle implements Area {
      */
     @Override
     public boolean contains(Point point) {
-        double distanceSquared = Math.pow(point.x() - center.x(), 2) + Math.pow(point.y() - center.y(), 2);
+
+        return contains(point.x(), point.y());
+    }
+
+    /**
+     * Checks if the point with the given coordinates is inside the circular area.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @return true if the point is inside the circular area, otherwise false.
+     */
+    @Override
+    public boolean contains(double x, double y) {
+        double distanceSquared = Math.pow(x - center.x(), 2) + Math.pow(y - center.y(), 2);
         return distanceSquared <= Math.pow(radius, 2);
     }
 
@@ -45,6 +58,37 @@ public class Circle implements Area {
         return label;
     }
 
+    /**
+     * Returns the center of the circular area.
+     *
+     * @return The center of the circle.
+     */
+    public Point getCenter() {
+        return center;
+    }
+
+    /**
+     * Returns the radius of the circular area.
+     *
+     * @return The radius of the circle.
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Returns the square enclosing the circular area.
+     *
+     * @return The bounding box of the circular area.
+     */
+    @Override
+    public Bounds getBounds() {
+        // Widen the square by a few ulps, so rounding in contains() never accepts a point outside it
+        double extent = Math.abs(radius);
+        extent += 4 * Math.ulp(Math.max(Math.abs(center.x()), Math.abs(center.y())) + extent);
+        return new Bounds(center.x() - extent, center.y() - extent, center.x() + extent, center.y() + extent);
+    }
+
     /**
      * Returns a string representation of the Circle object with additional information.
      *
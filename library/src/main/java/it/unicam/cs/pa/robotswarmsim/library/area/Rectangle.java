@@ -35,8 +35,21 @@ public class Rectangle implements Area {
      */
     @Override
     public boolean contains(Point point) {
-        return point.x() >= topLeft.x() && point.x() <= topLeft.x() + width &&
-                point.y() >= topLeft.y() && point.y() <= topLeft.y() + height;
+
+        return contains(point.x(), point.y());
+    }
+
+    /**
+     * Checks if the point with the given coordinates is inside the rectangular area.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @return true if the point is inside the rectangular area, otherwise false.
+     */
+    @Override
+    public boolean contains(double x, double y) {
+        return x >= topLeft.x() && x <= topLeft.x() + width &&
+                y >= topLeft.y() && y <= topLeft.y() + height;
     }
 
     /**
@@ -49,6 +62,46 @@ public class Rectangle implements Area {
         return label;
     }
 
+    /**
+     * Returns the top-left point of the rectangular area.
+     *
+     * @return The top-left point of the rectangle.
+     */
+    public Point getTopLeft() {
+        return topLeft;
+    }
+
+    /**
+     * Returns the width of the rectangular area.
+     *
+     * @return The width of the rectangle.
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the rectangular area.
+     *
+     * @return The height of the rectangle.
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the rectangular area itself as a bounding box.
+     *
+     * @return The bounding box of the rectangular area.
+     */
+    @Override
+    public Bounds getBounds() {
+        double right = topLeft.x() + width;
+        double bottom = topLeft.y() + height;
+        return new Bounds(Math.min(topLeft.x(), right), Math.min(topLeft.y(), bottom),
+                Math.max(topLeft.x(), right), Math.max(topLeft.y(), bottom));
+    }
+
     /**
      * Returns a string representation of the Rectangle object with additional information.
      *
@@ -0,0 +1,450 @@
+package it.unicam.cs.pa.robotswarmsim.library.entity;
+
+import it.unicam.cs.pa.robotswarmsim.library.kinematics.PositionIntegrator;
+
+import java.util.Arrays;
+
+/**
+ * This class stores the state of many robots as a structure of arrays on the Java heap.
+ * Every field of the robots is kept in a primitive array indexed by robot id; the arrays grow as rows
+ * are added. It is the default store of an environment.
+ */
+public class HeapRobotStore implements RobotStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int[] NO_LOOP_COUNTERS = new int[0];
+
+    private int size = 0; // Number of rows in use
+    private double[] x; // X-coordinate of the position
+    private double[] y; // Y-coordinate of the position
+    private double[] heading; // Direction in degrees
+    private double[] headingX; // X-component of the unit vector of the heading
+    private double[] headingY; // Y-component of the unit vector of the heading
+    private double[] speed; // Speed in meters per second
+    private double[] snapshotX; // X-coordinate committed at the last tick boundary
+    private double[] snapshotY; // Y-coordinate committed at the last tick boundary
+    private int[] commandIndex; // Index of the command being executed
+    private double[] timedElapsed; // Elapsed time of the current timed command
+    private long[] randomState; // State of the robot's own random number stream
+    private long[][] signals; // Committed signals, one column per word of 64 label ids
+    private int[][] loopCounters; // Remaining iterations of the REPEAT blocks of the robot's program
+
+    /**
+     * Constructs an empty store.
+     */
+    public HeapRobotStore() {
+        x = new double[INITIAL_CAPACITY];
+        y = new double[INITIAL_CAPACITY];
+        heading = new double[INITIAL_CAPACITY];
+        headingX = new double[INITIAL_CAPACITY];
+        headingY = new double[INITIAL_CAPACITY];
+        speed = new double[INITIAL_CAPACITY];
+        snapshotX = new double[INITIAL_CAPACITY];
+        snapshotY = new double[INITIAL_CAPACITY];
+        commandIndex = new int[INITIAL_CAPACITY];
+        timedElapsed = new double[INITIAL_CAPACITY];
+        randomState = new long[INITIAL_CAPACITY];
+        signals = new long[][]{new long[INITIAL_CAPACITY]};
+        loopCounters = new int[INITIAL_CAPACITY][];
+    }
+
+    /**
+     * Adds a row for a new robot standing still at the given position.
+     *
+     * @param initialX   The initial x-coordinate.
+     * @param initialY   The initial y-coordinate.
+     * @param randomSeed The seed of the robot's random number stream.
+     * @return The id of the new row.
+     */
+    @Override
+    public int add(double initialX, double initialY, long randomSeed) {
+        if (size == x.length) {
+            grow();
+        }
+        int id = size++;
+        x[id] = initialX;
+        y[id] = initialY;
+        headingX[id] = 1;
+        snapshotX[id] = initialX;
+        snapshotY[id] = initialY;
+        randomState[id] = randomSeed;
+        loopCounters[id] = NO_LOOP_COUNTERS;
+        return id;
+    }
+
+    /**
+     * Doubles the capacity of every column.
+     */
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        heading = Arrays.copyOf(heading, capacity);
+        headingX = Arrays.copyOf(headingX, capacity);
+        headingY = Arrays.copyOf(headingY, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        snapshotX = Arrays.copyOf(snapshotX, capacity);
+        snapshotY = Arrays.copyOf(snapshotY, capacity);
+        commandIndex = Arrays.copyOf(commandIndex, capacity);
+        timedElapsed = Arrays.copyOf(timedElapsed, capacity);
+        randomState = Arrays.copyOf(randomState, capacity);
+        for (int word = 0; word < signals.length; word++) {
+            signals[word] = Arrays.copyOf(signals[word], capacity);
+        }
+        loopCounters = Arrays.copyOf(loopCounters, capacity);
+    }
+
+    /**
+     * Returns the number of rows in the store.
+     *
+     * @return The number of robots stored.
+     */
+    @Override
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * Returns the x-coordinate of a robot.
+     *
+     * @param id The robot id.
+     * @return The x-coordinate.
+     */
+    @Override
+    public double getX(int id) {
+
+        return x[id];
+    }
+
+    /**
+     * Returns the y-coordinate of a robot.
+     *
+     * @param id The robot id.
+     * @return The y-coordinate.
+     */
+    @Override
+    public double getY(int id) {
+
+        return y[id];
+    }
+
+    /**
+     * Sets the position of a robot.
+     *
+     * @param id   The robot id.
+     * @param newX The new x-coordinate.
+     * @param newY The new y-coordinate.
+     */
+    @Override
+    public void setPosition(int id, double newX, double newY) {
+        x[id] = newX;
+        y[id] = newY;
+    }
+
+    /**
+     * Moves the listed robots by their speed times the time step along the unit vector of their heading,
+     * handing the arrays to the integrator.
+     *
+     * @param ids        The ids of the robots to move, all distinct.
+     * @param count      The number of ids to read from the start of the array.
+     * @param dt         The time step in seconds.
+     * @param integrator The kernel computing the new positions.
+     */
+    @Override
+    public void integratePositions(int[] ids, int count, double dt, PositionIntegrator integrator) {
+
+        integrator.integrate(x, y, speed, headingX, headingY, ids, count, dt);
+    }
+
+    /**
+     * Returns the heading of a robot.
+     *
+     * @param id The robot id.
+     * @return The direction in degrees.
+     */
+    @Override
+    public double getHeading(int id) {
+
+        return heading[id];
+    }
+
+    /**
+     * Sets the heading of a robot together with its unit vector, already known by the caller.
+     *
+     * @param id         The robot id.
+     * @param newHeading The new direction in degrees.
+     * @param unitX      The cosine of the new direction.
+     * @param unitY      The sine of the new direction.
+     */
+    @Override
+    public void setHeading(int id, double newHeading, double unitX, double unitY) {
+        heading[id] = newHeading;
+        headingX[id] = unitX;
+        headingY[id] = unitY;
+    }
+
+    /**
+     * Returns the x-component of the unit vector of a robot's heading.
+     *
+     * @param id The robot id.
+     * @return The cosine of the direction.
+     */
+    @Override
+    public double getHeadingX(int id) {
+
+        return headingX[id];
+    }
+
+    /**
+     * Returns the y-component of the unit vector of a robot's heading.
+     *
+     * @param id The robot id.
+     * @return The sine of the direction.
+     */
+    @Override
+    public double getHeadingY(int id) {
+
+        return headingY[id];
+    }
+
+    /**
+     * Returns the speed of a robot.
+     *
+     * @param id The robot id.
+     * @return The speed in meters per second.
+     */
+    @Override
+    public double getSpeed(int id) {
+
+        return speed[id];
+    }
+
+    /**
+     * Sets the speed of a robot.
+     *
+     * @param id       The robot id.
+     * @param newSpeed The new speed in meters per second.
+     */
+    @Override
+    public void setSpeed(int id, double newSpeed) {
+
+        speed[id] = newSpeed;
+    }
+
+    /**
+     * Returns the x-coordinate of a robot committed at the last tick boundary.
+     *
+     * @param id The robot id.
+     * @return The committed x-coordinate.
+     */
+    @Override
+    public double getSnapshotX(int id) {
+
+        return snapshotX[id];
+    }
+
+    /**
+     * Returns the y-coordinate of a robot committed at the last tick boundary.
+     *
+     * @param id The robot id.
+     * @return The committed y-coordinate.
+     */
+    @Override
+    public double getSnapshotY(int id) {
+
+        return snapshotY[id];
+    }
+
+    /**
+     * Commits the current position of a robot as the one observed by its neighbours.
+     *
+     * @param id The robot id.
+     */
+    @Override
+    public void commitPosition(int id) {
+        snapshotX[id] = x[id];
+        snapshotY[id] = y[id];
+    }
+
+    /**
+     * Returns the index of the command a robot is executing.
+     *
+     * @param id The robot id.
+     * @return The command index.
+     */
+    @Override
+    public int getCommandIndex(int id) {
+
+        return commandIndex[id];
+    }
+
+    /**
+     * Sets the index of the command a robot is executing.
+     *
+     * @param id    The robot id.
+     * @param index The new command index.
+     */
+    @Override
+    public void setCommandIndex(int id, int index) {
+
+        commandIndex[id] = index;
+    }
+
+    /**
+     * Returns the elapsed time of a robot's current timed command.
+     *
+     * @param id The robot id.
+     * @return The elapsed time in seconds.
+     */
+    @Override
+    public double getTimedElapsed(int id) {
+
+        return timedElapsed[id];
+    }
+
+    /**
+     * Sets the elapsed time of a robot's current timed command.
+     *
+     * @param id      The robot id.
+     * @param elapsed The elapsed time in seconds.
+     */
+    @Override
+    public void setTimedElapsed(int id, double elapsed) {
+
+        timedElapsed[id] = elapsed;
+    }
+
+    /**
+     * Resets the loop counters of a robot, sizing them for a new program.
+     *
+     * @param id    The robot id.
+     * @param count The number of loop counters the program needs.
+     */
+    @Override
+    public void resetLoopCounters(int id, int count) {
+
+        loopCounters[id] = count == 0 ? NO_LOOP_COUNTERS : new int[count];
+    }
+
+    /**
+     * Returns the remaining iterations of one of a robot's loops.
+     *
+     * @param id   The robot id.
+     * @param slot The loop counter assigned to the loop by its program.
+     * @return The remaining iterations.
+     */
+    @Override
+    public int getLoopCounter(int id, int slot) {
+
+        return loopCounters[id][slot];
+    }
+
+    /**
+     * Sets the remaining iterations of one of a robot's loops.
+     *
+     * @param id    The robot id.
+     * @param slot  The loop counter assigned to the loop by its program.
+     * @param value The remaining iterations.
+     */
+    @Override
+    public void setLoopCounter(int id, int slot, int value) {
+
+        loopCounters[id][slot] = value;
+    }
+
+    /**
+     * Returns the state of a robot's random number stream.
+     *
+     * @param id The robot id.
+     * @return The state of the stream.
+     */
+    @Override
+    public long getRandomState(int id) {
+
+        return randomState[id];
+    }
+
+    /**
+     * Sets the state of a robot's random number stream.
+     *
+     * @param id    The robot id.
+     * @param state The state of the stream.
+     */
+    @Override
+    public void setRandomState(int id, long state) {
+
+        randomState[id] = state;
+    }
+
+    /**
+     * Returns the number of words of 64 label ids the store currently holds for the signals of each robot.
+     * It grows when signals are reserved for more labels, or when a robot first signals a label beyond them.
+     *
+     * @return The number of signal words per robot, at least 1.
+     */
+    @Override
+    public int getSignalWords() {
+
+        return signals.length;
+    }
+
+    /**
+     * Adds the signal columns needed by the given number of labels.
+     *
+     * @param labelCount The number of label ids.
+     */
+    @Override
+    public void reserveSignals(int labelCount) {
+        int words = (labelCount + Long.SIZE - 1) / Long.SIZE;
+        if (words > signals.length) {
+            growSignals(words);
+        }
+    }
+
+    /**
+     * Returns 64 consecutive label ids of the committed signals of a robot as a bitmask.
+     *
+     * @param id   The robot id.
+     * @param word The index of the word, 0 for label ids from 0 to 63.
+     * @return The bitmask of the word, bit i standing for label id 64 * word + i; 0 beyond the stored words.
+     */
+    @Override
+    public long getSignalWord(int id, int word) {
+
+        return word < signals.length ? signals[word][id] : 0;
+    }
+
+    /**
+     * Sets 64 consecutive label ids of the committed signals of a robot, adding signal columns if needed.
+     * Adding columns is not thread-safe: robots committed in parallel must only set the words reserved
+     * beforehand by {@link #reserveSignals(int)}, as the simulator does before every commit phase.
+     *
+     * @param id   The robot id.
+     * @param word The index of the word, 0 for label ids from 0 to 63.
+     * @param mask The bitmask of the word, bit i standing for label id 64 * word + i.
+     */
+    @Override
+    public void setSignalWord(int id, int word, long mask) {
+        if (word >= signals.length) {
+            if (mask == 0) {
+                return;
+            }
+            growSignals(word + 1);
+        }
+        signals[word][id] = mask;
+    }
+
+    /**
+     * Adds empty signal columns up to the given number of words.
+     *
+     * @param words The number of signal words per robot.
+     */
+    private void growSignals(int words) {
+        int current = signals.length;
+        signals = Arrays.copyOf(signals, words);
+        for (int added = current; added < words; added++) {
+            signals[added] = new long[x.length];
+        }
+    }
+}
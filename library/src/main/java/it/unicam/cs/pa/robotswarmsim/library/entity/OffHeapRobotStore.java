@@ -0,0 +1,644 @@
+package it.unicam.cs.pa.robotswarmsim.library.entity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class stores the state of many robots outside the Java heap, in direct buffers or in a memory-mapped file.
+ * Very large swarms then keep a smaller and more stable heap: the columns are neither scanned nor moved by the
+ * garbage collector. The heap still holds a {@link Robot} view per robot, with the label sets of its current
+ * signals and areas, the areas last reported and the view of their names, and the entries of the robot in the
+ * indexes of its environment: about 220 bytes per robot, against about 320 with a {@link HeapRobotStore}.
+ * The committed signals, which neighbours read, are only kept here.
+ * The layout is fixed when the store is created: its capacity, at most {@link #MAX_CAPACITY} robots, the number
+ * of words of 64 label ids kept for the signals of each robot, and the number of loop counters, one per REPEAT
+ * block, that a program may use.
+ * A mapped store can be read by other processes while the simulation runs. The file starts with a header of
+ * four longs, the capacity, the number of robots, the number of signal words and the number of loop counters,
+ * followed by columns holding a value for every robot of the capacity in native byte order: the doubles x, y,
+ * heading, headingX, headingY, speed, snapshotX, snapshotY and timedElapsed, the long randomState, one long
+ * column per signal word, bit i of word w standing for label id 64 * w + i, the int commandIndex and one int
+ * column per loop counter.
+ * Positions are only consistent between two ticks, and committed positions and signals during a whole tick.
+ */
+public class OffHeapRobotStore implements RobotStore {
+
+    /**
+     * The largest number of robots a store can hold, bounded by the size of a buffer.
+     */
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / Double.BYTES;
+
+    private static final int HEADER_LONGS = 4; // Capacity, size, signal words and loop counters
+
+    private final int capacity; // Maximum number of rows
+    private final LongBuffer header; // Layout and number of rows, readable by other processes
+    private final List<MappedByteBuffer> mappings; // Regions of the file, empty when not mapped
+    private int size = 0; // Number of rows in use
+    private final DoubleBuffer x; // X-coordinate of the position
+    private final DoubleBuffer y; // Y-coordinate of the position
+    private final DoubleBuffer heading; // Direction in degrees
+    private final DoubleBuffer headingX; // X-component of the unit vector of the heading
+    private final DoubleBuffer headingY; // Y-component of the unit vector of the heading
+    private final DoubleBuffer speed; // Speed in meters per second
+    private final DoubleBuffer snapshotX; // X-coordinate committed at the last tick boundary
+    private final DoubleBuffer snapshotY; // Y-coordinate committed at the last tick boundary
+    private final DoubleBuffer timedElapsed; // Elapsed time of the current timed command
+    private final LongBuffer randomState; // State of the robot's own random number stream
+    private final LongBuffer[] signals; // Committed signals, one column per word of 64 label ids
+    private final IntBuffer commandIndex; // Index of the command being executed
+    private final IntBuffer[] loopCounters; // Remaining iterations of the REPEAT blocks, one column per counter
+
+    /**
+     * Constructs an empty store whose columns are allocated in direct buffers.
+     *
+     * @param capacity     The maximum number of robots.
+     * @param signalWords  The number of words of 64 label ids kept for the signals of each robot.
+     * @param loopCounters The number of loop counters a program of the robots may use.
+     * @throws IllegalArgumentException if the capacity is not between 1 and {@link #MAX_CAPACITY},
+     *                                  there is no signal word or the number of loop counters is negative.
+     */
+    public OffHeapRobotStore(int capacity, int signalWords, int loopCounters) {
+        this(capacity, signalWords, loopCounters, new Regions(null));
+    }
+
+    /**
+     * Constructs an empty store, allocating its columns in direct buffers or mapping them from a file.
+     *
+     * @param capacity     The maximum number of robots.
+     * @param signalWords  The number of signal words per robot.
+     * @param loopCounters The number of loop counters per robot.
+     * @param regions      The source of the columns.
+     * @throws IllegalArgumentException if the layout is not valid.
+     * @throws UncheckedIOException     if a column cannot be mapped.
+     */
+    private OffHeapRobotStore(int capacity, int signalWords, int loopCounters, Regions regions) {
+        checkLayout(capacity, signalWords, loopCounters);
+        this.capacity = capacity;
+        this.mappings = regions.mappings;
+        this.header = regions.next((long) HEADER_LONGS * Long.BYTES).asLongBuffer();
+        this.x = regions.doubles(capacity);
+        this.y = regions.doubles(capacity);
+        this.heading = regions.doubles(capacity);
+        this.headingX = regions.doubles(capacity);
+        this.headingY = regions.doubles(capacity);
+        this.speed = regions.doubles(capacity);
+        this.snapshotX = regions.doubles(capacity);
+        this.snapshotY = regions.doubles(capacity);
+        this.timedElapsed = regions.doubles(capacity);
+        this.randomState = regions.longs(capacity);
+        this.signals = new LongBuffer[signalWords];
+        for (int word = 0; word < signalWords; word++) {
+            signals[word] = regions.longs(capacity);
+        }
+        this.commandIndex = regions.ints(capacity);
+        this.loopCounters = new IntBuffer[loopCounters];
+        for (int slot = 0; slot < loopCounters; slot++) {
+            this.loopCounters[slot] = regions.ints(capacity);
+        }
+        header.put(0, capacity);
+        header.put(2, signalWords);
+        header.put(3, loopCounters);
+    }
+
+    /**
+     * Creates an empty store whose columns are mapped from a file, created or overwritten.
+     *
+     * @param file         The file holding the columns.
+     * @param capacity     The maximum number of robots.
+     * @param signalWords  The number of words of 64 label ids kept for the signals of each robot.
+     * @param loopCounters The number of loop counters a program of the robots may use.
+     * @return The mapped store.
+     * @throws IOException              if the file cannot be created or mapped.
+     * @throws IllegalArgumentException if the capacity is not between 1 and {@link #MAX_CAPACITY},
+     *                                  there is no signal word or the number of loop counters is negative.
+     */
+    public static OffHeapRobotStore mapped(Path file, int capacity, int signalWords, int loopCounters)
+            throws IOException {
+        checkLayout(capacity, signalWords, loopCounters);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return new OffHeapRobotStore(capacity, signalWords, loopCounters, new Regions(channel));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Checks the layout of a new store.
+     *
+     * @param capacity     The maximum number of robots.
+     * @param signalWords  The number of signal words per robot.
+     * @param loopCounters The number of loop counters per robot.
+     * @throws IllegalArgumentException if the capacity is not between 1 and {@link #MAX_CAPACITY},
+     *                                  there is no signal word or the number of loop counters is negative.
+     */
+    private static void checkLayout(int capacity, int signalWords, int loopCounters) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY + ".");
+        }
+        if (signalWords < 1) {
+            throw new IllegalArgumentException("The store must keep at least one signal word.");
+        }
+        if (loopCounters < 0) {
+            throw new IllegalArgumentException("The number of loop counters cannot be negative.");
+        }
+    }
+
+    /**
+     * Returns the number of signal words needed for the signals of a number of labels.
+     *
+     * @param labels The number of labels, such as the size of the label registry.
+     * @return The number of words of 64 label ids, at least 1.
+     */
+    public static int signalWordsFor(int labels) {
+
+        return Math.max(1, (labels + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    /**
+     * Writes the changes of a mapped store to its file; a store allocated in direct buffers is left as it is.
+     */
+    public void force() {
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+    }
+
+    /**
+     * Returns the maximum number of robots of the store.
+     *
+     * @return The capacity.
+     */
+    public int getCapacity() {
+
+        return capacity;
+    }
+
+    /**
+     * Returns the number of loop counters a program of the robots may use.
+     *
+     * @return The number of loop counters per robot.
+     */
+    public int getLoopCounters() {
+
+        return loopCounters.length;
+    }
+
+    /**
+     * Returns whether the columns of the store are mapped from a file.
+     *
+     * @return true for a mapped store, false for one allocated in direct buffers.
+     */
+    public boolean isMapped() {
+
+        return !mappings.isEmpty();
+    }
+
+    /**
+     * Adds a row for a new robot standing still at the given position and facing the x-axis.
+     *
+     * @param initialX   The initial x-coordinate.
+     * @param initialY   The initial y-coordinate.
+     * @param randomSeed The seed of the robot's random number stream.
+     * @return The id of the new row.
+     * @throws IllegalStateException if the store is full.
+     */
+    @Override
+    public int add(double initialX, double initialY, long randomSeed) {
+        if (size == capacity) {
+            throw new IllegalStateException("The robot store is full: its capacity is " + capacity + " robots.");
+        }
+        int id = size++;
+        x.put(id, initialX);
+        y.put(id, initialY);
+        heading.put(id, 0);
+        headingX.put(id, 1);
+        headingY.put(id, 0);
+        speed.put(id, 0);
+        snapshotX.put(id, initialX);
+        snapshotY.put(id, initialY);
+        timedElapsed.put(id, 0);
+        randomState.put(id, randomSeed);
+        for (LongBuffer word : signals) {
+            word.put(id, 0);
+        }
+        commandIndex.put(id, 0);
+        for (IntBuffer counter : loopCounters) {
+            counter.put(id, 0);
+        }
+        header.put(1, size);
+        return id;
+    }
+
+    /**
+     * Returns the number of rows in the store.
+     *
+     * @return The number of robots stored.
+     */
+    @Override
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * Returns the x-coordinate of a robot.
+     *
+     * @param id The robot id.
+     * @return The x-coordinate.
+     */
+    @Override
+    public double getX(int id) {
+
+        return x.get(id);
+    }
+
+    /**
+     * Returns the y-coordinate of a robot.
+     *
+     * @param id The robot id.
+     * @return The y-coordinate.
+     */
+    @Override
+    public double getY(int id) {
+
+        return y.get(id);
+    }
+
+    /**
+     * Sets the position of a robot.
+     *
+     * @param id   The robot id.
+     * @param newX The new x-coordinate.
+     * @param newY The new y-coordinate.
+     */
+    @Override
+    public void setPosition(int id, double newX, double newY) {
+        x.put(id, newX);
+        y.put(id, newY);
+    }
+
+    /**
+     * Returns the heading of a robot.
+     *
+     * @param id The robot id.
+     * @return The direction in degrees.
+     */
+    @Override
+    public double getHeading(int id) {
+
+        return heading.get(id);
+    }
+
+    /**
+     * Sets the heading of a robot together with its unit vector, already known by the caller.
+     *
+     * @param id         The robot id.
+     * @param newHeading The new direction in degrees.
+     * @param unitX      The cosine of the new direction.
+     * @param unitY      The sine of the new direction.
+     */
+    @Override
+    public void setHeading(int id, double newHeading, double unitX, double unitY) {
+        heading.put(id, newHeading);
+        headingX.put(id, unitX);
+        headingY.put(id, unitY);
+    }
+
+    /**
+     * Returns the x-component of the unit vector of a robot's heading.
+     *
+     * @param id The robot id.
+     * @return The cosine of the direction.
+     */
+    @Override
+    public double getHeadingX(int id) {
+
+        return headingX.get(id);
+    }
+
+    /**
+     * Returns the y-component of the unit vector of a robot's heading.
+     *
+     * @param id The robot id.
+     * @return The sine of the direction.
+     */
+    @Override
+    public double getHeadingY(int id) {
+
+        return headingY.get(id);
+    }
+
+    /**
+     * Returns the speed of a robot.
+     *
+     * @param id The robot id.
+     * @return The speed in meters per second.
+     */
+    @Override
+    public double getSpeed(int id) {
+
+        return speed.get(id);
+    }
+
+    /**
+     * Sets the speed of a robot.
+     *
+     * @param id       The robot id.
+     * @param newSpeed The new speed in meters per second.
+     */
+    @Override
+    public void setSpeed(int id, double newSpeed) {
+
+        speed.put(id, newSpeed);
+    }
+
+    /**
+     * Returns the x-coordinate of a robot committed at the last tick boundary.
+     *
+     * @param id The robot id.
+     * @return The committed x-coordinate.
+     */
+    @Override
+    public double getSnapshotX(int id) {
+
+        return snapshotX.get(id);
+    }
+
+    /**
+     * Returns the y-coordinate of a robot committed at the last tick boundary.
+     *
+     * @param id The robot id.
+     * @return The committed y-coordinate.
+     */
+    @Override
+    public double getSnapshotY(int id) {
+
+        return snapshotY.get(id);
+    }
+
+    /**
+     * Commits the current position of a robot as the one observed by its neighbours.
+     *
+     * @param id The robot id.
+     */
+    @Override
+    public void commitPosition(int id) {
+        snapshotX.put(id, x.get(id));
+        snapshotY.put(id, y.get(id));
+    }
+
+    /**
+     * Returns the number of words of 64 label ids kept for the signals of each robot.
+     *
+     * @return The number of signal words per robot, fixed when the store was created.
+     */
+    @Override
+    public int getSignalWords() {
+
+        return signals.length;
+    }
+
+    /**
+     * Keeps the signal words fixed when the store was created; signals beyond them are rejected when set.
+     *
+     * @param labelCount The number of label ids.
+     */
+    @Override
+    public void reserveSignals(int labelCount) {
+    }
+
+    /**
+     * Returns 64 consecutive label ids of the committed signals of a robot as a bitmask.
+     *
+     * @param id   The robot id.
+     * @param word The index of the word, 0 for label ids from 0 to 63.
+     * @return The bitmask of the word, bit i standing for label id 64 * word + i; 0 beyond the stored words.
+     */
+    @Override
+    public long getSignalWord(int id, int word) {
+
+        return word < signals.length ? signals[word].get(id) : 0;
+    }
+
+    /**
+     * Sets 64 consecutive label ids of the committed signals of a robot.
+     *
+     * @param id   The robot id.
+     * @param word The index of the word, 0 for label ids from 0 to 63.
+     * @param mask The bitmask of the word, bit i standing for label id 64 * word + i.
+     * @throws IllegalStateException if the robot signals a label beyond the signal words of the store.
+     */
+    @Override
+    public void setSignalWord(int id, int word, long mask) {
+        if (word < signals.length) {
+            signals[word].put(id, mask);
+        } else if (mask != 0) {
+            throw new IllegalStateException("The robot store keeps the signals of the first "
+                    + signals.length * Long.SIZE + " labels only, but a robot signals label id "
+                    + (word * Long.SIZE + Long.numberOfTrailingZeros(mask)) + ".");
+        }
+    }
+
+    /**
+     * Returns the index of the command a robot is executing.
+     *
+     * @param id The robot id.
+     * @return The command index.
+     */
+    @Override
+    public int getCommandIndex(int id) {
+
+        return commandIndex.get(id);
+    }
+
+    /**
+     * Sets the index of the command a robot is executing.
+     *
+     * @param id    The robot id.
+     * @param index The new command index.
+     */
+    @Override
+    public void setCommandIndex(int id, int index) {
+
+        commandIndex.put(id, index);
+    }
+
+    /**
+     * Returns the elapsed time of a robot's current timed command.
+     *
+     * @param id The robot id.
+     * @return The elapsed time in seconds.
+     */
+    @Override
+    public double getTimedElapsed(int id) {
+
+        return timedElapsed.get(id);
+    }
+
+    /**
+     * Sets the elapsed time of a robot's current timed command.
+     *
+     * @param id      The robot id.
+     * @param elapsed The elapsed time in seconds.
+     */
+    @Override
+    public void setTimedElapsed(int id, double elapsed) {
+
+        timedElapsed.put(id, elapsed);
+    }
+
+    /**
+     * Resets the loop counters of a robot for a new program.
+     *
+     * @param id    The robot id.
+     * @param count The number of loop counters the program needs.
+     * @throws IllegalStateException if the program needs more loop counters than the store keeps.
+     */
+    @Override
+    public void resetLoopCounters(int id, int count) {
+        if (count > loopCounters.length) {
+            throw new IllegalStateException("The robot store keeps " + loopCounters.length
+                    + " loop counters per robot, but the program needs " + count + ".");
+        }
+        for (IntBuffer counter : loopCounters) {
+            counter.put(id, 0);
+        }
+    }
+
+    /**
+     * Returns the remaining iterations of one of a robot's loops.
+     *
+     * @param id   The robot id.
+     * @param slot The loop counter assigned to the loop by its program.
+     * @return The remaining iterations.
+     */
+    @Override
+    public int getLoopCounter(int id, int slot) {
+
+        return loopCounters[slot].get(id);
+    }
+
+    /**
+     * Sets the remaining iterations of one of a robot's loops.
+     *
+     * @param id    The robot id.
+     * @param slot  The loop counter assigned to the loop by its program.
+     * @param value The remaining iterations.
+     */
+    @Override
+    public void setLoopCounter(int id, int slot, int value) {
+
+        loopCounters[slot].put(id, value);
+    }
+
+    /**
+     * Returns the state of a robot's random number stream.
+     *
+     * @param id The robot id.
+     * @return The state of the stream.
+     */
+    @Override
+    public long getRandomState(int id) {
+
+        return randomState.get(id);
+    }
+
+    /**
+     * Sets the state of a robot's random number stream.
+     *
+     * @param id    The robot id.
+     * @param state The state of the stream.
+     */
+    @Override
+    public void setRandomState(int id, long state) {
+
+        randomState.put(id, state);
+    }
+
+    /**
+     * This class hands out the consecutive regions of a new store, allocated in direct buffers
+     * or mapped from a file, all in native byte order.
+     */
+    private static final class Regions {
+
+        private final FileChannel channel; // Channel of the mapped file, null for direct buffers
+        private final List<MappedByteBuffer> mappings = new ArrayList<>(); // Regions mapped so far
+        private long offset = 0; // Offset of the next region in the file
+
+        /**
+         * Creates the regions of a new store.
+         *
+         * @param channel The channel of the mapped file, or null for direct buffers.
+         */
+        Regions(FileChannel channel) {
+
+            this.channel = channel;
+        }
+
+        /**
+         * Returns the next region.
+         *
+         * @param length The length of the region in bytes.
+         * @return The region, in native byte order.
+         * @throws UncheckedIOException if the region cannot be mapped.
+         */
+        ByteBuffer next(long length) {
+            if (channel == null) {
+                return ByteBuffer.allocateDirect((int) length).order(ByteOrder.nativeOrder());
+            }
+            try {
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, offset, length);
+                offset += length;
+                mappings.add(mapping);
+                return mapping.order(ByteOrder.nativeOrder());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Returns the next region as a column of doubles.
+         *
+         * @param count The number of values of the column.
+         * @return The column.
+         */
+        DoubleBuffer doubles(int count) {
+
+            return next((long) count * Double.BYTES).asDoubleBuffer();
+        }
+
+        /**
+         * Returns the next region as a column of longs.
+         *
+         * @param count The number of values of the column.
+         * @return The column.
+         */
+        LongBuffer longs(int count) {
+
+            return next((long) count * Long.BYTES).asLongBuffer();
+        }
+
+        /**
+         * Returns the next region as a column of ints.
+         *
+         * @param count The number of values of the column.
+         * @return The column.
+         */
+        IntBuffer ints(int count) {
+
+            return next((long) count * Integer.BYTES).asIntBuffer();
+        }
+    }
+}
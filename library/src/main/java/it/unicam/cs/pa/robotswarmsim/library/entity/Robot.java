@@ -2,43 +2,96 @@ package it.unicam.cs.pa.robotswarmsim.library.entity;
 
 import it.unicam.cs.pa.robotswarmsim.library.Environment;
 import it.unicam.cs.pa.robotswarmsim.library.Point;
-import it.unicam.cs.pa.robotswarmsim.library.area.Area;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelSet;
+import it.unicam.cs.pa.robotswarmsim.library.program.Program;
 import it.unicam.cs.pa.robotswarmsim.library.robotcommand.*;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.IntConsumer;
 
 /**
  * This class represents a robot in the simulation environment.
+ * A robot is a lightweight view over its row in the {@link RobotStore} of its environment,
+ * which holds its position, heading, speed, command execution state and committed signals.
+ * Current signals and area membership are kept as sets of label ids interned by the {@link LabelRegistry}
+ * of the environment.
  */
 public class Robot implements Entity {
-    private Point position;
-    private double heading; // Direction in degrees
-    private double speed; // Speed in meters per second
+    private static final ThreadLocal<NeighbourCollector> NEIGHBOUR_COLLECTORS =
+            ThreadLocal.withInitial(NeighbourCollector::new); // Collector of the range queries of each thread
+
+    private final RobotStore store; // Store holding the state of the robot
+    private final int id; // Row of the robot in the store
     private final Environment environment; // Environment in which the robot moves
-    private final Set<String> signals;
-    private List<RobotCommand> commands;
-    private final Set<String> currentAreaLabels; // Set to track area labels
+    private final LabelRegistry labels; // Labels of the environment
+
+    private final LabelSet signals; // Ids of the active signals
+    private Program program; // Compiled program of the robot, possibly shared with other robots
+    private final LabelSet currentAreas; // Ids of the labels of the areas containing the robot
+    private final Set<String> currentAreaLabels; // Live view of the area labels
+    private final IntConsumer addCurrentArea; // Adds a label id to the current areas
+    private final LabelSet reportedAreas; // Area labels when the transitions were last reported
+    private boolean areasChanged = false; // Whether the area labels differ from the reported ones
 
-    private double timedCommandElapsedTime = 0; // Elapsed time for the current TimedCommand
-    private int currentCommandIndex = 0;
+    private boolean signalsChanged = false; // Whether the signals changed since the last commit
+    private RobotCommand lastCompletedCommand; // Command completed during the last run of the program
 
     /**
      * Increment the current command index.
      */
     public void incrementCommandIndex() {
-        currentCommandIndex++;
+        store.setCommandIndex(id, store.getCommandIndex(id) + 1);
+    }
+
+    /**
+     * Check if the robot still has commands to run, that is, if its program counter
+     * has not run past the end of its program.
+     *
+     * @return true if commands are left to run, otherwise false.
+     */
+    public boolean hasPendingCommands() {
+        return program != null && store.getCommandIndex(id) < program.size();
     }
 
     /**
-     * Get the current command index.
+     * Get the current command index, that is, the program counter of the robot.
      *
      * @return The current command index.
      */
     public int getCurrentCommandIndex() {
-        return currentCommandIndex;
+        return store.getCommandIndex(id);
+    }
+
+    /**
+     * Set the current command index, that is, the program counter of the robot.
+     *
+     * @param index The address of the next instruction to run.
+     */
+    public void setCommandIndex(int index) {
+        store.setCommandIndex(id, index);
+    }
+
+    /**
+     * Get the remaining iterations of one of the loops of the robot's program.
+     *
+     * @param slot The loop counter assigned to the loop by the program.
+     * @return The remaining iterations.
+     */
+    public int getLoopCounter(int slot) {
+        return store.getLoopCounter(id, slot);
+    }
+
+    /**
+     * Set the remaining iterations of one of the loops of the robot's program.
+     *
+     * @param slot  The loop counter assigned to the loop by the program.
+     * @param value The remaining iterations.
+     */
+    public void setLoopCounter(int slot, int value) {
+        store.setLoopCounter(id, slot, value);
     }
 
     /**
@@ -47,7 +100,7 @@ public class Robot implements Entity {
      * @param dt The time in seconds to add to the elapsed time.
      */
     public void incrementTimedCommandTime(double dt) {
-        this.timedCommandElapsedTime += dt;
+        store.setTimedElapsed(id, store.getTimedElapsed(id) + dt);
     }
 
     /**
@@ -56,29 +109,147 @@ public class Robot implements Entity {
      * @return The elapsed time for the current TimedCommand.
      */
     public double getTimedCommandTime() {
-        return this.timedCommandElapsedTime;
+        return store.getTimedElapsed(id);
+    }
+
+    /**
+     * Set the elapsed time for the current TimedCommand.
+     *
+     * @param elapsed The elapsed time in seconds.
+     */
+    public void setTimedCommandTime(double elapsed) {
+        store.setTimedElapsed(id, elapsed);
     }
 
     /**
      * Reset the elapsed time for the current TimedCommand.
      */
     public void resetTimedCommandTime() {
-        this.timedCommandElapsedTime = 0;
+        store.setTimedElapsed(id, 0);
     }
 
     /**
      * Create a new robot with the specified position and environment.
+     * The robot is given a new row in the store of the environment.
      *
      * @param position    The initial position of the robot.
      * @param environment The environment in which the robot moves.
      */
     public Robot(Point position, Environment environment) {
-        this.position = position;
-        this.heading = 0;
-        this.speed = 0;
         this.environment = environment;
-        this.signals = new HashSet<>(); // Initialize the set of signals
-        this.currentAreaLabels = new HashSet<>(); // Labels of the visited areas
+        this.labels = environment.getLabels();
+        this.store = environment.getRobotStore();
+        this.id = store.add(position.x(), position.y(), environment.nextRobotSeed());
+        this.signals = new LabelSet(); // Initialize the set of signals
+        this.currentAreas = new LabelSet(); // Labels of the visited areas
+        this.currentAreaLabels = currentAreas.asLabels(labels);
+        this.addCurrentArea = currentAreas::add;
+        this.reportedAreas = new LabelSet();
+    }
+
+    /**
+     * Get the id of the robot, that is, its row in the store of its environment.
+     *
+     * @return The id of the robot.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the environment in which the robot moves.
+     *
+     * @return The environment of the robot.
+     */
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Get the registry in which the labels of the robot's signals and areas are interned.
+     *
+     * @return The label registry of the robot's environment.
+     */
+    public LabelRegistry getLabels() {
+        return labels;
+    }
+
+    /**
+     * Commits the current position and signals as the state other robots observe during the next tick.
+     * Between two commits, neighbour queries only see committed state, so the outcome of a tick
+     * does not depend on the order in which robots are stepped. Changed signals are written to the
+     * robot store, one word of 64 label ids at a time, where neighbours read them.
+     *
+     * @throws IllegalStateException if the robot store cannot hold one of the signals.
+     */
+    public void commitState() {
+        store.commitPosition(id);
+        if (signalsChanged) {
+            int words = Math.max(store.getSignalWords(), signals.getWordCount());
+            for (int word = 0; word < words; word++) {
+                store.setSignalWord(id, word, signals.getWord(word));
+            }
+            signalsChanged = false;
+        }
+    }
+
+    /**
+     * Get the position committed at the last tick boundary.
+     *
+     * @return The position other robots observe during the current tick.
+     */
+    public Point getSnapshotPosition() {
+        return new Point(store.getSnapshotX(id), store.getSnapshotY(id));
+    }
+
+    /**
+     * Check if the robot was emitting a signal with the specified label at the last tick boundary.
+     *
+     * @param label The label to check.
+     * @return true if the committed signals contain the label, otherwise false.
+     */
+    public boolean isSignalingInSnapshot(String label) {
+        return isSignalingInSnapshot(labels.find(label));
+    }
+
+    /**
+     * Check if the robot was emitting a signal with the specified label id at the last tick boundary.
+     * The committed signals are read from the robot store, which holds them as words of 64 label ids.
+     *
+     * @param labelId The id of the label to check, or -1 for a label never interned.
+     * @return true if the committed signals contain the label, otherwise false.
+     */
+    public boolean isSignalingInSnapshot(int labelId) {
+        return labelId >= 0 && (store.getSignalWord(id, labelId / Long.SIZE) & (1L << labelId)) != 0;
+    }
+
+    /**
+     * Returns the next value of the robot's own random number stream.
+     * Each robot draws from a separate stream seeded by its environment, so random commands
+     * give the same results however robots are scheduled across threads.
+     *
+     * @return A pseudo-random value between 0 (inclusive) and 1 (exclusive).
+     */
+    public double nextRandomDouble() {
+        return store.nextRandomDouble(id);
+    }
+
+    /**
+     * Get the state of the robot's random number stream.
+     *
+     * @return The state of the stream.
+     */
+    public long getRandomState() {
+        return store.getRandomState(id);
+    }
+
+    /**
+     * Set the state of the robot's random number stream, so that it continues a saved sequence.
+     *
+     * @param state The state of the stream.
+     */
+    public void setRandomState(long state) {
+        store.setRandomState(id, state);
     }
 
     /**
@@ -87,7 +258,16 @@ public class Robot implements Entity {
      * @param label The label to add.
      */
     public void signalLabel(String label) {
-        signals.add(label);
+        signalLabel(labels.intern(label));
+    }
+
+    /**
+     * Add a label id to the set of active signals of the robot.
+     *
+     * @param labelId The id of the label to add.
+     */
+    public void signalLabel(int labelId) {
+        signalsChanged |= signals.add(labelId);
     }
 
     /**
@@ -96,7 +276,16 @@ public class Robot implements Entity {
      * @param label The label to remove.
      */
     public void removeLabel(String label) {
-        signals.remove(label);
+        removeLabel(labels.find(label));
+    }
+
+    /**
+     * Remove a label id from the set of active signals of the robot.
+     *
+     * @param labelId The id of the label to remove.
+     */
+    public void removeLabel(int labelId) {
+        signalsChanged |= signals.remove(labelId);
     }
 
     /**
@@ -106,7 +295,17 @@ public class Robot implements Entity {
      * @return true if the robot is emitting the signal, otherwise false.
      */
     public boolean isSignaling(String label) {
-        return signals.contains(label);
+        return signals.contains(labels.find(label));
+    }
+
+    /**
+     * Check if the robot is emitting a signal with the specified label id.
+     *
+     * @param labelId The id of the label to check.
+     * @return true if the robot is emitting the signal, otherwise false.
+     */
+    public boolean isSignaling(int labelId) {
+        return signals.contains(labelId);
     }
 
     /**
@@ -116,7 +315,18 @@ public class Robot implements Entity {
      */
     @Override
     public void setHeading(double heading) {
-        this.heading = heading;
+        store.setHeading(id, heading);
+    }
+
+    /**
+     * Set the direction of the robot together with its unit vector, so that no trigonometry is needed.
+     *
+     * @param heading The new direction in degrees.
+     * @param unitX   The cosine of the new direction.
+     * @param unitY   The sine of the new direction.
+     */
+    public void setHeading(double heading, double unitX, double unitY) {
+        store.setHeading(id, heading, unitX, unitY);
     }
 
     /**
@@ -126,7 +336,7 @@ public class Robot implements Entity {
      */
     @Override
     public void setSpeed(double speed) {
-        this.speed = speed;
+        store.setSpeed(id, speed);
     }
 
     /**
@@ -136,7 +346,25 @@ public class Robot implements Entity {
      */
     @Override
     public Point getPosition() {
-        return position;
+        return new Point(store.getX(id), store.getY(id));
+    }
+
+    /**
+     * Get the x-coordinate of the current position of the robot, without creating a point.
+     *
+     * @return The current x-coordinate.
+     */
+    public double getX() {
+        return store.getX(id);
+    }
+
+    /**
+     * Get the y-coordinate of the current position of the robot, without creating a point.
+     *
+     * @return The current y-coordinate.
+     */
+    public double getY() {
+        return store.getY(id);
     }
 
     /**
@@ -146,7 +374,25 @@ public class Robot implements Entity {
      */
     @Override
     public double getHeading() {
-        return heading;
+        return store.getHeading(id);
+    }
+
+    /**
+     * Get the x-component of the unit vector of the robot's direction, cached when the direction is set.
+     *
+     * @return The cosine of the current direction.
+     */
+    public double getHeadingX() {
+        return store.getHeadingX(id);
+    }
+
+    /**
+     * Get the y-component of the unit vector of the robot's direction, cached when the direction is set.
+     *
+     * @return The sine of the current direction.
+     */
+    public double getHeadingY() {
+        return store.getHeadingY(id);
     }
 
     /**
@@ -156,7 +402,7 @@ public class Robot implements Entity {
      */
     @Override
     public double getSpeed() {
-        return speed;
+        return store.getSpeed(id);
     }
 
     /**
@@ -166,32 +412,120 @@ public class Robot implements Entity {
      */
     @Override
     public void setPosition(Point position) {
-        this.position = position;
-        updateCurrentAreaLabels();
+
+        setPosition(position.x(), position.y());
     }
 
     /**
-     * Refreshes area labels based on the robot's current position.
+     * Sets the robot's position in place and updates area labels, without creating a point.
+     *
+     * @param x The new x-coordinate.
+     * @param y The new y-coordinate.
+     */
+    public void setPosition(double x, double y) {
+        store.setPosition(id, x, y);
+        updateCurrentAreaLabels(x, y);
+    }
+
+    /**
+     * Refreshes area labels based on the robot's current position, using the area index of the environment.
+     *
+     * @param x The current x-coordinate of the robot.
+     * @param y The current y-coordinate of the robot.
      */
-    private void updateCurrentAreaLabels() {
+    private void updateCurrentAreaLabels(double x, double y) {
         // Update the set of labels based on the new position
-        this.currentAreaLabels.clear();
-        for (Area area : environment.getAreas()) {
-            if (area.contains(this.position)) {
-                this.currentAreaLabels.add(area.getLabel());
-            }
+        currentAreas.clear();
+        environment.forEachAreaLabelContaining(x, y, addCurrentArea);
+        areasChanged = !currentAreas.equals(reportedAreas);
+    }
+
+    /**
+     * Check whether the robot entered or left areas since its transitions were last reported.
+     *
+     * @return true if the area labels differ from the reported ones, false otherwise.
+     */
+    public boolean hasAreaTransitions() {
+        return areasChanged;
+    }
+
+    /**
+     * Report the areas the robot entered and left since the last report, then make the current
+     * area labels the reported ones.
+     *
+     * @param entered The action receiving the label id of each area entered.
+     * @param exited  The action receiving the label id of each area left.
+     */
+    public void drainAreaTransitions(IntConsumer entered, IntConsumer exited) {
+        if (areasChanged) {
+            currentAreas.forEachNotIn(reportedAreas, entered);
+            reportedAreas.forEachNotIn(currentAreas, exited);
+            reportedAreas.copyFrom(currentAreas);
+            areasChanged = false;
         }
     }
 
+    /**
+     * Make the current area labels the reported ones without reporting any transition,
+     * for instance at the start of a run.
+     */
+    public void resetAreaTransitions() {
+        reportedAreas.copyFrom(currentAreas);
+        areasChanged = false;
+    }
+
     /**
      * Get the current area labels the robot is in.
      *
-     * @return The set of current area labels.
+     * @return A live view of the set of current area labels.
      */
     public Set<String> getCurrentAreaLabels() {
         return currentAreaLabels;
     }
 
+    /**
+     * Check if the robot is in an area with the specified label id.
+     *
+     * @param labelId The id of the label to check.
+     * @return true if one of the areas containing the robot has the label, otherwise false.
+     */
+    public boolean isInArea(int labelId) {
+        return currentAreas.contains(labelId);
+    }
+
+    /**
+     * Get the ids of the labels of the areas the robot is in.
+     *
+     * @return The live set of current area label ids.
+     */
+    public LabelSet getCurrentAreas() {
+        return currentAreas;
+    }
+
+    /**
+     * Get the ids of the active signals of the robot.
+     * The set must not be modified directly: use {@link #signalLabel(int)} and {@link #removeLabel(int)}.
+     *
+     * @return The live set of signal label ids.
+     */
+    public LabelSet getSignals() {
+        return signals;
+    }
+
+    /**
+     * Replace the active signals and the area labels of the robot, for instance when restoring a saved state.
+     * The signals are committed at the next tick boundary.
+     *
+     * @param newSignals The ids of the new signals.
+     * @param newAreas   The ids of the labels of the areas containing the robot.
+     */
+    public void setLabels(LabelSet newSignals, LabelSet newAreas) {
+        signals.copyFrom(newSignals);
+        currentAreas.copyFrom(newAreas);
+        signalsChanged = true;
+        areasChanged = !currentAreas.equals(reportedAreas);
+    }
+
     /**
      * Get all robots in the environment.
      *
@@ -202,15 +536,34 @@ public class Robot implements Entity {
     }
 
     /**
-     * Get robots within the specified range around this robot.
+     * Get robots whose committed position is within the specified range around this robot.
+     * The search is answered by the grid of the environment, so only nearby robots are examined.
      *
      * @param range The range to search for other robots.
      * @return A list of robots within the specified range.
      */
     public List<Robot> getRobotsWithinRange(double range) {
-        return getAllRobotsInEnvironment().stream()
-                .filter(r -> !r.equals(this) && this.getPosition().distanceTo(r.getPosition()) <= range)
-                .collect(Collectors.toList());
+        List<Robot> robotsWithinRange = new ArrayList<>();
+        getRobotsWithinRange(range, robotsWithinRange);
+        return robotsWithinRange;
+    }
+
+    /**
+     * Fill a buffer with the robots whose committed position is within the specified range around this robot.
+     * The buffer is cleared first, so the same one can be reused for every query.
+     *
+     * @param range  The range to search for other robots.
+     * @param buffer The list receiving the robots within range.
+     */
+    public void getRobotsWithinRange(double range, List<Robot> buffer) {
+        buffer.clear();
+        NeighbourCollector collector = NEIGHBOUR_COLLECTORS.get();
+        collector.environment = environment;
+        collector.excludedId = id;
+        collector.buffer = buffer;
+        environment.forEachRobotIdWithinRange(store.getX(id), store.getY(id), range, collector);
+        collector.environment = null;
+        collector.buffer = null;
     }
 
     /**
@@ -220,40 +573,159 @@ public class Robot implements Entity {
      */
     @Override
     public String toString() {
+        return describe(id, currentAreaLabels, store.getX(id), store.getY(id), store.getHeading(id),
+                store.getSpeed(id), signals.asLabels(labels));
+    }
 
-        String areaDescription = currentAreaLabels.isEmpty()
+    /**
+     * Formats the state of a robot the way {@link #toString()} does, so that recorded states print
+     * like live robots.
+     *
+     * @param id         The id of the robot.
+     * @param areaLabels The labels of the areas the robot is in.
+     * @param x          The x-coordinate of the robot.
+     * @param y          The y-coordinate of the robot.
+     * @param heading    The direction of the robot in degrees.
+     * @param speed      The speed of the robot in meters per second.
+     * @param signals    The labels of the active signals of the robot.
+     * @return A string with the robot's information.
+     */
+    public static String describe(int id, Set<String> areaLabels, double x, double y, double heading, double speed,
+                                  Set<String> signals) {
+
+        String areaDescription = areaLabels.isEmpty()
                 ? "No areas"
-                : "Areas: " + String.join(", ", currentAreaLabels);
+                : "Areas: " + String.join(", ", areaLabels);
 
 
         String signalDescription = signals.isEmpty()
                 ? "No signals"
                 : "Active signals: " + String.join(", ", signals);
 
-        return "Robot id: " + Integer.toHexString(System.identityHashCode(this)) + "\n" +
+        return "Robot id: " + id + "\n" +
                 areaDescription + "\n" +
-                "Position X: " + position.x() + "\n" +
-                "Position Y: " + position.y() + "\n" +
+                "Position X: " + x + "\n" +
+                "Position Y: " + y + "\n" +
                 "Direction: " + heading + " degrees\n" +
                 "Speed: " + speed + " m/s\n" +
                 signalDescription + "\n";
     }
 
     /**
-     * Set the commands for the robot.
+     * Set the commands for the robot, compiling them into a program of its own.
+     * Robots running the same commands should rather share a program through {@link #setProgram(Program)}.
      *
      * @param commands The list of commands to set.
      */
     public void setCommands(List<RobotCommand> commands) {
-        this.commands = commands;
+        setProgram(Program.compile(commands));
     }
 
     /**
      * Get the commands assigned to the robot.
      *
-     * @return The list of commands assigned to the robot.
+     * @return The list of commands the robot's program was compiled from, or null if it has no program.
      */
     public List<RobotCommand> getCommands() {
-        return this.commands;
+        return program == null ? null : program.getCommands();
+    }
+
+    /**
+     * Set the program run by the robot and restart it from its first instruction.
+     * A program is immutable, so the same instance can be shared by any number of robots.
+     * Its labels are interned in the registry of the environment, so that they are all known before the run.
+     *
+     * @param program The compiled program.
+     */
+    public void setProgram(Program program) {
+        for (String label : program.getLabels()) {
+            labels.intern(label);
+        }
+        this.program = program;
+        store.setCommandIndex(id, 0);
+        store.setTimedElapsed(id, 0);
+        store.resetLoopCounters(id, program.getLoopCounterCount());
+    }
+
+    /**
+     * Runs one tick of the robot's program and remembers the command it completed, if any.
+     *
+     * @param dt The time step in seconds.
+     * @return The command completed during this tick, or null if none completed or the robot has no commands left.
+     */
+    public RobotCommand runProgram(double dt) {
+        lastCompletedCommand = hasPendingCommands() ? program.step(this, dt) : null;
+        return lastCompletedCommand;
+    }
+
+    /**
+     * Prepares the next tick of the robot's program for bulk integration, if that tick only moves the robot
+     * in a straight line: the heading and speed of the tick are set, and the caller must then move the robot
+     * by its speed times dt along the unit vector of its heading and call {@link #finishKinematicTick(double)}.
+     *
+     * @param dt The time step in seconds.
+     * @return true if the tick was prepared, false if it must be run by {@link #runProgram(double)}.
+     */
+    public boolean prepareKinematicTick(double dt) {
+        KinematicCommand command = hasPendingCommands() ? program.kinematicCommand(this, dt) : null;
+        if (command == null) {
+            return false;
+        }
+        command.prepareMotion(this);
+        return true;
+    }
+
+    /**
+     * Completes a tick prepared by {@link #prepareKinematicTick(double)} once the position has been integrated:
+     * the area labels are refreshed and the program moves on, as {@link #runProgram(double)} would have done.
+     *
+     * @param dt The time step in seconds.
+     * @return The command completed during this tick, or null if none completed.
+     */
+    public RobotCommand finishKinematicTick(double dt) {
+        updateCurrentAreaLabels(store.getX(id), store.getY(id));
+        lastCompletedCommand = program.finishKinematicTick(this, dt);
+        return lastCompletedCommand;
+    }
+
+    /**
+     * Get the command completed during the last run of the robot's program.
+     *
+     * @return The completed command, or null if the last run completed none.
+     */
+    public RobotCommand getLastCompletedCommand() {
+        return lastCompletedCommand;
+    }
+
+    /**
+     * Get the program run by the robot.
+     *
+     * @return The compiled program, or null if the robot has no program.
+     */
+    public Program getProgram() {
+        return program;
+    }
+
+    /**
+     * This visitor adds the robots of a range query to a buffer, skipping the robot at the center.
+     * Each thread reuses its own collector, so a query allocates no capturing lambda.
+     */
+    private static final class NeighbourCollector implements IntConsumer {
+
+        private Environment environment; // Environment of the current query
+        private int excludedId; // Id of the robot at the center of the current query
+        private List<Robot> buffer; // Buffer of the current query
+
+        /**
+         * Adds a robot within range to the buffer, unless it is the robot at the center.
+         *
+         * @param robotId The id of the robot.
+         */
+        @Override
+        public void accept(int robotId) {
+            if (robotId != excludedId) {
+                buffer.add(environment.getRobot(robotId));
+            }
+        }
     }
 }
@@ -0,0 +1,286 @@
+package it.unicam.cs.pa.robotswarmsim.library.entity;
+
+import it.unicam.cs.pa.robotswarmsim.library.kinematics.PositionIntegrator;
+
+/**
+ * This interface represents a store of the state of many robots, laid out as a structure of columns indexed
+ * by robot id, so that loops over all robots read contiguous memory instead of chasing one object per robot.
+ * A {@link Robot} is a lightweight view over one row of a store.
+ * Rows are added during setup; afterwards, each row must only be written by the thread stepping its robot.
+ * {@link HeapRobotStore} keeps the columns in Java arrays; {@link OffHeapRobotStore} keeps them outside the
+ * Java heap, optionally in a memory-mapped file.
+ */
+public interface RobotStore {
+
+    /**
+     * Adds a row for a new robot standing still at the given position and facing the x-axis.
+     *
+     * @param initialX   The initial x-coordinate.
+     * @param initialY   The initial y-coordinate.
+     * @param randomSeed The seed of the robot's random number stream.
+     * @return The id of the new row.
+     */
+    int add(double initialX, double initialY, long randomSeed);
+
+    /**
+     * Returns the number of rows in the store.
+     *
+     * @return The number of robots stored.
+     */
+    int size();
+
+    /**
+     * Returns the x-coordinate of a robot.
+     *
+     * @param id The robot id.
+     * @return The x-coordinate.
+     */
+    double getX(int id);
+
+    /**
+     * Returns the y-coordinate of a robot.
+     *
+     * @param id The robot id.
+     * @return The y-coordinate.
+     */
+    double getY(int id);
+
+    /**
+     * Sets the position of a robot.
+     *
+     * @param id   The robot id.
+     * @param newX The new x-coordinate.
+     * @param newY The new y-coordinate.
+     */
+    void setPosition(int id, double newX, double newY);
+
+    /**
+     * Moves the listed robots by their speed times the time step along the unit vector of their heading.
+     * Stores that do not keep their columns in arrays move the robots one at a time, with the same arithmetic
+     * as the integrators.
+     *
+     * @param ids        The ids of the robots to move, all distinct.
+     * @param count      The number of ids to read from the start of the array.
+     * @param dt         The time step in seconds.
+     * @param integrator The kernel computing the new positions of stores keeping their columns in arrays.
+     */
+    default void integratePositions(int[] ids, int count, double dt, PositionIntegrator integrator) {
+        for (int i = 0; i < count; i++) {
+            int id = ids[i];
+            double distance = getSpeed(id) * dt;
+            setPosition(id, getX(id) + distance * getHeadingX(id), getY(id) + distance * getHeadingY(id));
+        }
+    }
+
+    /**
+     * Returns the heading of a robot.
+     *
+     * @param id The robot id.
+     * @return The direction in degrees.
+     */
+    double getHeading(int id);
+
+    /**
+     * Sets the heading of a robot. Its unit vector is only recomputed when the heading changes.
+     *
+     * @param id         The robot id.
+     * @param newHeading The new direction in degrees.
+     */
+    default void setHeading(int id, double newHeading) {
+        if (newHeading != getHeading(id)) {
+            double radians = Math.toRadians(newHeading);
+            setHeading(id, newHeading, Math.cos(radians), Math.sin(radians));
+        }
+    }
+
+    /**
+     * Sets the heading of a robot together with its unit vector, already known by the caller.
+     *
+     * @param id         The robot id.
+     * @param newHeading The new direction in degrees.
+     * @param unitX      The cosine of the new direction.
+     * @param unitY      The sine of the new direction.
+     */
+    void setHeading(int id, double newHeading, double unitX, double unitY);
+
+    /**
+     * Returns the x-component of the unit vector of a robot's heading.
+     *
+     * @param id The robot id.
+     * @return The cosine of the direction.
+     */
+    double getHeadingX(int id);
+
+    /**
+     * Returns the y-component of the unit vector of a robot's heading.
+     *
+     * @param id The robot id.
+     * @return The sine of the direction.
+     */
+    double getHeadingY(int id);
+
+    /**
+     * Returns the speed of a robot.
+     *
+     * @param id The robot id.
+     * @return The speed in meters per second.
+     */
+    double getSpeed(int id);
+
+    /**
+     * Sets the speed of a robot.
+     *
+     * @param id       The robot id.
+     * @param newSpeed The new speed in meters per second.
+     */
+    void setSpeed(int id, double newSpeed);
+
+    /**
+     * Returns the x-coordinate of a robot committed at the last tick boundary.
+     *
+     * @param id The robot id.
+     * @return The committed x-coordinate.
+     */
+    double getSnapshotX(int id);
+
+    /**
+     * Returns the y-coordinate of a robot committed at the last tick boundary.
+     *
+     * @param id The robot id.
+     * @return The committed y-coordinate.
+     */
+    double getSnapshotY(int id);
+
+    /**
+     * Commits the current position of a robot as the one observed by its neighbours.
+     *
+     * @param id The robot id.
+     */
+    void commitPosition(int id);
+
+    /**
+     * Returns the number of words of 64 label ids the store currently holds for the signals of each robot.
+     *
+     * @return The number of signal words per robot, at least 1.
+     */
+    int getSignalWords();
+
+    /**
+     * Prepares the store to hold the signals of every label id below the given count, so that committing them
+     * does not change the layout of the store. The simulator calls it on its own thread before committing
+     * the robots, which may happen in parallel. A store whose layout is fixed when it is created keeps it,
+     * and rejects the signals beyond it when they are set.
+     *
+     * @param labelCount The number of label ids.
+     */
+    void reserveSignals(int labelCount);
+
+    /**
+     * Returns 64 consecutive label ids of the committed signals of a robot as a bitmask.
+     *
+     * @param id   The robot id.
+     * @param word The index of the word, 0 for label ids from 0 to 63.
+     * @return The bitmask of the word, bit i standing for label id 64 * word + i; 0 beyond the stored words.
+     */
+    long getSignalWord(int id, int word);
+
+    /**
+     * Sets 64 consecutive label ids of the committed signals of a robot.
+     *
+     * @param id   The robot id.
+     * @param word The index of the word, 0 for label ids from 0 to 63.
+     * @param mask The bitmask of the word, bit i standing for label id 64 * word + i.
+     * @throws IllegalStateException if the store cannot hold a signal of the word.
+     */
+    void setSignalWord(int id, int word, long mask);
+
+    /**
+     * Returns the index of the command a robot is executing.
+     *
+     * @param id The robot id.
+     * @return The command index.
+     */
+    int getCommandIndex(int id);
+
+    /**
+     * Sets the index of the command a robot is executing.
+     *
+     * @param id    The robot id.
+     * @param index The new command index.
+     */
+    void setCommandIndex(int id, int index);
+
+    /**
+     * Returns the elapsed time of a robot's current timed command.
+     *
+     * @param id The robot id.
+     * @return The elapsed time in seconds.
+     */
+    double getTimedElapsed(int id);
+
+    /**
+     * Sets the elapsed time of a robot's current timed command.
+     *
+     * @param id      The robot id.
+     * @param elapsed The elapsed time in seconds.
+     */
+    void setTimedElapsed(int id, double elapsed);
+
+    /**
+     * Resets the loop counters of a robot, sizing them for a new program.
+     *
+     * @param id    The robot id.
+     * @param count The number of loop counters the program needs.
+     */
+    void resetLoopCounters(int id, int count);
+
+    /**
+     * Returns the remaining iterations of one of a robot's loops.
+     *
+     * @param id   The robot id.
+     * @param slot The loop counter assigned to the loop by its program.
+     * @return The remaining iterations.
+     */
+    int getLoopCounter(int id, int slot);
+
+    /**
+     * Sets the remaining iterations of one of a robot's loops.
+     *
+     * @param id    The robot id.
+     * @param slot  The loop counter assigned to the loop by its program.
+     * @param value The remaining iterations.
+     */
+    void setLoopCounter(int id, int slot, int value);
+
+    /**
+     * Returns the state of a robot's random number stream.
+     *
+     * @param id The robot id.
+     * @return The state of the stream.
+     */
+    long getRandomState(int id);
+
+    /**
+     * Sets the state of a robot's random number stream.
+     *
+     * @param id    The robot id.
+     * @param state The state of the stream.
+     */
+    void setRandomState(int id, long state);
+
+    /**
+     * Returns the next value of a robot's own random number stream.
+     *
+     * @param id The robot id.
+     * @return A pseudo-random value between 0 (inclusive) and 1 (exclusive).
+     */
+    default double nextRandomDouble(int id) {
+        // SplitMix64 step
+        long z = getRandomState(id) + 0x9e3779b97f4a7c15L;
+        setRandomState(id, z);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+}
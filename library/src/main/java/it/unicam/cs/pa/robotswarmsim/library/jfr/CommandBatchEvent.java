@@ -0,0 +1,37 @@
+package it.unicam.cs.pa.robotswarmsim.library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This JDK Flight Recorder event summarizes the commands of one class executed during a tick.
+ * It is committed by a {@link CommandBatchRecorder} once the robots have been stepped, one event per
+ * command class that ran; the time spent stepping is part of the tick's {@link TickEvent}.
+ */
+@Name("it.unicam.cs.pa.robotswarmsim.CommandBatch")
+@Label("Command Batch")
+@Category("Robot Swarm Simulator")
+@Description("The executions of one command class during a tick")
+@StackTrace(false)
+public final class CommandBatchEvent extends Event {
+
+    @Label("Step")
+    @Description("Number of the tick")
+    public int step;
+
+    @Label("Command Class")
+    @Description("Simple name of the class of the executed commands")
+    public String commandClass;
+
+    @Label("Executions")
+    @Description("Number of robots that executed a command of the class")
+    public int executions;
+
+    @Label("Completions")
+    @Description("Number of robots that completed a command of the class")
+    public int completions;
+}
@@ -0,0 +1,194 @@
+package it.unicam.cs.pa.robotswarmsim.library.jfr;
+
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.program.Instruction;
+import it.unicam.cs.pa.robotswarmsim.library.program.Program;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RobotCommand;
+import jdk.jfr.EventType;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class tallies the commands executed by the robots during a tick and commits one
+ * {@link CommandBatchEvent} per command class. Each thread stepping robots notes them with {@link #stepped(Robot)}
+ * and tallies them itself with {@link #rangeEnded()} once their ticks are complete, from the command each robot
+ * completed or, for a timed command still running, from its program counter; the stepping itself is left
+ * untouched. The simulation thread then commits the events with {@link #stepEnded(int)}.
+ * It is only worth calling while {@link #isRecording()} is true.
+ */
+public final class CommandBatchRecorder {
+
+    private static final EventType TYPE = EventType.getEventType(CommandBatchEvent.class);
+    private static final AtomicInteger CLASS_COUNT = new AtomicInteger(); // Number of command classes seen
+    private static final ClassValue<Integer> CLASS_INDEX = new ClassValue<>() {
+
+        /**
+         * Assigns the next index to a command class seen for the first time.
+         *
+         * @param type The command class.
+         * @return The index of the class in the tallies.
+         */
+        @Override
+        protected Integer computeValue(Class<?> type) {
+
+            return CLASS_COUNT.getAndIncrement();
+        }
+    };
+
+    private final ThreadLocal<Tally> tallies = ThreadLocal.withInitial(Tally::new); // Tally of each stepping thread
+    private Class<?>[] classes = new Class<?>[0]; // Command class of each index, guarded by this
+    private int[] executions = new int[0]; // Executions of the tick per class index, guarded by this
+    private int[] completions = new int[0]; // Completions of the tick per class index, guarded by this
+
+    /**
+     * Returns whether a recording is collecting command batches.
+     *
+     * @return True if the command batch event is enabled.
+     */
+    public static boolean isRecording() {
+
+        return TYPE.isEnabled();
+    }
+
+    /**
+     * Notes a robot just stepped by the current thread. It is tallied by the next call to {@link #rangeEnded()}
+     * on the same thread, once its tick is complete.
+     *
+     * @param robot The stepped robot.
+     */
+    public void stepped(Robot robot) {
+
+        tallies.get().add(robot);
+    }
+
+    /**
+     * Tallies the robots stepped by the current thread since its last call and adds them to the tick.
+     */
+    public void rangeEnded() {
+        Tally tally = tallies.get();
+        if (tally.count()) {
+            merge(tally);
+        }
+    }
+
+    /**
+     * Commits one event per command class executed during the tick, then clears the tally of the tick.
+     *
+     * @param step The number of the tick.
+     */
+    public synchronized void stepEnded(int step) {
+        for (int i = 0; i < executions.length; i++) {
+            if (executions[i] == 0) {
+                continue;
+            }
+            CommandBatchEvent event = new CommandBatchEvent();
+            event.step = step;
+            event.commandClass = classes[i].getSimpleName();
+            event.executions = executions[i];
+            event.completions = completions[i];
+            event.commit();
+            executions[i] = 0;
+            completions[i] = 0;
+        }
+    }
+
+    /**
+     * Adds the counts of a thread's tally to the tick and clears them.
+     *
+     * @param tally The tally of the current thread.
+     */
+    private synchronized void merge(Tally tally) {
+        int length = tally.executions.length;
+        if (executions.length < length) {
+            classes = Arrays.copyOf(classes, length);
+            executions = Arrays.copyOf(executions, length);
+            completions = Arrays.copyOf(completions, length);
+        }
+        for (int i = 0; i < length; i++) {
+            if (tally.executions[i] > 0) {
+                classes[i] = tally.classes[i];
+                executions[i] += tally.executions[i];
+                completions[i] += tally.completions[i];
+                tally.executions[i] = 0;
+                tally.completions[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * This class holds the robots stepped by one thread and the commands they executed, per class index.
+     * Its arrays only grow, so a thread allocates nothing once it has seen its largest range and every class.
+     */
+    private static final class Tally {
+
+        private Robot[] pending = new Robot[64]; // Robots stepped since the last count
+        private int size = 0; // Number of pending robots
+        private Class<?>[] classes = new Class<?>[0]; // Command class of each index
+        private int[] executions = new int[0]; // Executions per class index
+        private int[] completions = new int[0]; // Completions per class index
+
+        /**
+         * Adds a robot to the pending ones.
+         *
+         * @param robot The stepped robot.
+         */
+        void add(Robot robot) {
+            if (size == pending.length) {
+                pending = Arrays.copyOf(pending, size * 2);
+            }
+            pending[size++] = robot;
+        }
+
+        /**
+         * Tallies the commands executed by the pending robots and forgets them.
+         *
+         * @return True if any command was tallied.
+         */
+        boolean count() {
+            boolean counted = false;
+            for (int i = 0; i < size; i++) {
+                counted |= count(pending[i]);
+                pending[i] = null;
+            }
+            size = 0;
+            return counted;
+        }
+
+        /**
+         * Tallies the command a robot executed during the tick it just completed.
+         *
+         * @param robot The stepped robot.
+         * @return True if the robot executed a command.
+         */
+        private boolean count(Robot robot) {
+            RobotCommand completed = robot.getLastCompletedCommand();
+            RobotCommand executed = completed;
+            if (executed == null) {
+                Program program = robot.getProgram();
+                int pc = robot.getCurrentCommandIndex();
+                if (program == null || pc >= program.size()) {
+                    return false;
+                }
+                Instruction instruction = program.getInstruction(pc);
+                if (!instruction.isCommand()) {
+                    return false;
+                }
+                executed = instruction.command();
+            }
+            int index = CLASS_INDEX.get(executed.getClass());
+            if (index >= executions.length) {
+                int length = Math.max(index + 1, executions.length * 2);
+                classes = Arrays.copyOf(classes, length);
+                executions = Arrays.copyOf(executions, length);
+                completions = Arrays.copyOf(completions, length);
+            }
+            classes[index] = executed.getClass();
+            executions[index]++;
+            if (completed != null) {
+                completions[index]++;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package it.unicam.cs.pa.robotswarmsim.library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This JDK Flight Recorder event spans one run of the parser over an environment or a robot program.
+ */
+@Name("it.unicam.cs.pa.robotswarmsim.Parse")
+@Label("Parser Run")
+@Category("Robot Swarm Simulator")
+@Description("Parsing of an environment or of a robot program")
+public final class ParseEvent extends Event {
+
+    @Label("Environment")
+    @Description("Whether the parsed text describes an environment rather than a robot program")
+    public boolean environment;
+
+    @Label("Characters")
+    @Description("Length of the parsed text")
+    public int characters;
+
+    @Label("Items")
+    @Description("Number of areas or top-level commands produced")
+    public int items;
+
+    @Label("Succeeded")
+    @Description("Whether the text was parsed without errors")
+    public boolean succeeded;
+}
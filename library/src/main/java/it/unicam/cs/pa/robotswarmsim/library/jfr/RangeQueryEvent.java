@@ -0,0 +1,62 @@
+package it.unicam.cs.pa.robotswarmsim.library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This JDK Flight Recorder event spans one neighbour query of a robot.
+ * Queries run once per robot and tick on every worker, so only one in {@link #SAMPLE_INTERVAL} is recorded,
+ * the last of every {@link #SAMPLE_INTERVAL} queries run by a thread: while the event is enabled, the others
+ * cost a counter increment, and while it is disabled they cost a check and allocate nothing.
+ */
+@Name("it.unicam.cs.pa.robotswarmsim.RangeQuery")
+@Label("Neighbour Query")
+@Category("Robot Swarm Simulator")
+@Description("A sampled query for the robots within range of a point")
+@StackTrace(false)
+public final class RangeQueryEvent extends Event {
+
+    /**
+     * Number of queries per recorded one.
+     */
+    public static final int SAMPLE_INTERVAL = 1024;
+
+    private static final EventType TYPE = EventType.getEventType(RangeQueryEvent.class);
+    private static final ThreadLocal<int[]> COUNTS = ThreadLocal.withInitial(() -> new int[1]); // Queries per thread
+
+    @Label("Range")
+    @Description("Radius of the search")
+    public double range;
+
+    @Label("Candidates")
+    @Description("Number of robots of the scanned grid cells")
+    public int candidates;
+
+    @Label("Hits")
+    @Description("Number of robots within range")
+    public int hits;
+
+    /**
+     * Starts the event of a query if the event is enabled and the query is sampled.
+     *
+     * @return The started event, or null if the query is not recorded.
+     */
+    public static RangeQueryEvent sample() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        int[] queries = COUNTS.get();
+        if (++queries[0] < SAMPLE_INTERVAL) {
+            return null;
+        }
+        queries[0] = 0;
+        RangeQueryEvent event = new RangeQueryEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,53 @@
+package it.unicam.cs.pa.robotswarmsim.library.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * This JDK Flight Recorder event spans one tick of the simulation, from the end of its wait for the wall clock
+ * to the notification of its end. By default only ticks lasting at least {@link #DEFAULT_THRESHOLD} are kept,
+ * so that a recording of a long run stays small; recordings can lower the threshold to 0 ms to keep every tick.
+ */
+@Name("it.unicam.cs.pa.robotswarmsim.Tick")
+@Label("Simulation Tick")
+@Category("Robot Swarm Simulator")
+@Description("One tick of the simulation: commit, indexing, stepping, reporting and retiring of the robots")
+@StackTrace(false)
+@Threshold(TickEvent.DEFAULT_THRESHOLD)
+public final class TickEvent extends Event {
+
+    /**
+     * Duration under which a tick is not recorded, unless the recording sets another threshold.
+     */
+    public static final String DEFAULT_THRESHOLD = "10 ms";
+
+    private static final EventType TYPE = EventType.getEventType(TickEvent.class);
+
+    @Label("Step")
+    @Description("Number of the tick")
+    public int step;
+
+    @Label("Active Robots")
+    @Description("Number of robots stepped during the tick")
+    public int robotCount;
+
+    /**
+     * Starts the event of a tick if a recording collects ticks, so that a tick allocates no event otherwise.
+     *
+     * @return The started event, or null if the event is disabled.
+     */
+    public static TickEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        TickEvent event = new TickEvent();
+        event.begin();
+        return event;
+    }
+}
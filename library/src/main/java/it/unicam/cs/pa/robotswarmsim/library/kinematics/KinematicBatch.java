@@ -0,0 +1,84 @@
+package it.unicam.cs.pa.robotswarmsim.library.kinematics;
+
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.entity.RobotStore;
+
+/**
+ * This class steps robots while grouping the ticks that only move a robot in a straight line, such as
+ * a running CONTINUE or a MOVE, so that their positions are integrated in one pass by a
+ * {@link PositionIntegrator}. The other robots run their program as usual.
+ * Robots only write their own row and read the committed state of their neighbours, so moving some of
+ * them later in the tick does not change the result. A batch holds robots of a single store at a time and
+ * has a fixed capacity, so it allocates nothing once built.
+ * Not thread-safe: each thread stepping robots needs its own batch.
+ */
+public final class KinematicBatch {
+
+    private static final int CAPACITY = 1024; // Robots integrated in one pass at most
+
+    private final PositionIntegrator integrator;
+    private final Robot[] robots = new Robot[CAPACITY]; // Robots whose tick was prepared
+    private final int[] ids = new int[CAPACITY]; // Ids of the prepared robots in their store
+    private int count = 0; // Number of prepared robots
+    private RobotStore store; // Store of the prepared robots, null when the batch is empty
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param integrator The kernel integrating the positions of the batched robots.
+     */
+    public KinematicBatch(PositionIntegrator integrator) {
+
+        this.integrator = integrator;
+    }
+
+    /**
+     * Runs one tick of a robot's program, or prepares it and adds the robot to the batch if the tick only
+     * moves the robot. The tick of a batched robot is completed by the next {@link #flush(double)}.
+     *
+     * @param robot The robot to step.
+     * @param dt    The time step in seconds; it must be the same until the batch is flushed.
+     */
+    public void step(Robot robot, double dt) {
+        if (!robot.prepareKinematicTick(dt)) {
+            robot.runProgram(dt);
+            return;
+        }
+        RobotStore robotStore = robot.getEnvironment().getRobotStore();
+        if (count == CAPACITY || (store != null && store != robotStore)) {
+            flush(dt);
+        }
+        store = robotStore;
+        robots[count] = robot;
+        ids[count] = robot.getId();
+        count++;
+    }
+
+    /**
+     * Integrates the positions of the batched robots and completes their ticks, emptying the batch.
+     *
+     * @param dt The time step in seconds.
+     */
+    public void flush(double dt) {
+        if (count == 0) {
+            return;
+        }
+        store.integratePositions(ids, count, dt, integrator);
+        for (int i = 0; i < count; i++) {
+            robots[i].finishKinematicTick(dt);
+            robots[i] = null;
+        }
+        count = 0;
+        store = null;
+    }
+
+    /**
+     * Returns the kernel integrating the positions of the batched robots.
+     *
+     * @return The integrator.
+     */
+    public PositionIntegrator getIntegrator() {
+
+        return integrator;
+    }
+}
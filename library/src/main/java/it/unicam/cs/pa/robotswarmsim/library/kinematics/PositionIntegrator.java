@@ -0,0 +1,51 @@
+package it.unicam.cs.pa.robotswarmsim.library.kinematics;
+
+/**
+ * This interface represents a kernel moving many robots in a straight line in one pass over the columns
+ * of a robot store. For every listed robot, the position is advanced by its speed times the time step along
+ * the unit vector of its heading, computing {@code x[id] + (speed[id] * dt) * headingX[id]} and the same
+ * for y: every implementation must produce exactly the same results as the scalar one.
+ */
+public interface PositionIntegrator {
+
+    /**
+     * The name of the module providing the Vector API.
+     */
+    String VECTOR_MODULE = "jdk.incubator.vector";
+
+    /**
+     * Advances the positions of the listed robots.
+     *
+     * @param x        The x-coordinates, indexed by robot id.
+     * @param y        The y-coordinates, indexed by robot id.
+     * @param speed    The speeds, indexed by robot id.
+     * @param headingX The x-components of the unit vectors of the headings, indexed by robot id.
+     * @param headingY The y-components of the unit vectors of the headings, indexed by robot id.
+     * @param ids      The ids of the robots to move, all distinct.
+     * @param count    The number of ids to read from the start of the array.
+     * @param dt       The time step in seconds.
+     */
+    void integrate(double[] x, double[] y, double[] speed, double[] headingX, double[] headingY,
+                   int[] ids, int count, double dt);
+
+    /**
+     * Returns the integrator processing one robot at a time.
+     *
+     * @return The scalar integrator.
+     */
+    static PositionIntegrator scalar() {
+
+        return ScalarPositionIntegrator.INSTANCE;
+    }
+
+    /**
+     * Returns the fastest integrator available: the SIMD one when the JVM was started with the Vector API
+     * module (--add-modules jdk.incubator.vector), the scalar one otherwise.
+     *
+     * @return The preferred integrator.
+     */
+    static PositionIntegrator preferred() {
+
+        return PreferredIntegrator.INTEGRATOR;
+    }
+}
@@ -0,0 +1,36 @@
+package it.unicam.cs.pa.robotswarmsim.library.kinematics;
+
+/**
+ * This class chooses the preferred integrator once, when it is first needed. The SIMD integrator is
+ * only loaded if its module is present, so that the library runs on JVMs started without it.
+ */
+final class PreferredIntegrator {
+
+    /**
+     * The preferred integrator of this JVM.
+     */
+    static final PositionIntegrator INTEGRATOR = load();
+
+    /**
+     * Prevents instantiation.
+     */
+    private PreferredIntegrator() {
+    }
+
+    /**
+     * Loads the SIMD integrator if the Vector API is available.
+     *
+     * @return The SIMD integrator, or the scalar one if the Vector API cannot be used.
+     */
+    private static PositionIntegrator load() {
+        if (ModuleLayer.boot().findModule(PositionIntegrator.VECTOR_MODULE).isEmpty()) {
+            return PositionIntegrator.scalar();
+        }
+        try {
+            return (PositionIntegrator) Class.forName(PreferredIntegrator.class.getPackageName()
+                    + ".VectorPositionIntegrator").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return PositionIntegrator.scalar();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package it.unicam.cs.pa.robotswarmsim.library.kinematics;
+
+/**
+ * This class integrates the positions of the robots one at a time. It is the reference for the other
+ * integrators and the fallback when the Vector API is not available.
+ */
+public final class ScalarPositionIntegrator implements PositionIntegrator {
+
+    /**
+     * The shared instance; the integrator has no state.
+     */
+    static final ScalarPositionIntegrator INSTANCE = new ScalarPositionIntegrator();
+
+    /**
+     * Prevents instantiation outside {@link PositionIntegrator#scalar()}.
+     */
+    private ScalarPositionIntegrator() {
+    }
+
+    /**
+     * Advances the positions of the listed robots one at a time.
+     *
+     * @param x        The x-coordinates, indexed by robot id.
+     * @param y        The y-coordinates, indexed by robot id.
+     * @param speed    The speeds, indexed by robot id.
+     * @param headingX The x-components of the unit vectors of the headings, indexed by robot id.
+     * @param headingY The y-components of the unit vectors of the headings, indexed by robot id.
+     * @param ids      The ids of the robots to move, all distinct.
+     * @param count    The number of ids to read from the start of the array.
+     * @param dt       The time step in seconds.
+     */
+    @Override
+    public void integrate(double[] x, double[] y, double[] speed, double[] headingX, double[] headingY,
+                          int[] ids, int count, double dt) {
+        for (int i = 0; i < count; i++) {
+            int id = ids[i];
+            double distance = speed[id] * dt;
+            x[id] = x[id] + distance * headingX[id];
+            y[id] = y[id] + distance * headingY[id];
+        }
+    }
+
+    /**
+     * Returns the name of the integrator.
+     *
+     * @return The name of the integrator.
+     */
+    @Override
+    public String toString() {
+
+        return "scalar";
+    }
+}
@@ -0,0 +1,108 @@
+package it.unicam.cs.pa.robotswarmsim.library.kinematics;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This class integrates the positions of the robots with the SIMD instructions of the Vector API.
+ * Runs of consecutive ids, the common case since robots are batched in id order, are loaded and stored
+ * as contiguous lanes; other groups of ids are integrated one at a time, since gathering and scattering
+ * them measured about 2.5 times slower than scalar code. That figure, like the comparisons of
+ * KinematicsBenchmark quoted with this kernel, was measured on JDK 17, while the build toolchain is Java 19,
+ * whose incubating Vector API may perform differently. The lanes compute the same
+ * multiplications and additions as the scalar integrator, without fusing them, so the results are identical.
+ * It needs the jdk.incubator.vector module and is only loaded by {@link PositionIntegrator#preferred()}
+ * when that module is present.
+ */
+public final class VectorPositionIntegrator implements PositionIntegrator {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Advances the positions of the listed robots a vector of lanes at a time where their ids are
+     * consecutive, and one at a time elsewhere.
+     *
+     * @param x        The x-coordinates, indexed by robot id.
+     * @param y        The y-coordinates, indexed by robot id.
+     * @param speed    The speeds, indexed by robot id.
+     * @param headingX The x-components of the unit vectors of the headings, indexed by robot id.
+     * @param headingY The y-components of the unit vectors of the headings, indexed by robot id.
+     * @param ids      The ids of the robots to move, all distinct.
+     * @param count    The number of ids to read from the start of the array.
+     * @param dt       The time step in seconds.
+     */
+    @Override
+    public void integrate(double[] x, double[] y, double[] speed, double[] headingX, double[] headingY,
+                          int[] ids, int count, double dt) {
+        int lanes = SPECIES.length();
+        int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += lanes) {
+            int first = ids[i];
+            if (isRun(ids, i, lanes)) {
+                DoubleVector distance = DoubleVector.fromArray(SPECIES, speed, first).mul(dt);
+                DoubleVector.fromArray(SPECIES, x, first)
+                        .add(distance.mul(DoubleVector.fromArray(SPECIES, headingX, first)))
+                        .intoArray(x, first);
+                DoubleVector.fromArray(SPECIES, y, first)
+                        .add(distance.mul(DoubleVector.fromArray(SPECIES, headingY, first)))
+                        .intoArray(y, first);
+            } else {
+                integrateScalar(x, y, speed, headingX, headingY, ids, i, i + lanes, dt);
+            }
+        }
+        integrateScalar(x, y, speed, headingX, headingY, ids, bound, count, dt);
+    }
+
+    /**
+     * Advances the positions of a range of the listed robots one at a time.
+     *
+     * @param x        The x-coordinates, indexed by robot id.
+     * @param y        The y-coordinates, indexed by robot id.
+     * @param speed    The speeds, indexed by robot id.
+     * @param headingX The x-components of the unit vectors of the headings, indexed by robot id.
+     * @param headingY The y-components of the unit vectors of the headings, indexed by robot id.
+     * @param ids      The ids of the robots to move, all distinct.
+     * @param from     The index of the first id of the range, inclusive.
+     * @param to       The index of the last id of the range, exclusive.
+     * @param dt       The time step in seconds.
+     */
+    private static void integrateScalar(double[] x, double[] y, double[] speed, double[] headingX,
+                                        double[] headingY, int[] ids, int from, int to, double dt) {
+        for (int i = from; i < to; i++) {
+            int id = ids[i];
+            double distance = speed[id] * dt;
+            x[id] = x[id] + distance * headingX[id];
+            y[id] = y[id] + distance * headingY[id];
+        }
+    }
+
+    /**
+     * Checks whether a group of ids is a run of consecutive ids.
+     *
+     * @param ids    The ids.
+     * @param start  The index of the first id of the group.
+     * @param length The number of ids in the group.
+     * @return true if every id of the group follows the previous one.
+     */
+    private static boolean isRun(int[] ids, int start, int length) {
+        int first = ids[start];
+        for (int k = 1; k < length; k++) {
+            if (ids[start + k] != first + k) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the name of the integrator and its number of lanes.
+     *
+     * @return The name of the integrator.
+     */
+    @Override
+    public String toString() {
+
+        return "vector(" + SPECIES.length() + " lanes)";
+    }
+}
@@ -0,0 +1,70 @@
+package it.unicam.cs.pa.robotswarmsim.library.label;
+
+import java.util.Objects;
+
+/**
+ * This class holds a label named by a command and resolves it to its id in the {@link LabelRegistry}
+ * of the environment the command runs in. The id is cached together with its registry, so a command shared
+ * by the robots of one environment interns its label once and then only compares the registry.
+ * A command used in several environments is resolved again whenever the registry changes.
+ */
+public final class LabelRef {
+
+    private final String name; // The label
+    private volatile Binding binding; // Id of the label in the last registry, null until first resolved
+
+    /**
+     * Creates a reference to a label.
+     *
+     * @param name The label, not null.
+     */
+    public LabelRef(String name) {
+
+        this.name = Objects.requireNonNull(name, "Label must not be null.");
+    }
+
+    /**
+     * Returns the label.
+     *
+     * @return The name of the label.
+     */
+    public String getName() {
+
+        return name;
+    }
+
+    /**
+     * Returns the id of the label in a registry, interning it the first time it is resolved there.
+     *
+     * @param registry The label registry of the environment.
+     * @return The id of the label.
+     */
+    public int id(LabelRegistry registry) {
+        Binding current = binding;
+        if (current == null || current.registry() != registry) {
+            current = new Binding(registry, registry.intern(name));
+            binding = current;
+        }
+        return current.id();
+    }
+
+    /**
+     * Returns the label.
+     *
+     * @return The name of the label.
+     */
+    @Override
+    public String toString() {
+
+        return name;
+    }
+
+    /**
+     * The id of the label in a registry.
+     *
+     * @param registry The registry.
+     * @param id       The id of the label in the registry.
+     */
+    private record Binding(LabelRegistry registry, int id) {
+    }
+}
@@ -0,0 +1,85 @@
+package it.unicam.cs.pa.robotswarmsim.library.label;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class interns the labels of signals and areas to small consecutive integers.
+ * Commands and areas resolve their labels once, so that robots can keep signals and area membership
+ * in a {@link LabelSet} and check them with a bit test instead of hashing strings every tick.
+ * Every {@link it.unicam.cs.pa.robotswarmsim.library.Environment} owns a registry, so the ids of a run, and the
+ * number of words of the bitmasks written by traces, checkpoints and robot stores, only depend on the labels of
+ * that run. Interning is thread-safe; the id of a label never changes once assigned.
+ */
+public final class LabelRegistry {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>(); // Id of each label
+    private volatile String[] names = new String[0]; // Label of each id
+
+    /**
+     * Creates an empty registry.
+     */
+    public LabelRegistry() {
+    }
+
+    /**
+     * Returns the id of a label, assigning the next free id if the label was never seen.
+     *
+     * @param label The label, not null.
+     * @return The id of the label.
+     */
+    public int intern(String label) {
+        Integer id = ids.get(Objects.requireNonNull(label, "Label must not be null."));
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(label);
+            if (id == null) {
+                String[] grown = Arrays.copyOf(names, names.length + 1);
+                id = names.length;
+                grown[id] = label;
+                names = grown; // Published before the id, so every known id has a name
+                ids.put(label, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Returns the id of a label without assigning one.
+     *
+     * @param label The label.
+     * @return The id of the label, or -1 if the label was never interned.
+     */
+    public int find(String label) {
+        Integer id = label == null ? null : ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the label with the given id.
+     *
+     * @param id The id of the label.
+     * @return The label.
+     * @throws IllegalArgumentException if no label has the given id.
+     */
+    public String getName(int id) {
+        String[] current = names;
+        if (id < 0 || id >= current.length) {
+            throw new IllegalArgumentException("Unknown label id: " + id);
+        }
+        return current[id];
+    }
+
+    /**
+     * Returns the number of interned labels; ids range from 0 to this number, excluded.
+     *
+     * @return The number of labels.
+     */
+    public int size() {
+
+        return names.length;
+    }
+}
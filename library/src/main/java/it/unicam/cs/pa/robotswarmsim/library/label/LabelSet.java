@@ -0,0 +1,345 @@
+package it.unicam.cs.pa.robotswarmsim.library.label;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * This class is a mutable set of label ids stored as a bitmask.
+ * The first 64 ids live in a single long; larger ids spill into a {@link BitSet} created on first use.
+ * Membership checks are bit tests, and clearing or copying the set allocates nothing once the set has
+ * reached its size.
+ * Instances are not thread-safe.
+ */
+public final class LabelSet {
+
+    private static final int WORD_SIZE = Long.SIZE;
+
+    private long bits = 0; // Ids from 0 to 63
+    private BitSet overflow; // Ids from 64 upward, null until needed
+
+    /**
+     * Adds a label id to the set.
+     *
+     * @param id The label id, a non-negative integer.
+     * @return true if the set changed, false if it already contained the id.
+     */
+    public boolean add(int id) {
+        if (id < WORD_SIZE) {
+            long old = bits;
+            bits |= 1L << id;
+            return bits != old;
+        }
+        if (overflow == null) {
+            overflow = new BitSet();
+        }
+        boolean present = overflow.get(id - WORD_SIZE);
+        overflow.set(id - WORD_SIZE);
+        return !present;
+    }
+
+    /**
+     * Removes a label id from the set.
+     *
+     * @param id The label id.
+     * @return true if the set changed, false if it did not contain the id.
+     */
+    public boolean remove(int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        if (id < WORD_SIZE) {
+            bits &= ~(1L << id);
+        } else {
+            overflow.clear(id - WORD_SIZE);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the set contains a label id.
+     *
+     * @param id The label id.
+     * @return true if the id is in the set, otherwise false.
+     */
+    public boolean contains(int id) {
+        if (id < 0) {
+            return false;
+        }
+        if (id < WORD_SIZE) {
+            return (bits & (1L << id)) != 0;
+        }
+        return overflow != null && overflow.get(id - WORD_SIZE);
+    }
+
+    /**
+     * Removes every label id from the set.
+     */
+    public void clear() {
+        bits = 0;
+        if (overflow != null) {
+            overflow.clear();
+        }
+    }
+
+    /**
+     * Checks whether the set is empty.
+     *
+     * @return true if the set contains no id, otherwise false.
+     */
+    public boolean isEmpty() {
+
+        return bits == 0 && (overflow == null || overflow.isEmpty());
+    }
+
+    /**
+     * Returns the number of label ids in the set.
+     *
+     * @return The size of the set.
+     */
+    public int size() {
+
+        return Long.bitCount(bits) + (overflow == null ? 0 : overflow.cardinality());
+    }
+
+    /**
+     * Returns the ids from 0 to 63 as a bitmask, bit i being set when id i is in the set.
+     *
+     * @return The low word of the set.
+     */
+    public long getLowBits() {
+
+        return bits;
+    }
+
+    /**
+     * Returns 64 consecutive ids as a bitmask: bit i of word w is set when id 64 * w + i is in the set.
+     *
+     * @param word The index of the word, 0 for ids from 0 to 63.
+     * @return The bitmask of the word.
+     */
+    public long getWord(int word) {
+        if (word == 0) {
+            return bits;
+        }
+        long mask = 0;
+        if (overflow != null) {
+            int from = (word - 1) * WORD_SIZE;
+            for (int i = overflow.nextSetBit(from); i >= 0 && i < from + WORD_SIZE; i = overflow.nextSetBit(i + 1)) {
+                mask |= 1L << (i - from);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the number of words of 64 ids needed to hold the ids of the set.
+     *
+     * @return The number of words up to the one holding the largest id, at least 1.
+     */
+    public int getWordCount() {
+
+        return overflow == null ? 1 : 1 + (overflow.length() + WORD_SIZE - 1) / WORD_SIZE;
+    }
+
+    /**
+     * Sets 64 consecutive ids from a bitmask, replacing the ids of that range.
+     *
+     * @param word The index of the word, 0 for ids from 0 to 63.
+     * @param mask The bitmask of the word.
+     */
+    public void setWord(int word, long mask) {
+        if (word == 0) {
+            bits = mask;
+            return;
+        }
+        int from = (word - 1) * WORD_SIZE;
+        if (overflow == null) {
+            if (mask == 0) {
+                return;
+            }
+            overflow = new BitSet();
+        }
+        overflow.clear(from, from + WORD_SIZE);
+        for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+            overflow.set(from + Long.numberOfTrailingZeros(remaining));
+        }
+    }
+
+    /**
+     * Makes this set contain exactly the ids of another set.
+     *
+     * @param other The set to copy.
+     */
+    public void copyFrom(LabelSet other) {
+        bits = other.bits;
+        if (other.overflow != null && !other.overflow.isEmpty()) {
+            if (overflow == null) {
+                overflow = new BitSet();
+            }
+            overflow.clear();
+            overflow.or(other.overflow);
+        } else if (overflow != null) {
+            overflow.clear();
+        }
+    }
+
+    /**
+     * Visits every label id of the set in increasing order.
+     *
+     * @param action The action receiving each id.
+     */
+    public void forEach(IntConsumer action) {
+        for (long remaining = bits; remaining != 0; remaining &= remaining - 1) {
+            action.accept(Long.numberOfTrailingZeros(remaining));
+        }
+        if (overflow != null) {
+            for (int i = overflow.nextSetBit(0); i >= 0; i = overflow.nextSetBit(i + 1)) {
+                action.accept(i + WORD_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Visits every label id of the set missing from another set, in increasing order.
+     *
+     * @param other  The other set.
+     * @param action The action receiving each id.
+     */
+    public void forEachNotIn(LabelSet other, IntConsumer action) {
+        for (long remaining = bits & ~other.bits; remaining != 0; remaining &= remaining - 1) {
+            action.accept(Long.numberOfTrailingZeros(remaining));
+        }
+        if (overflow != null) {
+            for (int i = overflow.nextSetBit(0); i >= 0; i = overflow.nextSetBit(i + 1)) {
+                if (other.overflow == null || !other.overflow.get(i)) {
+                    action.accept(i + WORD_SIZE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether another object is a set with the same ids.
+     *
+     * @param object The object to compare.
+     * @return true if the object is a LabelSet with the same ids, false otherwise.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof LabelSet other) || bits != other.bits) {
+            return false;
+        }
+        boolean empty = overflow == null || overflow.isEmpty();
+        boolean otherEmpty = other.overflow == null || other.overflow.isEmpty();
+        return empty ? otherEmpty : !otherEmpty && overflow.equals(other.overflow);
+    }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}.
+     *
+     * @return The hash code of the ids.
+     */
+    @Override
+    public int hashCode() {
+        int hash = Long.hashCode(bits);
+        return overflow == null || overflow.isEmpty() ? hash : 31 * hash + overflow.hashCode();
+    }
+
+    /**
+     * Returns the id following the given one in the set.
+     *
+     * @param from The id to start from, included.
+     * @return The smallest id in the set not lower than from, or -1 if there is none.
+     */
+    private int nextId(int from) {
+        if (from < WORD_SIZE) {
+            long remaining = bits & (-1L << from);
+            if (remaining != 0) {
+                return Long.numberOfTrailingZeros(remaining);
+            }
+            from = WORD_SIZE;
+        }
+        if (overflow == null) {
+            return -1;
+        }
+        int next = overflow.nextSetBit(from - WORD_SIZE);
+        return next < 0 ? -1 : next + WORD_SIZE;
+    }
+
+    /**
+     * Returns a live view of the set as the labels of its ids.
+     * Adding a label to the view interns it in the registry.
+     *
+     * @param registry The registry the ids come from.
+     * @return A mutable set of labels backed by this set.
+     */
+    public Set<String> asLabels(LabelRegistry registry) {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<>() {
+                    private int next = nextId(0);
+                    private int last = -1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (next < 0) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next;
+                        next = nextId(next + 1);
+                        return registry.getName(last);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last < 0) {
+                            throw new IllegalStateException();
+                        }
+                        LabelSet.this.remove(last);
+                        last = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LabelSet.this.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return LabelSet.this.isEmpty();
+            }
+
+            @Override
+            public boolean contains(Object label) {
+                return label instanceof String name && LabelSet.this.contains(registry.find(name));
+            }
+
+            @Override
+            public boolean add(String label) {
+                return LabelSet.this.add(registry.intern(label));
+            }
+
+            @Override
+            public boolean remove(Object label) {
+                return label instanceof String name && LabelSet.this.remove(registry.find(name));
+            }
+
+            @Override
+            public void clear() {
+                LabelSet.this.clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,170 @@
+package it.unicam.cs.pa.robotswarmsim.library.metrics;
+
+import java.util.Arrays;
+
+/**
+ * This class is a histogram of non-negative latencies with a bounded relative error, in the style of
+ * HdrHistogram. Values below 256 have a bucket each; above, every power of two is split into 128 buckets
+ * of equal width, so a value is reported with a relative error below 1% whatever its magnitude.
+ * Recording a value costs a few bit operations and an array increment, with no allocation.
+ * Instances are not thread-safe: values must be recorded from one thread, and read from another thread only
+ * once recording is over.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Buckets of the values below 256
+    private static final int HALF = SUB_BUCKETS / 2; // Buckets of each power of two above
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - SUB_BUCKET_BITS) * HALF;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0; // Number of recorded values
+    private long total = 0; // Sum of the recorded values
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    /**
+     * Records a value; negative values are recorded as 0.
+     *
+     * @param value The value, usually a duration in nanoseconds.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts[bucketOf(v)]++;
+        count++;
+        total += v;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+    }
+
+    /**
+     * Adds every value recorded by another histogram.
+     *
+     * @param other The other histogram.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes every recorded value.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+
+        return count;
+    }
+
+    /**
+     * Returns the sum of the recorded values.
+     *
+     * @return The total.
+     */
+    public long getTotal() {
+
+        return total;
+    }
+
+    /**
+     * Returns the smallest recorded value.
+     *
+     * @return The minimum, or 0 if nothing was recorded.
+     */
+    public long getMin() {
+
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return The maximum, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+
+        return max;
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return The mean, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values fall, within the precision
+     * of the buckets. The result never exceeds the largest recorded value.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The value at the percentile, or 0 if nothing was recorded.
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, highestValueOf(bucket)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the bucket of a value.
+     *
+     * @param value The non-negative value.
+     * @return The index of its bucket.
+     */
+    private static int bucketOf(long value) {
+        int magnitude = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        if (magnitude == 0) {
+            return (int) value;
+        }
+        return SUB_BUCKETS + (magnitude - 1) * HALF + (int) (value >>> magnitude) - HALF;
+    }
+
+    /**
+     * Returns the largest value of a bucket.
+     *
+     * @param bucket The index of the bucket.
+     * @return The largest value mapped to the bucket.
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = (bucket - SUB_BUCKETS) / HALF + 1;
+        long lowest = (long) ((bucket - SUB_BUCKETS) % HALF + HALF) << magnitude;
+        return lowest + (1L << magnitude) - 1;
+    }
+}
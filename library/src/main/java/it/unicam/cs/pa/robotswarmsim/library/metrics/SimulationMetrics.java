@@ -0,0 +1,395 @@
+package it.unicam.cs.pa.robotswarmsim.library.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is a registry of the counters updated by the hot paths of the simulation: neighbour queries
+ * and the robots they examine, area lookups and the containment tests they run, and the bytes allocated
+ * by the simulation threads.
+ * The engine adds to {@link LongAdder}s, so workers updating the same counter do not contend; at the end of
+ * each tick the adders are drained into the values of the last tick and into the totals, which can be read
+ * from any thread, in particular through the {@link SimulationMetricsMXBean} registered with
+ * {@link #registerMBean(String)}.
+ */
+public final class SimulationMetrics implements SimulationMetricsMXBean {
+
+    private static final String DOMAIN = "it.unicam.cs.pa.robotswarmsim";
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    /**
+     * The counters of the registry.
+     */
+    public enum Counter {
+        /**
+         * Neighbour queries run.
+         */
+        NEIGHBOUR_QUERIES("neighbour queries"),
+        /**
+         * Robots examined by the neighbour queries, each costing a distance check.
+         */
+        NEIGHBOUR_CANDIDATES("neighbour candidates"),
+        /**
+         * Robots found within range by the neighbour queries.
+         */
+        NEIGHBOUR_HITS("neighbour hits"),
+        /**
+         * Area lookups run for the robots that moved.
+         */
+        AREA_QUERIES("area queries"),
+        /**
+         * Exact area containment tests run by the area lookups.
+         */
+        AREA_TESTS("area tests"),
+        /**
+         * Bytes allocated by the simulation threads during the ticks.
+         */
+        ALLOCATED_BYTES("allocated bytes");
+
+        private final String label; // Name of the counter in the report
+
+        /**
+         * Creates a counter.
+         *
+         * @param label The name of the counter in the report.
+         */
+        Counter(String label) {
+
+            this.label = label;
+        }
+    }
+
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final LongAdder[] current = new LongAdder[COUNTERS.length]; // Counts of the tick in progress
+    private final AtomicLongArray lastTick = new AtomicLongArray(COUNTERS.length); // Counts of the last tick
+    private final AtomicLongArray totals = new AtomicLongArray(COUNTERS.length); // Counts of all the ticks
+    private final AtomicLong ticks = new AtomicLong(); // Number of completed ticks
+    private ObjectName objectName; // Name under which the registry is registered, null if it is not
+
+    /**
+     * Creates a registry with every counter at 0.
+     */
+    public SimulationMetrics() {
+        for (int i = 0; i < current.length; i++) {
+            current[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Adds to a counter of the tick in progress. Safe to call from any thread.
+     *
+     * @param counter The counter.
+     * @param amount  The amount to add.
+     */
+    public void add(Counter counter, long amount) {
+
+        current[counter.ordinal()].add(amount);
+    }
+
+    /**
+     * Ends a tick: the counts added since the previous tick become the values of the last tick
+     * and are added to the totals.
+     */
+    public void endTick() {
+        for (int i = 0; i < current.length; i++) {
+            long value = current[i].sumThenReset();
+            lastTick.set(i, value);
+            totals.addAndGet(i, value);
+        }
+        ticks.incrementAndGet();
+    }
+
+    /**
+     * Returns the value of a counter during the last completed tick.
+     *
+     * @param counter The counter.
+     * @return The count of the last tick.
+     */
+    public long getLastTick(Counter counter) {
+
+        return lastTick.get(counter.ordinal());
+    }
+
+    /**
+     * Returns the total of a counter over the completed ticks.
+     *
+     * @param counter The counter.
+     * @return The total count.
+     */
+    public long getTotal(Counter counter) {
+
+        return totals.get(counter.ordinal());
+    }
+
+    /**
+     * Returns the bytes allocated so far by the calling thread, for measuring the allocation of a section
+     * of the tick as the difference of two readings.
+     *
+     * @return The allocated bytes, or -1 if the JVM cannot measure them.
+     */
+    public static long threadAllocatedBytes() {
+
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Adds the allocation of a section of the tick run by the calling thread.
+     *
+     * @param start The reading of {@link #threadAllocatedBytes()} taken when the section started.
+     */
+    public void addAllocatedSince(long start) {
+        if (start >= 0) {
+            add(Counter.ALLOCATED_BYTES, threadAllocatedBytes() - start);
+        }
+    }
+
+    /**
+     * Returns the allocation counter of the JVM, enabling it if needed.
+     *
+     * @return The thread bean measuring allocations, or null if the JVM does not support it.
+     */
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean allocations)
+                || !allocations.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        if (!allocations.isThreadAllocatedMemoryEnabled()) {
+            allocations.setThreadAllocatedMemoryEnabled(true);
+        }
+        return allocations;
+    }
+
+    /**
+     * Registers the registry with the platform MBean server, under the type SimulationMetrics
+     * of the simulator's domain.
+     *
+     * @param name The name distinguishing this registry from the others.
+     * @throws IllegalArgumentException If the name is not valid in an object name, or if it is already in use.
+     * @throws IllegalStateException    If the registry is already registered.
+     */
+    public void registerMBean(String name) {
+        if (objectName != null) {
+            throw new IllegalStateException("The metrics are already registered as " + objectName);
+        }
+        try {
+            ObjectName candidate = new ObjectName(DOMAIN + ":type=SimulationMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, candidate);
+            objectName = candidate;
+        } catch (MalformedObjectNameException | InstanceAlreadyExistsException e) {
+            throw new IllegalArgumentException("Cannot register the metrics as " + name + ": " + e.getMessage(), e);
+        } catch (MBeanRegistrationException | NotCompliantMBeanException e) {
+            throw new IllegalStateException("Cannot register the metrics: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Removes the registry from the platform MBean server, if it is registered.
+     */
+    public void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+            // Already gone: nothing left to remove
+        }
+        objectName = null;
+    }
+
+    /**
+     * Returns the name under which the registry is registered with the platform MBean server.
+     *
+     * @return The object name, or null if the registry is not registered.
+     */
+    public ObjectName getObjectName() {
+
+        return objectName;
+    }
+
+    /**
+     * Formats a report of the counters: their totals and their means per tick.
+     *
+     * @return The report, one line per counter.
+     */
+    public String report() {
+        long tickCount = ticks.get();
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Ticks: %d%n", tickCount));
+        report.append(String.format(Locale.ROOT, "%-22s %16s %14s%n", "Counter", "Total", "Per tick"));
+        for (Counter counter : COUNTERS) {
+            long total = getTotal(counter);
+            report.append(String.format(Locale.ROOT, "%-22s %16d %14.1f%n",
+                    counter.label, total, tickCount == 0 ? 0.0 : (double) total / tickCount));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Returns the number of ticks completed.
+     *
+     * @return The tick count.
+     */
+    @Override
+    public long getTickCount() {
+
+        return ticks.get();
+    }
+
+    /**
+     * Returns the number of neighbour queries run.
+     *
+     * @return The total number of queries.
+     */
+    @Override
+    public long getNeighbourQueries() {
+
+        return getTotal(Counter.NEIGHBOUR_QUERIES);
+    }
+
+    /**
+     * Returns the number of robots examined by the neighbour queries.
+     *
+     * @return The total number of candidates.
+     */
+    @Override
+    public long getNeighbourCandidates() {
+
+        return getTotal(Counter.NEIGHBOUR_CANDIDATES);
+    }
+
+    /**
+     * Returns the number of robots found within range by the neighbour queries.
+     *
+     * @return The total number of hits.
+     */
+    @Override
+    public long getNeighbourHits() {
+
+        return getTotal(Counter.NEIGHBOUR_HITS);
+    }
+
+    /**
+     * Returns the number of area lookups run.
+     *
+     * @return The total number of lookups.
+     */
+    @Override
+    public long getAreaQueries() {
+
+        return getTotal(Counter.AREA_QUERIES);
+    }
+
+    /**
+     * Returns the number of exact area containment tests run.
+     *
+     * @return The total number of tests.
+     */
+    @Override
+    public long getAreaTests() {
+
+        return getTotal(Counter.AREA_TESTS);
+    }
+
+    /**
+     * Returns the number of bytes allocated by the simulation threads during the ticks.
+     *
+     * @return The total allocated bytes.
+     */
+    @Override
+    public long getAllocatedBytes() {
+
+        return getTotal(Counter.ALLOCATED_BYTES);
+    }
+
+    /**
+     * Returns the number of neighbour queries run during the last tick.
+     *
+     * @return The queries of the last tick.
+     */
+    @Override
+    public long getLastTickNeighbourQueries() {
+
+        return getLastTick(Counter.NEIGHBOUR_QUERIES);
+    }
+
+    /**
+     * Returns the number of robots examined by the neighbour queries of the last tick.
+     *
+     * @return The candidates of the last tick.
+     */
+    @Override
+    public long getLastTickNeighbourCandidates() {
+
+        return getLastTick(Counter.NEIGHBOUR_CANDIDATES);
+    }
+
+    /**
+     * Returns the number of robots found within range by the neighbour queries of the last tick.
+     *
+     * @return The hits of the last tick.
+     */
+    @Override
+    public long getLastTickNeighbourHits() {
+
+        return getLastTick(Counter.NEIGHBOUR_HITS);
+    }
+
+    /**
+     * Returns the number of area lookups run during the last tick.
+     *
+     * @return The lookups of the last tick.
+     */
+    @Override
+    public long getLastTickAreaQueries() {
+
+        return getLastTick(Counter.AREA_QUERIES);
+    }
+
+    /**
+     * Returns the number of exact area containment tests run during the last tick.
+     *
+     * @return The tests of the last tick.
+     */
+    @Override
+    public long getLastTickAreaTests() {
+
+        return getLastTick(Counter.AREA_TESTS);
+    }
+
+    /**
+     * Returns the number of bytes allocated by the simulation threads during the last tick.
+     *
+     * @return The allocated bytes of the last tick.
+     */
+    @Override
+    public long getLastTickAllocatedBytes() {
+
+        return getLastTick(Counter.ALLOCATED_BYTES);
+    }
+
+    /**
+     * Sets every counter and the tick count back to 0. Counts added by a tick in progress are kept
+     * for that tick.
+     */
+    @Override
+    public void reset() {
+        for (int i = 0; i < COUNTERS.length; i++) {
+            lastTick.set(i, 0);
+            totals.set(i, 0);
+        }
+        ticks.set(0);
+    }
+}
@@ -0,0 +1,104 @@
+package it.unicam.cs.pa.robotswarmsim.library.metrics;
+
+/**
+ * The management interface of {@link SimulationMetrics}, exposing over JMX the counters of the last
+ * completed tick and their totals since the metrics were created or reset.
+ */
+public interface SimulationMetricsMXBean {
+
+    /**
+     * Returns the number of ticks completed.
+     *
+     * @return The tick count.
+     */
+    long getTickCount();
+
+    /**
+     * Returns the number of neighbour queries run.
+     *
+     * @return The total number of queries.
+     */
+    long getNeighbourQueries();
+
+    /**
+     * Returns the number of robots examined by the neighbour queries, that is, of distance checks.
+     *
+     * @return The total number of candidates.
+     */
+    long getNeighbourCandidates();
+
+    /**
+     * Returns the number of robots found within range by the neighbour queries.
+     *
+     * @return The total number of hits.
+     */
+    long getNeighbourHits();
+
+    /**
+     * Returns the number of area lookups run.
+     *
+     * @return The total number of lookups.
+     */
+    long getAreaQueries();
+
+    /**
+     * Returns the number of exact area containment tests run by the area lookups.
+     *
+     * @return The total number of tests.
+     */
+    long getAreaTests();
+
+    /**
+     * Returns the number of bytes allocated by the simulation threads during the ticks.
+     *
+     * @return The total allocated bytes, 0 if the JVM cannot measure them.
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Returns the number of neighbour queries run during the last tick.
+     *
+     * @return The queries of the last tick.
+     */
+    long getLastTickNeighbourQueries();
+
+    /**
+     * Returns the number of robots examined by the neighbour queries of the last tick.
+     *
+     * @return The candidates of the last tick.
+     */
+    long getLastTickNeighbourCandidates();
+
+    /**
+     * Returns the number of robots found within range by the neighbour queries of the last tick.
+     *
+     * @return The hits of the last tick.
+     */
+    long getLastTickNeighbourHits();
+
+    /**
+     * Returns the number of area lookups run during the last tick.
+     *
+     * @return The lookups of the last tick.
+     */
+    long getLastTickAreaQueries();
+
+    /**
+     * Returns the number of exact area containment tests run during the last tick.
+     *
+     * @return The tests of the last tick.
+     */
+    long getLastTickAreaTests();
+
+    /**
+     * Returns the number of bytes allocated by the simulation threads during the last tick.
+     *
+     * @return The allocated bytes of the last tick.
+     */
+    long getLastTickAllocatedBytes();
+
+    /**
+     * Sets every counter and the tick count back to 0.
+     */
+    void reset();
+}
@@ -0,0 +1,225 @@
+package it.unicam.cs.pa.robotswarmsim.library.metrics;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class collects the time spent in each phase of the ticks of a simulation into {@link LatencyHistogram}s.
+ * The simulation thread times the phases of a tick one after the other with {@link #record(Phase, long)},
+ * then closes the tick with {@link #endTick()}, which records the duration of the tick and of each of its phases.
+ * The phases nested in the stepping of the robots, area-label updates and neighbour queries, run on the workers
+ * stepping the robots: they are summed across threads with {@link #addNested(Phase, long)}, so they measure CPU time
+ * and their share is relative to the time spent stepping, summed over the workers.
+ * <p>
+ * A simulator without a profiler takes no timestamp at all. The histograms must be read between runs,
+ * or from a listener on the simulation thread.
+ */
+public final class TickProfiler {
+
+    /**
+     * The phases of a tick.
+     */
+    public enum Phase {
+        /**
+         * Waiting for the wall-clock deadline of the tick; not part of the tick time.
+         */
+        WAIT("wait", false),
+        /**
+         * Committing the state observed by the neighbours.
+         */
+        COMMIT("commit", false),
+        /**
+         * Moving the robots in the grids used by neighbour queries.
+         */
+        INDEX("index", false),
+        /**
+         * Stepping the programs of the robots: command execution, including the nested phases.
+         */
+        STEP("step", false),
+        /**
+         * Updating the area labels of the robots that moved, nested in the stepping.
+         */
+        AREA_UPDATE("area update", true),
+        /**
+         * Finding the neighbours of the robots, nested in the stepping.
+         */
+        NEIGHBOUR_QUERY("neighbour query", true),
+        /**
+         * Reporting the tick to the listeners, including their output.
+         */
+        REPORT("report", false),
+        /**
+         * Retiring the robots that completed their program.
+         */
+        RETIRE("retire", false);
+
+        private final String label; // Name of the phase in the report
+        private final boolean nested; // Whether the phase runs on the workers, inside STEP
+
+        Phase(String label, boolean nested) {
+            this.label = label;
+            this.nested = nested;
+        }
+
+        /**
+         * Returns whether the phase runs on the workers stepping the robots, inside {@link #STEP}.
+         *
+         * @return true for a nested phase, false for a phase of the simulation thread.
+         */
+        public boolean isNested() {
+
+            return nested;
+        }
+    }
+
+    private final LatencyHistogram ticks = new LatencyHistogram(); // Duration of the ticks, without waiting
+    private final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class); // Duration of each phase per tick
+    private final long[] current = new long[Phase.values().length]; // Time of each phase in the current tick
+    private final LongAdder[] nested = new LongAdder[Phase.values().length]; // Nested time of the current tick
+
+    /**
+     * Creates a profiler with empty histograms.
+     */
+    public TickProfiler() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new LatencyHistogram());
+            if (phase.isNested()) {
+                nested[phase.ordinal()] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Adds time to a phase of the current tick, from the simulation thread.
+     *
+     * @param phase The phase.
+     * @param start The value of {@link System#nanoTime()} when the phase started.
+     * @return The current value of {@link System#nanoTime()}, the start of the next phase.
+     */
+    public long record(Phase phase, long start) {
+        long now = System.nanoTime();
+        current[phase.ordinal()] += now - start;
+        return now;
+    }
+
+    /**
+     * Adds time to a nested phase of the current tick, from any thread.
+     *
+     * @param phase The nested phase.
+     * @param nanos The time spent in nanoseconds.
+     * @throws IllegalArgumentException if the phase is not nested.
+     */
+    public void addNested(Phase phase, long nanos) {
+        LongAdder adder = nested[phase.ordinal()];
+        if (adder == null) {
+            throw new IllegalArgumentException("Not a nested phase: " + phase);
+        }
+        adder.add(nanos);
+    }
+
+    /**
+     * Closes the current tick: records its duration, without waiting, and the time of each of its phases.
+     */
+    public void endTick() {
+        long tick = 0;
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            if (phase.isNested()) {
+                current[i] = nested[i].sumThenReset();
+            } else if (phase != Phase.WAIT) {
+                tick += current[i];
+            }
+            phases.get(phase).record(current[i]);
+            current[i] = 0;
+        }
+        ticks.record(tick);
+    }
+
+    /**
+     * Returns the histogram of the duration of the ticks, without waiting.
+     *
+     * @return The histogram, in nanoseconds.
+     */
+    public LatencyHistogram getTickHistogram() {
+
+        return ticks;
+    }
+
+    /**
+     * Returns the histogram of the time spent in a phase per tick.
+     *
+     * @param phase The phase.
+     * @return The histogram, in nanoseconds.
+     */
+    public LatencyHistogram getPhaseHistogram(Phase phase) {
+
+        return phases.get(phase);
+    }
+
+    /**
+     * Returns the share of a phase: of the tick time for the phases of the simulation thread,
+     * of the stepping time summed over the workers for the nested phases.
+     *
+     * @param phase The phase.
+     * @return The share, between 0 and 1, or 0 if nothing was recorded.
+     */
+    public double getShare(Phase phase) {
+        long whole = phase.isNested() ? phases.get(Phase.STEP).getTotal() : ticks.getTotal();
+        if (whole == 0) {
+            return 0;
+        }
+        return (double) phases.get(phase).getTotal() / whole;
+    }
+
+    /**
+     * Removes every recorded tick.
+     */
+    public void reset() {
+        ticks.reset();
+        phases.values().forEach(LatencyHistogram::reset);
+        Arrays.fill(current, 0);
+        for (LongAdder adder : nested) {
+            if (adder != null) {
+                adder.reset();
+            }
+        }
+    }
+
+    /**
+     * Formats a report of the recorded ticks: the p50, p99 and maximum tick time, then the total,
+     * share, p50, p99 and maximum of each phase, in microseconds.
+     *
+     * @return The report, one line per row.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Ticks: %d, p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                ticks.getCount(), micros(ticks.getValueAtPercentile(50)), micros(ticks.getValueAtPercentile(99)),
+                micros(ticks.getMax())));
+        report.append(String.format(Locale.ROOT, "%-18s %12s %7s %10s %10s %10s%n",
+                "Phase", "Total ms", "Share", "p50 us", "p99 us", "Max us"));
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram histogram = phases.get(phase);
+            String share = phase == Phase.WAIT ? "-" : String.format(Locale.ROOT, "%.1f%%", 100 * getShare(phase));
+            report.append(String.format(Locale.ROOT, "%-18s %12.3f %7s %10.1f %10.1f %10.1f%n",
+                    (phase.isNested() ? "  " : "") + phase.label, histogram.getTotal() / 1e6, share,
+                    micros(histogram.getValueAtPercentile(50)), micros(histogram.getValueAtPercentile(99)),
+                    micros(histogram.getMax())));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Converts nanoseconds to microseconds.
+     *
+     * @param nanos The duration in nanoseconds.
+     * @return The duration in microseconds.
+     */
+    private static double micros(long nanos) {
+
+        return nanos / 1e3;
+    }
+}
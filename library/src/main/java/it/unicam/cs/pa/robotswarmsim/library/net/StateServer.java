@@ -0,0 +1,610 @@
+package it.unicam.cs.pa.robotswarmsim.library.net;
+
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelSet;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotStateBatch;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.SimulationListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class is a {@link SimulationListener} streaming the positions and signals of the robots to local viewers
+ * over TCP, using a non-blocking selector on a background thread.
+ * <p>
+ * Every frame is encoded once on the simulation thread and shared, read-only, by all the connected clients.
+ * The simulation never waits for a client: publishing a frame only replaces the latest one and wakes the server
+ * thread. Each client holds at most the frame it is writing and the next one; when a newer frame arrives before
+ * the next one could be started, the next one is replaced, so slow clients receive fewer, up-to-date frames.
+ * Frame buffers are pooled: the server thread counts the holders of each frame and returns it to the pool once
+ * every client has written or dropped it, so a steady stream encodes into the same few buffers.
+ * Frames are encoded every number of steps that is the greatest common divisor of the rates of the clients,
+ * so that every client receives its frames at exactly its own rate.
+ * <p>
+ * The protocol is binary and little-endian. On connection, the server sends a hello message: the magic bytes,
+ * the protocol version, the time step, the number of robots, the id of each robot, then the labels (count,
+ * then length and UTF-8 bytes of each). It then sends frames: the size of the rest of the frame, the step number,
+ * the number of 64-bit words of each signal bitmask, then the x and y columns with one double per robot and the
+ * signal column with one bitmask per robot, in the order of the ids of the hello message.
+ * A client can send at any time an int selecting its rate: it then receives at most one frame every that many steps.
+ * <p>
+ * A server streams a single run and must be closed to stop the server thread and disconnect the clients.
+ */
+public class StateServer implements SimulationListener, Closeable {
+
+    private static final byte[] MAGIC = "RSWSTREM".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final int POOL_CAPACITY = 16; // Free frames kept for reuse; more are left to the collector
+
+    private final LabelRegistry labels; // Labels of the environment, listed in the hello message
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final List<Client> clients = new ArrayList<>(); // Connected clients, owned by the server thread
+    private final AtomicReference<Frame> latest = new AtomicReference<>(); // Published frame not yet distributed
+    private final ArrayBlockingQueue<Frame> pool = new ArrayBlockingQueue<>(POOL_CAPACITY); // Free frames
+    private final AtomicLong allocated = new AtomicLong(); // Number of frames allocated
+    private Frame current; // Latest frame distributed, owned by the server thread
+    private final AtomicLong published = new AtomicLong(); // Number of frames published
+    private final AtomicLong dropped = new AtomicLong(); // Number of frames replaced before reaching a client
+    private volatile ByteBuffer hello; // Hello message, null until the run starts
+    private volatile int clientCount = 0; // Number of connected clients
+    private volatile int encodeInterval = 1; // Greatest common divisor of the rates of the clients, in steps
+    private volatile boolean running = true;
+
+    // State of the robots, owned by the simulation thread
+    private int robotCount = -1; // Number of robot columns, -1 until the run starts
+    private int labelWords; // Number of words of each signal bitmask
+    private int[] columnOf; // Column of each robot id, -1 for robots outside the run
+    private double[] x;
+    private double[] y;
+    private long[] signals; // Signal bitmasks, labelWords words per robot
+    private boolean startPublished = false; // Whether the state before the first tick was published
+
+    /**
+     * Creates a server listening on the given port of the loopback interface.
+     *
+     * @param port   The port, or 0 for any free port.
+     * @param labels The label registry of the environment of the streamed robots.
+     * @throws IOException if the port cannot be bound.
+     */
+    public StateServer(int port, LabelRegistry labels) throws IOException {
+
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), labels);
+    }
+
+    /**
+     * Creates a server listening on the given address.
+     *
+     * @param address The address to listen on.
+     * @param labels  The label registry of the environment of the streamed robots.
+     * @throws IOException if the address cannot be bound.
+     */
+    public StateServer(InetSocketAddress address, LabelRegistry labels) throws IOException {
+        this.labels = labels;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        this.thread = new Thread(this::serve, "simulation-stream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the number of connected clients.
+     *
+     * @return The number of clients.
+     */
+    public int getClientCount() {
+
+        return clientCount;
+    }
+
+    /**
+     * Returns the number of frames encoded and published.
+     *
+     * @return The number of frames.
+     */
+    public long getPublishedFrameCount() {
+
+        return published.get();
+    }
+
+    /**
+     * Returns the number of frames a client skipped because a newer one arrived before it could be sent.
+     *
+     * @return The number of dropped frames, summed over the clients.
+     */
+    public long getDroppedFrameCount() {
+
+        return dropped.get();
+    }
+
+    /**
+     * Returns the number of frame buffers allocated; the others published were reused from the pool.
+     *
+     * @return The number of frame buffers.
+     */
+    public long getAllocatedFrameCount() {
+
+        return allocated.get();
+    }
+
+    /**
+     * Sets up the columns of the robots and encodes the hello message.
+     *
+     * @param dt           The time step in seconds.
+     * @param initialState The state of every robot at the start of the run.
+     * @throws IllegalStateException if the server already streamed a run.
+     */
+    @Override
+    public void simulationStarted(double dt, RobotStateBatch initialState) {
+        if (robotCount >= 0) {
+            throw new IllegalStateException("A state server streams a single run.");
+        }
+        byte[][] names = new byte[labels.size()][];
+        for (int id = 0; id < names.length; id++) {
+            names[id] = labels.getName(id).getBytes(StandardCharsets.UTF_8);
+        }
+        robotCount = initialState.size();
+        labelWords = Math.max(1, (names.length + Long.SIZE - 1) / Long.SIZE);
+        x = new double[robotCount];
+        y = new double[robotCount];
+        signals = new long[Math.multiplyExact(robotCount, labelWords)];
+
+        int maxId = -1;
+        for (int i = 0; i < robotCount; i++) {
+            maxId = Math.max(maxId, initialState.getId(i));
+        }
+        columnOf = new int[maxId + 1];
+        Arrays.fill(columnOf, -1);
+        for (int i = 0; i < robotCount; i++) {
+            columnOf[initialState.getId(i)] = i;
+        }
+        update(initialState);
+
+        int size = MAGIC.length + 2 * Integer.BYTES + Double.BYTES + robotCount * Integer.BYTES + Integer.BYTES;
+        for (byte[] name : names) {
+            size += Integer.BYTES + name.length;
+        }
+        ByteBuffer message = ByteBuffer.allocate(size).order(ORDER);
+        message.put(MAGIC).putInt(VERSION).putDouble(dt).putInt(robotCount);
+        for (int i = 0; i < robotCount; i++) {
+            message.putInt(initialState.getId(i));
+        }
+        message.putInt(names.length);
+        for (byte[] name : names) {
+            message.putInt(name.length).put(name);
+        }
+        hello = message.flip().asReadOnlyBuffer();
+        selector.wakeup();
+    }
+
+    /**
+     * Publishes the state before the first tick of the run.
+     *
+     * @param step The number of the tick.
+     */
+    @Override
+    public void tickStarted(int step) {
+        if (!startPublished) {
+            startPublished = true;
+            publish(step - 1);
+        }
+    }
+
+    /**
+     * Updates the columns of the stepped robots.
+     *
+     * @param step   The number of the tick.
+     * @param states The state of the stepped robots.
+     */
+    @Override
+    public void robotStates(int step, RobotStateBatch states) {
+
+        update(states);
+    }
+
+    /**
+     * Publishes the state at the end of a tick, if a client wants it.
+     *
+     * @param step The number of the tick.
+     */
+    @Override
+    public void tickEnded(int step) {
+        if (clientCount > 0 && step % encodeInterval == 0) {
+            publish(step);
+        }
+    }
+
+    /**
+     * Copies the state of some robots into the columns.
+     *
+     * @param states The state of the robots.
+     */
+    private void update(RobotStateBatch states) {
+        for (int i = 0; i < states.size(); i++) {
+            int id = states.getId(i);
+            int column = id < columnOf.length ? columnOf[id] : -1;
+            if (column < 0) {
+                continue;
+            }
+            x[column] = states.getX(i);
+            y[column] = states.getY(i);
+            LabelSet robotSignals = states.getSignals(i);
+            for (int word = 0; word < labelWords; word++) {
+                signals[column * labelWords + word] = robotSignals.getWord(word);
+            }
+        }
+    }
+
+    /**
+     * Encodes a frame of the columns into a free buffer and hands it to the server thread.
+     * A frame the server thread did not take yet is reused at once.
+     *
+     * @param step The step of the frame.
+     */
+    private void publish(int step) {
+        int size = Long.BYTES + Integer.BYTES + robotCount * 2 * Double.BYTES + signals.length * Long.BYTES;
+        Frame frame = pool.poll();
+        if (frame == null) {
+            frame = new Frame(ByteBuffer.allocate(Integer.BYTES + size).order(ORDER));
+            allocated.incrementAndGet();
+        }
+        ByteBuffer data = frame.data;
+        data.clear();
+        data.putInt(size).putLong(step).putInt(labelWords);
+        for (int column = 0; column < robotCount; column++) {
+            data.putDouble(x[column]);
+        }
+        for (int column = 0; column < robotCount; column++) {
+            data.putDouble(y[column]);
+        }
+        for (long word : signals) {
+            data.putLong(word);
+        }
+        data.flip();
+        frame.sequence = published.incrementAndGet();
+        frame.step = step;
+        Frame replaced = latest.getAndSet(frame);
+        if (replaced != null) {
+            pool.offer(replaced);
+        }
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the server thread: accepts clients, reads their rates, and writes the frames.
+     */
+    private void serve() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Client client = (Client) key.attachment();
+                        if (key.isReadable()) {
+                            client.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            client.flush();
+                        }
+                    }
+                }
+                distribute();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // The server is closing or can no longer accept clients
+        } finally {
+            for (Client client : clients) {
+                client.disconnect();
+            }
+            clients.clear();
+            clientCount = 0;
+        }
+    }
+
+    /**
+     * Drops a hold on a frame, returning the frame to the pool once nobody holds it.
+     *
+     * @param frame The frame.
+     */
+    private void release(Frame frame) {
+        if (--frame.holders == 0) {
+            pool.offer(frame);
+        }
+    }
+
+    /**
+     * Accepts a pending client.
+     *
+     * @throws IOException if the server socket fails.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Client client = new Client(channel);
+        client.key = channel.register(selector, SelectionKey.OP_READ, client);
+        clients.add(client);
+        clientCount = clients.size();
+        updateEncodeInterval();
+    }
+
+    /**
+     * Takes the published frame, then offers the hello message and the latest frame to every client.
+     */
+    private void distribute() {
+        Frame incoming = latest.getAndSet(null);
+        if (incoming != null) {
+            if (current != null) {
+                release(current);
+            }
+            current = incoming;
+            current.holders = 1;
+        }
+        ByteBuffer message = hello;
+        Frame frame = current;
+        for (Client client : clients) {
+            if (message != null && !client.greeted) {
+                client.greeted = true;
+                client.writing = message.duplicate().order(ORDER);
+            }
+            if (frame != null && client.greeted) {
+                client.offer(frame);
+            }
+            client.flush();
+        }
+        int before = clients.size();
+        for (Iterator<Client> iterator = clients.iterator(); iterator.hasNext(); ) {
+            Client client = iterator.next();
+            if (!client.channel.isOpen()) {
+                client.releaseFrames();
+                iterator.remove();
+            }
+        }
+        if (clients.size() != before) {
+            clientCount = clients.size();
+            updateEncodeInterval();
+        }
+    }
+
+    /**
+     * Recomputes the interval between two encoded frames: the greatest common divisor of the rates of the clients,
+     * so that the steps every client wants are encoded.
+     */
+    private void updateEncodeInterval() {
+        int interval = 0;
+        for (Client client : clients) {
+            interval = gcd(interval, client.interval);
+        }
+        encodeInterval = Math.max(1, interval);
+    }
+
+    /**
+     * Computes the greatest common divisor of two non-negative numbers.
+     *
+     * @param a The first number.
+     * @param b The second number.
+     * @return The greatest common divisor, or the other number if one is 0.
+     */
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int rest = a % b;
+            a = b;
+            b = rest;
+        }
+        return a;
+    }
+
+    /**
+     * Stops the server thread and disconnects the clients.
+     *
+     * @throws IOException if the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        selector.close();
+        server.close();
+    }
+
+    /**
+     * A pooled frame shared by every client.
+     * It is filled by the simulation thread while free, and only read once published.
+     */
+    private static final class Frame {
+        private final ByteBuffer data; // Encoded frame
+        private long sequence; // Number of the frame, increasing with each published frame
+        private int step; // Step of the frame
+        private int holders; // Holders on the server thread: the latest frame and the clients writing it
+
+        /**
+         * Creates a frame with the given buffer.
+         *
+         * @param data The buffer receiving the encoded frame.
+         */
+        private Frame(ByteBuffer data) {
+
+            this.data = data;
+        }
+    }
+
+    /**
+     * The connection of a client, used only by the server thread.
+     */
+    private final class Client {
+        private final SocketChannel channel;
+        private final ByteBuffer request = ByteBuffer.allocate(Integer.BYTES).order(ORDER); // Partial rate request
+        private SelectionKey key;
+        private boolean greeted = false; // Whether the hello message was queued
+        private ByteBuffer writing; // Message being written, null when idle
+        private Frame writingFrame; // Frame being written, null when writing the hello message or idle
+        private Frame next; // Frame to write after the current message
+        private long lastSequence = 0; // Sequence of the last frame taken
+        private int lastStep; // Step of the last frame taken, if any
+        private int interval = 1; // Requested number of steps per frame
+
+        /**
+         * Creates the connection of a client.
+         *
+         * @param channel The channel of the client.
+         */
+        private Client(SocketChannel channel) {
+
+            this.channel = channel;
+        }
+
+        /**
+         * Takes a frame, unless the client already has it or asked for a lower rate.
+         * A frame waiting behind the current message is replaced by the newer one.
+         *
+         * @param frame The frame.
+         */
+        private void offer(Frame frame) {
+            if (frame.sequence <= lastSequence || lastSequence > 0 && frame.step - lastStep < interval) {
+                return;
+            }
+            lastSequence = frame.sequence;
+            lastStep = frame.step;
+            frame.holders++;
+            if (writing == null) {
+                writingFrame = frame;
+                writing = frame.data.duplicate();
+            } else {
+                if (next != null) {
+                    dropped.incrementAndGet();
+                    release(next);
+                }
+                next = frame;
+            }
+        }
+
+        /**
+         * Drops the frames the client holds.
+         */
+        private void releaseFrames() {
+            if (writingFrame != null) {
+                release(writingFrame);
+                writingFrame = null;
+            }
+            if (next != null) {
+                release(next);
+                next = null;
+            }
+        }
+
+        /**
+         * Writes as much as the socket accepts, then waits for it to be writable again if needed.
+         */
+        private void flush() {
+            if (!key.isValid()) {
+                return;
+            }
+            try {
+                while (writing != null) {
+                    channel.write(writing);
+                    if (writing.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    if (writingFrame != null) {
+                        release(writingFrame);
+                    }
+                    writingFrame = next;
+                    writing = next == null ? null : next.data.duplicate();
+                    next = null;
+                }
+                key.interestOps(SelectionKey.OP_READ);
+            } catch (IOException e) {
+                disconnect();
+            }
+        }
+
+        /**
+         * Reads the rate requests of the client.
+         */
+        private void read() {
+            try {
+                int count;
+                while ((count = channel.read(request)) > 0) {
+                    if (!request.hasRemaining()) {
+                        interval = Math.max(1, request.flip().getInt());
+                        request.clear();
+                        updateEncodeInterval();
+                    }
+                }
+                if (count < 0) {
+                    disconnect();
+                }
+            } catch (IOException e) {
+                disconnect();
+            }
+        }
+
+        /**
+         * Closes the connection; the client is removed from the list at the next distribution.
+         */
+        private void disconnect() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The connection is being dropped anyway
+            }
+        }
+    }
+}
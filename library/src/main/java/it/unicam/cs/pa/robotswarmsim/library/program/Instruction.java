@@ -0,0 +1,63 @@
+package it.unicam.cs.pa.robotswarmsim.library.program;
+
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRef;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RobotCommand;
+
+/**
+ * This record represents an instruction of a compiled {@link Program}.
+ * Execute instructions run a command and take a tick; the other opcodes only move the program counter
+ * or update a loop counter, and take no simulated time.
+ *
+ * @param opcode  The kind of instruction.
+ * @param command The command run by execute instructions, null otherwise.
+ * @param label   The area label tested by until instructions, null otherwise.
+ * @param operand The loop counter slot of repeat instructions, 0 otherwise.
+ * @param count   The number of iterations set by repeat initializations, 0 otherwise.
+ * @param target  The jump target of tests and jumps, 0 otherwise.
+ */
+public record Instruction(Opcode opcode, RobotCommand command, LabelRef label, int operand, int count, int target) {
+
+    /**
+     * The kinds of instructions of a compiled program.
+     */
+    public enum Opcode {
+        /** Runs a command for one tick, then moves to the next instruction. */
+        EXECUTE,
+        /** Runs a timed command every tick until its duration has elapsed, then moves to the next instruction. */
+        EXECUTE_TIMED,
+        /** Sets a loop counter to the number of iterations of a REPEAT block. */
+        REPEAT_INIT,
+        /** Leaves a REPEAT block when its counter is exhausted, otherwise decrements the counter. */
+        REPEAT_TEST,
+        /** Leaves an UNTIL block when the robot is in an area with the label of the instruction. */
+        UNTIL_TEST,
+        /** Jumps to the target instruction. */
+        JUMP
+    }
+
+    /**
+     * Checks whether the instruction runs a command, as opposed to only moving the program counter.
+     *
+     * @return true for execute instructions, false for control instructions.
+     */
+    public boolean isCommand() {
+
+        return opcode == Opcode.EXECUTE || opcode == Opcode.EXECUTE_TIMED;
+    }
+
+    /**
+     * Returns a human-readable description of the instruction.
+     *
+     * @return A description of the instruction.
+     */
+    @Override
+    public String toString() {
+        return switch (opcode) {
+            case EXECUTE, EXECUTE_TIMED -> opcode + " " + command.getClass().getSimpleName();
+            case REPEAT_INIT -> opcode + " counter" + operand + " = " + count;
+            case REPEAT_TEST -> opcode + " counter" + operand + " else " + target;
+            case UNTIL_TEST -> opcode + " " + label + " then " + target;
+            case JUMP -> opcode + " " + target;
+        };
+    }
+}
@@ -0,0 +1,319 @@
+package it.unicam.cs.pa.robotswarmsim.library.program;
+
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.program.Instruction.Opcode;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class represents a robot program compiled into an immutable flat array of instructions.
+ * REPEAT, UNTIL and DO FOREVER blocks are lowered to tests, loop counters and jumps, so a single program
+ * can be shared by any number of robots: each robot only keeps its own program counter, loop counters
+ * and timed-command elapsed time.
+ * During a tick, a robot runs the control instructions it meets until it reaches a command, then runs
+ * that command; control instructions take no simulated time.
+ * Labels are kept by name and resolved in the registry of the environment of the robot running the program.
+ */
+public final class Program {
+
+    private final Instruction[] instructions;
+    private final int loopCounterCount; // Number of loop counters each robot needs
+    private final List<RobotCommand> commands; // Source commands the program was compiled from
+    private final List<String> labels; // Labels signalled, removed, followed or tested by the program
+
+    private Program(Instruction[] instructions, int loopCounterCount, List<RobotCommand> commands,
+                    List<String> labels) {
+        this.instructions = instructions;
+        this.loopCounterCount = loopCounterCount;
+        this.commands = commands;
+        this.labels = labels;
+    }
+
+    /**
+     * Compiles a list of robot commands, lowering composite commands to control instructions.
+     *
+     * @param commands The commands of the program, as produced by the parser.
+     * @return The compiled program.
+     */
+    public static Program compile(List<RobotCommand> commands) {
+        Compiler compiler = new Compiler();
+        compiler.compileBlock(commands);
+        return new Program(compiler.instructions.toArray(new Instruction[0]), compiler.loopCounters,
+                List.copyOf(commands), List.copyOf(compiler.labels));
+    }
+
+    /**
+     * Returns the number of instructions of the program; a robot whose program counter reaches it has completed.
+     *
+     * @return The length of the program.
+     */
+    public int size() {
+
+        return instructions.length;
+    }
+
+    /**
+     * Returns the instruction at the given address.
+     *
+     * @param address The index of the instruction.
+     * @return The instruction.
+     */
+    public Instruction getInstruction(int address) {
+
+        return instructions[address];
+    }
+
+    /**
+     * Returns the number of loop counters a robot running this program needs.
+     *
+     * @return The number of loop counters.
+     */
+    public int getLoopCounterCount() {
+
+        return loopCounterCount;
+    }
+
+    /**
+     * Returns the commands the program was compiled from.
+     *
+     * @return An unmodifiable list of the source commands.
+     */
+    public List<RobotCommand> getCommands() {
+
+        return commands;
+    }
+
+    /**
+     * Returns the labels the commands of the program signal, remove, follow or wait for, so that an
+     * environment can intern them before the run.
+     *
+     * @return An unmodifiable list of the labels, without duplicates.
+     */
+    public List<String> getLabels() {
+
+        return labels;
+    }
+
+    /**
+     * Runs one tick of the program on a robot: the command at the robot's program counter is executed and,
+     * once it completes, the program counter is moved past the control instructions that follow it,
+     * so that loops are entered and left without spending a tick.
+     *
+     * @param robot The robot running the program.
+     * @param dt    The time step in seconds.
+     * @return The command that completed during this tick, or null if no command completed.
+     */
+    public RobotCommand step(Robot robot, double dt) {
+        int pc = advance(robot, robot.getCurrentCommandIndex());
+        if (pc >= instructions.length || !instructions[pc].isCommand()) {
+            // The program is over, or its control instructions loop without reaching any command
+            robot.setCommandIndex(pc);
+            return null;
+        }
+        Instruction instruction = instructions[pc];
+        RobotCommand command = instruction.command();
+        command.execute(robot, dt);
+        if (instruction.opcode() == Opcode.EXECUTE_TIMED) {
+            TimedCommand timedCommand = (TimedCommand) command;
+            if (!timedCommand.isCompleted(robot.getTimedCommandTime())) {
+                robot.setCommandIndex(pc);
+                return null;
+            }
+            robot.resetTimedCommandTime();
+        }
+        robot.setCommandIndex(advance(robot, pc + 1));
+        return command;
+    }
+
+    /**
+     * Returns the kinematic command a robot runs during its next tick, if that tick only moves the robot:
+     * the program counter is at a {@link KinematicCommand} and, for a timed command, the tick does not
+     * complete it. Such a tick can be split into {@link KinematicCommand#prepareMotion(Robot)}, the
+     * integration of the position and {@link #finishKinematicTick(Robot, double)}, with the same result
+     * as {@link #step(Robot, double)}.
+     *
+     * @param robot The robot running the program.
+     * @param dt    The time step in seconds.
+     * @return The kinematic command of the tick, or null if the tick must be run by {@link #step(Robot, double)}.
+     */
+    public KinematicCommand kinematicCommand(Robot robot, double dt) {
+        int pc = robot.getCurrentCommandIndex();
+        if (pc >= instructions.length || !(instructions[pc].command() instanceof KinematicCommand command)) {
+            return null;
+        }
+        if (instructions[pc].opcode() == Opcode.EXECUTE_TIMED) {
+            TimedCommand timedCommand = (TimedCommand) command;
+            double elapsed = robot.getTimedCommandTime();
+            // The whole time step must be spent on the command, and the command must still run afterwards
+            if (!(dt <= timedCommand.getExecutionTime() - elapsed) || timedCommand.isCompleted(elapsed + dt)) {
+                return null;
+            }
+        }
+        return command;
+    }
+
+    /**
+     * Completes a tick of a kinematic command whose motion has already been integrated: a timed command
+     * accumulates the time step, any other command completes and the program counter moves past it.
+     *
+     * @param robot The robot running the program, already moved.
+     * @param dt    The time step in seconds.
+     * @return The command that completed during this tick, or null if no command completed.
+     */
+    public RobotCommand finishKinematicTick(Robot robot, double dt) {
+        int pc = robot.getCurrentCommandIndex();
+        Instruction instruction = instructions[pc];
+        if (instruction.opcode() == Opcode.EXECUTE_TIMED) {
+            robot.incrementTimedCommandTime(dt);
+            return null;
+        }
+        robot.setCommandIndex(advance(robot, pc + 1));
+        return instruction.command();
+    }
+
+    /**
+     * Follows the control instructions starting at an address until a command or the end of the program
+     * is reached. Control instructions take no simulated time; their number is bounded by the length
+     * of the program, so a loop without commands cannot hang the tick.
+     *
+     * @param robot The robot running the program.
+     * @param pc    The address to start from.
+     * @return The address of the next command, of the end of the program, or of the control instruction
+     *         where the bound was hit.
+     */
+    private int advance(Robot robot, int pc) {
+        for (int budget = instructions.length; pc < instructions.length && budget > 0; budget--) {
+            Instruction instruction = instructions[pc];
+            switch (instruction.opcode()) {
+                case EXECUTE, EXECUTE_TIMED -> {
+                    return pc;
+                }
+                case REPEAT_INIT -> {
+                    robot.setLoopCounter(instruction.operand(), instruction.count());
+                    pc++;
+                }
+                case REPEAT_TEST -> {
+                    int remaining = robot.getLoopCounter(instruction.operand());
+                    if (remaining > 0) {
+                        robot.setLoopCounter(instruction.operand(), remaining - 1);
+                        pc++;
+                    } else {
+                        pc = instruction.target();
+                    }
+                }
+                case UNTIL_TEST -> pc = robot.isInArea(instruction.label().id(robot.getLabels()))
+                        ? instruction.target()
+                        : pc + 1;
+                case JUMP -> pc = instruction.target();
+            }
+        }
+        return pc;
+    }
+
+    /**
+     * Returns a listing of the program, one instruction per line.
+     *
+     * @return The listing of the program.
+     */
+    @Override
+    public String toString() {
+        StringBuilder listing = new StringBuilder();
+        for (int address = 0; address < instructions.length; address++) {
+            listing.append(address).append(": ").append(instructions[address]).append('\n');
+        }
+        return listing.toString();
+    }
+
+    /**
+     * This class lowers a tree of commands into a flat list of instructions.
+     */
+    private static final class Compiler {
+        private final List<Instruction> instructions = new ArrayList<>();
+        private int loopCounters = 0;
+        private final Set<String> labels = new LinkedHashSet<>(); // Labels used by the compiled commands
+
+        /**
+         * Appends the instructions of a block of commands.
+         *
+         * @param commands The commands of the block.
+         */
+        private void compileBlock(List<RobotCommand> commands) {
+            for (RobotCommand command : commands) {
+                compileCommand(command);
+            }
+        }
+
+        /**
+         * Appends the instructions of a single command.
+         *
+         * @param command The command to compile.
+         */
+        private void compileCommand(RobotCommand command) {
+            if (command instanceof RepeatCommand repeatCommand) {
+                int counter = loopCounters++;
+                emit(new Instruction(Opcode.REPEAT_INIT, null, null, counter, Math.max(0, repeatCommand.getTimes()), 0));
+                int test = emit(null);
+                compileBlock(repeatCommand.getCommands());
+                emit(new Instruction(Opcode.JUMP, null, null, 0, 0, test));
+                patch(test, new Instruction(Opcode.REPEAT_TEST, null, null, counter, 0, instructions.size()));
+            } else if (command instanceof UntilCommand untilCommand) {
+                labels.add(untilCommand.getTargetLabel());
+                int test = emit(null);
+                compileBlock(untilCommand.getCommands());
+                emit(new Instruction(Opcode.JUMP, null, null, 0, 0, test));
+                patch(test, new Instruction(Opcode.UNTIL_TEST, null, untilCommand.getTarget(), 0, 0,
+                        instructions.size()));
+            } else if (command instanceof ForeverCommand foreverCommand) {
+                int start = instructions.size();
+                compileBlock(foreverCommand.getCommands());
+                emit(new Instruction(Opcode.JUMP, null, null, 0, 0, start));
+            } else if (command instanceof TimedCommand) {
+                emit(new Instruction(Opcode.EXECUTE_TIMED, command, null, 0, 0, 0));
+            } else {
+                addLabel(command);
+                emit(new Instruction(Opcode.EXECUTE, command, null, 0, 0, 0));
+            }
+        }
+
+        /**
+         * Records the label used by a command, if any.
+         *
+         * @param command The compiled command.
+         */
+        private void addLabel(RobotCommand command) {
+            if (command instanceof SignalCommand signalCommand) {
+                labels.add(signalCommand.getSignal());
+            } else if (command instanceof UnsignalCommand unsignalCommand) {
+                labels.add(unsignalCommand.getSignal());
+            } else if (command instanceof FollowCommand followCommand) {
+                labels.add(followCommand.getLabel());
+            }
+        }
+
+        /**
+         * Appends an instruction, or a placeholder to be patched once the end of a block is known.
+         *
+         * @param instruction The instruction, or null for a placeholder.
+         * @return The address of the instruction.
+         */
+        private int emit(Instruction instruction) {
+            instructions.add(instruction);
+            return instructions.size() - 1;
+        }
+
+        /**
+         * Replaces a placeholder with its final instruction.
+         *
+         * @param address     The address of the placeholder.
+         * @param instruction The final instruction.
+         */
+        private void patch(int address, Instruction instruction) {
+
+            instructions.set(address, instruction);
+        }
+    }
+}
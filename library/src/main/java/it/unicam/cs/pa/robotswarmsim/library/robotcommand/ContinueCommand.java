@@ -1,12 +1,11 @@
 package it.unicam.cs.pa.robotswarmsim.library.robotcommand;
 
-import it.unicam.cs.pa.robotswarmsim.library.Point;
 import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
 
 /**
  * This command represents a continuous movement command for a robot for a specified duration.
  */
-public class ContinueCommand extends TimedCommand {
+public class ContinueCommand extends TimedCommand implements KinematicCommand {
 
     /**
      * Creates a new instance of the ContinueCommand with the specified duration.
@@ -26,17 +25,20 @@ public class ContinueCommand extends TimedCommand {
      */
     @Override
     protected void performCommand(Robot robot, double timeToExecute) {
-        System.out.println("Updating position for " + timeToExecute + " seconds.");
-
         // Calculate the distance traveled based on the current speed and time.
         double distance = robot.getSpeed() * timeToExecute;
 
-        // Update the robot's position using the calculated distance and current heading.
-        double deltaX = distance * Math.cos(Math.toRadians(robot.getHeading()));
-        double deltaY = distance * Math.sin(Math.toRadians(robot.getHeading()));
-        Point newPosition = new Point(robot.getPosition().x() + deltaX, robot.getPosition().y() + deltaY);
+        // Update the robot's position using the calculated distance and the cached unit vector of its heading.
+        robot.setPosition(robot.getX() + distance * robot.getHeadingX(), robot.getY() + distance * robot.getHeadingY());
+    }
 
-        robot.setPosition(newPosition);
+    /**
+     * Leaves the robot as it is: a continuous movement keeps the heading and speed the robot already has.
+     *
+     * @param robot The robot executing the command.
+     */
+    @Override
+    public void prepareMotion(Robot robot) {
     }
 
 }
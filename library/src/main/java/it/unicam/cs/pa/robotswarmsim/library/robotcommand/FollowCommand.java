@@ -1,20 +1,22 @@
 package it.unicam.cs.pa.robotswarmsim.library.robotcommand;
 
-import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
 import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.entity.RobotStore;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRef;
 
-import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.function.IntConsumer;
 
 /**
  * The FollowCommand allows a robot to follow another robot based on a specific label.
  * If it doesn't find a robot with the specified label, it will move randomly within a given distance.
+ * Other robots are observed through the state they committed at the last tick boundary.
  */
 public class FollowCommand implements RobotCommand {
-    private final String label;
+    private final LabelRef label; // The label the followed robots signal
     private final double distance;
     private final double speed;
+    private static final ThreadLocal<Centroid> CENTROIDS = ThreadLocal.withInitial(Centroid::new);
 
     /**
      * Creates a new FollowCommand.
@@ -24,121 +26,131 @@ public class FollowCommand implements RobotCommand {
      * @param speed    The speed at which to move towards the target robot.
      */
     public FollowCommand(String label, double distance, double speed) {
-        this.label = label;
+        this.label = new LabelRef(label);
         this.distance = distance;
         this.speed = speed;
     }
 
     /**
      * Executes the "follow" command, adjusting the robot's heading and speed based on nearby signaling robots.
+     * The neighbours are folded into a centroid owned by the executing thread, so the command allocates nothing.
      *
      * @param robot The robot executing the command.
      * @param dt    Time step in seconds since the last execution.
      */
     @Override
     public void execute(Robot robot, double dt) {
-        // Retrieve nearby robots signaling the specified label.
-        List<Robot> signalingRobots = robot.getRobotsWithinRange(distance)
-                .stream()
-                .filter(r -> r.isSignaling(label))
-                .collect(Collectors.toList());
+        // Average the committed positions of the nearby robots signaling the specified label.
+        Centroid centroid = CENTROIDS.get();
+        centroid.start(robot, label.id(robot.getLabels()));
+        robot.getEnvironment().forEachRobotIdWithinRange(robot.getX(), robot.getY(), distance, centroid);
+        int found = centroid.count;
+        double targetX = found > 0 ? (centroid.sumX - centroid.errorX) / found : 0;
+        double targetY = found > 0 ? (centroid.sumY - centroid.errorY) / found : 0;
+        centroid.finish();
 
-        // Determine the target position for the robot.
-        Point targetPosition = getTargetPosition(robot, signalingRobots);
+        // Without signaling robots, head for a random position within the distance instead.
+        if (found == 0) {
+            targetX = robot.getX() + (robot.nextRandomDouble() * 2 - 1) * distance;
+            targetY = robot.getY() + (robot.nextRandomDouble() * 2 - 1) * distance;
+        }
 
         // Calculate the new heading and adjust the robot's position.
-        double newHeading = calculateHeading(robot.getPosition(), targetPosition);
+        double newHeading = Math.toDegrees(Math.atan2(targetY - robot.getY(), targetX - robot.getX()));
 
         robot.setHeading(newHeading);
         robot.setSpeed(speed);
-        moveRobot(robot, dt, newHeading);
-        printSignaledRobots(signalingRobots, robot);
+        moveRobot(robot, dt);
     }
 
     /**
-     * Calculates the target position based on the signaling robots or chooses a random position if none are found.
+     * Gets the label the followed robots signal.
      *
-     * @param robot           The robot executing the command.
-     * @param signalingRobots List of robots signaling the specified label.
-     * @return The target position for the robot to move towards.
+     * @return The label to look for in other robots.
      */
-    private Point getTargetPosition(Robot robot, List<Robot> signalingRobots) {
-        if (!signalingRobots.isEmpty()) {
-            return calculateAveragePosition(signalingRobots);
-        } else {
-            return getRandomTargetPosition(robot, distance);
-        }
+    public String getLabel() {
+
+        return label.getName();
     }
 
     /**
      * Moves the robot based on its speed, heading, and the specified time step.
      *
-     * @param robot      The robot to move.
-     * @param dt         Time step in seconds since the last execution.
-     * @param newHeading The new heading for the robot.
+     * @param robot The robot to move.
+     * @param dt    Time step in seconds since the last execution.
      */
-    private void moveRobot(Robot robot, double dt, double newHeading) {
-        // Calculate the distance and direction of movement based on the robot's speed and the elapsed time (dt).
+    private void moveRobot(Robot robot, double dt) {
+        // Calculate the distance of movement based on the robot's speed and the elapsed time (dt),
+        // along the unit vector cached when the heading was set.
         double distanceToMove = speed * dt;
-        double deltaX = distanceToMove * Math.cos(Math.toRadians(newHeading));
-        double deltaY = distanceToMove * Math.sin(Math.toRadians(newHeading));
+        double deltaX = distanceToMove * robot.getHeadingX();
+        double deltaY = distanceToMove * robot.getHeadingY();
 
-        // Update the robot's position using the calculated changes in X and Y coordinates.
-        Point newPosition = new Point(robot.getPosition().x() + deltaX, robot.getPosition().y() + deltaY);
-        robot.setPosition(newPosition);
+        // Update the robot's position in place using the calculated changes in X and Y coordinates.
+        robot.setPosition(robot.getX() + deltaX, robot.getY() + deltaY);
     }
 
     /**
-     * Calculates and returns the average position among a list of robots.
-     *
-     * @param robots The list of robots for which to calculate the average position.
-     * @return The calculated average position as a Point object.
+     * This class sums the committed positions of the robots visited by a range query that signal a label,
+     * skipping the robot running the query. One instance per thread is reused by every FOLLOW command.
+     * The sums are compensated like {@link java.util.stream.DoubleStream#average()}, so that the centroid
+     * hardly depends on the order in which the grid visits the neighbours.
      */
-    private Point calculateAveragePosition(List<Robot> robots) {
-        double avgX = robots.stream().mapToDouble(r -> r.getPosition().x()).average().orElse(0);
-        double avgY = robots.stream().mapToDouble(r -> r.getPosition().y()).average().orElse(0);
-        return new Point(avgX, avgY);
-    }
+    private static final class Centroid implements IntConsumer {
+        private Environment environment; // Environment of the robot running the query
+        private RobotStore store; // Store of the committed positions of the robots
+        private int self; // Id of the robot running the query
+        private int labelId; // Id of the label the robots must signal
+        private double sumX; // Sum of the committed x-coordinates of the signaling robots
+        private double sumY; // Sum of the committed y-coordinates of the signaling robots
+        private double errorX; // Rounding error of sumX
+        private double errorY; // Rounding error of sumY
+        private int count; // Number of signaling robots
 
-    /**
-     * Prints the IDs of robots emitting a specific signal.
-     * This method is used to identify and display robots that have been detected as signal emitters.
-     *
-     * @param signalingRobots The list of robots emitting the signal.
-     * @param executingRobot  The robot on which the command is executed.
-     */
-    private void printSignaledRobots(List<Robot> signalingRobots, Robot executingRobot) {
-        System.out.println("Robot on which command was executed: Robot id: " + Integer.toHexString(System.identityHashCode(executingRobot)));
-        System.out.println("Robots emitting the signal: ");
-        for (Robot robot : signalingRobots) {
-            System.out.println("Robot id: " + Integer.toHexString(System.identityHashCode(robot)));
+        /**
+         * Prepares the centroid for a query.
+         *
+         * @param robot   The robot running the query.
+         * @param labelId The id of the label the robots must signal.
+         */
+        private void start(Robot robot, int labelId) {
+            this.environment = robot.getEnvironment();
+            this.store = environment.getRobotStore();
+            this.self = robot.getId();
+            this.labelId = labelId;
+            this.sumX = 0;
+            this.sumY = 0;
+            this.errorX = 0;
+            this.errorY = 0;
+            this.count = 0;
         }
-    }
 
-    /**
-     * Calculates the heading from a starting point to a target point.
-     *
-     * @param currentPosition The current position.
-     * @param targetPosition  The target position.
-     * @return The heading (in degrees) toward the target point.
-     */
-    private double calculateHeading(Point currentPosition, Point targetPosition) {
-        double dx = targetPosition.x() - currentPosition.x();
-        double dy = targetPosition.y() - currentPosition.y();
-        return Math.toDegrees(Math.atan2(dy, dx));
-    }
+        /**
+         * Releases the environment of the last query, so that a thread does not keep it alive.
+         */
+        private void finish() {
+            this.environment = null;
+            this.store = null;
+        }
 
-    /**
-     * Generates a random target position based on the robot's current position and distance limit.
-     *
-     * @param robot The robot executing the command.
-     * @param bound The boundary for random movement.
-     * @return A new Point object representing the random target position.
-     */
-    private Point getRandomTargetPosition(Robot robot, double bound) {
-        Random random = new Random();
-        double dx = (random.nextDouble() * 2 - 1) * bound; // Random value between -bound and +bound
-        double dy = (random.nextDouble() * 2 - 1) * bound; // Random value between -bound and +bound
-        return new Point(robot.getPosition().x() + dx, robot.getPosition().y() + dy);
+        /**
+         * Adds a robot within range to the centroid if it signals the label.
+         *
+         * @param id The id of the robot.
+         */
+        @Override
+        public void accept(int id) {
+            if (id != self && environment.getRobot(id).isSignalingInSnapshot(labelId)) {
+                double termX = store.getSnapshotX(id) - errorX;
+                double newSumX = sumX + termX;
+                errorX = (newSumX - sumX) - termX;
+                sumX = newSumX;
+                double termY = store.getSnapshotY(id) - errorY;
+                double newSumY = sumY + termY;
+                errorY = (newSumY - sumY) - termY;
+                sumY = newSumY;
+                count++;
+            }
+        }
     }
 }
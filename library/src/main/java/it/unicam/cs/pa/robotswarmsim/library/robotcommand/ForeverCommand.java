@@ -30,7 +30,6 @@ public class ForeverCommand implements RobotCommand {
     public void execute(Robot robot, double dt) {
         if (currentCommandIndex < commands.size()) {
             RobotCommand command = commands.get(currentCommandIndex);
-            System.out.println("Executing internal command: " + command.getClass().getSimpleName());
             command.execute(robot, dt);
 
             // Increment the index and check if it has exceeded the size of the list
@@ -41,4 +40,13 @@ public class ForeverCommand implements RobotCommand {
         }
     }
 
+    /**
+     * Gets the commands executed in the endless loop.
+     *
+     * @return The list of commands of the loop.
+     */
+    public List<RobotCommand> getCommands() {
+
+        return commands;
+    }
 }
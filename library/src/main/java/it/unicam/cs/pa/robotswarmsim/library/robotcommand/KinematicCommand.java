@@ -0,0 +1,20 @@
+package it.unicam.cs.pa.robotswarmsim.library.robotcommand;
+
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+
+/**
+ * This interface represents a command whose tick only moves the robot in a straight line, by its speed times
+ * the time step along the unit vector of its heading.
+ * Such ticks can be run in bulk: the command only sets up the heading and speed of each robot, and the
+ * engine then integrates the positions of many robots in one pass, with the same arithmetic as
+ * {@link #execute(Robot, double)}.
+ */
+public interface KinematicCommand extends RobotCommand {
+
+    /**
+     * Sets the heading and speed the robot keeps during a tick of the command, leaving its position unchanged.
+     *
+     * @param robot The robot executing the command.
+     */
+    void prepareMotion(Robot robot);
+}
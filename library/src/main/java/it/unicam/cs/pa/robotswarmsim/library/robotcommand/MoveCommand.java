@@ -1,15 +1,17 @@
 package it.unicam.cs.pa.robotswarmsim.library.robotcommand;
 
 import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
-import it.unicam.cs.pa.robotswarmsim.library.Point;
 
 /**
  * The MoveCommand allows a robot to move in a specified direction and speed.
  */
-public class MoveCommand implements RobotCommand {
+public class MoveCommand implements KinematicCommand {
     private final double xDirection;
     private final double yDirection;
     private final double speed;
+    private final double heading; // Direction in degrees
+    private final double unitX; // X-component of the unit vector of the direction
+    private final double unitY; // Y-component of the unit vector of the direction
 
     /**
      * Creates a new MoveCommand with the specified direction and speed.
@@ -28,36 +30,39 @@ public class MoveCommand implements RobotCommand {
         this.xDirection = xDirection;
         this.yDirection = yDirection;
         this.speed = speed;
+        this.heading = Math.toDegrees(Math.atan2(yDirection, xDirection));
+        this.unitX = Math.cos(Math.toRadians(heading));
+        this.unitY = Math.sin(Math.toRadians(heading));
     }
 
     /**
      * Executes the move command, moving the robot in the specified direction and speed.
+     * The unit vector of the direction is computed once, when the command is built.
      *
      * @param robot The robot executing the command.
      * @param dt    The time step in seconds since the last execution.
      */
     @Override
     public void execute(Robot robot, double dt) {
-        // Calculate the heading angle based on x and y components.
-        double heading = Math.toDegrees(Math.atan2(yDirection, xDirection));
-
         // Calculate the distance the robot should travel in this dt.
         double distance = speed * dt;
 
-        // Calculate the new displacement in x and y directions.
-        double deltaX = distance * Math.cos(Math.toRadians(heading));
-        double deltaY = distance * Math.sin(Math.toRadians(heading));
-
-        // Calculate the new position for the robot.
-        Point currentPosition = robot.getPosition();
-        Point newPosition = new Point(currentPosition.x() + deltaX, currentPosition.y() + deltaY);
+        // Update the robot's position in place along the precomputed direction, then its heading and speed.
+        robot.setPosition(robot.getX() + distance * unitX, robot.getY() + distance * unitY);
+        prepareMotion(robot);
+    }
 
-        // Update the robot's position, heading, and speed.
-        robot.setPosition(newPosition);
-        robot.setHeading(heading);
+    /**
+     * Points the robot in the direction of the command and sets its speed.
+     *
+     * @param robot The robot executing the command.
+     */
+    @Override
+    public void prepareMotion(Robot robot) {
+        robot.setHeading(heading, unitX, unitY);
         robot.setSpeed(speed);
-
     }
+
     /**
      * Gets the x-direction component of this move command.
      * @return The x-direction value.
@@ -1,8 +1,6 @@
 package it.unicam.cs.pa.robotswarmsim.library.robotcommand;
 
 import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
-import it.unicam.cs.pa.robotswarmsim.library.Point;
-import java.util.Random;
 
 /**
  * The MoveRandomCommand allows a robot to move to a random position within a specified area at a given speed.
@@ -10,7 +8,6 @@ import java.util.Random;
 public class MoveRandomCommand implements RobotCommand {
     private final double x1, x2, y1, y2; // Defines the rectangular area boundaries
     private final double speed; // The speed of the movement in meters per second
-    private final Random random = new Random(); // Random number generator
 
     /**
      * Creates a new MoveRandomCommand with the specified area boundaries and speed.
@@ -37,28 +34,20 @@ public class MoveRandomCommand implements RobotCommand {
      */
     @Override
     public void execute(Robot robot, double dt) {
-        // Choose a random target position within the defined area
-        double xTarget = x1 + random.nextDouble() * (x2 - x1);
-        double yTarget = y1 + random.nextDouble() * (y2 - y1);
+        // Choose a random target position within the defined area, drawing from the robot's own stream
+        double xTarget = x1 + robot.nextRandomDouble() * (x2 - x1);
+        double yTarget = y1 + robot.nextRandomDouble() * (y2 - y1);
 
         // Calculate the direction towards the target position
-        double dx = xTarget - robot.getPosition().x();
-        double dy = yTarget - robot.getPosition().y();
-        double heading = Math.toDegrees(Math.atan2(dy, dx));
+        double dx = xTarget - robot.getX();
+        double dy = yTarget - robot.getY();
+        robot.setHeading(Math.toDegrees(Math.atan2(dy, dx)));
 
         // Calculate the distance the robot can travel in dt
         double distance = speed * dt;
 
-        // Calculate the new displacement in x and y directions
-        double deltaX = distance * Math.cos(Math.toRadians(heading));
-        double deltaY = distance * Math.sin(Math.toRadians(heading));
-
-        // Calculate the new position
-        Point newPosition = new Point(robot.getPosition().x() + deltaX, robot.getPosition().y() + deltaY);
-
-        // Update the position, heading, and speed of the robot.
-        robot.setPosition(newPosition);
-        robot.setHeading(heading);
+        // Update the position in place along the unit vector of the new heading, then the speed of the robot.
+        robot.setPosition(robot.getX() + distance * robot.getHeadingX(), robot.getY() + distance * robot.getHeadingY());
         robot.setSpeed(speed);
 
     }
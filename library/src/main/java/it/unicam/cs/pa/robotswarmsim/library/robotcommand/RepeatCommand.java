@@ -36,10 +36,8 @@ public class RepeatCommand implements RobotCommand {
         if (currentIteration < times) {
             // Check if there are commands to execute in the list.
             if (currentCommandIndex < commands.size()) {
-                // Retrieve the current command from the list, print its name, and execute it on the robot.
+                // Retrieve the current command from the list and execute it on the robot.
                 RobotCommand command = commands.get(currentCommandIndex);
-                System.out.println("Executing internal command: " + command.getClass().getSimpleName());
-
                 command.execute(robot, dt);
                 currentCommandIndex++;
 
@@ -49,8 +47,6 @@ public class RepeatCommand implements RobotCommand {
                     currentIteration++; // Move to the next iteration.
                 }
             }
-        } else {
-            System.out.println("RepeatCommand completed");
         }
     }
 
@@ -64,4 +60,24 @@ public class RepeatCommand implements RobotCommand {
 
         return currentIteration >= times;
     }
+
+    /**
+     * Gets the number of times the commands are repeated.
+     *
+     * @return The number of iterations.
+     */
+    public int getTimes() {
+
+        return times;
+    }
+
+    /**
+     * Gets the commands of the repeated block.
+     *
+     * @return The list of commands to repeat.
+     */
+    public List<RobotCommand> getCommands() {
+
+        return commands;
+    }
 }
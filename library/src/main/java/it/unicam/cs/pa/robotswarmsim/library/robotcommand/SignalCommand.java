@@ -1,13 +1,14 @@
 package it.unicam.cs.pa.robotswarmsim.library.robotcommand;
 
 import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRef;
 
 /**
  * The SignalCommand allows a robot to emit a specific signal.
  * This signal can be used for communication with other robots or to indicate a specific state.
  */
 public class SignalCommand implements RobotCommand {
-    private final String signal; // The signal to emit
+    private final LabelRef signal; // The signal to emit
 
     /**
      * Constructs a new SignalCommand with the specified signal.
@@ -15,8 +16,7 @@ public class SignalCommand implements RobotCommand {
      * @param signal The signal that the robot should emit.
      */
     public SignalCommand(String signal) {
-
-        this.signal = signal;
+        this.signal = new LabelRef(signal);
     }
 
     /**
@@ -29,6 +29,16 @@ public class SignalCommand implements RobotCommand {
     @Override
     public void execute(Robot robot, double dt) {
         // Emit the specified signal through the robot
-        robot.signalLabel(signal);
+        robot.signalLabel(signal.id(robot.getLabels()));
+    }
+
+    /**
+     * Gets the signal emitted by the command.
+     *
+     * @return The label of the signal.
+     */
+    public String getSignal() {
+
+        return signal.getName();
     }
 }
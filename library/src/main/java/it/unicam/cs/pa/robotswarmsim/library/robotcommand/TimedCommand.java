@@ -18,6 +18,16 @@ public abstract class TimedCommand implements RobotCommand {
         this.executionTime = executionTime;
     }
 
+    /**
+     * Returns the time for which the command executes.
+     *
+     * @return The duration of the command in seconds.
+     */
+    public double getExecutionTime() {
+
+        return executionTime;
+    }
+
     /**
      * Executes the timed command on the specified robot, controlling completion with the robot's elapsed time.
      * It performs the command for the remaining time or the specified time step, whichever is smaller.
@@ -37,8 +47,6 @@ public abstract class TimedCommand implements RobotCommand {
 
             // Update the robot's elapsed time for the timed command
             robot.incrementTimedCommandTime(timeToExecute);
-
-            System.out.println("Elapsed time in TimedCommand: " + robot.getTimedCommandTime() + " seconds.");
         }
     }
 
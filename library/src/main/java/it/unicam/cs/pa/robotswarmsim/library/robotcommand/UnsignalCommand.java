@@ -1,13 +1,14 @@
 package it.unicam.cs.pa.robotswarmsim.library.robotcommand;
 
 import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRef;
 
 /**
  * This class represents a command to remove a label from a robot.
  * It implements the RobotCommand interface.
  */
 public class UnsignalCommand implements RobotCommand {
-    private final String signal; // The label to remove
+    private final LabelRef signal; // The label to remove
 
     /**
      * Creates a new UnsignalCommand object with the specified label.
@@ -15,8 +16,7 @@ public class UnsignalCommand implements RobotCommand {
      * @param signal The label to remove from the robot.
      */
     public UnsignalCommand(String signal) {
-
-        this.signal = signal;
+        this.signal = new LabelRef(signal);
     }
 
     /**
@@ -28,6 +28,16 @@ public class UnsignalCommand implements RobotCommand {
     @Override
     public void execute(Robot robot, double dt) {
 
-        robot.removeLabel(signal);
+        robot.removeLabel(signal.id(robot.getLabels()));
+    }
+
+    /**
+     * Gets the signal removed by the command.
+     *
+     * @return The label of the signal.
+     */
+    public String getSignal() {
+
+        return signal.getName();
     }
 }
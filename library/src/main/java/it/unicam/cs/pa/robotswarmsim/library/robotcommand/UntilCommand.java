@@ -1,6 +1,7 @@
 package it.unicam.cs.pa.robotswarmsim.library.robotcommand;
 
 import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRef;
 import java.util.List;
 
 /**
@@ -8,7 +9,7 @@ import java.util.List;
  * It implements the RobotCommand interface.
  */
 public class UntilCommand implements RobotCommand {
-    private final String targetLabel; // Target label for the Until command
+    private final LabelRef target; // Target label for the Until command
     private final List<RobotCommand> commands;
     private int currentCommandIndex = 0;
     private boolean completed = false; // Manages the completion status of the command
@@ -20,7 +21,7 @@ public class UntilCommand implements RobotCommand {
      * @param commands    The list of commands to execute until the target is reached.
      */
     public UntilCommand(String targetLabel, List<RobotCommand> commands) {
-        this.targetLabel = targetLabel;
+        this.target = new LabelRef(targetLabel);
         this.commands = commands;
     }
 
@@ -35,7 +36,6 @@ public class UntilCommand implements RobotCommand {
         // Continue executing commands until completed
         if (!completed) {
             RobotCommand command = commands.get(currentCommandIndex);
-            System.out.println("Executing internal command: " + command.getClass().getSimpleName());
             command.execute(robot, dt);
             currentCommandIndex++;
 
@@ -45,12 +45,9 @@ public class UntilCommand implements RobotCommand {
             }
 
             // Check if the robot has reached the target area
-            if (robot.getCurrentAreaLabels().contains(targetLabel)) {
-                System.out.println("Robot has reached the target area: " + targetLabel);
+            if (robot.isInArea(target.id(robot.getLabels()))) {
                 completed = true;
             }
-        } else {
-            System.out.println("UntilCommand completed.");
         }
     }
 
@@ -64,5 +61,33 @@ public class UntilCommand implements RobotCommand {
         return completed;
     }
 
+    /**
+     * Gets the label of the area that ends the block.
+     *
+     * @return The target label.
+     */
+    public String getTargetLabel() {
+
+        return target.getName();
+    }
+
+    /**
+     * Gets the label of the area that ends the block, resolved in the registry of the environment it runs in.
+     *
+     * @return The reference to the target label.
+     */
+    public LabelRef getTarget() {
+
+        return target;
+    }
+
+    /**
+     * Gets the commands executed until the target area is reached.
+     *
+     * @return The list of commands of the block.
+     */
+    public List<RobotCommand> getCommands() {
 
+        return commands;
+    }
 }
@@ -0,0 +1,180 @@
+package it.unicam.cs.pa.robotswarmsim.library.scenario;
+
+import it.unicam.cs.pa.robotswarmsim.library.CommandsParser;
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
+import it.unicam.cs.pa.robotswarmsim.library.area.Rectangle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.program.Program;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * This class is a synthetic scenario built from {@link ScenarioParameters}: an environment with areas
+ * of random shape spread over a square world, and a swarm of robots at uniformly random positions.
+ * Robots play one of three roles, each sharing one compiled program: signallers signal the leader label
+ * and wander, followers follow the nearby signallers, and the others only wander.
+ * The same parameters always generate the same scenario.
+ */
+public final class Scenario {
+
+    /**
+     * The label signalled by signallers and followed by followers.
+     */
+    public static final String LEADER_LABEL = "Leader";
+
+    /**
+     * The range of the FOLLOW command of followers.
+     */
+    public static final double FOLLOW_RANGE = 5;
+
+    /**
+     * The program of signallers: signal, then wander forever.
+     */
+    public static final String SIGNAL_PROGRAM = "SIGNAL " + LEADER_LABEL + "\nDO FOREVER\nMOVE RANDOM -10 10 -10 10 1\nDONE";
+
+    /**
+     * The program of followers: follow the nearby signallers forever.
+     */
+    public static final String FOLLOW_PROGRAM = "DO FOREVER\nFOLLOW " + LEADER_LABEL + " " + FOLLOW_RANGE + " 1\nDONE";
+
+    /**
+     * The program of the other robots: wander forever.
+     */
+    public static final String WANDER_PROGRAM = "DO FOREVER\nMOVE RANDOM -10 10 -10 10 1\nDONE";
+
+    private static final double AREA_PER_ROBOT = 100; // Square meters per robot of an automatic world size
+    private static final int AREA_LABELS = 64; // Number of distinct area labels
+    private static final double MAX_AREA_SIZE = 10; // Largest side or diameter of an area
+
+    private final ScenarioParameters parameters;
+    private final Environment environment;
+    private final List<Robot> robots;
+    private final double worldSize; // Side of the square world in meters
+
+    /**
+     * Creates a scenario from its parts.
+     *
+     * @param parameters  The parameters the scenario was generated from.
+     * @param environment The environment.
+     * @param robots      The robots.
+     * @param worldSize   The side of the world.
+     */
+    private Scenario(ScenarioParameters parameters, Environment environment, List<Robot> robots, double worldSize) {
+        this.parameters = parameters;
+        this.environment = environment;
+        this.robots = robots;
+        this.worldSize = worldSize;
+    }
+
+    /**
+     * Generates a scenario.
+     *
+     * @param parameters The parameters of the scenario.
+     * @return The generated scenario, whose robots are already added to its environment.
+     */
+    public static Scenario generate(ScenarioParameters parameters) {
+        SplittableRandom random = new SplittableRandom(parameters.seed());
+        double size = parameters.worldSize() > 0
+                ? parameters.worldSize()
+                : Math.sqrt(Math.max(1, parameters.robots()) * AREA_PER_ROBOT);
+        Environment environment = new Environment(random.nextLong());
+        addAreas(environment, parameters, size, random);
+
+        int signallers = (int) Math.round(parameters.robots() * parameters.signalShare());
+        int followers = Math.min(parameters.robots() - signallers,
+                (int) Math.round(parameters.robots() * parameters.followShare()));
+        Program signal = compile(SIGNAL_PROGRAM);
+        Program follow = compile(FOLLOW_PROGRAM);
+        Program wander = compile(WANDER_PROGRAM);
+        List<Robot> robots = new ArrayList<>(parameters.robots());
+        for (int i = 0; i < parameters.robots(); i++) {
+            Robot robot = new Robot(new Point(random.nextDouble() * size, random.nextDouble() * size), environment);
+            robot.setProgram(i < signallers ? signal : i < signallers + followers ? follow : wander);
+            environment.addRobot(robot);
+            robots.add(robot);
+        }
+        if (followers > 0) {
+            // Size the robot grid after the FOLLOW queries
+            environment.setCellSize(FOLLOW_RANGE);
+        }
+        return new Scenario(parameters, environment, robots, size);
+    }
+
+    /**
+     * Adds circles and rectangles of random size at uniformly random positions.
+     *
+     * @param environment The environment receiving the areas.
+     * @param parameters  The parameters of the scenario.
+     * @param size        The side of the world.
+     * @param random      The source of the shapes.
+     */
+    private static void addAreas(Environment environment, ScenarioParameters parameters, double size,
+                                 SplittableRandom random) {
+        for (int i = 0; i < parameters.areas(); i++) {
+            Point origin = new Point(random.nextDouble() * size, random.nextDouble() * size);
+            String label = "Z" + (i % AREA_LABELS);
+            if (random.nextDouble() < parameters.circleShare()) {
+                environment.addArea(new Circle(origin, 0.5 + random.nextDouble() * MAX_AREA_SIZE / 2, label));
+            } else {
+                environment.addArea(new Rectangle(origin, 1 + random.nextDouble() * (MAX_AREA_SIZE - 1),
+                        1 + random.nextDouble() * (MAX_AREA_SIZE - 1), label));
+            }
+        }
+    }
+
+    /**
+     * Parses and compiles a robot program.
+     *
+     * @param source The program text.
+     * @return The compiled program.
+     */
+    private static Program compile(String source) {
+        CommandsParser parser = new CommandsParser();
+        parser.processCommandString(source, false);
+        return parser.getProgram();
+    }
+
+    /**
+     * Returns the parameters the scenario was generated from.
+     *
+     * @return The parameters.
+     */
+    public ScenarioParameters getParameters() {
+
+        return parameters;
+    }
+
+    /**
+     * Returns the environment of the scenario.
+     *
+     * @return The environment, holding the areas and the robots.
+     */
+    public Environment getEnvironment() {
+
+        return environment;
+    }
+
+    /**
+     * Returns the robots of the scenario: first the signallers, then the followers, then the wanderers.
+     *
+     * @return The robots.
+     */
+    public List<Robot> getRobots() {
+
+        return robots;
+    }
+
+    /**
+     * Returns the side of the square world of the scenario.
+     *
+     * @return The world size in meters.
+     */
+    public double getWorldSize() {
+
+        return worldSize;
+    }
+}
@@ -0,0 +1,74 @@
+package it.unicam.cs.pa.robotswarmsim.library.scenario;
+
+/**
+ * This record holds the few parameters from which a synthetic {@link Scenario} is generated.
+ *
+ * @param robots         The number of robots.
+ * @param areas          The number of areas.
+ * @param circleShare    The share of the areas that are circles, between 0 and 1; the others are rectangles.
+ * @param worldSize      The side of the square world in meters, or 0 to keep the density of one robot every
+ *                       100 square meters whatever the number of robots.
+ * @param signalShare    The share of the robots that signal and wander, between 0 and 1.
+ * @param followShare    The share of the robots that follow the signalling ones, between 0 and 1;
+ *                       the robots neither signalling nor following just wander.
+ * @param seed           The seed of the positions, the areas and the random streams of the robots.
+ */
+public record ScenarioParameters(int robots, int areas, double circleShare, double worldSize, double signalShare,
+                                 double followShare, long seed) {
+
+    /**
+     * Validates the parameters.
+     *
+     * @throws IllegalArgumentException If a count or the world size is negative, if a share is not between
+     *                                  0 and 1, or if the signalling and following shares add up to more than 1.
+     */
+    public ScenarioParameters {
+        if (robots < 0 || areas < 0) {
+            throw new IllegalArgumentException("The numbers of robots and areas cannot be negative.");
+        }
+        if (!(worldSize >= 0) || Double.isInfinite(worldSize)) {
+            throw new IllegalArgumentException("The world size must be 0 or a positive number.");
+        }
+        if (isNotShare(circleShare) || isNotShare(signalShare) || isNotShare(followShare)
+                || signalShare + followShare > 1) {
+            throw new IllegalArgumentException("Shares must be between 0 and 1, and signalling and following robots "
+                    + "cannot be more than all the robots.");
+        }
+    }
+
+    /**
+     * Returns the parameters of a swarm of the given size with half the robots signalling and half following,
+     * in a world holding one robot every 100 square meters with as many areas as one every 100 robots.
+     *
+     * @param robots The number of robots.
+     * @param seed   The seed of the scenario.
+     * @return The parameters.
+     */
+    public static ScenarioParameters defaults(int robots, long seed) {
+
+        return new ScenarioParameters(robots, robots / 100, 0.5, 0, 0.5, 0.5, seed);
+    }
+
+    /**
+     * Returns the same parameters for a different number of robots, keeping the world size automatic
+     * if it was.
+     *
+     * @param count The number of robots.
+     * @return The new parameters.
+     */
+    public ScenarioParameters withRobots(int count) {
+
+        return new ScenarioParameters(count, areas, circleShare, worldSize, signalShare, followShare, seed);
+    }
+
+    /**
+     * Checks whether a value is not a valid share.
+     *
+     * @param share The value.
+     * @return True if the value is not between 0 and 1.
+     */
+    private static boolean isNotShare(double share) {
+
+        return !(share >= 0 && share <= 1);
+    }
+}
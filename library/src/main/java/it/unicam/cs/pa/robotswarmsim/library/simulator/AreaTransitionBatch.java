@@ -0,0 +1,89 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import java.util.Arrays;
+
+/**
+ * This class holds the area transitions of a tick: every time a robot entered or left an area, identified
+ * by the id of its label. Transitions are stored in primitive columns reused from one tick to the next,
+ * so reporting them allocates nothing once the columns have grown to the busiest tick.
+ */
+public final class AreaTransitionBatch {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size = 0; // Number of transitions
+    private int[] robotIds = new int[INITIAL_CAPACITY]; // Id of the robot of each transition
+    private int[] labelIds = new int[INITIAL_CAPACITY]; // Label id of the area of each transition
+    private boolean[] entering = new boolean[INITIAL_CAPACITY]; // Whether each transition is an entry
+
+    /**
+     * Returns the number of transitions in the batch.
+     *
+     * @return The size of the batch.
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * Returns the id of the robot of a transition.
+     *
+     * @param index The index of the transition.
+     * @return The robot id.
+     */
+    public int getRobotId(int index) {
+
+        return robotIds[index];
+    }
+
+    /**
+     * Returns the label id of the area of a transition.
+     *
+     * @param index The index of the transition.
+     * @return The label id.
+     */
+    public int getLabelId(int index) {
+
+        return labelIds[index];
+    }
+
+    /**
+     * Returns the direction of a transition.
+     *
+     * @param index The index of the transition.
+     * @return true if the robot entered the area, false if it left it.
+     */
+    public boolean isEntering(int index) {
+
+        return entering[index];
+    }
+
+    /**
+     * Adds a transition.
+     *
+     * @param robotId  The id of the robot.
+     * @param labelId  The label id of the area.
+     * @param entered  true if the robot entered the area, false if it left it.
+     */
+    void add(int robotId, int labelId, boolean entered) {
+        if (size == robotIds.length) {
+            int capacity = size * 2;
+            robotIds = Arrays.copyOf(robotIds, capacity);
+            labelIds = Arrays.copyOf(labelIds, capacity);
+            entering = Arrays.copyOf(entering, capacity);
+        }
+        robotIds[size] = robotId;
+        labelIds[size] = labelId;
+        entering[size] = entered;
+        size++;
+    }
+
+    /**
+     * Removes every transition, keeping the columns.
+     */
+    void clear() {
+
+        size = 0;
+    }
+}
@@ -0,0 +1,268 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RobotCommand;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is a {@link SimulationListener} producing the same output as {@link ConsolePrinter} without
+ * formatting or writing on the simulation thread.
+ * Events are copied into a bounded lock-free {@link EventRing}; a background writer thread formats them and
+ * writes them to the stream in batches, flushing once per batch.
+ * When the ring is full the configured {@link Backpressure} decides whether the simulation waits or the
+ * per-tick events are dropped; the start of the run and the end of the programs are never dropped.
+ * Events must be delivered from a single thread, as the simulator does; the printer must be closed to
+ * write the pending events and stop the writer thread.
+ */
+public class AsyncConsolePrinter implements SimulationListener, Closeable {
+
+    /**
+     * The behavior of the simulation thread when the ring is full.
+     */
+    public enum Backpressure {
+        /**
+         * The simulation waits for the writer to free a slot; no event is lost.
+         */
+        BLOCK,
+        /**
+         * Completed commands and robot states that do not fit are dropped.
+         */
+        DROP,
+        /**
+         * While the ring is at least half full, only the robot states of one tick out of the sampling
+         * interval are kept; the kept events wait for room.
+         */
+        SAMPLE
+    }
+
+    public static final int DEFAULT_CAPACITY = 1 << 16; // Default number of events of the ring
+    public static final int DEFAULT_SAMPLING_INTERVAL = 10; // Default ticks per sampled tick
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16; // Size of the buffer of the output stream
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1); // Writer wait when idle
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50); // Producer wait when full
+
+    private final EventRing ring;
+    private final Backpressure backpressure;
+    private final int samplingInterval; // Ticks per sampled tick when sampling
+    private final PrintStream buffered; // Buffered stream written by the writer thread
+    private final ConsolePrinter printer; // Formatter run by the writer thread
+    private final Thread writer;
+    private final AtomicLong dropped = new AtomicLong(); // Number of events dropped
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a printer writing to the standard output and waiting when the ring is full.
+     *
+     * @param labels The label registry of the environment of the printed robots.
+     */
+    public AsyncConsolePrinter(LabelRegistry labels) {
+
+        this(System.out, labels, DEFAULT_CAPACITY, Backpressure.BLOCK, DEFAULT_SAMPLING_INTERVAL);
+    }
+
+    /**
+     * Creates a printer writing to the given stream.
+     *
+     * @param out              The stream receiving the output.
+     * @param labels           The label registry of the environment of the printed robots.
+     * @param capacity         The number of events the ring can hold.
+     * @param backpressure     The behavior when the ring is full.
+     * @param samplingInterval The number of ticks per sampled tick, used by {@link Backpressure#SAMPLE}.
+     * @throws IllegalArgumentException if the capacity or the sampling interval is not positive.
+     */
+    public AsyncConsolePrinter(OutputStream out, LabelRegistry labels, int capacity, Backpressure backpressure,
+                               int samplingInterval) {
+        if (samplingInterval <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be a positive number.");
+        }
+        this.ring = new EventRing(capacity);
+        this.backpressure = backpressure;
+        this.samplingInterval = samplingInterval;
+        this.buffered = new PrintStream(new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE), false);
+        this.printer = new ConsolePrinter(buffered, labels);
+        this.writer = new Thread(this::drainLoop, "simulation-output");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the start of the run and the initial state of every robot, waiting for room if needed.
+     *
+     * @param dt           The time step in seconds.
+     * @param initialState The state of every robot at step 0.
+     */
+    @Override
+    public void simulationStarted(double dt, RobotStateBatch initialState) {
+        long sequence = claim(true);
+        ring.set(sequence, EventRing.START, 0, -1, null);
+        ring.publish(sequence);
+        for (int i = 0; i < initialState.size(); i++) {
+            sequence = claim(true);
+            ring.setState(sequence, EventRing.INITIAL_STATE, 0, initialState, i);
+            ring.publish(sequence);
+        }
+    }
+
+    /**
+     * Queues a completed command, unless it is dropped.
+     *
+     * @param step    The number of the tick.
+     * @param robotId The id of the robot that completed the command.
+     * @param command The completed command.
+     */
+    @Override
+    public void commandCompleted(int step, int robotId, RobotCommand command) {
+        long sequence = claim(backpressure != Backpressure.DROP);
+        if (sequence >= 0) {
+            ring.set(sequence, EventRing.COMMAND, step, robotId, command);
+            ring.publish(sequence);
+        }
+    }
+
+    /**
+     * Queues the state of each robot stepped during a tick, unless it is dropped or not sampled.
+     *
+     * @param step   The number of the tick.
+     * @param states The state of the stepped robots.
+     */
+    @Override
+    public void robotStates(int step, RobotStateBatch states) {
+        if (backpressure == Backpressure.SAMPLE && step % samplingInterval != 0
+                && ring.pending() >= ring.capacity() / 2) {
+            dropped.addAndGet(states.size());
+            return;
+        }
+        for (int i = 0; i < states.size(); i++) {
+            long sequence = claim(backpressure != Backpressure.DROP);
+            if (sequence >= 0) {
+                ring.setState(sequence, EventRing.STATE, step, states, i);
+                ring.publish(sequence);
+            }
+        }
+    }
+
+    /**
+     * Queues the end of the programs, waiting for room if needed.
+     *
+     * @param step The tick during which the last robot completed its program.
+     */
+    @Override
+    public void allRobotsCompleted(int step) {
+        long sequence = claim(true);
+        ring.set(sequence, EventRing.ALL_COMPLETED, step, -1, null);
+        ring.publish(sequence);
+    }
+
+    /**
+     * Returns the number of events dropped so far because the ring was full.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedCount() {
+
+        return dropped.get();
+    }
+
+    /**
+     * Writes the pending events, stops the writer thread and flushes the stream.
+     * The stream itself is not closed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Claims a slot of the ring.
+     *
+     * @param wait Whether to wait for room when the ring is full.
+     * @return The sequence of the slot, or -1 if the ring is full and the event is dropped.
+     * @throws IllegalStateException if the printer is closed or its writer thread has stopped.
+     */
+    private long claim(boolean wait) {
+        if (closed) {
+            throw new IllegalStateException("The printer is closed.");
+        }
+        long sequence = ring.tryClaim();
+        while (sequence < 0) {
+            if (!wait) {
+                dropped.incrementAndGet();
+                return -1;
+            }
+            if (!writer.isAlive()) {
+                throw new IllegalStateException("The output writer has stopped.");
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+            sequence = ring.tryClaim();
+        }
+        return sequence;
+    }
+
+    /**
+     * Runs the writer thread: formats the published events in batches until the printer is closed
+     * and the ring is empty.
+     */
+    private void drainLoop() {
+        while (true) {
+            boolean finishing = closed;
+            long from = ring.consumed();
+            long to = ring.published();
+            if (from == to) {
+                if (finishing) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            for (long sequence = from; sequence < to; sequence++) {
+                print(ring.slot(sequence));
+            }
+            ring.release(to);
+            buffered.flush();
+        }
+        if (dropped.get() > 0) {
+            buffered.println("Output events dropped: " + dropped.get());
+        }
+        buffered.flush();
+    }
+
+    /**
+     * Formats the event of a slot.
+     *
+     * @param slot The slot.
+     */
+    private void print(int slot) {
+        switch (ring.getKind(slot)) {
+            case EventRing.START -> printer.printStart();
+            case EventRing.INITIAL_STATE -> printer.printInitialState(ring, slot);
+            case EventRing.COMMAND -> printer.commandCompleted(ring.getStep(slot), ring.getId(slot),
+                    ring.takeCommand(slot));
+            case EventRing.STATE -> printer.printState(ring.getStep(slot), ring, slot);
+            case EventRing.ALL_COMPLETED -> printer.allRobotsCompleted(ring.getStep(slot));
+            default -> throw new IllegalStateException("Unknown event kind: " + ring.getKind(slot));
+        }
+    }
+}
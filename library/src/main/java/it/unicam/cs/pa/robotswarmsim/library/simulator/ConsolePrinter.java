@@ -0,0 +1,142 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RobotCommand;
+
+import java.io.PrintStream;
+
+/**
+ * This class is a {@link SimulationListener} printing the state of the robots at every step,
+ * the completed commands and the end of the programs to a print stream.
+ */
+public class ConsolePrinter implements SimulationListener {
+
+    private static final String SEPARATOR = "--------------------------------------------------";
+
+    private final PrintStream out; // Stream receiving the output
+    private final LabelRegistry labels; // Registry of the label ids of the printed states
+
+    /**
+     * Creates a printer writing to the standard output.
+     *
+     * @param labels The label registry of the environment of the printed robots.
+     */
+    public ConsolePrinter(LabelRegistry labels) {
+
+        this(System.out, labels);
+    }
+
+    /**
+     * Creates a printer writing to the given stream.
+     *
+     * @param out    The stream receiving the output.
+     * @param labels The label registry of the environment of the printed robots.
+     */
+    public ConsolePrinter(PrintStream out, LabelRegistry labels) {
+        this.out = out;
+        this.labels = labels;
+    }
+
+    /**
+     * Prints the initial state of each robot randomly placed in the simulation.
+     *
+     * @param dt           The time step in seconds.
+     * @param initialState The state of every robot at step 0.
+     */
+    @Override
+    public void simulationStarted(double dt, RobotStateBatch initialState) {
+        printStart();
+        for (int i = 0; i < initialState.size(); i++) {
+            printInitialState(initialState, i);
+        }
+    }
+
+    /**
+     * Prints the name of a completed command.
+     *
+     * @param step    The number of the tick.
+     * @param robotId The id of the robot that completed the command.
+     * @param command The completed command.
+     */
+    @Override
+    public void commandCompleted(int step, int robotId, RobotCommand command) {
+
+        out.println("Command " + command.getClass().getSimpleName() + " completed.");
+    }
+
+    /**
+     * Prints the state of each robot stepped during a tick.
+     *
+     * @param step   The number of the tick.
+     * @param states The state of the stepped robots.
+     */
+    @Override
+    public void robotStates(int step, RobotStateBatch states) {
+        for (int i = 0; i < states.size(); i++) {
+            printState(step, states, i);
+        }
+    }
+
+    /**
+     * Prints that every robot has completed its commands.
+     *
+     * @param step The tick during which the last robot completed its program.
+     */
+    @Override
+    public void allRobotsCompleted(int step) {
+
+        out.println("All robots have completed their commands.");
+    }
+
+    /**
+     * Prints the line opening the output of a run.
+     */
+    void printStart() {
+
+        out.println(SEPARATOR);
+    }
+
+    /**
+     * Prints the initial state of one robot of a batch.
+     *
+     * @param states The batch.
+     * @param index  The index of the robot in the batch.
+     */
+    void printInitialState(RobotStateBatch states, int index) {
+        out.println("Initial state of the robot randomly placed");
+        out.println(SEPARATOR);
+        out.println("Step 0: Initial state of the robot:");
+        out.println(describe(states, index));
+        out.println();
+        out.println(SEPARATOR);
+    }
+
+    /**
+     * Prints the state of one robot of a batch at the end of a tick.
+     *
+     * @param step   The number of the tick.
+     * @param states The batch.
+     * @param index  The index of the robot in the batch.
+     */
+    void printState(int step, RobotStateBatch states, int index) {
+        out.println(SEPARATOR);
+        out.println("Step " + step + ": Current state of the robot:");
+        out.println(describe(states, index));
+        out.println();
+        out.println(SEPARATOR);
+    }
+
+    /**
+     * Formats the state of a robot of a batch like {@link Robot#toString()}.
+     *
+     * @param states The batch.
+     * @param index  The index of the robot in the batch.
+     * @return A string with the robot's information.
+     */
+    private String describe(RobotStateBatch states, int index) {
+        return Robot.describe(states.getId(index), states.getAreas(index).asLabels(labels),
+                states.getX(index), states.getY(index), states.getHeading(index), states.getSpeed(index),
+                states.getSignals(index).asLabels(labels));
+    }
+}
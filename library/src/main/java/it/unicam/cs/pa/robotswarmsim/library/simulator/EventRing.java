@@ -0,0 +1,329 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelSet;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RobotCommand;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a bounded single-producer single-consumer ring of simulation events.
+ * Events are stored in preallocated primitive columns indexed by slot, so publishing an event allocates nothing.
+ * The producer and the consumer only synchronize through two sequence counters: the producer fills a slot
+ * and then publishes it by advancing the head, the consumer reads published slots and then frees them by
+ * advancing the tail; neither side ever takes a lock.
+ * The ring is also a {@link RobotStateBatch} whose indexes are slots, so the robot state held by a slot can be
+ * formatted like the state of a live robot.
+ */
+final class EventRing implements RobotStateBatch {
+
+    // Kinds of events
+    static final byte START = 0; // Start of the run
+    static final byte INITIAL_STATE = 1; // State of a robot at step 0
+    static final byte COMMAND = 2; // Command completed by a robot
+    static final byte STATE = 3; // State of a robot at the end of a tick
+    static final byte ALL_COMPLETED = 4; // Every robot has completed its program
+
+    private final int mask; // Capacity minus one, the capacity being a power of two
+    private final AtomicLong head = new AtomicLong(); // Sequence of the next slot to publish
+    private final AtomicLong tail = new AtomicLong(); // Sequence of the next slot to consume
+    private long cachedTail = 0; // Tail last observed by the producer
+
+    // Event columns, indexed by slot
+    private final byte[] kind;
+    private final int[] step;
+    private final int[] robotId;
+    private final double[] x;
+    private final double[] y;
+    private final double[] heading;
+    private final double[] speed;
+    private final LabelSet[] signals;
+    private final LabelSet[] areas;
+    private final RobotCommand[] command;
+
+    /**
+     * Creates an empty ring.
+     *
+     * @param capacity The minimum number of events the ring can hold, rounded up to a power of two.
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    EventRing(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring capacity must be a positive number.");
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        kind = new byte[size];
+        step = new int[size];
+        robotId = new int[size];
+        x = new double[size];
+        y = new double[size];
+        heading = new double[size];
+        speed = new double[size];
+        signals = new LabelSet[size];
+        areas = new LabelSet[size];
+        command = new RobotCommand[size];
+        for (int slot = 0; slot < size; slot++) {
+            signals[slot] = new LabelSet();
+            areas[slot] = new LabelSet();
+        }
+    }
+
+    /**
+     * Returns the number of events the ring can hold.
+     *
+     * @return The capacity of the ring.
+     */
+    int capacity() {
+
+        return mask + 1;
+    }
+
+    /**
+     * Returns the number of published events not yet consumed; called by the producer.
+     *
+     * @return The number of pending events.
+     */
+    int pending() {
+        cachedTail = tail.get();
+        return (int) (head.get() - cachedTail);
+    }
+
+    /**
+     * Claims the next free slot; called by the producer. The slot must be filled and then published.
+     *
+     * @return The sequence of the slot, or -1 if the ring is full.
+     */
+    long tryClaim() {
+        long sequence = head.get();
+        if (sequence - cachedTail > mask) {
+            cachedTail = tail.get();
+            if (sequence - cachedTail > mask) {
+                return -1;
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Fills a claimed slot with an event without robot state.
+     *
+     * @param sequence     The sequence of the slot.
+     * @param eventKind    The kind of the event.
+     * @param eventStep    The step of the event.
+     * @param eventRobotId The robot of the event, or -1.
+     * @param eventCommand The completed command, or null.
+     */
+    void set(long sequence, byte eventKind, int eventStep, int eventRobotId, RobotCommand eventCommand) {
+        int slot = (int) sequence & mask;
+        kind[slot] = eventKind;
+        step[slot] = eventStep;
+        robotId[slot] = eventRobotId;
+        command[slot] = eventCommand;
+    }
+
+    /**
+     * Fills a claimed slot with the state of a robot of a batch.
+     *
+     * @param sequence  The sequence of the slot.
+     * @param eventKind The kind of the event.
+     * @param eventStep The step of the event.
+     * @param states    The batch holding the robot.
+     * @param index     The index of the robot in the batch.
+     */
+    void setState(long sequence, byte eventKind, int eventStep, RobotStateBatch states, int index) {
+        int slot = (int) sequence & mask;
+        kind[slot] = eventKind;
+        step[slot] = eventStep;
+        robotId[slot] = states.getId(index);
+        x[slot] = states.getX(index);
+        y[slot] = states.getY(index);
+        heading[slot] = states.getHeading(index);
+        speed[slot] = states.getSpeed(index);
+        signals[slot].copyFrom(states.getSignals(index));
+        areas[slot].copyFrom(states.getAreas(index));
+        command[slot] = null;
+    }
+
+    /**
+     * Publishes every slot up to the given one; called by the producer.
+     *
+     * @param sequence The sequence of the last filled slot.
+     */
+    void publish(long sequence) {
+
+        head.lazySet(sequence + 1);
+    }
+
+    /**
+     * Returns the sequence following the last published slot; called by the consumer.
+     *
+     * @return The head of the ring.
+     */
+    long published() {
+
+        return head.get();
+    }
+
+    /**
+     * Returns the sequence of the next slot to consume; called by the consumer.
+     *
+     * @return The tail of the ring.
+     */
+    long consumed() {
+
+        return tail.get();
+    }
+
+    /**
+     * Frees every slot before the given sequence; called by the consumer.
+     *
+     * @param sequence The sequence following the last consumed slot.
+     */
+    void release(long sequence) {
+
+        tail.lazySet(sequence);
+    }
+
+    /**
+     * Returns the slot of a sequence, to be used as a batch index.
+     *
+     * @param sequence The sequence.
+     * @return The slot.
+     */
+    int slot(long sequence) {
+
+        return (int) sequence & mask;
+    }
+
+    /**
+     * Returns the kind of the event of a slot.
+     *
+     * @param slot The slot.
+     * @return The kind of the event.
+     */
+    byte getKind(int slot) {
+
+        return kind[slot];
+    }
+
+    /**
+     * Returns the step of the event of a slot.
+     *
+     * @param slot The slot.
+     * @return The step.
+     */
+    int getStep(int slot) {
+
+        return step[slot];
+    }
+
+    /**
+     * Returns the command of the event of a slot and clears it, so that the ring keeps no reference to it.
+     *
+     * @param slot The slot.
+     * @return The completed command, or null.
+     */
+    RobotCommand takeCommand(int slot) {
+        RobotCommand completed = command[slot];
+        command[slot] = null;
+        return completed;
+    }
+
+    /**
+     * Returns the number of slots of the ring.
+     *
+     * @return The capacity of the ring.
+     */
+    @Override
+    public int size() {
+
+        return capacity();
+    }
+
+    /**
+     * Returns the robot of the event of a slot.
+     *
+     * @param index The slot.
+     * @return The id of the robot.
+     */
+    @Override
+    public int getId(int index) {
+
+        return robotId[index];
+    }
+
+    /**
+     * Returns the x-coordinate stored in a slot.
+     *
+     * @param index The slot.
+     * @return The x-coordinate.
+     */
+    @Override
+    public double getX(int index) {
+
+        return x[index];
+    }
+
+    /**
+     * Returns the y-coordinate stored in a slot.
+     *
+     * @param index The slot.
+     * @return The y-coordinate.
+     */
+    @Override
+    public double getY(int index) {
+
+        return y[index];
+    }
+
+    /**
+     * Returns the heading stored in a slot.
+     *
+     * @param index The slot.
+     * @return The direction in degrees.
+     */
+    @Override
+    public double getHeading(int index) {
+
+        return heading[index];
+    }
+
+    /**
+     * Returns the speed stored in a slot.
+     *
+     * @param index The slot.
+     * @return The speed in meters per second.
+     */
+    @Override
+    public double getSpeed(int index) {
+
+        return speed[index];
+    }
+
+    /**
+     * Returns the signals stored in a slot.
+     *
+     * @param index The slot.
+     * @return The label ids of the signals.
+     */
+    @Override
+    public LabelSet getSignals(int index) {
+
+        return signals[index];
+    }
+
+    /**
+     * Returns the area labels stored in a slot.
+     *
+     * @param index The slot.
+     * @return The label ids of the areas.
+     */
+    @Override
+    public LabelSet getAreas(int index) {
+
+        return areas[index];
+    }
+}
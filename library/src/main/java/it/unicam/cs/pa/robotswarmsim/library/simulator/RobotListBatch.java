@@ -0,0 +1,120 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelSet;
+
+import java.util.List;
+
+/**
+ * This class is a live {@link RobotStateBatch} over a list of robots: it copies nothing and reflects
+ * the current state of the robots.
+ */
+class RobotListBatch implements RobotStateBatch {
+
+    private final List<Robot> robots;
+
+    /**
+     * Creates a view over a list of robots.
+     *
+     * @param robots The robots of the batch, in order.
+     */
+    RobotListBatch(List<Robot> robots) {
+
+        this.robots = robots;
+    }
+
+    /**
+     * Returns the number of robots in the batch.
+     *
+     * @return The size of the batch.
+     */
+    @Override
+    public int size() {
+
+        return robots.size();
+    }
+
+    /**
+     * Returns the id of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The id of the robot.
+     */
+    @Override
+    public int getId(int index) {
+
+        return robots.get(index).getId();
+    }
+
+    /**
+     * Returns the current x-coordinate of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The x-coordinate.
+     */
+    @Override
+    public double getX(int index) {
+
+        return robots.get(index).getX();
+    }
+
+    /**
+     * Returns the current y-coordinate of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The y-coordinate.
+     */
+    @Override
+    public double getY(int index) {
+
+        return robots.get(index).getY();
+    }
+
+    /**
+     * Returns the current heading of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The direction in degrees.
+     */
+    @Override
+    public double getHeading(int index) {
+
+        return robots.get(index).getHeading();
+    }
+
+    /**
+     * Returns the current speed of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The speed in meters per second.
+     */
+    @Override
+    public double getSpeed(int index) {
+
+        return robots.get(index).getSpeed();
+    }
+
+    /**
+     * Returns the active signals of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The live label ids of the signals.
+     */
+    @Override
+    public LabelSet getSignals(int index) {
+
+        return robots.get(index).getSignals();
+    }
+
+    /**
+     * Returns the labels of the areas containing a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The live label ids of the areas.
+     */
+    @Override
+    public LabelSet getAreas(int index) {
+
+        return robots.get(index).getCurrentAreas();
+    }
+}
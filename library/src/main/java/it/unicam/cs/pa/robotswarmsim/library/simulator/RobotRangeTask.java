@@ -0,0 +1,75 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.SimulationMetrics;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * This task applies an action to a range of robots on a ForkJoin pool,
+ * splitting the range in halves until it is small enough to be processed by a single worker.
+ * An optional range end action is run by the worker once it has processed its range.
+ * With a metrics registry, the ranges processed by pool workers add their allocations to it;
+ * the ranges run by the thread that invoked the task are left to that thread's own measurement.
+ */
+class RobotRangeTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Robot> robots;
+    private final int from; // First index of the range, inclusive
+    private final int to; // Last index of the range, exclusive
+    private final int threshold; // Size under which the range is not split any further
+    private final Consumer<Robot> action;
+    private final Runnable rangeEnd; // Run by the worker after its range, null if none
+    private final SimulationMetrics metrics; // Registry of the allocations of the workers, null when not counting
+
+    /**
+     * Creates a task applying an action to the robots with index in [from, to).
+     *
+     * @param robots    The robots of the simulation.
+     * @param from      The first index of the range, inclusive.
+     * @param to        The last index of the range, exclusive.
+     * @param threshold The size under which the range is processed sequentially.
+     * @param action    The action to apply to every robot of the range.
+     * @param rangeEnd  The action run by a worker after its range, or null.
+     * @param metrics   The registry of the allocations of the workers, or null.
+     */
+    RobotRangeTask(List<Robot> robots, int from, int to, int threshold, Consumer<Robot> action,
+                   Runnable rangeEnd, SimulationMetrics metrics) {
+        this.robots = robots;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+        this.action = action;
+        this.rangeEnd = rangeEnd;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Applies the action to the range, forking a subtask for half of it when the range is too large.
+     */
+    @Override
+    protected void compute() {
+        if (to - from <= threshold) {
+            boolean measured = metrics != null && Thread.currentThread() instanceof ForkJoinWorkerThread;
+            long allocated = measured ? SimulationMetrics.threadAllocatedBytes() : -1;
+            for (int i = from; i < to; i++) {
+                action.accept(robots.get(i));
+            }
+            if (rangeEnd != null) {
+                rangeEnd.run();
+            }
+            if (measured) {
+                metrics.addAllocatedSince(allocated);
+            }
+        } else {
+            int middle = (from + to) >>> 1;
+            invokeAll(new RobotRangeTask(robots, from, middle, threshold, action, rangeEnd, metrics),
+                    new RobotRangeTask(robots, middle, to, threshold, action, rangeEnd, metrics));
+        }
+    }
+}
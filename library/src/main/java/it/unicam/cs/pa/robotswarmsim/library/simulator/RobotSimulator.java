@@ -1,16 +1,71 @@
 package it.unicam.cs.pa.robotswarmsim.library.simulator;
 
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
 import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
-import it.unicam.cs.pa.robotswarmsim.library.robotcommand.*;
+import it.unicam.cs.pa.robotswarmsim.library.jfr.CommandBatchRecorder;
+import it.unicam.cs.pa.robotswarmsim.library.jfr.TickEvent;
+import it.unicam.cs.pa.robotswarmsim.library.kinematics.KinematicBatch;
+import it.unicam.cs.pa.robotswarmsim.library.kinematics.PositionIntegrator;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.SimulationMetrics;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.TickProfiler;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.TickProfiler.Phase;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RobotCommand;
+import it.unicam.cs.pa.robotswarmsim.library.trace.Checkpoint;
+
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * This class represents a simulator for robots that can execute a list of commands on multiple robots.
+ * Each tick first commits the state of every robot, then steps the robots against that committed state,
+ * either sequentially or split across the workers of a ForkJoin pool. Results therefore do not depend
+ * on the order in which robots are stepped nor on the number of threads.
+ * Only robots that still have commands to run are kept in the active set, so robots that completed
+ * their program cost nothing per tick.
+ * The simulator prints nothing itself: progress is reported to the attached {@link SimulationListener}s,
+ * and with no listener attached a tick formats no strings at all.
+ * Ticks that only move a robot in a straight line are grouped per thread and their positions integrated
+ * in one pass by a {@link PositionIntegrator}, with SIMD instructions when the Vector API is available.
+ * Once the robots are running, a sequential tick allocates nothing: robots move in place, neighbour queries
+ * fold their results without building lists, and the tick loop reuses its actions and buffers.
+ * Every tick is recorded as a {@link TickEvent} for JDK Flight Recorder, with the commands it ran summarized
+ * as command batch events; while no recording collects them, these events cost nothing.
+ * With a {@link TickProfiler} attached, the time of each phase of every tick is recorded; without one,
+ * the tick loop takes no timestamp. Likewise, a {@link SimulationMetrics} registry counts the work of the
+ * neighbour queries and area lookups and the bytes allocated by each tick.
+ * Between runs, or from a listener between two ticks, the whole simulation can be captured in a {@link Checkpoint}
+ * and later restored to continue the run bit-identically.
  */
 public class RobotSimulator implements Simulator {
 
     private final List<Robot> robots;
+    private final List<Robot> activeRobots = new ArrayList<>(); // Robots with commands left to run
+    private final List<Environment> environments = new ArrayList<>(); // Environments of the robots of the run
     private int stepNumber = 0;
+    private boolean headless = false; // Whether ticks run without waiting for the wall clock
+    private double realTimeFactor = 1; // Simulated seconds per wall-clock second
+    private int parallelism = 1; // Number of threads stepping the robots
+    private ForkJoinPool pool; // Pool of the current run, null when running sequentially
+    private ForkJoinPool sharedPool; // Pool supplied by the caller for every run, null to create one per run
+    private boolean stopWhenAllCompleted = false; // Whether the run ends once every robot is done
+    private final List<SimulationListener> listeners = new ArrayList<>(); // Receivers of the simulation events
+    private final RobotStateBatch activeStates = new RobotListBatch(activeRobots); // View over the active robots
+    private TickProfiler profiler; // Profiler of the phases of the ticks, null when not profiling
+    private SimulationMetrics metrics; // Counters of the hot paths, null when not counting
+    private double stepDt; // Time step of the current run
+    private PositionIntegrator integrator; // Kernel of the straight-line ticks, null to step robots one by one
+    private ThreadLocal<KinematicBatch> batches; // Batch of each thread stepping robots, null without integrator
+    private final Consumer<Robot> stepRobot = this::stepRobot; // Steps a robot by stepDt
+    private final Runnable flushBatch = this::flushBatch; // Completes the batched ticks of the current thread
+    private final CommandBatchRecorder commandBatches = new CommandBatchRecorder(); // Tally of the commands for JFR
+    private boolean recordingCommands; // Whether the commands of the current tick are tallied
+    private final AreaTransitionBatch transitions = new AreaTransitionBatch(); // Area transitions of the tick
+    private int reportedRobot; // Id of the robot whose transitions are being reported
+    private final IntConsumer addEntry = labelId -> transitions.add(reportedRobot, labelId, true);
+    private final IntConsumer addExit = labelId -> transitions.add(reportedRobot, labelId, false);
 
     /**
      * Constructs a new RobotSimulator with a list of robots.
@@ -18,8 +73,8 @@ public class RobotSimulator implements Simulator {
      * @param robots The list of robots to simulate.
      */
     public RobotSimulator(List<Robot> robots) {
-
         this.robots = robots;
+        setPositionIntegrator(PositionIntegrator.preferred());
     }
 
     /**
@@ -30,193 +85,455 @@ public class RobotSimulator implements Simulator {
      */
     @Override
     public void simulate(double dt, double time) {
-        printInitialRobotInfo();
-
-        // Iterate through the simulation time in discrete time steps
-        for (double t = 0; t < time; t += dt) {
-            try {
-                // Pause the simulation for the specified time step
-                Thread.sleep((long) (dt * 1000));
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("Interrupted while waiting: " + e.getMessage());
-                return;
-            }
+        if (!listeners.isEmpty()) {
+            RobotStateBatch initialState = new RobotListBatch(robots);
+            listeners.forEach(listener -> listener.simulationStarted(dt, initialState));
+        }
+        activateRobots();
+        stepDt = dt;
+        int firstStep = stepNumber;
 
-            // Iterate through each robot to execute commands and print information
-            for (Robot robot : robots) {
-                // Check if all robots have completed their commands
-                if (haveAllRobotsCompletedCommands()) {
-                    System.out.println("All robots have completed their commands.");
+        TickPacer pacer = headless ? TickPacer.headless() : TickPacer.realTime(dt, realTimeFactor);
+        pacer.start();
+        long ticks = 0;
+        if (sharedPool != null) {
+            pool = sharedPool;
+        } else {
+            pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        }
+
+        try {
+            // Iterate through the simulation time in discrete time steps
+            for (double t = 0; t < time; t += dt) {
+                if (stopWhenAllCompleted && activeRobots.isEmpty()) {
+                    break;
+                }
+                long mark = profiler == null ? 0 : System.nanoTime();
+                try {
+                    // Wait until the wall-clock deadline of this time step
+                    pacer.awaitTicks(++ticks);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    System.err.println("Interrupted while waiting: " + e.getMessage());
+                    return;
                 }
+                mark = lap(Phase.WAIT, mark);
+                long allocated = metrics == null ? -1 : SimulationMetrics.threadAllocatedBytes();
+                TickEvent tickEvent = TickEvent.start();
+                int step = stepNumber + 1;
+                for (int i = 0; i < listeners.size(); i++) {
+                    listeners.get(i).tickStarted(step);
+                }
+                mark = lap(Phase.REPORT, mark);
 
-                // Execute commands for the current robot and print its information
-                executeRobotCommands(robot, dt);
-                printRobotInfo(robot, stepNumber);
-            }
+                // Commit the state observed by neighbours, then step every active robot against it
+                reserveSignals();
+                forEachActiveRobot(Robot::commitState, null);
+                mark = lap(Phase.COMMIT, mark);
+                updateRobotIndexes();
+                mark = lap(Phase.INDEX, mark);
+                recordingCommands = CommandBatchRecorder.isRecording();
+                forEachActiveRobot(stepRobot, flushBatch);
+                mark = lap(Phase.STEP, mark);
+                if (recordingCommands) {
+                    commandBatches.stepEnded(step);
+                }
+                if (tickEvent != null) {
+                    tickEvent.robotCount = activeRobots.size();
+                }
 
-            stepNumber++;
+                // Report the completed commands and the state of each stepped robot in list order
+                if (!listeners.isEmpty()) {
+                    reportTick(step);
+                }
+                mark = lap(Phase.REPORT, mark);
+                retireCompletedRobots(step);
+                mark = lap(Phase.RETIRE, mark);
+
+                stepNumber++;
+                for (int i = 0; i < listeners.size(); i++) {
+                    listeners.get(i).tickEnded(step);
+                }
+                if (tickEvent != null) {
+                    tickEvent.step = step;
+                    tickEvent.commit();
+                }
+                if (profiler != null) {
+                    profiler.record(Phase.REPORT, mark);
+                    profiler.endTick();
+                }
+                if (metrics != null) {
+                    metrics.addAllocatedSince(allocated);
+                    metrics.endTick();
+                }
+            }
+            for (SimulationListener listener : listeners) {
+                listener.simulationEnded(stepNumber - firstStep);
+            }
+        } finally {
+            if (pool != null && pool != sharedPool) {
+                pool.shutdown();
+            }
+            pool = null;
         }
     }
 
     /**
-     * Getter for stepNumber.
+     * Adds the time elapsed since a mark to a phase of the current tick, if profiling.
      *
-     * @return The current step number.
+     * @param phase The phase that just ended.
+     * @param start The mark taken when the phase started.
+     * @return The mark of the start of the next phase, 0 when not profiling.
      */
-    public int getStepNumber() {
+    private long lap(Phase phase, long start) {
 
-        return this.stepNumber;
+        return profiler == null ? 0 : profiler.record(phase, start);
+    }
+
+    /**
+     * Sizes the signal columns of the robot stores for every label interned so far, on the simulation thread,
+     * so that committing the robots in parallel never grows a store. Labels first interned while the robots
+     * were stepped are covered, since no label is interned during the commit phase.
+     */
+    private void reserveSignals() {
+        for (int i = 0; i < environments.size(); i++) {
+            Environment environment = environments.get(i);
+            environment.getRobotStore().reserveSignals(environment.getLabels().size());
+        }
     }
+
     /**
-     * Checks if all robots have completed their commands.
+     * Builds the active set from the robots that have commands to run and commits the state of every robot.
+     * The environments of the robots are given the profiler of the run.
+     */
+    private void activateRobots() {
+        activeRobots.clear();
+        environments.clear();
+        for (Robot robot : robots) {
+            if (!environments.contains(robot.getEnvironment())) {
+                environments.add(robot.getEnvironment());
+            }
+            robot.getEnvironment().setProfiler(profiler);
+            robot.getEnvironment().setMetrics(metrics);
+            robot.commitState();
+            robot.resetAreaTransitions();
+            robot.getEnvironment().updateRobotIndex(robot);
+            if (robot.hasPendingCommands()) {
+                activeRobots.add(robot);
+            }
+        }
+        if (activeRobots.isEmpty() && !robots.isEmpty()) {
+            for (SimulationListener listener : listeners) {
+                listener.allRobotsCompleted(stepNumber);
+            }
+        }
+    }
+
+    /**
+     * Reports to the listeners the commands completed during a tick, the areas entered and left,
+     * and the state of the stepped robots.
+     * Robots track their own area transitions while they move, so only the robots that crossed an area
+     * boundary add to the cost of the report.
      *
-     * @return True if all robots have completed their commands, false otherwise.
+     * @param step The number of the tick.
      */
-    private boolean haveAllRobotsCompletedCommands() {
-        return robots.stream()
-                .allMatch(robot -> robot.getCurrentCommandIndex() >= robot.getCommands().size());
+    private void reportTick(int step) {
+        transitions.clear();
+        for (int i = 0; i < activeRobots.size(); i++) {
+            Robot robot = activeRobots.get(i);
+            RobotCommand completed = robot.getLastCompletedCommand();
+            if (completed != null) {
+                for (int j = 0; j < listeners.size(); j++) {
+                    listeners.get(j).commandCompleted(step, robot.getId(), completed);
+                }
+            }
+            if (robot.hasAreaTransitions()) {
+                reportedRobot = robot.getId();
+                robot.drainAreaTransitions(addEntry, addExit);
+            }
+        }
+        if (transitions.size() > 0) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).areaTransitions(step, transitions);
+            }
+        }
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).robotStates(step, activeStates);
+        }
     }
 
     /**
-     * Executes the commands for a given robot based on the time step.
+     * Removes from the active set the robots whose command index ran past the end of their program.
+     * Their final state is committed, since they take no part in later commits.
      *
-     * @param robot The robot to execute commands on.
-     * @param dt    The time step in seconds.
+     * @param step The number of the current tick.
      */
-    private void executeRobotCommands(Robot robot, double dt) {
-        if (robot.getCurrentCommandIndex() < robot.getCommands().size()) {
-            RobotCommand command = robot.getCommands().get(robot.getCurrentCommandIndex());
+    private void retireCompletedRobots(int step) {
+        boolean wereActive = !activeRobots.isEmpty();
+        activeRobots.removeIf(robot -> {
+            if (robot.hasPendingCommands()) {
+                return false;
+            }
+            robot.commitState();
+            robot.getEnvironment().updateRobotIndex(robot);
+            return true;
+        });
+        if (wereActive && activeRobots.isEmpty()) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).allRobotsCompleted(step);
+            }
+        }
+    }
 
-            // Execute different types of commands
-            if (command instanceof UntilCommand untilCommand) {
-                executeUntilCommand(robot, untilCommand, dt);
-            } else if (command instanceof RepeatCommand repeatCommand) {
-                executeRepeatCommand(robot, repeatCommand, dt);
-            } else if (command instanceof ForeverCommand) {
-                executeForeverCommand(robot, command, dt);
-            } else if (command instanceof TimedCommand timedCommand) {
-                executeTimedCommand(robot, timedCommand, dt);
-            } else {
-                executeRegularCommand(robot, command, dt);
+    /**
+     * Moves the active robots to their committed positions in the grids of their environments.
+     * Grids are not thread-safe, so this runs on the simulation thread; robots that stay in the
+     * same cell only cost a cell computation.
+     */
+    private void updateRobotIndexes() {
+        for (int i = 0; i < activeRobots.size(); i++) {
+            Robot robot = activeRobots.get(i);
+            robot.getEnvironment().updateRobotIndex(robot);
+        }
+    }
+
+    /**
+     * Applies an action to every active robot, on the pool's workers when the simulation runs in parallel.
+     * The action must only modify the robot it is given.
+     *
+     * @param action   The action to apply to each active robot.
+     * @param rangeEnd The action run by each thread once it has applied the action to its range of robots,
+     *                 or null if none.
+     */
+    private void forEachActiveRobot(Consumer<Robot> action, Runnable rangeEnd) {
+        if (pool == null) {
+            activeRobots.forEach(action);
+            if (rangeEnd != null) {
+                rangeEnd.run();
             }
+        } else {
+            int threshold = Math.max(1, activeRobots.size() / (pool.getParallelism() * 8));
+            pool.invoke(new RobotRangeTask(activeRobots, 0, activeRobots.size(), threshold, action, rangeEnd,
+                    metrics));
         }
     }
 
     /**
-     * Executes the UntilCommand for the robot.
+     * Runs one tick of a robot, batching it with the other straight-line ticks of the current thread
+     * when an integrator is set, and notes it for the command tally while recording.
      *
-     * @param robot        The robot to execute commands on.
-     * @param untilCommand The UntilCommand to execute.
-     * @param dt           The time step in seconds.
+     * @param robot The robot to step by the time step of the run.
      */
-    private void executeUntilCommand(Robot robot, UntilCommand untilCommand, double dt) {
-        System.out.println("Executing command: UntilCommand");
-        untilCommand.execute(robot, dt);
+    private void stepRobot(Robot robot) {
+        if (batches == null) {
+            robot.runProgram(stepDt);
+        } else {
+            batches.get().step(robot, stepDt);
+        }
+        if (recordingCommands) {
+            commandBatches.stepped(robot);
+        }
+    }
 
-        // Check if UntilCommand is completed
-        if (untilCommand.isCompleted()) {
-            System.out.println("UntilCommand completed.");
-            robot.incrementCommandIndex();
+    /**
+     * Integrates the straight-line ticks batched by the current thread and completes them, then tallies
+     * the commands of the robots the thread stepped if a recording collects them.
+     */
+    private void flushBatch() {
+        if (batches != null) {
+            batches.get().flush(stepDt);
+        }
+        if (recordingCommands) {
+            commandBatches.rangeEnded();
         }
     }
 
     /**
-     * Executes the RepeatCommand for the robot.
+     * Attaches a listener receiving the events of the next runs.
      *
-     * @param robot         The robot to execute commands on.
-     * @param repeatCommand The RepeatCommand to execute.
-     * @param dt            The time step in seconds.
+     * @param listener The listener to attach.
      */
-    private void executeRepeatCommand(Robot robot, RepeatCommand repeatCommand, double dt) {
-        System.out.println("Executing command: RepeatCommand");
-        repeatCommand.execute(robot, dt);
+    @Override
+    public void addListener(SimulationListener listener) {
 
-        // Check if RepeatCommand is completed
-        if (repeatCommand.isCompleted()) {
-            System.out.println("RepeatCommand completed.");
-            robot.incrementCommandIndex();
-        }
+        listeners.add(listener);
     }
 
     /**
-     * Executes the ForeverCommand for the robot.
+     * Detaches a listener.
      *
-     * @param robot   The robot to execute commands on.
-     * @param command The ForeverCommand to execute.
-     * @param dt      The time step in seconds.
+     * @param listener The listener to detach.
      */
-    private void executeForeverCommand(Robot robot, RobotCommand command, double dt) {
-        System.out.println("Executing command: ForeverCommand");
-        command.execute(robot, dt);
-        // ForeverCommand repeats indefinitely, so it does not increment the command index
+    @Override
+    public void removeListener(SimulationListener listener) {
+
+        listeners.remove(listener);
     }
 
     /**
-     * Executes the TimedCommand for the robot.
+     * Sets whether the simulation ends before the given time once every robot has completed its commands.
      *
-     * @param robot        The robot to execute commands on.
-     * @param timedCommand The TimedCommand to execute.
-     * @param dt           The time step in seconds.
+     * @param stopWhenAllCompleted true to end the run early, false to always simulate the whole time.
      */
-    private void executeTimedCommand(Robot robot, TimedCommand timedCommand, double dt) {
-        System.out.println("Executing command: " + timedCommand.getClass().getSimpleName());
-        timedCommand.execute(robot, dt);
+    @Override
+    public void setStopWhenAllCompleted(boolean stopWhenAllCompleted) {
 
-        // Update the elapsed time after command execution
-        double elapsedTime = robot.getTimedCommandTime();
+        this.stopWhenAllCompleted = stopWhenAllCompleted;
+    }
 
-        // Check if the command is completed after execution
-        if (timedCommand.isCompleted(elapsedTime)) {
-            System.out.println("TimedCommand completed.");
-            robot.incrementCommandIndex();
-            robot.resetTimedCommandTime();
+    /**
+     * Returns the number of robots that still have commands to run.
+     *
+     * @return The size of the active set.
+     */
+    public int getActiveRobotCount() {
+
+        return activeRobots.size();
+    }
+
+    /**
+     * Sets the number of threads stepping the robots; 1 steps them sequentially on the calling thread.
+     *
+     * @param parallelism The number of threads.
+     * @throws IllegalArgumentException if the number of threads is not positive.
+     */
+    @Override
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be a positive number.");
         }
+        this.parallelism = parallelism;
     }
 
     /**
-     * Executes a regular command for the robot.
+     * Sets a pool stepping the robots of every following run, in place of the pool each run creates and
+     * shuts down when the parallelism is above 1. The pool is never shut down by the simulator, so callers
+     * running many short simulations, such as benchmarks, pay for its threads only once.
+     * It must be set between runs.
      *
-     * @param robot   The robot to execute commands on.
-     * @param command The regular command to execute.
-     * @param dt      The time step in seconds.
+     * @param pool The pool, or null to go back to the parallelism of {@link #setParallelism(int)}.
      */
-    private void executeRegularCommand(Robot robot, RobotCommand command, double dt) {
-        System.out.println("Executing command: " + command.getClass().getSimpleName());
-        command.execute(robot, dt);
-        robot.incrementCommandIndex();
-        System.out.println("Command " + command.getClass().getSimpleName() + " completed.");
+    public void setPool(ForkJoinPool pool) {
+
+        this.sharedPool = pool;
     }
 
     /**
-     * Prints information about the robot's state in the simulation.
+     * Sets whether the simulation runs headless, without waiting between ticks.
      *
-     * @param robot       The robot for which to print the information.
-     * @param stepNumber  The current step number in the simulation.
+     * @param headless true to advance ticks as fast as possible, false to pace them in real time.
      */
-    private void printRobotInfo(Robot robot, int stepNumber) {
-        System.out.println("--------------------------------------------------");
-        System.out.println("Step " + (stepNumber + 1) + ": Current state of the robot:"); // Increment stepNumber by 1
-        System.out.println(robot); // Use the toString() method of the Robot class
-        System.out.println();
-        System.out.println("--------------------------------------------------");
+    @Override
+    public void setHeadless(boolean headless) {
+
+        this.headless = headless;
     }
 
+    /**
+     * Sets the pace of a non-headless simulation as a multiple of real time.
+     *
+     * @param realTimeFactor Simulated seconds per wall-clock second.
+     * @throws IllegalArgumentException if the factor is not a positive finite number.
+     */
+    @Override
+    public void setRealTimeFactor(double realTimeFactor) {
+        TickPacer.checkRealTimeFactor(realTimeFactor);
+        this.realTimeFactor = realTimeFactor;
+    }
 
     /**
-     * Prints initial information about the robots' states.
-     * This method displays the initial state of each robot randomly placed in the simulation.
+     * Sets the profiler recording the time of the phases of the ticks of the next runs.
+     *
+     * @param profiler The profiler, or null to stop profiling.
      */
-    private void printInitialRobotInfo() {
-        System.out.println("--------------------------------------------------");
-        for (Robot robot : robots) {
-            System.out.println("Initial state of the robot randomly placed");
-            System.out.println("--------------------------------------------------");
-            System.out.println("Step 0: Initial state of the robot:");
-            System.out.println(robot); // Use the toString() method of the Robot class for each robot
-            System.out.println();
-            System.out.println("--------------------------------------------------");
-        }
+    public void setProfiler(TickProfiler profiler) {
+
+        this.profiler = profiler;
+    }
+
+    /**
+     * Returns the profiler recording the time of the phases of the ticks.
+     *
+     * @return The profiler, or null when not profiling.
+     */
+    public TickProfiler getProfiler() {
+
+        return profiler;
+    }
+
+    /**
+     * Sets the kernel integrating in bulk the ticks that only move a robot in a straight line, such as
+     * a running CONTINUE or a MOVE. Every integrator gives the same results as stepping the robots one by one.
+     * It must be set between runs.
+     *
+     * @param integrator The integrator, or null to step every robot on its own.
+     */
+    public void setPositionIntegrator(PositionIntegrator integrator) {
+        this.integrator = integrator;
+        this.batches = integrator == null ? null : ThreadLocal.withInitial(() -> new KinematicBatch(integrator));
+    }
+
+    /**
+     * Returns the kernel integrating the straight-line ticks; by default, {@link PositionIntegrator#preferred()}.
+     *
+     * @return The integrator, or null when every robot is stepped on its own.
+     */
+    public PositionIntegrator getPositionIntegrator() {
+
+        return integrator;
+    }
+
+    /**
+     * Sets the registry counting the work and the allocations of the ticks of the next runs.
+     *
+     * @param metrics The registry, or null to stop counting.
+     */
+    public void setMetrics(SimulationMetrics metrics) {
+
+        this.metrics = metrics;
     }
 
+    /**
+     * Returns the registry counting the work and the allocations of the ticks.
+     *
+     * @return The registry, or null when not counting.
+     */
+    public SimulationMetrics getMetrics() {
+
+        return metrics;
+    }
+
+    /**
+     * Captures the state of the simulation. It must be called between two ticks, for instance
+     * from {@link SimulationListener#tickEnded(int)}, or between two runs.
+     *
+     * @return The checkpoint of the simulation.
+     */
+    public Checkpoint checkpoint() {
+        Environment environment = robots.isEmpty() ? new Environment() : robots.get(0).getEnvironment();
+        return Checkpoint.capture(stepNumber, robots, environment);
+    }
+
+    /**
+     * Restores the state captured in a checkpoint, so that the next run continues from the captured step.
+     * The simulated robots must run the same programs as the captured ones.
+     *
+     * @param checkpoint The checkpoint to restore.
+     * @throws IllegalArgumentException if the robots or their environment do not match the checkpoint.
+     */
+    public void restore(Checkpoint checkpoint) {
+        Environment environment = robots.isEmpty() ? new Environment() : robots.get(0).getEnvironment();
+        checkpoint.restore(robots, environment);
+        stepNumber = checkpoint.getStep();
+    }
+
+    /**
+     * Getter for stepNumber.
+     *
+     * @return The current step number.
+     */
+    public int getStepNumber() {
+
+        return this.stepNumber;
+    }
 }
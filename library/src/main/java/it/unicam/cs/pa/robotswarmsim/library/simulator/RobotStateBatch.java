@@ -0,0 +1,74 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelSet;
+
+/**
+ * This interface is a read-only view over the state of a group of robots at one step.
+ * Robots are addressed by their index in the batch, from 0 to {@link #size()} excluded; label sets hold
+ * ids of the {@link it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry} and must not be modified.
+ */
+public interface RobotStateBatch {
+
+    /**
+     * Returns the number of robots in the batch.
+     *
+     * @return The size of the batch.
+     */
+    int size();
+
+    /**
+     * Returns the id of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The id of the robot.
+     */
+    int getId(int index);
+
+    /**
+     * Returns the x-coordinate of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The x-coordinate.
+     */
+    double getX(int index);
+
+    /**
+     * Returns the y-coordinate of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The y-coordinate.
+     */
+    double getY(int index);
+
+    /**
+     * Returns the heading of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The direction in degrees.
+     */
+    double getHeading(int index);
+
+    /**
+     * Returns the speed of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The speed in meters per second.
+     */
+    double getSpeed(int index);
+
+    /**
+     * Returns the active signals of a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The label ids of the signals.
+     */
+    LabelSet getSignals(int index);
+
+    /**
+     * Returns the labels of the areas containing a robot of the batch.
+     *
+     * @param index The index of the robot in the batch.
+     * @return The label ids of the areas.
+     */
+    LabelSet getAreas(int index);
+}
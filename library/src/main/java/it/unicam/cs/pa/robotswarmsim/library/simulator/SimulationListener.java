@@ -0,0 +1,84 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RobotCommand;
+
+/**
+ * This interface receives the events of a simulation run.
+ * Every method has an empty default, so listeners only implement the events they need.
+ * Events are delivered on the simulation thread, in order, between the parallel phases of a tick;
+ * the batches they carry are only valid until the method returns.
+ * Ticks are numbered from 1; step 0 is the initial state.
+ */
+public interface SimulationListener {
+
+    /**
+     * Called once before the first tick with the initial state of every robot.
+     *
+     * @param dt           The time step in seconds.
+     * @param initialState The state of every robot at step 0.
+     */
+    default void simulationStarted(double dt, RobotStateBatch initialState) {
+    }
+
+    /**
+     * Called when a tick starts, before any robot is stepped.
+     *
+     * @param step The number of the tick.
+     */
+    default void tickStarted(int step) {
+    }
+
+    /**
+     * Called for every command completed during a tick, in the order of the robots.
+     *
+     * @param step    The number of the tick.
+     * @param robotId The id of the robot that completed the command.
+     * @param command The completed command.
+     */
+    default void commandCompleted(int step, int robotId, RobotCommand command) {
+    }
+
+    /**
+     * Called after the robots have been stepped if some of them entered or left areas during the tick,
+     * with one transition per robot and area label. Transitions are reported in the order of the robots,
+     * entries before exits for each robot.
+     *
+     * @param step        The number of the tick.
+     * @param transitions The area transitions of the tick.
+     */
+    default void areaTransitions(int step, AreaTransitionBatch transitions) {
+    }
+
+    /**
+     * Called after the robots have been stepped with the state of every robot stepped during the tick.
+     *
+     * @param step   The number of the tick.
+     * @param states The state of the stepped robots at the end of the tick.
+     */
+    default void robotStates(int step, RobotStateBatch states) {
+    }
+
+    /**
+     * Called when a tick ends.
+     *
+     * @param step The number of the tick.
+     */
+    default void tickEnded(int step) {
+    }
+
+    /**
+     * Called once when no robot has commands left to run.
+     *
+     * @param step The tick during which the last robot completed its program, 0 if no robot had any command.
+     */
+    default void allRobotsCompleted(int step) {
+    }
+
+    /**
+     * Called once after the last tick of the run.
+     *
+     * @param steps The number of ticks simulated.
+     */
+    default void simulationEnded(int steps) {
+    }
+}
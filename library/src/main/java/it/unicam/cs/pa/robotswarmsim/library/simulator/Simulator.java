@@ -13,4 +13,52 @@ public interface Simulator {
      * @param time The total simulation time in seconds.
      */
     void simulate(double dt, double time);
+
+    /**
+     * Sets whether the simulation runs headless, advancing ticks as fast as possible
+     * instead of waiting for the wall clock. The time step keeps its meaning of simulated seconds.
+     *
+     * @param headless true to run without waiting between ticks, false to pace ticks in real time.
+     */
+    void setHeadless(boolean headless);
+
+    /**
+     * Sets the pace of a non-headless simulation as a multiple of real time:
+     * 1 runs in real time, 10 ten times faster, 0.5 at half speed.
+     *
+     * @param realTimeFactor Simulated seconds per wall-clock second.
+     * @throws IllegalArgumentException if the factor is not a positive finite number.
+     */
+    void setRealTimeFactor(double realTimeFactor);
+
+    /**
+     * Sets the number of threads used to step the robots within a tick.
+     * Robots observe each other through the state committed at the previous tick,
+     * so the outcome does not depend on the number of threads.
+     *
+     * @param parallelism The number of threads, 1 to step the robots sequentially.
+     * @throws IllegalArgumentException if the number of threads is not positive.
+     */
+    void setParallelism(int parallelism);
+
+    /**
+     * Sets whether the simulation may end before the requested time once every robot has completed its commands.
+     *
+     * @param stopWhenAllCompleted true to end the run as soon as no robot has commands left to run.
+     */
+    void setStopWhenAllCompleted(boolean stopWhenAllCompleted);
+
+    /**
+     * Attaches a listener receiving the events of the simulation, such as ticks, completed commands and robot states.
+     *
+     * @param listener The listener to attach.
+     */
+    void addListener(SimulationListener listener);
+
+    /**
+     * Detaches a listener previously attached with {@link #addListener(SimulationListener)}.
+     *
+     * @param listener The listener to detach.
+     */
+    void removeListener(SimulationListener listener);
 }
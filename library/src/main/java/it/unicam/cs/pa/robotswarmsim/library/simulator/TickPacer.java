@@ -0,0 +1,89 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class paces the ticks of a simulation against the wall clock.
+ * A pacer either waits so that each tick of dt simulated seconds lasts dt / realTimeFactor
+ * wall-clock seconds, or, when headless, does not wait at all.
+ * Deadlines are computed from the start of the run, so sleeping inaccuracies do not accumulate.
+ */
+public class TickPacer {
+
+    private final long nanosPerTick; // Wall-clock duration of a tick, 0 when headless
+    private long startNanos;
+
+    private TickPacer(long nanosPerTick) {
+
+        this.nanosPerTick = nanosPerTick;
+    }
+
+    /**
+     * Creates a pacer that never waits, advancing ticks as fast as the CPU allows.
+     *
+     * @return A headless pacer.
+     */
+    public static TickPacer headless() {
+
+        return new TickPacer(0);
+    }
+
+    /**
+     * Creates a pacer that runs the simulation at the given multiple of real time.
+     *
+     * @param dt             The time step in simulated seconds.
+     * @param realTimeFactor How many simulated seconds elapse per wall-clock second (e.g. 10 or 0.5).
+     * @return A real-time pacer.
+     * @throws IllegalArgumentException if the real-time factor is not a positive finite number.
+     */
+    public static TickPacer realTime(double dt, double realTimeFactor) {
+        checkRealTimeFactor(realTimeFactor);
+        return new TickPacer((long) (dt * TimeUnit.SECONDS.toNanos(1) / realTimeFactor));
+    }
+
+    /**
+     * Checks that a real-time factor is a positive finite number.
+     *
+     * @param realTimeFactor The factor to check.
+     * @throws IllegalArgumentException if the factor is not a positive finite number.
+     */
+    static void checkRealTimeFactor(double realTimeFactor) {
+        if (!(realTimeFactor > 0) || Double.isInfinite(realTimeFactor)) {
+            throw new IllegalArgumentException("Real-time factor must be a positive number.");
+        }
+    }
+
+    /**
+     * Checks whether this pacer never waits.
+     *
+     * @return true if the pacer is headless, false otherwise.
+     */
+    public boolean isHeadless() {
+
+        return nanosPerTick == 0;
+    }
+
+    /**
+     * Marks the beginning of the run; deadlines of later ticks are relative to this instant.
+     */
+    public void start() {
+
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Waits until the given number of ticks is due since {@link #start()}.
+     *
+     * @param ticks The number of ticks that should have elapsed when this method returns.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void awaitTicks(long ticks) throws InterruptedException {
+        if (isHeadless()) {
+            return;
+        }
+        long remaining = startNanos + ticks * nanosPerTick - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+}
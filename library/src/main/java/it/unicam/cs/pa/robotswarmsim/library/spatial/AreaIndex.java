@@ -0,0 +1,302 @@
+package it.unicam.cs.pa.robotswarmsim.library.spatial;
+
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Area;
+import it.unicam.cs.pa.robotswarmsim.library.area.Bounds;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * This class is an immutable bounding volume hierarchy over the bounding boxes of a set of areas.
+ * Each node stores the box enclosing its subtree; a point lookup only descends into the nodes whose box
+ * contains the point and only runs {@link Area#contains} on the areas of the leaves it reaches.
+ * The tree is built top-down by splitting the areas at the median of their box centers along the widest axis,
+ * and is stored in flat arrays. Areas without finite bounds are kept aside and tested on every lookup.
+ * Instances are immutable and can be queried from any number of threads.
+ */
+public final class AreaIndex {
+
+    private static final int LEAF_SIZE = 4; // Maximum number of areas in a leaf
+    private static final int NONE = -1; // Marks a leaf in the child columns
+
+    private final Area[] areas; // Indexed areas, ordered so that every leaf covers a contiguous range
+    private final Bounds[] areaBounds; // Bounds of the indexed areas, in the same order
+    private final int[] areaLabels; // Label ids of the indexed areas, in the same order
+    private final Area[] unbounded; // Areas without finite bounds, tested on every lookup
+    private final int[] unboundedLabels; // Label ids of the areas without finite bounds
+
+    // Node columns, indexed by node; node 0 is the root
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+    private final int[] left; // First child, or NONE for a leaf
+    private final int[] right; // Second child, or NONE for a leaf
+    private final int[] start; // First area of a leaf
+    private final int[] end; // End (exclusive) of the areas of a leaf
+    private int nodeCount = 0;
+
+    /**
+     * Builds the index over the given areas.
+     *
+     * @param areas  The areas to index.
+     * @param labels The registry in which the labels of the areas are interned.
+     */
+    public AreaIndex(List<? extends Area> areas, LabelRegistry labels) {
+        List<Area> bounded = new ArrayList<>();
+        List<Area> others = new ArrayList<>();
+        for (Area area : areas) {
+            Bounds bounds = area.getBounds();
+            if (Double.isFinite(bounds.minX()) && Double.isFinite(bounds.minY())
+                    && Double.isFinite(bounds.maxX()) && Double.isFinite(bounds.maxY())) {
+                bounded.add(area);
+            } else {
+                others.add(area);
+            }
+        }
+        this.areas = bounded.toArray(new Area[0]);
+        this.unbounded = others.toArray(new Area[0]);
+
+        this.areaBounds = new Bounds[this.areas.length];
+        for (int i = 0; i < areaBounds.length; i++) {
+            areaBounds[i] = this.areas[i].getBounds();
+        }
+
+        int capacity = Math.max(1, 2 * this.areas.length);
+        minX = new double[capacity];
+        minY = new double[capacity];
+        maxX = new double[capacity];
+        maxY = new double[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        start = new int[capacity];
+        end = new int[capacity];
+        if (this.areas.length > 0) {
+            build(0, this.areas.length);
+        }
+        this.areaLabels = internLabels(this.areas, labels);
+        this.unboundedLabels = internLabels(this.unbounded, labels);
+    }
+
+    /**
+     * Returns the number of indexed areas.
+     *
+     * @return The number of areas.
+     */
+    public int size() {
+
+        return areas.length + unbounded.length;
+    }
+
+    /**
+     * Visits every area containing the given point, in no particular order.
+     *
+     * @param point  The point.
+     * @param action The action receiving each area containing the point.
+     */
+    public void forEachContaining(Point point, Consumer<Area> action) {
+        if (nodeCount > 0) {
+            visit(0, point, action);
+        }
+        for (Area area : unbounded) {
+            if (area.contains(point)) {
+                action.accept(area);
+            }
+        }
+    }
+
+    /**
+     * Visits the label id of every area containing the given point, in no particular order.
+     * A label is visited once for each area containing the point.
+     *
+     * @param point  The point.
+     * @param action The action receiving the label id of each area containing the point.
+     * @return The number of exact containment tests run, after the bounding boxes were checked.
+     */
+    public int forEachLabelContaining(Point point, IntConsumer action) {
+
+        return forEachLabelContaining(point.x(), point.y(), action);
+    }
+
+    /**
+     * Visits the label id of every area containing the point with the given coordinates, in no particular order.
+     * A label is visited once for each area containing the point. No object is allocated.
+     *
+     * @param x      The x-coordinate of the point.
+     * @param y      The y-coordinate of the point.
+     * @param action The action receiving the label id of each area containing the point.
+     * @return The number of exact containment tests run, after the bounding boxes were checked.
+     */
+    public int forEachLabelContaining(double x, double y, IntConsumer action) {
+        int tests = nodeCount > 0 ? visitLabels(0, x, y, action) : 0;
+        for (int i = 0; i < unbounded.length; i++) {
+            if (unbounded[i].contains(x, y)) {
+                action.accept(unboundedLabels[i]);
+            }
+        }
+        return tests + unbounded.length;
+    }
+
+    /**
+     * Visits the label ids of the areas of a subtree containing the given point.
+     *
+     * @param node   The root of the subtree.
+     * @param x      The x-coordinate of the point.
+     * @param y      The y-coordinate of the point.
+     * @param action The action receiving the label id of each area containing the point.
+     * @return The number of exact containment tests run in the subtree.
+     */
+    private int visitLabels(int node, double x, double y, IntConsumer action) {
+        if (x < minX[node] || x > maxX[node] || y < minY[node] || y > maxY[node]) {
+            return 0;
+        }
+        if (left[node] != NONE) {
+            return visitLabels(left[node], x, y, action) + visitLabels(right[node], x, y, action);
+        }
+        int tests = 0;
+        for (int i = start[node]; i < end[node]; i++) {
+            if (areaBounds[i].contains(x, y)) {
+                tests++;
+                if (areas[i].contains(x, y)) {
+                    action.accept(areaLabels[i]);
+                }
+            }
+        }
+        return tests;
+    }
+
+    /**
+     * Interns the labels of a list of areas.
+     *
+     * @param areas    The areas.
+     * @param registry The registry in which the labels are interned.
+     * @return The label ids of the areas, in the same order.
+     */
+    private static int[] internLabels(Area[] areas, LabelRegistry registry) {
+        int[] labels = new int[areas.length];
+        for (int i = 0; i < areas.length; i++) {
+            labels[i] = registry.intern(areas[i].getLabel());
+        }
+        return labels;
+    }
+
+    /**
+     * Visits the areas of a subtree containing the given point.
+     *
+     * @param node   The root of the subtree.
+     * @param point  The point.
+     * @param action The action receiving each area containing the point.
+     */
+    private void visit(int node, Point point, Consumer<Area> action) {
+        double x = point.x();
+        double y = point.y();
+        if (x < minX[node] || x > maxX[node] || y < minY[node] || y > maxY[node]) {
+            return;
+        }
+        if (left[node] == NONE) {
+            for (int i = start[node]; i < end[node]; i++) {
+                if (areaBounds[i].contains(x, y) && areas[i].contains(point)) {
+                    action.accept(areas[i]);
+                }
+            }
+        } else {
+            visit(left[node], point, action);
+            visit(right[node], point, action);
+        }
+    }
+
+    /**
+     * Builds the subtree over a range of areas, reordering them so that each child covers a contiguous range.
+     *
+     * @param from The first area of the range.
+     * @param to   The end (exclusive) of the range.
+     * @return The index of the root of the subtree.
+     */
+    private int build(int from, int to) {
+        int node = nodeCount++;
+        double nodeMinX = Double.POSITIVE_INFINITY;
+        double nodeMinY = Double.POSITIVE_INFINITY;
+        double nodeMaxX = Double.NEGATIVE_INFINITY;
+        double nodeMaxY = Double.NEGATIVE_INFINITY;
+        double centerMinX = Double.POSITIVE_INFINITY;
+        double centerMinY = Double.POSITIVE_INFINITY;
+        double centerMaxX = Double.NEGATIVE_INFINITY;
+        double centerMaxY = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            Bounds box = areaBounds[i];
+            nodeMinX = Math.min(nodeMinX, box.minX());
+            nodeMinY = Math.min(nodeMinY, box.minY());
+            nodeMaxX = Math.max(nodeMaxX, box.maxX());
+            nodeMaxY = Math.max(nodeMaxY, box.maxY());
+            double centerX = centerX(box);
+            double centerY = centerY(box);
+            centerMinX = Math.min(centerMinX, centerX);
+            centerMinY = Math.min(centerMinY, centerY);
+            centerMaxX = Math.max(centerMaxX, centerX);
+            centerMaxY = Math.max(centerMaxY, centerY);
+        }
+        minX[node] = nodeMinX;
+        minY[node] = nodeMinY;
+        maxX[node] = nodeMaxX;
+        maxY[node] = nodeMaxY;
+
+        if (to - from <= LEAF_SIZE) {
+            left[node] = NONE;
+            right[node] = NONE;
+            start[node] = from;
+            end[node] = to;
+            return node;
+        }
+
+        // Split at the median of the box centers along the axis where they spread the most
+        Comparator<Integer> byCenter = centerMaxX - centerMinX >= centerMaxY - centerMinY
+                ? Comparator.comparingDouble(i -> centerX(areaBounds[i]))
+                : Comparator.comparingDouble(i -> centerY(areaBounds[i]));
+        Integer[] order = new Integer[to - from];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = from + i;
+        }
+        Arrays.sort(order, byCenter);
+        Area[] sortedAreas = new Area[order.length];
+        Bounds[] sortedBounds = new Bounds[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedAreas[i] = areas[order[i]];
+            sortedBounds[i] = areaBounds[order[i]];
+        }
+        System.arraycopy(sortedAreas, 0, areas, from, order.length);
+        System.arraycopy(sortedBounds, 0, areaBounds, from, order.length);
+
+        int middle = from + (to - from) / 2;
+        left[node] = build(from, middle);
+        right[node] = build(middle, to);
+        return node;
+    }
+
+    /**
+     * Returns the x-coordinate of the center of a box.
+     *
+     * @param box The box.
+     * @return The x-coordinate of its center.
+     */
+    private static double centerX(Bounds box) {
+
+        return box.minX() / 2 + box.maxX() / 2;
+    }
+
+    /**
+     * Returns the y-coordinate of the center of a box.
+     *
+     * @param box The box.
+     * @return The y-coordinate of its center.
+     */
+    private static double centerY(Bounds box) {
+
+        return box.minY() / 2 + box.maxY() / 2;
+    }
+}
@@ -0,0 +1,343 @@
+package it.unicam.cs.pa.robotswarmsim.library.spatial;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * This class is a uniform grid (spatial hash) over the positions of robots identified by integer ids.
+ * The plane is divided into square cells; each non-empty cell keeps a doubly linked list of the robots
+ * it contains, so that moving a robot to another cell costs O(1) and a range query only visits
+ * the cells overlapping the search circle.
+ * Cells are stored in an open-addressing hash table, so the plane does not need to be bounded.
+ * Instances are not thread-safe: updates must not run concurrently with each other or with queries.
+ */
+public class SpatialGrid {
+
+    private static final int NONE = -1; // Marks the end of a list or an absent robot
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final double cellSize;
+
+    // Per-robot columns, indexed by robot id
+    private double[] xs = new double[INITIAL_CAPACITY]; // Indexed x-coordinate
+    private double[] ys = new double[INITIAL_CAPACITY]; // Indexed y-coordinate
+    private long[] cellOf = new long[INITIAL_CAPACITY]; // Key of the cell containing the robot
+    private int[] next = new int[INITIAL_CAPACITY]; // Next robot in the same cell
+    private int[] previous = new int[INITIAL_CAPACITY]; // Previous robot in the same cell
+    private boolean[] indexed = new boolean[INITIAL_CAPACITY]; // Whether the robot is in the grid
+    private int count = 0; // Number of robots in the grid
+
+    // Open-addressing table from cell keys to the first robot of the cell
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] heads = new int[INITIAL_CAPACITY];
+    private boolean[] slotUsed = new boolean[INITIAL_CAPACITY];
+    private int usedSlots = 0;
+    // Spare table of the same capacity, swapped in by a rehash that does not grow the table
+    private long[] spareKeys;
+    private int[] spareHeads;
+    private boolean[] spareSlotUsed;
+
+    /**
+     * Creates an empty grid.
+     *
+     * @param cellSize The side of a cell; range queries are cheapest when it is close to the query range.
+     * @throws IllegalArgumentException if the cell size is not a positive finite number.
+     */
+    public SpatialGrid(double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException("Cell size must be a positive number.");
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Returns the side of a cell.
+     *
+     * @return The cell size.
+     */
+    public double getCellSize() {
+
+        return cellSize;
+    }
+
+    /**
+     * Returns the number of robots in the grid.
+     *
+     * @return The number of indexed robots.
+     */
+    public int size() {
+
+        return count;
+    }
+
+    /**
+     * Checks whether a robot is in the grid.
+     *
+     * @param id The robot id.
+     * @return true if the robot has been inserted, false otherwise.
+     */
+    public boolean contains(int id) {
+
+        return id >= 0 && id < indexed.length && indexed[id];
+    }
+
+    /**
+     * Inserts a robot at the given position, or moves it there if it is already in the grid.
+     *
+     * @param id The robot id, a non-negative integer.
+     * @param x  The x-coordinate of the robot.
+     * @param y  The y-coordinate of the robot.
+     */
+    public void insert(int id, double x, double y) {
+        if (contains(id)) {
+            move(id, x, y);
+            return;
+        }
+        ensureRobotCapacity(id + 1);
+        xs[id] = x;
+        ys[id] = y;
+        indexed[id] = true;
+        count++;
+        link(id, cellKey(cellIndex(x), cellIndex(y)));
+    }
+
+    /**
+     * Updates the position of a robot already in the grid, relinking it only if it changed cell.
+     *
+     * @param id The robot id.
+     * @param x  The new x-coordinate of the robot.
+     * @param y  The new y-coordinate of the robot.
+     */
+    public void move(int id, double x, double y) {
+        xs[id] = x;
+        ys[id] = y;
+        long key = cellKey(cellIndex(x), cellIndex(y));
+        if (key != cellOf[id]) {
+            unlink(id);
+            link(id, key);
+        }
+    }
+
+    /**
+     * Visits every robot whose indexed position is within the given range of a point, in no particular order.
+     * Only the cells overlapping the search circle are scanned.
+     *
+     * @param x      The x-coordinate of the center of the search.
+     * @param y      The y-coordinate of the center of the search.
+     * @param range  The search radius.
+     * @param action The action receiving the id of each robot within range.
+     * @return The number of candidate robots examined in the scanned cells.
+     */
+    public int forEachWithinRange(double x, double y, double range, IntConsumer action) {
+        if (count == 0 || !(range >= 0)) {
+            return 0;
+        }
+        long minCellX = cellIndex(x - range);
+        long maxCellX = cellIndex(x + range);
+        long minCellY = cellIndex(y - range);
+        long maxCellY = cellIndex(y + range);
+        double cellsToVisit = ((double) maxCellX - minCellX + 1) * ((double) maxCellY - minCellY + 1);
+        int candidates = 0;
+        if (cellsToVisit > usedSlots) {
+            // The search circle covers more cells than are occupied: scan the occupied ones instead
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (slotUsed[slot]) {
+                    candidates += visitCell(heads[slot], x, y, range, action);
+                }
+            }
+            return candidates;
+        }
+        for (long cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (long cellY = minCellY; cellY <= maxCellY; cellY++) {
+                int slot = findSlot(cellKey(cellX, cellY));
+                if (slotUsed[slot]) {
+                    candidates += visitCell(heads[slot], x, y, range, action);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Visits the robots of a cell that are within range of a point.
+     *
+     * @param head   The first robot of the cell.
+     * @param x      The x-coordinate of the center of the search.
+     * @param y      The y-coordinate of the center of the search.
+     * @param range  The search radius.
+     * @param action The action receiving the id of each robot within range.
+     * @return The number of robots of the cell.
+     */
+    private int visitCell(int head, double x, double y, double range, IntConsumer action) {
+        int candidates = 0;
+        for (int id = head; id != NONE; id = next[id], candidates++) {
+            double dx = x - xs[id];
+            double dy = y - ys[id];
+            if (Math.sqrt(dx * dx + dy * dy) <= range) {
+                action.accept(id);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the index of the cell containing a coordinate along one axis.
+     *
+     * @param coordinate The coordinate.
+     * @return The cell index.
+     */
+    private long cellIndex(double coordinate) {
+
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * Packs the two indexes of a cell into a single key.
+     *
+     * @param cellX The index of the cell along the x-axis.
+     * @param cellY The index of the cell along the y-axis.
+     * @return The key of the cell.
+     */
+    private static long cellKey(long cellX, long cellY) {
+
+        return (cellX << 32) ^ (cellY & 0xffffffffL);
+    }
+
+    /**
+     * Adds a robot at the head of the list of a cell.
+     *
+     * @param id  The robot id.
+     * @param key The key of the cell.
+     */
+    private void link(int id, long key) {
+        int slot = findSlot(key);
+        if (!slotUsed[slot]) {
+            if ((usedSlots + 1) * 2 > keys.length) {
+                rehash();
+                slot = findSlot(key);
+            }
+            slotUsed[slot] = true;
+            keys[slot] = key;
+            heads[slot] = NONE;
+            usedSlots++;
+        }
+        int head = heads[slot];
+        cellOf[id] = key;
+        previous[id] = NONE;
+        next[id] = head;
+        if (head != NONE) {
+            previous[head] = id;
+        }
+        heads[slot] = id;
+    }
+
+    /**
+     * Removes a robot from the list of its cell. Emptied cells stay in the table until the next rehash.
+     *
+     * @param id The robot id.
+     */
+    private void unlink(int id) {
+        if (previous[id] != NONE) {
+            next[previous[id]] = next[id];
+        } else {
+            heads[findSlot(cellOf[id])] = next[id];
+        }
+        if (next[id] != NONE) {
+            previous[next[id]] = previous[id];
+        }
+    }
+
+    /**
+     * Finds the slot holding a cell key, or the empty slot where it would be inserted.
+     *
+     * @param key The key of the cell.
+     * @return The index of the slot.
+     */
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (slotUsed[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Spreads the bits of a cell key over an int hash.
+     *
+     * @param key The key of the cell.
+     * @return The hash of the key.
+     */
+    private static int mix(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Rebuilds the cell table, dropping empty cells and growing it if the occupied cells need more room.
+     * The table never shrinks, and a rebuild at the same capacity reuses the spare table, so robots wandering
+     * over new cells do not make the steady state allocate once the table has reached its largest size.
+     */
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        boolean[] oldUsed = slotUsed;
+        int occupied = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldUsed[slot] && oldHeads[slot] != NONE) {
+                occupied++;
+            }
+        }
+        int capacity = oldKeys.length;
+        while (capacity < (occupied + 1) * 4) {
+            capacity *= 2;
+        }
+        if (capacity == oldKeys.length && spareKeys != null) {
+            keys = spareKeys;
+            heads = spareHeads;
+            slotUsed = spareSlotUsed;
+            Arrays.fill(slotUsed, false);
+        } else {
+            keys = new long[capacity];
+            heads = new int[capacity];
+            slotUsed = new boolean[capacity];
+        }
+        if (capacity == oldKeys.length) {
+            spareKeys = oldKeys;
+            spareHeads = oldHeads;
+            spareSlotUsed = oldUsed;
+        } else {
+            spareKeys = null;
+            spareHeads = null;
+            spareSlotUsed = null;
+        }
+        usedSlots = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldUsed[slot] && oldHeads[slot] != NONE) {
+                int newSlot = findSlot(oldKeys[slot]);
+                slotUsed[newSlot] = true;
+                keys[newSlot] = oldKeys[slot];
+                heads[newSlot] = oldHeads[slot];
+                usedSlots++;
+            }
+        }
+    }
+
+    /**
+     * Grows the per-robot columns so that they can hold the given number of ids.
+     *
+     * @param capacity The minimum number of ids.
+     */
+    private void ensureRobotCapacity(int capacity) {
+        if (capacity <= xs.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, xs.length * 2);
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+        cellOf = Arrays.copyOf(cellOf, newCapacity);
+        next = Arrays.copyOf(next, newCapacity);
+        previous = Arrays.copyOf(previous, newCapacity);
+        indexed = Arrays.copyOf(indexed, newCapacity);
+    }
+}
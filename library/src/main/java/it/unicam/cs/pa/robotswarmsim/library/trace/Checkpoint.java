@@ -0,0 +1,533 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Area;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelSet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * This class is a snapshot of a whole simulation taken between two ticks: the step number, the areas of the
+ * environment and, for every robot, its position, heading, speed, signals, area labels, program counter,
+ * timed-command elapsed time, loop counters and the state of its random number stream.
+ * A robot list restored from a checkpoint continues the run bit-identically, provided its robots run the same
+ * programs as the captured ones.
+ * <p>
+ * Capturing only copies the state of the robots into flat columns, in parallel, so that it can run between two
+ * ticks; writing the columns to a file can then happen on another thread while the simulation goes on.
+ * <p>
+ * A checkpoint file holds, in little-endian order: the magic bytes, the format version, the size of the header,
+ * the step number, the number of robots, the number of 64-bit words of each label bitmask, the labels and the areas
+ * (laid out as in a trace header), then the x, y, heading, speed and timed-elapsed columns with one double per robot,
+ * the random state column with one long per robot, the command index and loop counter count columns with one int
+ * per robot, every loop counter of every robot in robot order, and the signal and area columns with one bitmask per
+ * robot.
+ */
+public final class Checkpoint {
+
+    private static final byte[] MAGIC = "RSWCHKPT".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int FIXED_HEADER_SIZE = 32; // Magic, version, header size, step, robots, label words
+    private static final int BUFFER_SIZE = 1 << 20; // Size of the buffer streaming the columns
+
+    private final int step; // Number of ticks run when the checkpoint was taken
+    private final List<String> labels; // Labels of the bitmasks, indexed by their id in the checkpoint
+    private final List<Area> areas; // Areas of the environment
+    private final int robotCount;
+    private final int labelWords; // Number of words of each label bitmask
+
+    // Robot columns, indexed by the position of the robot in the simulated list
+    private final double[] x;
+    private final double[] y;
+    private final double[] heading;
+    private final double[] speed;
+    private final double[] timedElapsed; // Elapsed time of the current timed command
+    private final long[] randomState; // State of the robot's random number stream
+    private final int[] commandIndex; // Program counter
+    private final int[] loopCounterCount; // Number of loop counters of the robot's program
+    private final int[] loopCounters; // Loop counters of every robot, in robot order
+    private final long[] signals; // Signal bitmasks, labelWords words per robot
+    private final long[] currentAreas; // Area label bitmasks, labelWords words per robot
+
+    private Checkpoint(int step, List<String> labels, List<Area> areas, int robotCount, int labelWords,
+                       double[] x, double[] y, double[] heading, double[] speed, double[] timedElapsed,
+                       long[] randomState, int[] commandIndex, int[] loopCounterCount, int[] loopCounters,
+                       long[] signals, long[] currentAreas) {
+        this.step = step;
+        this.labels = labels;
+        this.areas = areas;
+        this.robotCount = robotCount;
+        this.labelWords = labelWords;
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        this.speed = speed;
+        this.timedElapsed = timedElapsed;
+        this.randomState = randomState;
+        this.commandIndex = commandIndex;
+        this.loopCounterCount = loopCounterCount;
+        this.loopCounters = loopCounters;
+        this.signals = signals;
+        this.currentAreas = currentAreas;
+    }
+
+    /**
+     * Captures the state of a list of robots and of their areas. It must be called between two ticks,
+     * while no robot is being stepped.
+     *
+     * @param step        The number of ticks run so far.
+     * @param robots      The simulated robots.
+     * @param environment The environment of the robots, whose areas and labels are captured.
+     * @return The checkpoint.
+     */
+    public static Checkpoint capture(int step, List<Robot> robots, Environment environment) {
+        LabelRegistry registry = environment.getLabels();
+        List<Area> areas = environment.getAreas();
+        String[] names = new String[registry.size()];
+        Arrays.setAll(names, registry::getName);
+        List<String> labels = List.of(names);
+        int labelWords = Math.max(1, (labels.size() + Long.SIZE - 1) / Long.SIZE);
+        int n = robots.size();
+        Robot[] rows = robots.toArray(new Robot[0]);
+
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] heading = new double[n];
+        double[] speed = new double[n];
+        double[] timedElapsed = new double[n];
+        long[] randomState = new long[n];
+        int[] commandIndex = new int[n];
+        int[] loopCounterCount = new int[n];
+        long[] signals = new long[Math.multiplyExact(n, labelWords)];
+        long[] currentAreas = new long[signals.length];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            Robot robot = rows[i];
+            x[i] = robot.getX();
+            y[i] = robot.getY();
+            heading[i] = robot.getHeading();
+            speed[i] = robot.getSpeed();
+            timedElapsed[i] = robot.getTimedCommandTime();
+            randomState[i] = robot.getRandomState();
+            commandIndex[i] = robot.getCurrentCommandIndex();
+            loopCounterCount[i] = loopCounterCount(robot);
+            for (int word = 0; word < labelWords; word++) {
+                signals[i * labelWords + word] = robot.getSignals().getWord(word);
+                currentAreas[i * labelWords + word] = robot.getCurrentAreas().getWord(word);
+            }
+        });
+
+        int[] loopStarts = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            loopStarts[i + 1] = loopStarts[i] + loopCounterCount[i];
+        }
+        int[] loopCounters = new int[loopStarts[n]];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            for (int slot = 0; slot < loopCounterCount[i]; slot++) {
+                loopCounters[loopStarts[i] + slot] = rows[i].getLoopCounter(slot);
+            }
+        });
+        return new Checkpoint(step, labels, List.copyOf(areas), n, labelWords, x, y, heading, speed, timedElapsed,
+                randomState, commandIndex, loopCounterCount, loopCounters, signals, currentAreas);
+    }
+
+    /**
+     * Returns the number of loop counters of a robot.
+     *
+     * @param robot The robot.
+     * @return The number of loop counters of its program, 0 if it has no program.
+     */
+    private static int loopCounterCount(Robot robot) {
+
+        return robot.getProgram() == null ? 0 : robot.getProgram().getLoopCounterCount();
+    }
+
+    /**
+     * Writes the checkpoint to a file. The file is first written under a temporary name, then moved in place,
+     * so an interrupted write never replaces a previous checkpoint with a partial one.
+     *
+     * @param file The checkpoint file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[][] names = new byte[labels.size()][];
+            for (int id = 0; id < names.length; id++) {
+                names[id] = labels.get(id).getBytes(StandardCharsets.UTF_8);
+            }
+            int headerSize = FIXED_HEADER_SIZE + TraceFormat.labelsSize(names) + TraceFormat.areasSize(areas.size());
+            ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, headerSize)).order(TraceFormat.ORDER);
+            buffer.put(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(headerSize);
+            buffer.putLong(step);
+            buffer.putInt(robotCount);
+            buffer.putInt(labelWords);
+            TraceFormat.putLabels(buffer, names);
+            TraceFormat.putAreas(buffer, areas, labels::indexOf);
+
+            for (double[] column : List.of(x, y, heading, speed, timedElapsed)) {
+                putDoubles(channel, buffer, column);
+            }
+            putLongs(channel, buffer, randomState);
+            putInts(channel, buffer, commandIndex);
+            putInts(channel, buffer, loopCounterCount);
+            putInts(channel, buffer, loopCounters);
+            putLongs(channel, buffer, signals);
+            putLongs(channel, buffer, currentAreas);
+            drain(channel, buffer);
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a checkpoint file.
+     *
+     * @param file The checkpoint file.
+     * @return The checkpoint.
+     * @throws IOException if the file cannot be read or is not a valid checkpoint.
+     */
+    public static Checkpoint read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(TraceFormat.ORDER);
+            buffer.flip();
+            fill(channel, buffer, FIXED_HEADER_SIZE);
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a checkpoint file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported checkpoint version: " + version);
+            }
+            int headerSize = buffer.getInt();
+            long step = buffer.getLong();
+            int robotCount = buffer.getInt();
+            int labelWords = buffer.getInt();
+            if (headerSize < FIXED_HEADER_SIZE || step < 0 || step > Integer.MAX_VALUE || robotCount < 0
+                    || labelWords < 1) {
+                throw new IOException("Corrupted checkpoint header: " + file);
+            }
+            ByteBuffer header = ByteBuffer.allocate(headerSize - FIXED_HEADER_SIZE).order(TraceFormat.ORDER);
+            while (header.hasRemaining()) {
+                fill(channel, buffer, 1);
+                int count = Math.min(header.remaining(), buffer.remaining());
+                header.put(header.position(), buffer, buffer.position(), count);
+                header.position(header.position() + count);
+                buffer.position(buffer.position() + count);
+            }
+            header.flip();
+            List<String> labels;
+            List<Area> areas;
+            try {
+                labels = TraceFormat.getLabels(header);
+                areas = TraceFormat.getAreas(header, labels);
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupted checkpoint header: " + file, e);
+            }
+
+            double[] x = getDoubles(channel, buffer, robotCount);
+            double[] y = getDoubles(channel, buffer, robotCount);
+            double[] heading = getDoubles(channel, buffer, robotCount);
+            double[] speed = getDoubles(channel, buffer, robotCount);
+            double[] timedElapsed = getDoubles(channel, buffer, robotCount);
+            long[] randomState = getLongs(channel, buffer, robotCount);
+            int[] commandIndex = getInts(channel, buffer, robotCount);
+            int[] loopCounterCount = getInts(channel, buffer, robotCount);
+            long loopCounterTotal = 0;
+            for (int count : loopCounterCount) {
+                if (count < 0) {
+                    throw new IOException("Corrupted checkpoint: " + file);
+                }
+                loopCounterTotal += count;
+            }
+            if (loopCounterTotal > Integer.MAX_VALUE) {
+                throw new IOException("Corrupted checkpoint: " + file);
+            }
+            int[] loopCounters = getInts(channel, buffer, (int) loopCounterTotal);
+            long[] signals = getLongs(channel, buffer, Math.multiplyExact(robotCount, labelWords));
+            long[] currentAreas = getLongs(channel, buffer, Math.multiplyExact(robotCount, labelWords));
+            return new Checkpoint((int) step, labels, areas, robotCount, labelWords, x, y, heading, speed,
+                    timedElapsed, randomState, commandIndex, loopCounterCount, loopCounters, signals, currentAreas);
+        }
+    }
+
+    /**
+     * Restores the captured state into a list of robots running the same programs as the captured ones.
+     * If the environment has no areas yet, the captured areas are added to it; otherwise it must hold
+     * the same number of areas.
+     *
+     * @param robots      The robots to restore, in the order they were captured.
+     * @param environment The environment of the robots.
+     * @throws IllegalArgumentException if the robots or the environment do not match the checkpoint.
+     */
+    public void restore(List<Robot> robots, Environment environment) {
+        if (robots.size() != robotCount) {
+            throw new IllegalArgumentException("The checkpoint holds " + robotCount + " robots, not "
+                    + robots.size() + ".");
+        }
+        for (int i = 0; i < robotCount; i++) {
+            Robot robot = robots.get(i);
+            int programSize = robot.getProgram() == null ? 0 : robot.getProgram().size();
+            if (loopCounterCount(robot) != loopCounterCount[i] || commandIndex[i] < 0
+                    || commandIndex[i] > programSize) {
+                throw new IllegalArgumentException("Robot " + robot.getId()
+                        + " does not run the program of the checkpoint.");
+            }
+        }
+        if (environment.getAreas().isEmpty()) {
+            areas.forEach(environment::addArea);
+        } else if (environment.getAreas().size() != areas.size()) {
+            throw new IllegalArgumentException("The environment does not hold the areas of the checkpoint.");
+        }
+
+        int[] labelIds = new int[labels.size()];
+        for (int id = 0; id < labelIds.length; id++) {
+            labelIds[id] = environment.getLabels().intern(labels.get(id));
+        }
+        LabelSet robotSignals = new LabelSet();
+        LabelSet robotAreas = new LabelSet();
+        int loopStart = 0;
+        for (int i = 0; i < robotCount; i++) {
+            Robot robot = robots.get(i);
+            robot.setPosition(new Point(x[i], y[i]));
+            robot.setHeading(heading[i]);
+            robot.setSpeed(speed[i]);
+            robot.setCommandIndex(commandIndex[i]);
+            robot.setTimedCommandTime(timedElapsed[i]);
+            robot.setRandomState(randomState[i]);
+            for (int slot = 0; slot < loopCounterCount[i]; slot++) {
+                robot.setLoopCounter(slot, loopCounters[loopStart + slot]);
+            }
+            loopStart += loopCounterCount[i];
+            decodeLabels(signals, i, labelIds, robotSignals);
+            decodeLabels(currentAreas, i, labelIds, robotAreas);
+            robot.setLabels(robotSignals, robotAreas);
+        }
+    }
+
+    /**
+     * Decodes the bitmask of a robot, translating the label ids of the checkpoint to those of the environment.
+     *
+     * @param words        The bitmask column.
+     * @param row          The position of the robot.
+     * @param labelIds     The id in the environment of each label of the checkpoint.
+     * @param target       The set receiving the labels.
+     */
+    private void decodeLabels(long[] words, int row, int[] labelIds, LabelSet target) {
+        target.clear();
+        for (int word = 0; word < labelWords; word++) {
+            for (long remaining = words[row * labelWords + word]; remaining != 0; remaining &= remaining - 1) {
+                int id = word * Long.SIZE + Long.numberOfTrailingZeros(remaining);
+                if (id < labelIds.length) {
+                    target.add(labelIds[id]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of ticks run when the checkpoint was taken.
+     *
+     * @return The step number.
+     */
+    public int getStep() {
+
+        return step;
+    }
+
+    /**
+     * Returns the number of captured robots.
+     *
+     * @return The number of robots.
+     */
+    public int getRobotCount() {
+
+        return robotCount;
+    }
+
+    /**
+     * Returns the captured areas of the environment.
+     *
+     * @return An unmodifiable list of the areas.
+     */
+    public List<Area> getAreas() {
+
+        return areas;
+    }
+
+    /**
+     * Writes the buffered bytes to the channel and clears the buffer.
+     *
+     * @param channel The channel.
+     * @param buffer  The buffer, in write mode.
+     * @throws IOException if the bytes cannot be written.
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Streams a column of doubles to the channel through the buffer.
+     *
+     * @param channel The channel.
+     * @param buffer  The buffer, in write mode.
+     * @param values  The column.
+     * @throws IOException if the bytes cannot be written.
+     */
+    private static void putDoubles(FileChannel channel, ByteBuffer buffer, double[] values) throws IOException {
+        for (int i = 0; i < values.length; ) {
+            if (buffer.remaining() < Double.BYTES) {
+                drain(channel, buffer);
+            }
+            int count = Math.min(values.length - i, buffer.remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().put(values, i, count);
+            buffer.position(buffer.position() + count * Double.BYTES);
+            i += count;
+        }
+    }
+
+    /**
+     * Streams a column of longs to the channel through the buffer.
+     *
+     * @param channel The channel.
+     * @param buffer  The buffer, in write mode.
+     * @param values  The column.
+     * @throws IOException if the bytes cannot be written.
+     */
+    private static void putLongs(FileChannel channel, ByteBuffer buffer, long[] values) throws IOException {
+        for (int i = 0; i < values.length; ) {
+            if (buffer.remaining() < Long.BYTES) {
+                drain(channel, buffer);
+            }
+            int count = Math.min(values.length - i, buffer.remaining() / Long.BYTES);
+            buffer.asLongBuffer().put(values, i, count);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            i += count;
+        }
+    }
+
+    /**
+     * Streams a column of ints to the channel through the buffer.
+     *
+     * @param channel The channel.
+     * @param buffer  The buffer, in write mode.
+     * @param values  The column.
+     * @throws IOException if the bytes cannot be written.
+     */
+    private static void putInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        for (int i = 0; i < values.length; ) {
+            if (buffer.remaining() < Integer.BYTES) {
+                drain(channel, buffer);
+            }
+            int count = Math.min(values.length - i, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().put(values, i, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            i += count;
+        }
+    }
+
+    /**
+     * Reads from the channel until the buffer holds at least the given number of bytes.
+     *
+     * @param channel The channel.
+     * @param buffer  The buffer, in read mode.
+     * @param bytes   The number of bytes needed, at most the capacity of the buffer.
+     * @throws IOException if the bytes cannot be read or the file ends first.
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Truncated checkpoint file.");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Reads a column of doubles from the channel through the buffer.
+     *
+     * @param channel The channel.
+     * @param buffer  The buffer, in read mode.
+     * @param length  The number of values.
+     * @return The column.
+     * @throws IOException if the values cannot be read.
+     */
+    private static double[] getDoubles(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        double[] values = new double[length];
+        for (int i = 0; i < length; ) {
+            fill(channel, buffer, Double.BYTES);
+            int count = Math.min(length - i, buffer.remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().get(values, i, count);
+            buffer.position(buffer.position() + count * Double.BYTES);
+            i += count;
+        }
+        return values;
+    }
+
+    /**
+     * Reads a column of longs from the channel through the buffer.
+     *
+     * @param channel The channel.
+     * @param buffer  The buffer, in read mode.
+     * @param length  The number of values.
+     * @return The column.
+     * @throws IOException if the values cannot be read.
+     */
+    private static long[] getLongs(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        long[] values = new long[length];
+        for (int i = 0; i < length; ) {
+            fill(channel, buffer, Long.BYTES);
+            int count = Math.min(length - i, buffer.remaining() / Long.BYTES);
+            buffer.asLongBuffer().get(values, i, count);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            i += count;
+        }
+        return values;
+    }
+
+    /**
+     * Reads a column of ints from the channel through the buffer.
+     *
+     * @param channel The channel.
+     * @param buffer  The buffer, in read mode.
+     * @param length  The number of values.
+     * @return The column.
+     * @throws IOException if the values cannot be read.
+     */
+    private static int[] getInts(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        int[] values = new int[length];
+        for (int i = 0; i < length; ) {
+            fill(channel, buffer, Integer.BYTES);
+            int count = Math.min(length - i, buffer.remaining() / Integer.BYTES);
+            buffer.asIntBuffer().get(values, i, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            i += count;
+        }
+        return values;
+    }
+}
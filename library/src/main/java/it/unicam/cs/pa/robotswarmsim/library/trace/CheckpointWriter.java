@@ -0,0 +1,136 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.SimulationListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class is a {@link SimulationListener} saving a {@link Checkpoint} of a simulator every given number of ticks
+ * and once more when the run ends, always to the same file.
+ * The state of the robots is captured on the simulation thread between two ticks, which only copies it into flat
+ * columns; the file is written on a background thread while the run goes on. At most one write is in flight:
+ * a checkpoint due while the previous one is still being written waits for it.
+ * A write that failed is reported by the next checkpoint or by {@link #close()}.
+ */
+public class CheckpointWriter implements SimulationListener, Closeable {
+
+    private final RobotSimulator simulator; // Simulator whose state is saved
+    private final Path file; // Checkpoint file
+    private final int interval; // Number of ticks between two checkpoints
+    private final ExecutorService writer; // Thread writing the checkpoints
+    private Future<?> pending; // Write in flight, null before the first checkpoint
+    private int lastStep = -1; // Step of the last captured checkpoint
+
+    /**
+     * Creates a writer saving the state of a simulator.
+     *
+     * @param simulator The simulator to save, which this writer must be attached to.
+     * @param file      The checkpoint file, replaced by every checkpoint.
+     * @param interval  The number of ticks between two checkpoints.
+     * @throws IllegalArgumentException if the interval is not positive.
+     */
+    public CheckpointWriter(RobotSimulator simulator, Path file, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be a positive number.");
+        }
+        this.simulator = simulator;
+        this.file = file;
+        this.interval = interval;
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "simulation-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Saves a checkpoint when the number of ticks run reaches a multiple of the interval.
+     *
+     * @param step The number of the tick.
+     * @throws UncheckedIOException if the previous checkpoint could not be written.
+     */
+    @Override
+    public void tickEnded(int step) {
+        if (step % interval == 0) {
+            save();
+        }
+    }
+
+    /**
+     * Saves a checkpoint of the final state, unless the last tick already saved it.
+     *
+     * @param steps The number of ticks simulated.
+     * @throws UncheckedIOException if the previous checkpoint could not be written.
+     */
+    @Override
+    public void simulationEnded(int steps) {
+        if (simulator.getStepNumber() != lastStep) {
+            save();
+        }
+    }
+
+    /**
+     * Captures the state of the simulator and hands it to the background thread.
+     *
+     * @throws UncheckedIOException if the previous checkpoint could not be written.
+     */
+    private void save() {
+        try {
+            awaitPending();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Checkpoint checkpoint = simulator.checkpoint();
+        lastStep = checkpoint.getStep();
+        pending = writer.submit(() -> {
+            checkpoint.write(file);
+            return null;
+        });
+    }
+
+    /**
+     * Waits for the write in flight, if any.
+     *
+     * @throws IOException if the write failed or the wait was interrupted.
+     */
+    private void awaitPending() throws IOException {
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing a checkpoint.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException("Cannot write the checkpoint " + file, e.getCause());
+        } finally {
+            pending = null;
+        }
+    }
+
+    /**
+     * Waits for the last checkpoint to be written and stops the background thread.
+     *
+     * @throws IOException if the last checkpoint could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            awaitPending();
+        } finally {
+            writer.shutdown();
+        }
+    }
+}
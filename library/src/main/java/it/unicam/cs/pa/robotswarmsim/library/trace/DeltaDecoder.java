@@ -0,0 +1,146 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * This class decodes the records of a delta trace (see {@link TraceFormat}).
+ * It keeps the quantized state of every robot column: a keyframe sets it, the following records update it,
+ * so the state at any step is rebuilt from the last keyframe before it. Chunks are decoded in parallel.
+ */
+final class DeltaDecoder {
+
+    private final int robotCount;
+    private final int labelWords; // Number of words of each label bitmask
+    private final double precision; // Quantization step of positions, headings and speeds
+    private final int chunkSize; // Number of robots of a chunk
+
+    // Quantized state of each column
+    private final long[] x;
+    private final long[] y;
+    private final long[] heading;
+    private final long[] speed;
+    private final long[] signals; // labelWords words per column
+    private final long[] areas; // labelWords words per column
+    private long step = -1; // Step of the decoded state, -1 before the first record
+
+    /**
+     * Creates a decoder for the given columns.
+     *
+     * @param robotCount The number of robot columns.
+     * @param labelWords The number of words of each label bitmask.
+     * @param precision  The quantization step.
+     * @param chunkSize  The number of robots of a chunk.
+     */
+    DeltaDecoder(int robotCount, int labelWords, double precision, int chunkSize) {
+        this.robotCount = robotCount;
+        this.labelWords = labelWords;
+        this.precision = precision;
+        this.chunkSize = chunkSize;
+        x = new long[robotCount];
+        y = new long[robotCount];
+        heading = new long[robotCount];
+        speed = new long[robotCount];
+        signals = new long[robotCount * labelWords];
+        areas = new long[robotCount * labelWords];
+    }
+
+    /**
+     * Returns the step of the decoded state.
+     *
+     * @return The step, or -1 if no record was decoded.
+     */
+    long getStep() {
+
+        return step;
+    }
+
+    /**
+     * Decodes a record, which must be a keyframe or the record following the decoded state.
+     *
+     * @param region   The mapped region holding the record.
+     * @param position The position of the record in the region.
+     */
+    void decode(ByteBuffer region, int position) {
+        long recordStep = region.getLong(position);
+        boolean keyframe = region.get(position + Long.BYTES) != 0;
+        int chunkCount = region.getInt(position + Long.BYTES + 1);
+        int sizes = position + Long.BYTES + 1 + Integer.BYTES;
+        int[] starts = new int[chunkCount + 1];
+        starts[0] = sizes + chunkCount * Integer.BYTES;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            starts[chunk + 1] = starts[chunk] + region.getInt(sizes + chunk * Integer.BYTES);
+        }
+        if (chunkCount > 1) {
+            IntStream.range(0, chunkCount).parallel().forEach(chunk -> decodeChunk(
+                    region.slice(starts[chunk], starts[chunk + 1] - starts[chunk]), chunk, keyframe));
+        } else if (chunkCount == 1) {
+            decodeChunk(region.slice(starts[0], starts[1] - starts[0]), 0, keyframe);
+        }
+        step = recordStep;
+    }
+
+    /**
+     * Writes the decoded state as a columnar record.
+     *
+     * @param record The buffer receiving the record at position 0.
+     */
+    void materialize(ByteBuffer record) {
+        record.putLong(0, step);
+        int doubles = Long.BYTES;
+        int columnSize = robotCount * Double.BYTES;
+        for (int column = 0; column < robotCount; column++) {
+            int offset = doubles + column * Double.BYTES;
+            record.putDouble(offset, x[column] * precision);
+            record.putDouble(offset + columnSize, y[column] * precision);
+            record.putDouble(offset + 2 * columnSize, heading[column] * precision);
+            record.putDouble(offset + 3 * columnSize, speed[column] * precision);
+        }
+        int words = doubles + 4 * columnSize;
+        for (int word = 0; word < signals.length; word++) {
+            record.putLong(words + word * Long.BYTES, signals[word]);
+            record.putLong(words + (signals.length + word) * Long.BYTES, areas[word]);
+        }
+    }
+
+    /**
+     * Decodes the robots of a chunk.
+     *
+     * @param chunk    The encoded chunk, positioned at its start.
+     * @param index    The index of the chunk.
+     * @param keyframe Whether the record is a keyframe.
+     */
+    private void decodeChunk(ByteBuffer chunk, int index, boolean keyframe) {
+        int end = Math.min(robotCount, (index + 1) * chunkSize);
+        for (int column = index * chunkSize; column < end; column++) {
+            int words = column * labelWords;
+            int changed = keyframe ? -1 : (int) VarintBuffer.getVarLong(chunk);
+            if ((changed & TraceFormat.CHANGED_X) != 0) {
+                x[column] = keyframe ? VarintBuffer.getZigZag(chunk) : x[column] + VarintBuffer.getZigZag(chunk);
+            }
+            if ((changed & TraceFormat.CHANGED_Y) != 0) {
+                y[column] = keyframe ? VarintBuffer.getZigZag(chunk) : y[column] + VarintBuffer.getZigZag(chunk);
+            }
+            if ((changed & TraceFormat.CHANGED_HEADING) != 0) {
+                heading[column] = keyframe
+                        ? VarintBuffer.getZigZag(chunk)
+                        : heading[column] + VarintBuffer.getZigZag(chunk);
+            }
+            if ((changed & TraceFormat.CHANGED_SPEED) != 0) {
+                speed[column] = keyframe
+                        ? VarintBuffer.getZigZag(chunk)
+                        : speed[column] + VarintBuffer.getZigZag(chunk);
+            }
+            if ((changed & TraceFormat.CHANGED_SIGNALS) != 0) {
+                for (int word = words; word < words + labelWords; word++) {
+                    signals[word] = VarintBuffer.getVarLong(chunk);
+                }
+            }
+            if ((changed & TraceFormat.CHANGED_AREAS) != 0) {
+                for (int word = words; word < words + labelWords; word++) {
+                    areas[word] = VarintBuffer.getVarLong(chunk);
+                }
+            }
+        }
+    }
+}
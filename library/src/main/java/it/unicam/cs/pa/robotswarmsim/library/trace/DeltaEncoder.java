@@ -0,0 +1,287 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelSet;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotStateBatch;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class encodes the records of a delta trace (see {@link TraceFormat}).
+ * It keeps the quantized state of every robot column and the state written in the previous record;
+ * each record encodes the changes between the two. Robots are split in chunks of consecutive columns that are
+ * encoded into their own reusable buffers, in parallel on the workers of a pool when one is given.
+ * The tasks and the buffers handed to the channel are allocated once, so a record allocates nothing.
+ */
+final class DeltaEncoder {
+
+    private final int robotCount;
+    private final int labelWords; // Number of words of each label bitmask
+    private final double precision; // Quantization step of positions, headings and speeds
+    private final int keyframeInterval; // Number of steps between two keyframes
+    private final int chunkSize; // Number of robots of a chunk
+
+    // Quantized state of each column, and the state written in the previous record
+    private final long[] x;
+    private final long[] y;
+    private final long[] heading;
+    private final long[] speed;
+    private final long[] signals; // labelWords words per column
+    private final long[] areas; // labelWords words per column
+    private final long[] lastX;
+    private final long[] lastY;
+    private final long[] lastHeading;
+    private final long[] lastSpeed;
+    private final long[] lastSignals;
+    private final long[] lastAreas;
+
+    private final VarintBuffer[] chunks; // Encoded chunks of the current record
+    private final ByteBuffer recordHeader; // Step, keyframe flag, chunk count and chunk sizes
+    private final ByteBuffer[] record; // Header and chunks of the current record, in order
+    private final ForkJoinPool pool; // Pool encoding the chunks, null to encode them on the calling thread
+    private final ChunkTask[] chunkTasks; // Task encoding each chunk on the pool
+    private final RecursiveAction encodeChunks = new EncodeChunks(); // Task running every chunk task
+    private boolean keyframe; // Whether the current record is a keyframe
+    private long records = 0; // Number of records encoded
+
+    /**
+     * Creates an encoder for the given columns.
+     *
+     * @param robotCount       The number of robot columns.
+     * @param labelWords       The number of words of each label bitmask.
+     * @param precision        The quantization step.
+     * @param keyframeInterval The number of steps between two keyframes.
+     * @param chunkSize        The number of robots of a chunk.
+     * @param pool             The pool encoding the chunks in parallel, or null to encode them sequentially.
+     */
+    DeltaEncoder(int robotCount, int labelWords, double precision, int keyframeInterval, int chunkSize,
+                 ForkJoinPool pool) {
+        this.robotCount = robotCount;
+        this.labelWords = labelWords;
+        this.precision = precision;
+        this.keyframeInterval = keyframeInterval;
+        this.chunkSize = chunkSize;
+        x = new long[robotCount];
+        y = new long[robotCount];
+        heading = new long[robotCount];
+        speed = new long[robotCount];
+        signals = new long[robotCount * labelWords];
+        areas = new long[robotCount * labelWords];
+        lastX = new long[robotCount];
+        lastY = new long[robotCount];
+        lastHeading = new long[robotCount];
+        lastSpeed = new long[robotCount];
+        lastSignals = new long[robotCount * labelWords];
+        lastAreas = new long[robotCount * labelWords];
+        int chunkCount = (robotCount + chunkSize - 1) / chunkSize;
+        chunks = new VarintBuffer[chunkCount];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            chunks[chunk] = new VarintBuffer();
+        }
+        recordHeader = ByteBuffer.allocate(Long.BYTES + 1 + Integer.BYTES + chunkCount * Integer.BYTES)
+                .order(TraceFormat.ORDER);
+        record = new ByteBuffer[chunkCount + 1];
+        record[0] = recordHeader;
+        this.pool = pool;
+        chunkTasks = new ChunkTask[chunkCount];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            chunkTasks[chunk] = new ChunkTask(chunk);
+        }
+    }
+
+    /**
+     * Stores the state of a robot of a batch in its column.
+     *
+     * @param column The column of the robot.
+     * @param states The batch holding the robot.
+     * @param index  The index of the robot in the batch.
+     */
+    void update(int column, RobotStateBatch states, int index) {
+        x[column] = quantize(states.getX(index));
+        y[column] = quantize(states.getY(index));
+        heading[column] = quantize(states.getHeading(index));
+        speed[column] = quantize(states.getSpeed(index));
+        LabelSet robotSignals = states.getSignals(index);
+        LabelSet robotAreas = states.getAreas(index);
+        int words = column * labelWords;
+        for (int word = 0; word < labelWords; word++) {
+            signals[words + word] = robotSignals.getWord(word);
+            areas[words + word] = robotAreas.getWord(word);
+        }
+    }
+
+    /**
+     * Encodes the current state as the next record.
+     *
+     * @param step The step of the record.
+     * @return The buffers holding the record, in order, reused by the next call.
+     */
+    ByteBuffer[] encode(long step) {
+        keyframe = records++ % keyframeInterval == 0;
+        if (pool != null && chunks.length > 1) {
+            encodeChunks.reinitialize();
+            pool.invoke(encodeChunks);
+        } else {
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                encodeChunk(chunk, keyframe);
+            }
+        }
+        recordHeader.clear();
+        recordHeader.putLong(step).put((byte) (keyframe ? 1 : 0)).putInt(chunks.length);
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            recordHeader.putInt(chunks[chunk].size());
+            record[chunk + 1] = chunks[chunk].wrap();
+        }
+        recordHeader.flip();
+        return record;
+    }
+
+    /**
+     * This task encodes every chunk of the current record, one chunk task per chunk.
+     */
+    private final class EncodeChunks extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Runs the chunk tasks and waits for all of them.
+         */
+        @Override
+        protected void compute() {
+            for (ChunkTask task : chunkTasks) {
+                task.reinitialize();
+            }
+            invokeAll(chunkTasks);
+        }
+    }
+
+    /**
+     * This task encodes one chunk of the current record.
+     */
+    private final class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int chunk; // Index of the encoded chunk
+
+        /**
+         * Creates a task encoding the given chunk.
+         *
+         * @param chunk The index of the chunk.
+         */
+        ChunkTask(int chunk) {
+
+            this.chunk = chunk;
+        }
+
+        /**
+         * Encodes the chunk.
+         */
+        @Override
+        protected void compute() {
+
+            encodeChunk(chunk, keyframe);
+        }
+    }
+
+    /**
+     * Encodes the robots of a chunk and makes their current state the previous one.
+     *
+     * @param chunk    The chunk.
+     * @param keyframe Whether the record is a keyframe.
+     */
+    private void encodeChunk(int chunk, boolean keyframe) {
+        VarintBuffer out = chunks[chunk];
+        out.reset();
+        int end = Math.min(robotCount, (chunk + 1) * chunkSize);
+        for (int column = chunk * chunkSize; column < end; column++) {
+            int words = column * labelWords;
+            if (keyframe) {
+                out.putZigZag(x[column]);
+                out.putZigZag(y[column]);
+                out.putZigZag(heading[column]);
+                out.putZigZag(speed[column]);
+                for (int word = words; word < words + labelWords; word++) {
+                    out.putVarLong(signals[word]);
+                }
+                for (int word = words; word < words + labelWords; word++) {
+                    out.putVarLong(areas[word]);
+                }
+            } else {
+                encodeDelta(out, column, words);
+            }
+            lastX[column] = x[column];
+            lastY[column] = y[column];
+            lastHeading[column] = heading[column];
+            lastSpeed[column] = speed[column];
+            System.arraycopy(signals, words, lastSignals, words, labelWords);
+            System.arraycopy(areas, words, lastAreas, words, labelWords);
+        }
+    }
+
+    /**
+     * Encodes the changes of a robot since the previous record.
+     *
+     * @param out    The buffer of the chunk.
+     * @param column The column of the robot.
+     * @param words  The index of the first label word of the robot.
+     */
+    private void encodeDelta(VarintBuffer out, int column, int words) {
+        int changed = 0;
+        if (x[column] != lastX[column]) {
+            changed |= TraceFormat.CHANGED_X;
+        }
+        if (y[column] != lastY[column]) {
+            changed |= TraceFormat.CHANGED_Y;
+        }
+        if (heading[column] != lastHeading[column]) {
+            changed |= TraceFormat.CHANGED_HEADING;
+        }
+        if (speed[column] != lastSpeed[column]) {
+            changed |= TraceFormat.CHANGED_SPEED;
+        }
+        for (int word = words; word < words + labelWords; word++) {
+            if (signals[word] != lastSignals[word]) {
+                changed |= TraceFormat.CHANGED_SIGNALS;
+            }
+            if (areas[word] != lastAreas[word]) {
+                changed |= TraceFormat.CHANGED_AREAS;
+            }
+        }
+        out.putVarLong(changed);
+        if ((changed & TraceFormat.CHANGED_X) != 0) {
+            out.putZigZag(x[column] - lastX[column]);
+        }
+        if ((changed & TraceFormat.CHANGED_Y) != 0) {
+            out.putZigZag(y[column] - lastY[column]);
+        }
+        if ((changed & TraceFormat.CHANGED_HEADING) != 0) {
+            out.putZigZag(heading[column] - lastHeading[column]);
+        }
+        if ((changed & TraceFormat.CHANGED_SPEED) != 0) {
+            out.putZigZag(speed[column] - lastSpeed[column]);
+        }
+        if ((changed & TraceFormat.CHANGED_SIGNALS) != 0) {
+            for (int word = words; word < words + labelWords; word++) {
+                out.putVarLong(signals[word]);
+            }
+        }
+        if ((changed & TraceFormat.CHANGED_AREAS) != 0) {
+            for (int word = words; word < words + labelWords; word++) {
+                out.putVarLong(areas[word]);
+            }
+        }
+    }
+
+    /**
+     * Quantizes a value to the nearest multiple of the precision.
+     *
+     * @param value The value.
+     * @return The number of precision steps.
+     */
+    private long quantize(double value) {
+
+        return Math.round(value / precision);
+    }
+}
@@ -0,0 +1,238 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Area;
+import it.unicam.cs.pa.robotswarmsim.library.area.Bounds;
+import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
+import it.unicam.cs.pa.robotswarmsim.library.area.Rectangle;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * This class holds the layout of trace files.
+ * <p>
+ * A trace starts with a header, in little-endian order:
+ * the magic bytes, the format version, the encoding of the steps, the number of robots, the number of
+ * 64-bit words of each label bitmask, the time step, the number of recorded steps, the offset of the first step,
+ * the offset of the step index, the quantization precision, the keyframe interval, the number of robots of an
+ * encoding chunk, the labels (count, then length and UTF-8 bytes of each), the areas (count, then kind, label id and four
+ * doubles of each) and the id of the robot of each column.
+ * <p>
+ * Steps follow, one record per step. In the columnar encoding every record has the same size: the step number,
+ * then the x, y, heading and speed columns with one double per robot, then the signal and area columns with
+ * one bitmask per robot.
+ * <p>
+ * In the delta encoding positions, headings and speeds are quantized to multiples of the precision and records
+ * have variable sizes, so the header points to an index holding the offset of every step, followed by the end
+ * of the last one. A record holds the step number, whether it is a keyframe, the number of chunks and the size
+ * of each chunk, then the chunks; each chunk encodes a contiguous range of robot columns and can be encoded and
+ * decoded independently of the others. In a keyframe, written every keyframe interval steps, a robot is
+ * encoded as the zig-zag varints of its four quantized values followed by the varints of its signal and area
+ * words. In the other records, a robot starts with a varint mask of its changed values, followed by the zig-zag
+ * varint of the difference of each changed number and by the words of each changed bitmask.
+ */
+final class TraceFormat {
+
+    static final byte[] MAGIC = "RSWTRACE".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 2;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int ENCODING_COLUMNAR = 0; // Fixed-width records of raw columns
+    static final int ENCODING_DELTA = 1; // Variable-size records of quantized deltas with periodic keyframes
+
+    // Offsets of the fixed part of the header
+    static final int VERSION_OFFSET = 8;
+    static final int ENCODING_OFFSET = 12;
+    static final int ROBOT_COUNT_OFFSET = 16;
+    static final int LABEL_WORDS_OFFSET = 20;
+    static final int DT_OFFSET = 24;
+    static final int STEP_COUNT_OFFSET = 32;
+    static final int DATA_OFFSET_OFFSET = 40;
+    static final int INDEX_OFFSET_OFFSET = 48;
+    static final int PRECISION_OFFSET = 56;
+    static final int KEYFRAME_INTERVAL_OFFSET = 64;
+    static final int CHUNK_SIZE_OFFSET = 68;
+    static final int LABELS_OFFSET = 72;
+
+    // Flags of the changed values of a robot in a delta record
+    static final int CHANGED_X = 1;
+    static final int CHANGED_Y = 1 << 1;
+    static final int CHANGED_HEADING = 1 << 2;
+    static final int CHANGED_SPEED = 1 << 3;
+    static final int CHANGED_SIGNALS = 1 << 4;
+    static final int CHANGED_AREAS = 1 << 5;
+
+    // Kinds of areas
+    static final byte AREA_CIRCLE = 0; // Center x, center y, radius, unused
+    static final byte AREA_RECTANGLE = 1; // Top-left x, top-left y, width, height
+    static final byte AREA_OTHER = 2; // Bounds: min x, min y, max x, max y
+
+    private TraceFormat() {
+    }
+
+    /**
+     * Returns the size of a columnar step record.
+     *
+     * @param robots     The number of robots.
+     * @param labelWords The number of words of each label bitmask.
+     * @return The size of a record in bytes.
+     */
+    static long recordSize(int robots, int labelWords) {
+
+        return Long.BYTES + (long) robots * (4L * Double.BYTES + 2L * labelWords * Long.BYTES);
+    }
+
+    /**
+     * Returns the UTF-8 names of every label of a registry, indexed by label id.
+     *
+     * @param registry The registry.
+     * @return The encoded names.
+     */
+    static byte[][] labelNames(LabelRegistry registry) {
+        byte[][] names = new byte[registry.size()][];
+        for (int id = 0; id < names.length; id++) {
+            names[id] = registry.getName(id).getBytes(StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    /**
+     * Returns the size of a label table.
+     *
+     * @param names The encoded names of the labels.
+     * @return The size of the table in bytes.
+     */
+    static int labelsSize(byte[][] names) {
+        int size = Integer.BYTES;
+        for (byte[] name : names) {
+            size += Integer.BYTES + name.length;
+        }
+        return size;
+    }
+
+    /**
+     * Writes a label table: the number of labels, then the length and the bytes of each name.
+     *
+     * @param buffer The buffer receiving the table.
+     * @param names  The encoded names of the labels.
+     */
+    static void putLabels(ByteBuffer buffer, byte[][] names) {
+        buffer.putInt(names.length);
+        for (byte[] name : names) {
+            buffer.putInt(name.length);
+            buffer.put(name);
+        }
+    }
+
+    /**
+     * Reads a label table.
+     *
+     * @param buffer The buffer, positioned at the table.
+     * @return The labels, indexed by their id in the table.
+     */
+    static List<String> getLabels(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<String> labels = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            byte[] name = new byte[buffer.getInt()];
+            buffer.get(name);
+            labels.add(new String(name, StandardCharsets.UTF_8));
+        }
+        return List.copyOf(labels);
+    }
+
+    /**
+     * Returns the size of an area table.
+     *
+     * @param count The number of areas.
+     * @return The size of the table in bytes.
+     */
+    static int areasSize(int count) {
+
+        return Integer.BYTES + count * (1 + Integer.BYTES + 4 * Double.BYTES);
+    }
+
+    /**
+     * Writes an area table: the number of areas, then the kind, the label id and the four parameters of each.
+     *
+     * @param buffer   The buffer receiving the table.
+     * @param areas    The areas.
+     * @param labelIds The function giving the id of each label in the table.
+     */
+    static void putAreas(ByteBuffer buffer, List<Area> areas, ToIntFunction<String> labelIds) {
+        buffer.putInt(areas.size());
+        for (Area area : areas) {
+            buffer.put(kindOf(area));
+            buffer.putInt(labelIds.applyAsInt(area.getLabel()));
+            for (double parameter : parametersOf(area)) {
+                buffer.putDouble(parameter);
+            }
+        }
+    }
+
+    /**
+     * Reads an area table. Areas other than circles and rectangles are rebuilt as their bounding box.
+     *
+     * @param buffer The buffer, positioned at the table.
+     * @param labels The labels of the table, indexed by their id.
+     * @return The areas.
+     */
+    static List<Area> getAreas(ByteBuffer buffer, List<String> labels) {
+        int count = buffer.getInt();
+        List<Area> areas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte kind = buffer.get();
+            String label = labels.get(buffer.getInt());
+            double first = buffer.getDouble();
+            double second = buffer.getDouble();
+            double third = buffer.getDouble();
+            double fourth = buffer.getDouble();
+            areas.add(switch (kind) {
+                case AREA_CIRCLE -> new Circle(new Point(first, second), third, label);
+                case AREA_RECTANGLE -> new Rectangle(new Point(first, second), third, fourth, label);
+                default -> new Rectangle(new Point(first, second), third - first, fourth - second, label);
+            });
+        }
+        return List.copyOf(areas);
+    }
+
+    /**
+     * Returns the kind of an area in the header.
+     *
+     * @param area The area.
+     * @return The kind of the area.
+     */
+    static byte kindOf(Area area) {
+        if (area instanceof Circle) {
+            return AREA_CIRCLE;
+        }
+        if (area instanceof Rectangle) {
+            return AREA_RECTANGLE;
+        }
+        return AREA_OTHER;
+    }
+
+    /**
+     * Returns the four parameters describing an area in the header.
+     *
+     * @param area The area.
+     * @return The parameters of the area, according to its kind.
+     */
+    static double[] parametersOf(Area area) {
+        if (area instanceof Circle circle) {
+            return new double[]{circle.getCenter().x(), circle.getCenter().y(), circle.getRadius(), 0};
+        }
+        if (area instanceof Rectangle rectangle) {
+            return new double[]{rectangle.getTopLeft().x(), rectangle.getTopLeft().y(),
+                    rectangle.getWidth(), rectangle.getHeight()};
+        }
+        Bounds bounds = area.getBounds();
+        return new double[]{bounds.minX(), bounds.minY(), bounds.maxX(), bounds.maxY()};
+    }
+}
@@ -0,0 +1,427 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.area.Area;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotStateBatch;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.SimulationListener;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.TickPacer;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class reads a trace recorded by {@link TraceWriter}.
+ * The records are memory-mapped and located through an index holding the file offset of every step,
+ * so the state of all robots at any step is available in constant time without reading the steps before it.
+ * A range of steps can be replayed to any {@link SimulationListener}, as fast as possible or paced by a
+ * {@link TickPacer}, without running the simulation again.
+ * Robots keep the ids they had in the recorded run; label ids are translated to the ids of a
+ * {@link LabelRegistry}, so states read from a trace can be handled like the states of a live run using it.
+ * <p>
+ * In a compressed trace, the state at a step is rebuilt from the last keyframe before it, or from the
+ * previously read step when it lies between the two, so reading consecutive steps decodes one record each.
+ * Readers are not thread-safe.
+ */
+public class TraceReader implements Closeable {
+
+    private static final long MAX_REGION_SIZE = 1L << 30; // Maximum size of a mapped region of the file
+
+    private final FileChannel channel;
+    private final double dt; // Time step of the recorded run
+    private final int robotCount; // Number of robot columns
+    private final int labelWords; // Number of words of each label bitmask
+    private final int[] robotIds; // Id of the robot of each column
+    private final int[] columnOf; // Column of each robot id, -1 for robots outside the trace
+    private final List<String> labels; // Labels of the trace, indexed by trace label id
+    private final LabelRegistry registry; // Registry the label ids are translated to
+    private final int[] labelIds; // Id in the registry of each trace label id, null if they are the same
+    private final List<Area> areas; // Areas of the recorded environment
+    private final double precision; // Quantization step of a compressed trace, 0 for raw columns
+    private final int keyframeInterval; // Number of steps between two keyframes of a compressed trace
+    private final DeltaDecoder decoder; // Decoder of a compressed trace, null for raw columns
+    private final ByteBuffer decoded; // Columnar record of the last decoded step of a compressed trace
+
+    private final long[] stepOffsets; // File offset of each step, followed by the end of the last step
+    private final int[] stepRegions; // Mapped region holding each step
+    private final List<MappedByteBuffer> regions = new ArrayList<>(); // Mapped regions of the file
+    private final List<Long> regionStarts = new ArrayList<>(); // File offset of each mapped region
+
+    /**
+     * Opens a trace and builds its step index, translating its labels to a registry of its own.
+     *
+     * @param file The trace file.
+     * @throws IOException if the file cannot be read or is not a valid trace.
+     */
+    public TraceReader(Path file) throws IOException {
+
+        this(file, new LabelRegistry());
+    }
+
+    /**
+     * Opens a trace and builds its step index, translating its labels to the given registry,
+     * for instance the one of the environment of a live run the trace is compared with.
+     *
+     * @param file     The trace file.
+     * @param registry The registry the label ids are translated to.
+     * @throws IOException if the file cannot be read or is not a valid trace.
+     */
+    public TraceReader(Path file, LabelRegistry registry) throws IOException {
+        this.registry = registry;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer fixed = read(0, TraceFormat.LABELS_OFFSET);
+            byte[] magic = new byte[TraceFormat.MAGIC.length];
+            fixed.get(magic);
+            if (!Arrays.equals(magic, TraceFormat.MAGIC)) {
+                throw new IOException("Not a trace file: " + file);
+            }
+            int version = fixed.getInt(TraceFormat.VERSION_OFFSET);
+            if (version != TraceFormat.VERSION) {
+                throw new IOException("Unsupported trace version: " + version);
+            }
+            int encoding = fixed.getInt(TraceFormat.ENCODING_OFFSET);
+            if (encoding != TraceFormat.ENCODING_COLUMNAR && encoding != TraceFormat.ENCODING_DELTA) {
+                throw new IOException("Unsupported trace encoding: " + encoding);
+            }
+            this.robotCount = fixed.getInt(TraceFormat.ROBOT_COUNT_OFFSET);
+            this.labelWords = fixed.getInt(TraceFormat.LABEL_WORDS_OFFSET);
+            this.dt = fixed.getDouble(TraceFormat.DT_OFFSET);
+            long stepCount = fixed.getLong(TraceFormat.STEP_COUNT_OFFSET);
+            long dataOffset = fixed.getLong(TraceFormat.DATA_OFFSET_OFFSET);
+            long indexOffset = fixed.getLong(TraceFormat.INDEX_OFFSET_OFFSET);
+            this.precision = fixed.getDouble(TraceFormat.PRECISION_OFFSET);
+            this.keyframeInterval = fixed.getInt(TraceFormat.KEYFRAME_INTERVAL_OFFSET);
+            int chunkSize = fixed.getInt(TraceFormat.CHUNK_SIZE_OFFSET);
+            if (robotCount < 0 || labelWords < 1 || dataOffset < TraceFormat.LABELS_OFFSET
+                    || dataOffset > Integer.MAX_VALUE || stepCount < 0 || stepCount >= Integer.MAX_VALUE) {
+                throw new IOException("Corrupted trace header: " + file);
+            }
+
+            ByteBuffer header = read(0, (int) dataOffset);
+            header.position(TraceFormat.LABELS_OFFSET);
+            this.labels = TraceFormat.getLabels(header);
+            int[] translation = new int[labels.size()];
+            boolean identity = true;
+            for (int id = 0; id < translation.length; id++) {
+                translation[id] = registry.intern(labels.get(id));
+                identity &= translation[id] == id;
+            }
+            this.labelIds = identity ? null : translation;
+            this.areas = TraceFormat.getAreas(header, labels);
+
+            this.robotIds = new int[robotCount];
+            int maxId = -1;
+            for (int column = 0; column < robotCount; column++) {
+                robotIds[column] = header.getInt();
+                maxId = Math.max(maxId, robotIds[column]);
+            }
+            this.columnOf = new int[maxId + 1];
+            Arrays.fill(columnOf, -1);
+            for (int column = 0; column < robotCount; column++) {
+                columnOf[robotIds[column]] = column;
+            }
+
+            long recordSize = TraceFormat.recordSize(robotCount, labelWords);
+            if (encoding == TraceFormat.ENCODING_DELTA) {
+                if (indexOffset == 0 || !(precision > 0) || keyframeInterval <= 0 || chunkSize <= 0
+                        || recordSize > Integer.MAX_VALUE) {
+                    throw new IOException("Corrupted or unfinished compressed trace: " + file);
+                }
+                this.stepOffsets = readIndex(indexOffset, (int) stepCount);
+                this.decoder = new DeltaDecoder(robotCount, labelWords, precision, chunkSize);
+                this.decoded = ByteBuffer.allocate((int) recordSize).order(TraceFormat.ORDER);
+            } else {
+                if (dataOffset + stepCount * recordSize > channel.size()) {
+                    throw new EOFException("Truncated trace: " + file);
+                }
+                this.stepOffsets = new long[(int) stepCount + 1];
+                for (int step = 0; step <= stepCount; step++) {
+                    stepOffsets[step] = dataOffset + step * recordSize;
+                }
+                this.decoder = null;
+                this.decoded = null;
+            }
+            this.stepRegions = new int[(int) stepCount];
+            mapRegions();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the time step of the recorded run.
+     *
+     * @return The time step in seconds.
+     */
+    public double getTimeStep() {
+
+        return dt;
+    }
+
+    /**
+     * Returns the number of recorded steps, including the initial state at step 0.
+     *
+     * @return The number of steps.
+     */
+    public int getStepCount() {
+
+        return stepRegions.length;
+    }
+
+    /**
+     * Returns the quantization step of the positions, headings and speeds of a compressed trace.
+     *
+     * @return The precision, or 0 if the trace holds raw values.
+     */
+    public double getPrecision() {
+
+        return precision;
+    }
+
+    /**
+     * Returns the number of robots of the trace.
+     *
+     * @return The number of robots.
+     */
+    public int getRobotCount() {
+
+        return robotCount;
+    }
+
+    /**
+     * Returns the id of the robot of a column, as in the recorded run.
+     *
+     * @param column The column, from 0 to {@link #getRobotCount()} excluded.
+     * @return The id of the robot.
+     */
+    public int getRobotId(int column) {
+
+        return robotIds[column];
+    }
+
+    /**
+     * Returns the column of a robot, which is also its index in the batches returned by {@link #getStep(int)}.
+     *
+     * @param robotId The id of the robot.
+     * @return The column of the robot, or -1 if the robot is not in the trace.
+     */
+    public int getColumn(int robotId) {
+
+        return robotId >= 0 && robotId < columnOf.length ? columnOf[robotId] : -1;
+    }
+
+    /**
+     * Returns the registry the label ids of the states read from the trace refer to.
+     *
+     * @return The label registry of the reader.
+     */
+    public LabelRegistry getLabelRegistry() {
+
+        return registry;
+    }
+
+    /**
+     * Returns the labels known when the run was recorded.
+     *
+     * @return An unmodifiable list of the labels.
+     */
+    public List<String> getLabels() {
+
+        return labels;
+    }
+
+    /**
+     * Returns the areas of the recorded environment. Areas other than circles and rectangles are
+     * described by their bounding box.
+     *
+     * @return An unmodifiable list of the areas.
+     */
+    public List<Area> getAreas() {
+
+        return areas;
+    }
+
+    /**
+     * Returns the state of every robot at a step, in column order.
+     * For raw traces the batch reads the mapped file directly; its label sets are reused between calls for
+     * the same robot attribute and are valid until the next call. For compressed traces the batch holds the
+     * decoded step and is valid until the next call of this method.
+     *
+     * @param step The step, from 0 to {@link #getStepCount()} excluded.
+     * @return The state of the robots at the step.
+     * @throws IllegalArgumentException if the step was not recorded.
+     */
+    public RobotStateBatch getStep(int step) {
+        checkStep(step);
+        if (decoder == null) {
+            return new TraceStateBatch(regions.get(stepRegions[step]), positionOf(step), robotIds, labelWords,
+                    labelIds);
+        }
+        int keyframe = step - step % keyframeInterval;
+        long current = decoder.getStep();
+        int from = current >= keyframe && current <= step ? (int) current + 1 : keyframe;
+        for (int record = from; record <= step; record++) {
+            decoder.decode(regions.get(stepRegions[record]), positionOf(record));
+        }
+        decoder.materialize(decoded);
+        return new TraceStateBatch(decoded, 0, robotIds, labelWords, labelIds);
+    }
+
+    /**
+     * Returns the position of the record of a step in its mapped region.
+     *
+     * @param step The step.
+     * @return The position of the record.
+     */
+    private int positionOf(int step) {
+
+        return (int) (stepOffsets[step] - regionStarts.get(stepRegions[step]));
+    }
+
+    /**
+     * Replays a range of steps to a listener as fast as possible.
+     *
+     * @param fromStep The first step, delivered as the initial state.
+     * @param toStep   The last step (inclusive).
+     * @param listener The listener receiving the steps.
+     * @throws IllegalArgumentException if the range is not within the recorded steps.
+     */
+    public void replay(int fromStep, int toStep, SimulationListener listener) {
+
+        replay(fromStep, toStep, listener, TickPacer.headless());
+    }
+
+    /**
+     * Replays a range of steps to a listener, paced by the given pacer.
+     * The listener receives the first step as the initial state, then the start, the state of every robot
+     * and the end of each following step, as during the recorded run; completed commands are not recorded
+     * and are not replayed. If the thread is interrupted, the replay stops with the interrupt flag set.
+     *
+     * @param fromStep The first step, delivered as the initial state.
+     * @param toStep   The last step (inclusive).
+     * @param listener The listener receiving the steps.
+     * @param pacer    The pacer spacing the steps in wall-clock time.
+     * @throws IllegalArgumentException if the range is not within the recorded steps.
+     */
+    public void replay(int fromStep, int toStep, SimulationListener listener, TickPacer pacer) {
+        checkStep(fromStep);
+        checkStep(toStep);
+        if (toStep < fromStep) {
+            throw new IllegalArgumentException("The last step precedes the first one.");
+        }
+        listener.simulationStarted(dt, getStep(fromStep));
+        pacer.start();
+        for (int step = fromStep + 1; step <= toStep; step++) {
+            try {
+                pacer.awaitTicks(step - fromStep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            listener.tickStarted(step);
+            listener.robotStates(step, getStep(step));
+            listener.tickEnded(step);
+        }
+        listener.simulationEnded(toStep - fromStep);
+    }
+
+    /**
+     * Closes the trace file. Batches returned earlier must not be used afterwards.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        regions.clear();
+        channel.close();
+    }
+
+    /**
+     * Checks that a step was recorded.
+     *
+     * @param step The step.
+     * @throws IllegalArgumentException if the step is out of range.
+     */
+    private void checkStep(int step) {
+        if (step < 0 || step >= stepRegions.length) {
+            throw new IllegalArgumentException("Step " + step + " is not in the trace.");
+        }
+    }
+
+    /**
+     * Maps the records in regions made of whole records and assigns every step to its region.
+     *
+     * @throws IOException if the file cannot be mapped.
+     */
+    private void mapRegions() throws IOException {
+        int first = 0;
+        while (first < stepRegions.length) {
+            long start = stepOffsets[first];
+            int end = first + 1;
+            while (end < stepRegions.length && stepOffsets[end + 1] - start <= MAX_REGION_SIZE) {
+                end++;
+            }
+            if (stepOffsets[end] - start > Integer.MAX_VALUE) {
+                throw new IOException("Step record too large to map: " + first);
+            }
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, stepOffsets[end] - start);
+            region.order(TraceFormat.ORDER);
+            Arrays.fill(stepRegions, first, end, regions.size());
+            regions.add(region);
+            regionStarts.add(start);
+            first = end;
+        }
+    }
+
+    /**
+     * Reads the step index of a compressed trace.
+     *
+     * @param indexOffset The offset of the index.
+     * @param stepCount   The number of steps.
+     * @return The offset of every step, followed by the end of the last one.
+     * @throws IOException if the index cannot be read or does not fit the file.
+     */
+    private long[] readIndex(long indexOffset, int stepCount) throws IOException {
+        if (stepCount + 1L > Integer.MAX_VALUE / Long.BYTES
+                || indexOffset + (stepCount + 1L) * Long.BYTES > channel.size()) {
+            throw new EOFException("Truncated trace index.");
+        }
+        ByteBuffer index = read(indexOffset, (stepCount + 1) * Long.BYTES);
+        long[] offsets = new long[stepCount + 1];
+        for (int step = 0; step <= stepCount; step++) {
+            offsets[step] = index.getLong();
+            if (offsets[step] > indexOffset || (step > 0 && offsets[step] < offsets[step - 1])) {
+                throw new IOException("Corrupted trace index.");
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Reads a range of the file into a heap buffer.
+     *
+     * @param position The offset of the range.
+     * @param length   The length of the range.
+     * @return A buffer holding the range, positioned at its start.
+     * @throws IOException if the range cannot be read.
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(TraceFormat.ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated trace.");
+            }
+        }
+        return buffer.flip();
+    }
+}
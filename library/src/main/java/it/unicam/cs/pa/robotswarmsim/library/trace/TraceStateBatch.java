@@ -0,0 +1,162 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelSet;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotStateBatch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class is a {@link RobotStateBatch} reading one columnar record of a mapped trace.
+ * Values are read from the mapped file on demand; label bitmasks are decoded into reused label sets,
+ * translating trace label ids to those of the registry of the reader.
+ * Ids missing from the label table of the trace are dropped.
+ */
+final class TraceStateBatch implements RobotStateBatch {
+
+    private final ByteBuffer region; // Mapped region holding the record
+    private final int xOffset; // Offset of the x column in the region
+    private final int signalsOffset; // Offset of the signal column in the region
+    private final int[] robotIds; // Id of the robot of each column
+    private final int labelWords; // Number of words of each label bitmask
+    private final int[] labelIds; // Id of each trace label id in the reader's registry, null if they are the same
+    private final LabelSet signals = new LabelSet(); // Decoded signals of the last robot asked for
+    private final LabelSet areas = new LabelSet(); // Decoded areas of the last robot asked for
+
+    /**
+     * Creates a view over a record.
+     *
+     * @param region     The mapped region holding the record.
+     * @param position   The position of the record in the region.
+     * @param robotIds   The id of the robot of each column.
+     * @param labelWords The number of words of each label bitmask.
+     * @param labelIds   The id of each trace label id in the registry of the reader, or null if they are the same.
+     */
+    TraceStateBatch(ByteBuffer region, int position, int[] robotIds, int labelWords, int[] labelIds) {
+        this.region = region;
+        this.xOffset = position + Long.BYTES;
+        this.signalsOffset = xOffset + 4 * robotIds.length * Double.BYTES;
+        this.robotIds = robotIds;
+        this.labelWords = labelWords;
+        this.labelIds = labelIds;
+    }
+
+    /**
+     * Returns the number of robots in the record.
+     *
+     * @return The number of robots.
+     */
+    @Override
+    public int size() {
+
+        return robotIds.length;
+    }
+
+    /**
+     * Returns the id of the robot of a column.
+     *
+     * @param index The column.
+     * @return The id of the robot.
+     */
+    @Override
+    public int getId(int index) {
+
+        return robotIds[index];
+    }
+
+    /**
+     * Returns the x-coordinate of the robot of a column.
+     *
+     * @param index The column.
+     * @return The x-coordinate.
+     */
+    @Override
+    public double getX(int index) {
+
+        return region.getDouble(xOffset + index * Double.BYTES);
+    }
+
+    /**
+     * Returns the y-coordinate of the robot of a column.
+     *
+     * @param index The column.
+     * @return The y-coordinate.
+     */
+    @Override
+    public double getY(int index) {
+
+        return region.getDouble(xOffset + (robotIds.length + index) * Double.BYTES);
+    }
+
+    /**
+     * Returns the heading of the robot of a column.
+     *
+     * @param index The column.
+     * @return The direction in degrees.
+     */
+    @Override
+    public double getHeading(int index) {
+
+        return region.getDouble(xOffset + (2 * robotIds.length + index) * Double.BYTES);
+    }
+
+    /**
+     * Returns the speed of the robot of a column.
+     *
+     * @param index The column.
+     * @return The speed in meters per second.
+     */
+    @Override
+    public double getSpeed(int index) {
+
+        return region.getDouble(xOffset + (3 * robotIds.length + index) * Double.BYTES);
+    }
+
+    /**
+     * Returns the signals of the robot of a column. The set is reused by the next call.
+     *
+     * @param index The column.
+     * @return The label ids of the signals.
+     */
+    @Override
+    public LabelSet getSignals(int index) {
+
+        return decode(signalsOffset + index * labelWords * Long.BYTES, signals);
+    }
+
+    /**
+     * Returns the labels of the areas containing the robot of a column. The set is reused by the next call.
+     *
+     * @param index The column.
+     * @return The label ids of the areas.
+     */
+    @Override
+    public LabelSet getAreas(int index) {
+
+        return decode(signalsOffset + (robotIds.length + index) * labelWords * Long.BYTES, areas);
+    }
+
+    /**
+     * Decodes a label bitmask of the record into a label set.
+     *
+     * @param offset The offset of the bitmask in the region.
+     * @param target The set receiving the labels.
+     * @return The target set.
+     */
+    private LabelSet decode(int offset, LabelSet target) {
+        target.clear();
+        for (int word = 0; word < labelWords; word++) {
+            long mask = region.getLong(offset + word * Long.BYTES);
+            if (labelIds == null) {
+                target.setWord(word, mask);
+                continue;
+            }
+            for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+                int label = word * Long.SIZE + Long.numberOfTrailingZeros(remaining);
+                if (label < labelIds.length) {
+                    target.add(labelIds[label]);
+                }
+            }
+        }
+        return target;
+    }
+}
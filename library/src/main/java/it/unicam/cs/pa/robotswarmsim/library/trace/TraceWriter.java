@@ -0,0 +1,510 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.area.Area;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelSet;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotStateBatch;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.SimulationListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class is a {@link SimulationListener} recording a run in a binary trace file.
+ * The header describes the labels and the areas of the environment; every tick then appends a fixed-width record
+ * holding the x, y, heading and speed columns and the signal and area bitmask columns of every robot
+ * (see {@link TraceFormat}).
+ * Records are written in place into memory-mapped regions of the file, so a tick costs one absolute store per
+ * value of the stepped robots, with no intermediate buffer and no system call.
+ * Robots that were not stepped during a tick keep the state of the previous record: only their columns are copied,
+ * and they are tracked incrementally, so a tick never scans or copies the whole previous record.
+ * <p>
+ * A writer can instead use the compressed delta encoding: positions, headings and speeds are quantized,
+ * every record only holds the changes since the previous one as zig-zag varints, and a keyframe holding
+ * the full state is written at regular intervals so that any step can be rebuilt from the keyframe before it.
+ * Robots are encoded in parallel chunks; an index of the step offsets is appended when the run ends.
+ * <p>
+ * The bitmasks are sized for the labels known when the run starts.
+ * A writer records a single run and must be closed once the run is over.
+ */
+public class TraceWriter implements SimulationListener, Closeable {
+
+    private static final long REGION_SIZE = 64L << 20; // Target size of a mapped region of the file
+    private static final int CHUNK_SIZE = 4096; // Number of robots of a chunk of a delta record
+
+    private final FileChannel channel;
+    private final Environment environment; // Environment whose areas are described in the header
+    private final LabelRegistry labels; // Labels of the environment, listed in the header
+    private final int encoding; // Encoding of the records
+    private final double precision; // Quantization step of the delta encoding
+    private final int keyframeInterval; // Number of steps between two keyframes of the delta encoding
+
+    private int robotCount = -1; // Number of robot columns, -1 until the run starts
+    private int labelWords; // Number of words of each label bitmask
+    private long recordSize; // Size of a step record
+    private long dataOffset; // File offset of the first record
+    private int[] columnOf; // Column of each robot id, -1 for robots outside the run
+    private long stepCount = 0; // Number of records written
+    private long dataEnd; // File offset following the last record
+
+    private long recordsPerRegion; // Number of records of a mapped region
+    private MappedByteBuffer region; // Mapped region receiving the current record
+    private long regionFirstRecord; // Index of the first record of the region
+    private ByteBuffer previousRegion; // Region holding the previous record
+    private int previousPosition; // Position of the previous record in its region
+    private int[] writtenAt; // Record in which each column was last written from a batch, -1 if never
+    private int[] batchColumns; // Columns written from the batch of the previous record
+    private int[] nextBatchColumns; // Columns written from the batch of the current record
+    private int batchColumnCount = 0; // Number of columns written from the batch of the previous record
+    private int[] idleColumns; // Columns carried over from the previous record
+    private int idleColumnCount = 0; // Number of columns carried over from the previous record
+
+    private DeltaEncoder encoder; // Encoder of the delta records
+    private ForkJoinPool pool; // Pool encoding the chunks of the delta records, null to encode them sequentially
+    private long[] stepOffsets = new long[64]; // File offset of each delta record
+
+    /**
+     * Creates a writer recording a run in the given file, replacing any existing file.
+     *
+     * @param file        The trace file.
+     * @param environment The environment of the recorded robots, whose areas are described in the header.
+     * @throws IOException if the file cannot be opened.
+     */
+    public TraceWriter(Path file, Environment environment) throws IOException {
+        this(file, environment, TraceFormat.ENCODING_COLUMNAR, 0, 0);
+    }
+
+    /**
+     * Creates a writer recording a run in the given file with the compressed delta encoding,
+     * replacing any existing file.
+     *
+     * @param file             The trace file.
+     * @param environment      The environment of the recorded robots, whose areas are described in the header.
+     * @param precision        The quantization step of positions, headings and speeds, e.g. 0.001.
+     * @param keyframeInterval The number of steps between two keyframes; reading a step decodes at most this
+     *                         many records.
+     * @throws IOException              if the file cannot be opened.
+     * @throws IllegalArgumentException if the precision is not a positive number or the interval is not positive.
+     */
+    public TraceWriter(Path file, Environment environment, double precision, int keyframeInterval)
+            throws IOException {
+        this(file, environment, TraceFormat.ENCODING_DELTA, checkPrecision(precision),
+                checkKeyframeInterval(keyframeInterval));
+    }
+
+    /**
+     * Creates a writer with the given encoding.
+     *
+     * @param file             The trace file.
+     * @param environment      The environment of the recorded robots.
+     * @param encoding         The encoding of the records.
+     * @param precision        The quantization step of the delta encoding.
+     * @param keyframeInterval The number of steps between two keyframes of the delta encoding.
+     * @throws IOException if the file cannot be opened.
+     */
+    private TraceWriter(Path file, Environment environment, int encoding, double precision, int keyframeInterval)
+            throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.environment = environment;
+        this.labels = environment.getLabels();
+        this.encoding = encoding;
+        this.precision = precision;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Sets the pool encoding the chunks of the delta records in parallel, usually the pool stepping the robots
+     * (see {@link it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator#setPool}).
+     * Without a pool the chunks are encoded on the simulation thread. It must be set before the run starts.
+     *
+     * @param pool The pool, or null to encode sequentially.
+     */
+    public void setPool(ForkJoinPool pool) {
+
+        this.pool = pool;
+    }
+
+    /**
+     * Writes the header and the initial state of every robot as step 0.
+     *
+     * @param dt           The time step in seconds.
+     * @param initialState The state of every robot at step 0.
+     * @throws IllegalStateException if the writer already recorded a run.
+     * @throws UncheckedIOException  if the file cannot be written.
+     */
+    @Override
+    public void simulationStarted(double dt, RobotStateBatch initialState) {
+        if (robotCount >= 0) {
+            throw new IllegalStateException("A trace writer records a single run.");
+        }
+        robotCount = initialState.size();
+        labelWords = Math.max(1, (labels.size() + Long.SIZE - 1) / Long.SIZE);
+        recordSize = TraceFormat.recordSize(robotCount, labelWords);
+        if (recordSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many robots to record: " + robotCount);
+        }
+        recordsPerRegion = Math.max(1, REGION_SIZE / recordSize);
+
+        int maxId = -1;
+        for (int i = 0; i < robotCount; i++) {
+            maxId = Math.max(maxId, initialState.getId(i));
+        }
+        columnOf = new int[maxId + 1];
+        Arrays.fill(columnOf, -1);
+        for (int i = 0; i < robotCount; i++) {
+            columnOf[initialState.getId(i)] = i;
+        }
+
+        try {
+            writeHeader(dt, initialState);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        dataEnd = dataOffset;
+        if (encoding == TraceFormat.ENCODING_COLUMNAR) {
+            writtenAt = new int[robotCount];
+            Arrays.fill(writtenAt, -1);
+            batchColumns = new int[robotCount];
+            nextBatchColumns = new int[robotCount];
+            idleColumns = new int[robotCount];
+        }
+        if (encoding == TraceFormat.ENCODING_DELTA) {
+            encoder = new DeltaEncoder(robotCount, labelWords, precision, keyframeInterval, CHUNK_SIZE, pool);
+        }
+        appendRecord(0, initialState);
+    }
+
+    /**
+     * Appends the record of a tick: the previous record updated with the state of the stepped robots.
+     *
+     * @param step   The number of the tick.
+     * @param states The state of the stepped robots.
+     * @throws UncheckedIOException if the file cannot be extended.
+     */
+    @Override
+    public void robotStates(int step, RobotStateBatch states) {
+
+        appendRecord(step, states);
+    }
+
+    /**
+     * Writes the step index and the number of steps, so that the trace can be read before the writer is closed.
+     *
+     * @param steps The number of ticks simulated.
+     * @throws UncheckedIOException if the trace cannot be written.
+     */
+    @Override
+    public void simulationEnded(int steps) {
+        try {
+            writeTrailer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of steps recorded so far, including the initial state.
+     *
+     * @return The number of records.
+     */
+    public long getStepCount() {
+
+        return stepCount;
+    }
+
+    /**
+     * Completes the header, trims the file to the recorded steps and closes it.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            if (robotCount >= 0) {
+                long end = writeTrailer();
+                channel.force(true);
+                channel.truncate(end);
+            }
+        } finally {
+            region = null;
+            previousRegion = null;
+            channel.close();
+        }
+    }
+
+    /**
+     * Checks that a quantization step is a positive finite number.
+     *
+     * @param precision The quantization step.
+     * @return The quantization step.
+     * @throws IllegalArgumentException if the precision is not a positive finite number.
+     */
+    private static double checkPrecision(double precision) {
+        if (!(precision > 0) || Double.isInfinite(precision)) {
+            throw new IllegalArgumentException("Precision must be a positive number.");
+        }
+        return precision;
+    }
+
+    /**
+     * Checks that a keyframe interval is positive.
+     *
+     * @param keyframeInterval The number of steps between two keyframes.
+     * @return The keyframe interval.
+     * @throws IllegalArgumentException if the interval is not positive.
+     */
+    private static int checkKeyframeInterval(int keyframeInterval) {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Keyframe interval must be a positive number.");
+        }
+        return keyframeInterval;
+    }
+
+    /**
+     * Writes the header describing the run, the labels and the areas.
+     *
+     * @param dt           The time step in seconds.
+     * @param initialState The state of every robot at step 0, giving the id of each column.
+     * @throws IOException if the file cannot be written.
+     */
+    private void writeHeader(double dt, RobotStateBatch initialState) throws IOException {
+        List<Area> areas = environment.getAreas();
+        byte[][] names = TraceFormat.labelNames(labels);
+        int size = TraceFormat.LABELS_OFFSET + TraceFormat.labelsSize(names) + TraceFormat.areasSize(areas.size())
+                + robotCount * Integer.BYTES;
+        dataOffset = (size + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+
+        ByteBuffer header = ByteBuffer.allocate((int) dataOffset).order(TraceFormat.ORDER);
+        header.put(TraceFormat.MAGIC);
+        header.putInt(TraceFormat.VERSION);
+        header.putInt(encoding);
+        header.putInt(robotCount);
+        header.putInt(labelWords);
+        header.putDouble(dt);
+        header.putLong(0);
+        header.putLong(dataOffset);
+        header.putLong(0);
+        header.putDouble(precision);
+        header.putInt(keyframeInterval);
+        header.putInt(encoding == TraceFormat.ENCODING_DELTA ? CHUNK_SIZE : 0);
+        TraceFormat.putLabels(header, names);
+        TraceFormat.putAreas(header, areas, labels::intern);
+        for (int i = 0; i < robotCount; i++) {
+            header.putInt(initialState.getId(i));
+        }
+        header.clear();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * Writes the step index of a delta trace after the last record, then the number of recorded steps and the
+     * offset of the index in the header.
+     *
+     * @return The end of the trace.
+     * @throws IOException if the trace cannot be written.
+     */
+    private long writeTrailer() throws IOException {
+        long end = dataEnd;
+        long indexOffset = 0;
+        if (encoding == TraceFormat.ENCODING_DELTA) {
+            indexOffset = dataEnd;
+            ByteBuffer index = ByteBuffer.allocate((int) (stepCount + 1) * Long.BYTES).order(TraceFormat.ORDER);
+            for (int step = 0; step < stepCount; step++) {
+                index.putLong(stepOffsets[step]);
+            }
+            index.putLong(dataEnd).flip();
+            while (index.hasRemaining()) {
+                channel.write(index, indexOffset + index.position());
+            }
+            end = indexOffset + index.capacity();
+        }
+        ByteBuffer fields = ByteBuffer.allocate(Long.BYTES).order(TraceFormat.ORDER);
+        channel.write(fields.putLong(0, stepCount), TraceFormat.STEP_COUNT_OFFSET);
+        channel.write(fields.clear().putLong(0, indexOffset), TraceFormat.INDEX_OFFSET_OFFSET);
+        return end;
+    }
+
+    /**
+     * Appends the record of a step.
+     *
+     * @param step   The number of the step.
+     * @param states The states of the robots that changed.
+     */
+    private void appendRecord(int step, RobotStateBatch states) {
+        if (encoder != null) {
+            appendDeltaRecord(step, states);
+        } else {
+            appendColumnarRecord(step, states);
+        }
+    }
+
+    /**
+     * Appends a delta record encoding the changes of the given states.
+     *
+     * @param step   The number of the step.
+     * @param states The states of the robots that changed.
+     * @throws UncheckedIOException if the file cannot be written.
+     */
+    private void appendDeltaRecord(int step, RobotStateBatch states) {
+        for (int i = 0; i < states.size(); i++) {
+            int id = states.getId(i);
+            int column = id < columnOf.length ? columnOf[id] : -1;
+            if (column >= 0) {
+                encoder.update(column, states, i);
+            }
+        }
+        if (stepCount == stepOffsets.length) {
+            stepOffsets = Arrays.copyOf(stepOffsets, stepOffsets.length * 2);
+        }
+        stepOffsets[(int) stepCount] = dataEnd;
+        ByteBuffer[] record = encoder.encode(step);
+        long remaining = 0;
+        for (ByteBuffer part : record) {
+            remaining += part.remaining();
+        }
+        try {
+            channel.position(dataEnd);
+            while (remaining > 0) {
+                long written = channel.write(record);
+                dataEnd += written;
+                remaining -= written;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        stepCount++;
+    }
+
+    /**
+     * Appends a columnar record holding the given states, and the previous state of the robots missing from them.
+     * The robots missing from the batch are those carried over by the previous record and those written from
+     * the previous batch but not from this one, so finding them costs no more than writing the record.
+     *
+     * @param step   The number of the step.
+     * @param states The states of the robots that changed.
+     */
+    private void appendColumnarRecord(int step, RobotStateBatch states) {
+        long record = stepCount;
+        if (region == null || record >= regionFirstRecord + recordsPerRegion) {
+            mapRegion(record);
+        }
+        int position = (int) ((record - regionFirstRecord) * recordSize);
+        region.putLong(position, step);
+        int written = 0;
+        for (int i = 0; i < states.size(); i++) {
+            int id = states.getId(i);
+            int column = id < columnOf.length ? columnOf[id] : -1;
+            if (column >= 0 && writtenAt[column] != (int) record) {
+                writeRobot(position, column, states, i);
+                writtenAt[column] = (int) record;
+                nextBatchColumns[written++] = column;
+            }
+        }
+        if (previousRegion != null) {
+            int idle = 0;
+            for (int k = 0; k < idleColumnCount; k++) {
+                if (writtenAt[idleColumns[k]] != (int) record) {
+                    idleColumns[idle++] = idleColumns[k];
+                }
+            }
+            for (int k = 0; k < batchColumnCount; k++) {
+                if (writtenAt[batchColumns[k]] != (int) record) {
+                    idleColumns[idle++] = batchColumns[k];
+                }
+            }
+            idleColumnCount = idle;
+            for (int k = 0; k < idle; k++) {
+                carryOver(position, idleColumns[k]);
+            }
+        }
+        int[] swap = batchColumns;
+        batchColumns = nextBatchColumns;
+        nextBatchColumns = swap;
+        batchColumnCount = written;
+        previousRegion = region;
+        previousPosition = position;
+        stepCount++;
+        dataEnd += recordSize;
+    }
+
+    /**
+     * Copies the state of one robot from the previous record into the current one.
+     *
+     * @param position The position of the current record in the current region.
+     * @param column   The column of the robot.
+     */
+    private void carryOver(int position, int column) {
+        int columnSize = robotCount * Double.BYTES;
+        int offset = Long.BYTES + column * Double.BYTES;
+        for (int field = 0; field < 4; field++) {
+            int at = offset + field * columnSize;
+            region.putDouble(position + at, previousRegion.getDouble(previousPosition + at));
+        }
+        int signals = Long.BYTES + 4 * columnSize + column * labelWords * Long.BYTES;
+        int areas = signals + robotCount * labelWords * Long.BYTES;
+        for (int word = 0; word < labelWords; word++) {
+            int at = word * Long.BYTES;
+            region.putLong(position + signals + at, previousRegion.getLong(previousPosition + signals + at));
+            region.putLong(position + areas + at, previousRegion.getLong(previousPosition + areas + at));
+        }
+    }
+
+    /**
+     * Writes the state of one robot into a record.
+     *
+     * @param position The position of the record in the current region.
+     * @param column   The column of the robot.
+     * @param states   The batch holding the robot.
+     * @param index    The index of the robot in the batch.
+     */
+    private void writeRobot(int position, int column, RobotStateBatch states, int index) {
+        int doubles = position + Long.BYTES + column * Double.BYTES;
+        int columnSize = robotCount * Double.BYTES;
+        region.putDouble(doubles, states.getX(index));
+        region.putDouble(doubles + columnSize, states.getY(index));
+        region.putDouble(doubles + 2 * columnSize, states.getHeading(index));
+        region.putDouble(doubles + 3 * columnSize, states.getSpeed(index));
+
+        int signals = position + Long.BYTES + 4 * columnSize + column * labelWords * Long.BYTES;
+        int areas = signals + robotCount * labelWords * Long.BYTES;
+        LabelSet robotSignals = states.getSignals(index);
+        LabelSet robotAreas = states.getAreas(index);
+        for (int word = 0; word < labelWords; word++) {
+            region.putLong(signals + word * Long.BYTES, robotSignals.getWord(word));
+            region.putLong(areas + word * Long.BYTES, robotAreas.getWord(word));
+        }
+    }
+
+    /**
+     * Maps the region of the file starting at the given record, extending the file as needed.
+     *
+     * @param firstRecord The index of the first record of the region.
+     * @throws UncheckedIOException if the file cannot be mapped.
+     */
+    private void mapRegion(long firstRecord) {
+        try {
+            region = channel.map(FileChannel.MapMode.READ_WRITE, dataOffset + firstRecord * recordSize,
+                    recordsPerRegion * recordSize);
+            region.order(TraceFormat.ORDER);
+            regionFirstRecord = firstRecord;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.AreaTransitionBatch;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotStateBatch;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.SimulationListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class is a {@link SimulationListener} recording the area transitions of a run in a binary file,
+ * so that consumers can follow robots entering and leaving areas without reading the state of every robot
+ * at every step.
+ * <p>
+ * The file holds, in little-endian order: the magic bytes, the format version and the labels (laid out as in
+ * a trace header), then one 12-byte record per transition: the step, the robot id, and the label id of the area
+ * shifted left by one, with the low bit set for an entry and clear for an exit.
+ * Records are buffered and written in blocks; a writer records a single run and must be closed once the run is over.
+ */
+public class TransitionWriter implements SimulationListener, Closeable {
+
+    static final byte[] MAGIC = "RSWTRANS".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int RECORD_SIZE = 3 * Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16; // Size of the buffer of the records
+
+    private final FileChannel channel;
+    private final Environment environment; // Environment whose labels are listed in the header
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(TraceFormat.ORDER);
+    private boolean started = false; // Whether the header was written
+    private long transitionCount = 0; // Number of transitions recorded
+
+    /**
+     * Creates a writer recording the transitions of a run in the given file, replacing any existing file.
+     *
+     * @param file        The transition file.
+     * @param environment The environment of the recorded robots, whose area labels are listed in the header.
+     * @throws IOException if the file cannot be opened.
+     */
+    public TransitionWriter(Path file, Environment environment) throws IOException {
+        this.environment = environment;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes the header, with the labels of the environment known when the run starts.
+     *
+     * @param dt           The time step in seconds.
+     * @param initialState The state of every robot at step 0.
+     * @throws IllegalStateException if the writer already recorded a run.
+     * @throws UncheckedIOException  if the file cannot be written.
+     */
+    @Override
+    public void simulationStarted(double dt, RobotStateBatch initialState) {
+        if (started) {
+            throw new IllegalStateException("A transition writer records a single run.");
+        }
+        started = true;
+        byte[][] names = TraceFormat.labelNames(environment.getLabels());
+        ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Integer.BYTES + TraceFormat.labelsSize(names))
+                .order(TraceFormat.ORDER);
+        header.put(MAGIC).putInt(VERSION);
+        TraceFormat.putLabels(header, names);
+        try {
+            write(header.flip());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends the transitions of a tick.
+     *
+     * @param step        The number of the tick.
+     * @param transitions The area transitions of the tick.
+     * @throws UncheckedIOException if the file cannot be written.
+     */
+    @Override
+    public void areaTransitions(int step, AreaTransitionBatch transitions) {
+        try {
+            for (int i = 0; i < transitions.size(); i++) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    flush();
+                }
+                buffer.putInt(step);
+                buffer.putInt(transitions.getRobotId(i));
+                buffer.putInt(transitions.getLabelId(i) << 1 | (transitions.isEntering(i) ? 1 : 0));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        transitionCount += transitions.size();
+    }
+
+    /**
+     * Writes the buffered transitions.
+     *
+     * @param steps The number of ticks simulated.
+     * @throws UncheckedIOException if the file cannot be written.
+     */
+    @Override
+    public void simulationEnded(int steps) {
+        try {
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of transitions recorded so far.
+     *
+     * @return The number of transitions.
+     */
+    public long getTransitionCount() {
+
+        return transitionCount;
+    }
+
+    /**
+     * Writes the buffered transitions and closes the file.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the buffered records.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    private void flush() throws IOException {
+        write(buffer.flip());
+        buffer.clear();
+    }
+
+    /**
+     * Writes every remaining byte of a buffer.
+     *
+     * @param bytes The bytes to write.
+     * @throws IOException if the file cannot be written.
+     */
+    private void write(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
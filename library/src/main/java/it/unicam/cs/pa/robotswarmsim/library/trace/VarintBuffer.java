@@ -0,0 +1,106 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class is a growable byte array receiving variable-length integers.
+ * Unsigned values are written in the LEB128 varint encoding, seven bits per byte; signed values are first
+ * zig-zag encoded, so that small differences of either sign take a single byte.
+ * A buffer is reused from record to record, so a steady-state encoding allocates nothing.
+ */
+final class VarintBuffer {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int size = 0; // Number of bytes written
+    private ByteBuffer view; // View over the array, recreated only when the array grows
+
+    /**
+     * Discards the content of the buffer, keeping its capacity.
+     */
+    void reset() {
+
+        size = 0;
+    }
+
+    /**
+     * Returns the number of bytes written.
+     *
+     * @return The size of the content.
+     */
+    int size() {
+
+        return size;
+    }
+
+    /**
+     * Returns a buffer wrapping the content, without copying it.
+     * The same view is returned by every call until the array grows, so its state is only valid until the next
+     * call or change.
+     *
+     * @return A buffer positioned at the start of the content and limited to its end.
+     */
+    ByteBuffer wrap() {
+        if (view == null || view.array() != bytes) {
+            view = ByteBuffer.wrap(bytes);
+        }
+        return view.limit(size).position(0);
+    }
+
+    /**
+     * Appends an unsigned varint.
+     *
+     * @param value The value, read as unsigned.
+     */
+    void putVarLong(long value) {
+        if (size + 10 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 10));
+        }
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Appends a signed value as a zig-zag varint.
+     *
+     * @param value The value.
+     */
+    void putZigZag(long value) {
+
+        putVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @param source The buffer to read, positioned at the varint and advanced past it.
+     * @return The value.
+     */
+    static long getVarLong(ByteBuffer source) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = source.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Reads a zig-zag varint.
+     *
+     * @param source The buffer to read, positioned at the varint and advanced past it.
+     * @return The signed value.
+     */
+    static long getZigZag(ByteBuffer source) {
+        long encoded = getVarLong(source);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+}
@@ -52,4 +52,16 @@ public class CommandsParserTest {
         assertEquals(1, moveCommand.getSpeed(), "Speed value should be 1");
     }
 
+    /**
+     * Test that the largest FOLLOW distance of the program is recorded.
+     */
+    @Test
+    public void testMaxFollowDistance() {
+        parser.processCommandString("FOLLOW Z1 3 1\nREPEAT 2\nFOLLOW Z2 7 1\nDONE", false);
+        assertEquals(7, parser.getMaxFollowDistance(), "The largest FOLLOW distance should be 7");
+
+        parser.processCommandString("MOVE 1 0 1", false);
+        assertEquals(0, parser.getMaxFollowDistance(), "A program without FOLLOW should have no distance");
+    }
+
 }
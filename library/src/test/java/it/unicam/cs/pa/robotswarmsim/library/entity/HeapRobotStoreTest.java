@@ -0,0 +1,88 @@
+package it.unicam.cs.pa.robotswarmsim.library.entity;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link HeapRobotStore}.
+ */
+public class HeapRobotStoreTest {
+
+    private RobotStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new HeapRobotStore();
+    }
+
+    @Test
+    void testAddAssignsConsecutiveIds() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, store.add(i, -i, i), "Rows should be numbered in insertion order");
+        }
+        assertEquals(100, store.size(), "The store should contain every added row");
+        assertEquals(42, store.getX(42), "Rows should keep their values when the columns grow");
+        assertEquals(-42, store.getY(42), "Rows should keep their values when the columns grow");
+    }
+
+    @Test
+    void testNewRowIsStillAndCommitted() {
+        int id = store.add(3, 4, 0);
+        assertEquals(0, store.getHeading(id), "A new robot should have no heading");
+        assertEquals(0, store.getSpeed(id), "A new robot should have no speed");
+        assertEquals(0, store.getCommandIndex(id), "A new robot should start from the first command");
+        assertEquals(3, store.getSnapshotX(id), "The initial position should be committed");
+        assertEquals(4, store.getSnapshotY(id), "The initial position should be committed");
+    }
+
+    @Test
+    void testHeadingCachesUnitVector() {
+        int id = store.add(0, 0, 0);
+        assertEquals(1, store.getHeadingX(id), "A new robot should face the x-axis");
+        assertEquals(0, store.getHeadingY(id), "A new robot should face the x-axis");
+
+        store.setHeading(id, 90);
+        assertEquals(0, store.getHeadingX(id), 1e-12, "The unit vector should follow the heading");
+        assertEquals(1, store.getHeadingY(id), 1e-12, "The unit vector should follow the heading");
+
+        store.setHeading(id, 180, -1, 0);
+        assertEquals(180, store.getHeading(id), "The heading should be set with its unit vector");
+        assertEquals(-1, store.getHeadingX(id), "A given unit vector should be kept as is");
+        assertEquals(0, store.getHeadingY(id), "A given unit vector should be kept as is");
+    }
+
+    @Test
+    void testCommitPosition() {
+        int id = store.add(0, 0, 0);
+        store.setPosition(id, 5, 6);
+        assertEquals(0, store.getSnapshotX(id), "The snapshot should not change before a commit");
+
+        store.commitPosition(id);
+        assertEquals(5, store.getSnapshotX(id), "The snapshot should follow the committed position");
+        assertEquals(6, store.getSnapshotY(id), "The snapshot should follow the committed position");
+    }
+
+    @Test
+    void testRobotIsViewOverRow() {
+        Environment environment = new Environment();
+        Robot first = new Robot(new Point(1, 2), environment);
+        Robot second = new Robot(new Point(3, 4), environment);
+        second.setHeading(90);
+        second.setSpeed(2);
+        second.incrementCommandIndex();
+        second.incrementTimedCommandTime(1.5);
+
+        RobotStore environmentStore = environment.getRobotStore();
+        assertEquals(0, first.getId());
+        assertEquals(1, second.getId());
+        assertEquals(90, environmentStore.getHeading(second.getId()), "The heading should be stored in the row");
+        assertEquals(2, environmentStore.getSpeed(second.getId()), "The speed should be stored in the row");
+        assertEquals(1, environmentStore.getCommandIndex(second.getId()), "The command index should be stored in the row");
+        assertEquals(1.5, environmentStore.getTimedElapsed(second.getId()), "The timed command time should be stored in the row");
+        assertEquals(new Point(1, 2), first.getPosition(), "Other rows should not be affected");
+    }
+}
@@ -0,0 +1,192 @@
+package it.unicam.cs.pa.robotswarmsim.library.entity;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.program.Program;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.SwarmFixtures;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link OffHeapRobotStore}.
+ */
+public class OffHeapRobotStoreTest {
+
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRowsMatchHeapStore() {
+        RobotStore heap = new HeapRobotStore();
+        RobotStore offHeap = new OffHeapRobotStore(10, 2, 2);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(heap.add(i, -i, i), offHeap.add(i, -i, i), "Rows should be numbered in insertion order");
+        }
+        for (RobotStore store : List.of(heap, offHeap)) {
+            store.setPosition(4, 5, 6);
+            store.setHeading(4, 90);
+            store.setSpeed(4, 2);
+            store.setCommandIndex(4, 3);
+            store.setTimedElapsed(4, 1.5);
+            store.resetLoopCounters(4, 2);
+            store.setLoopCounter(4, 1, 7);
+            store.setSignalWord(4, 0, 0b101);
+            store.setSignalWord(4, 1, 1L << 63);
+            store.commitPosition(4);
+        }
+        assertEquals(10, offHeap.size(), "The store should contain every added row");
+        assertEquals(2, heap.getSignalWords(), "The heap store should grow its signal words");
+        for (int id = 0; id < 10; id++) {
+            assertEquals(heap.getSnapshotX(id), offHeap.getSnapshotX(id), "Committed positions should match");
+            assertEquals(heap.getSnapshotY(id), offHeap.getSnapshotY(id), "Committed positions should match");
+            assertEquals(heap.getHeadingX(id), offHeap.getHeadingX(id), "Unit vectors should match");
+            assertEquals(heap.getHeadingY(id), offHeap.getHeadingY(id), "Unit vectors should match");
+            assertEquals(heap.getSpeed(id), offHeap.getSpeed(id), "Speeds should match");
+            assertEquals(heap.getCommandIndex(id), offHeap.getCommandIndex(id), "Command indexes should match");
+            assertEquals(heap.getTimedElapsed(id), offHeap.getTimedElapsed(id), "Elapsed times should match");
+            for (int word = 0; word < 3; word++) {
+                assertEquals(heap.getSignalWord(id, word), offHeap.getSignalWord(id, word), "Signals should match");
+            }
+            assertEquals(heap.nextRandomDouble(id), offHeap.nextRandomDouble(id), "Random streams should match");
+        }
+        assertEquals(7, offHeap.getLoopCounter(4, 1), "Loop counters should be kept");
+        offHeap.resetLoopCounters(4, 1);
+        assertEquals(0, offHeap.getLoopCounter(4, 1), "Loop counters should be cleared for a new program");
+    }
+
+    @Test
+    void testLayoutIsChecked() {
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapRobotStore(0, 1, 0),
+                "A store should hold at least one robot");
+        assertThrows(IllegalArgumentException.class,
+                () -> new OffHeapRobotStore(OffHeapRobotStore.MAX_CAPACITY + 1, 1, 0),
+                "A column should fit in a buffer");
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapRobotStore(1, 0, 0),
+                "A store should keep at least one signal word");
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapRobotStore(1, 1, -1),
+                "The number of loop counters cannot be negative");
+        assertEquals(1, OffHeapRobotStore.signalWordsFor(0), "No label should still need one word");
+        assertEquals(2, OffHeapRobotStore.signalWordsFor(65), "65 labels should need two words");
+
+        OffHeapRobotStore store = new OffHeapRobotStore(1, 1, 1);
+        store.add(0, 0, 0);
+        assertThrows(IllegalStateException.class, () -> store.add(1, 1, 1), "A full store should reject new rows");
+        store.setSignalWord(0, 1, 0);
+        assertEquals(0, store.getSignalWord(0, 1), "Words beyond the store should read as empty");
+        assertThrows(IllegalStateException.class, () -> store.setSignalWord(0, 1, 1),
+                "A signal beyond the store should not be dropped silently");
+        assertThrows(IllegalStateException.class, () -> store.resetLoopCounters(0, 2),
+                "A program with more loops than the store keeps should be rejected");
+    }
+
+    @Test
+    void testMappedStoreWritesFile() throws IOException {
+        Path file = directory.resolve("robots.state");
+        OffHeapRobotStore store = OffHeapRobotStore.mapped(file, 4, 2, 1);
+        assertTrue(store.isMapped(), "The store should be mapped from the file");
+        store.add(1, 2, 0);
+        store.add(3, 4, 0);
+        store.setPosition(1, 8, 9);
+        store.setSignalWord(1, 1, 42);
+        store.force();
+
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.nativeOrder());
+        int header = 4 * Long.BYTES;
+        assertEquals(header + 4 * (9 * Double.BYTES + 3 * Long.BYTES + 2 * Integer.BYTES), content.capacity(),
+                "The file should hold the header and every column");
+        assertEquals(4, content.getLong(0), "The header should hold the capacity");
+        assertEquals(2, content.getLong(8), "The header should hold the number of robots");
+        assertEquals(2, content.getLong(16), "The header should hold the number of signal words");
+        assertEquals(1, content.getLong(24), "The header should hold the number of loop counters");
+        assertEquals(8, content.getDouble(header + Double.BYTES), "The x column should follow the header");
+        assertEquals(9, content.getDouble(header + 4 * Double.BYTES + Double.BYTES), "The y column should follow x");
+        int secondWord = header + 4 * (9 * Double.BYTES + Long.BYTES) + 4 * Long.BYTES;
+        assertEquals(42, content.getLong(secondWord + Long.BYTES), "Each signal word should have its column");
+    }
+
+    @Test
+    void testSimulationMatchesHeapStore() throws IOException {
+        List<Program> programs = SwarmFixtures.kinematicPrograms();
+        Environment environment = environment(programs);
+        int signalWords = OffHeapRobotStore.signalWordsFor(environment.getLabels().size());
+        int loopCounters = programs.stream().mapToInt(Program::getLoopCounterCount).max().orElse(0);
+        assertTrue(signalWords > 1, "The swarm should signal a label beyond the first word");
+
+        List<String> expected = runSwarm(environment, new HeapRobotStore(), programs);
+        assertTrue(expected.stream().anyMatch(state -> state.endsWith("true 1")), "Some robots should arrive");
+        assertTrue(expected.stream().allMatch(state -> state.endsWith("true 1") || state.endsWith("false 0")),
+                "The store should hold the signals of every robot");
+        assertEquals(expected, runSwarm(environment(programs),
+                new OffHeapRobotStore(200, signalWords, loopCounters), programs),
+                "A direct store should not change the results");
+        assertEquals(expected, runSwarm(environment(programs),
+                OffHeapRobotStore.mapped(directory.resolve("swarm.state"), 200, signalWords, loopCounters), programs), "A mapped store should not change the results");
+    }
+
+    @Test
+    void testStoreCannotBeReplacedAfterRobots() {
+        Environment environment = new Environment();
+        OffHeapRobotStore nonEmpty = new OffHeapRobotStore(1, 1, 0);
+        nonEmpty.add(0, 0, 0);
+        assertThrows(IllegalArgumentException.class, () -> environment.setRobotStore(nonEmpty),
+                "A store already holding robots should be rejected");
+        new Robot(new Point(0, 0), environment);
+        assertThrows(IllegalStateException.class, () -> environment.setRobotStore(new OffHeapRobotStore(1, 1, 0)),
+                "The store should not be replaced once robots were created");
+    }
+
+    /**
+     * Creates the environment of the swarm, filling the first word of its label registry so that
+     * the signalled label has an id above 63, and interning the labels of the programs.
+     *
+     * @param programs The programs of the robots.
+     * @return The environment, without robots.
+     */
+    private static Environment environment(List<Program> programs) {
+        Environment environment = new Environment(5);
+        LabelRegistry labels = environment.getLabels();
+        while (labels.size() < Long.SIZE) {
+            labels.intern("off-heap-filler-" + labels.size());
+        }
+        SwarmFixtures.addGoal(environment);
+        programs.forEach(program -> program.getLabels().forEach(labels::intern));
+        return environment;
+    }
+
+    /**
+     * Runs the kinematic swarm with the given store.
+     *
+     * @param environment The environment of the swarm, without robots.
+     * @param store       The store of the robots.
+     * @param programs    The programs of the robots.
+     * @return The final state of every robot, with the coordinates as raw bits.
+     */
+    private static List<String> runSwarm(Environment environment, RobotStore store, List<Program> programs) {
+        environment.setRobotStore(store);
+        List<Robot> swarm = SwarmFixtures.kinematicSwarm(environment, programs, 200);
+        SwarmFixtures.simulateKinematicSwarm(new RobotSimulator(swarm));
+
+        int arrived = environment.getLabels().find(SwarmFixtures.ARRIVED);
+        List<String> states = new ArrayList<>();
+        for (Robot robot : swarm) {
+            states.add(Double.doubleToLongBits(robot.getX()) + " " + Double.doubleToLongBits(robot.getY()) + " "
+                    + robot.getHeading() + " " + robot.getCurrentCommandIndex() + " "
+                    + robot.isSignaling(SwarmFixtures.ARRIVED) + " "
+                    + (store.getSignalWord(robot.getId(), arrived / Long.SIZE) >>> (arrived % Long.SIZE) & 1));
+        }
+        return states;
+    }
+}
@@ -2,12 +2,15 @@ package it.unicam.cs.pa.robotswarmsim.library.entity;
 
 import it.unicam.cs.pa.robotswarmsim.library.Environment;
 import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.SimulationMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Test class for {@link Robot}.
@@ -78,4 +81,73 @@ public class RobotTest {
         assertFalse(robot.isSignaling(testLabel), "Robot should no longer be signaling the removed label");
     }
 
+    @Test
+    void testSnapshotOnlyChangesOnCommit() {
+        robot.setPosition(new Point(3, 4));
+        robot.signalLabel("testSignal");
+        assertEquals(new Point(0, 0), robot.getSnapshotPosition(), "Snapshot position should not change before a commit");
+        assertFalse(robot.isSignalingInSnapshot("testSignal"), "Snapshot signals should not change before a commit");
+
+        robot.commitState();
+        assertEquals(new Point(3, 4), robot.getSnapshotPosition(), "Snapshot position should follow the committed position");
+        assertTrue(robot.isSignalingInSnapshot("testSignal"), "Snapshot signals should follow the committed signals");
+    }
+
+    @Test
+    void testRandomStreamIsReproducible() {
+        Robot first = new Robot(new Point(0, 0), new Environment(7));
+        Robot second = new Robot(new Point(0, 0), new Environment(7));
+        for (int i = 0; i < 10; i++) {
+            double value = first.nextRandomDouble();
+            assertTrue(value >= 0 && value < 1, "Random values should be in [0, 1)");
+            assertEquals(value, second.nextRandomDouble(), "Robots with the same seed should draw the same values");
+        }
+    }
+
+    @Test
+    void testRobotsWithinRangeUseCommittedPositions() {
+        Environment environment = new Environment();
+        Robot center = new Robot(new Point(0, 0), environment);
+        Robot near = new Robot(new Point(3, 0), environment);
+        Robot far = new Robot(new Point(30, 0), environment);
+        environment.addRobot(center);
+        environment.addRobot(near);
+        environment.addRobot(far);
+
+        assertEquals(List.of(near), center.getRobotsWithinRange(5), "Only the near robot should be within range");
+
+        far.setPosition(new Point(1, 0));
+        assertEquals(List.of(near), center.getRobotsWithinRange(5), "Uncommitted moves should not be visible");
+
+        far.commitState();
+        environment.updateRobotIndex(far);
+        assertEquals(Set.of(near, far), new HashSet<>(center.getRobotsWithinRange(5)), "Committed moves should be visible");
+    }
+
+    @Test
+    void testRangeQueriesAllocateNothing() {
+        assumeTrue(SimulationMetrics.threadAllocatedBytes() >= 0, "The JVM does not measure thread allocations.");
+        Environment environment = new Environment();
+        for (int i = 0; i < 10; i++) {
+            environment.addRobot(new Robot(new Point(i, 0), environment));
+        }
+        Robot center = environment.getRobot(0);
+        List<Robot> buffer = new ArrayList<>(16);
+        Consumer<Robot> ignore = robot -> { };
+        for (int i = 0; i < 1000; i++) {
+            center.getRobotsWithinRange(5, buffer);
+            environment.forEachRobotWithinRange(0, 0, 5, ignore);
+        }
+
+        long start = SimulationMetrics.threadAllocatedBytes();
+        for (int i = 0; i < 10_000; i++) {
+            center.getRobotsWithinRange(5, buffer);
+            environment.forEachRobotWithinRange(0, 0, 5, ignore);
+        }
+        long allocated = SimulationMetrics.threadAllocatedBytes() - start;
+
+        assertEquals(5, buffer.size(), "The five other robots within range should be collected");
+        assertTrue(allocated < 1024, "Range queries should not allocate a visitor per call, allocated " + allocated);
+    }
+
 }
@@ -0,0 +1,138 @@
+package it.unicam.cs.pa.robotswarmsim.library.jfr;
+
+import it.unicam.cs.pa.robotswarmsim.library.CommandsParser;
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.ContinueCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.FollowCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveCommand;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecorderEventsTest {
+
+    private static final String PREFIX = "it.unicam.cs.pa.robotswarmsim.";
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Verifies that a recorded run contains the tick, command batch, neighbour query and parser events.
+     */
+    @Test
+    public void testRecordedRun() throws IOException {
+        Path file = directory.resolve("run.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[]{"CommandBatch", "RangeQuery", "Parse"}) {
+                recording.enable(PREFIX + name);
+            }
+            // Ticks are thresholded by default; keep them all
+            recording.enable(PREFIX + "Tick").withThreshold(Duration.ZERO);
+            recording.start();
+
+            new CommandsParser().processCommandString("MOVE 1 0 1\nSTOP", false);
+            Environment environment = new Environment();
+            List<Robot> robots = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                Robot robot = new Robot(new Point(i % 50, i / 50), environment);
+                robot.setCommands(List.of(new FollowCommand("Beacon", 3, 1), new ContinueCommand(9)));
+                robots.add(robot);
+            }
+            RobotSimulator simulator = new RobotSimulator(robots);
+            simulator.setHeadless(true);
+            simulator.simulate(1.0, 10.0);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<RecordedEvent> ticks = ofType(events, "Tick");
+        assertEquals(10, ticks.size(), "Every tick should be recorded.");
+        assertEquals(2000, ticks.get(0).getInt("robotCount"), "The tick should count its active robots.");
+
+        List<RecordedEvent> batches = ofType(events, "CommandBatch");
+        assertFalse(batches.isEmpty(), "Command batches should be recorded.");
+        assertEquals("FollowCommand", batches.get(0).getString("commandClass"), "The first tick runs FOLLOW.");
+        assertEquals(2000, batches.get(0).getInt("executions"), "Every robot should execute FOLLOW.");
+        assertTrue(batches.stream().anyMatch(batch -> batch.getString("commandClass").equals("ContinueCommand")),
+                "The timed CONTINUE should be tallied while it runs.");
+
+        List<RecordedEvent> queries = ofType(events, "RangeQuery");
+        assertFalse(queries.isEmpty(), "A sample of the neighbour queries should be recorded.");
+        assertTrue(queries.size() < 2000, "Neighbour queries should be sampled.");
+        for (RecordedEvent query : queries) {
+            assertTrue(query.getInt("candidates") >= query.getInt("hits"),
+                    "A query cannot hit more robots than it examines.");
+        }
+
+        List<RecordedEvent> parses = ofType(events, "Parse");
+        assertEquals(1, parses.size(), "The parser run should be recorded.");
+        assertTrue(parses.get(0).getBoolean("succeeded"), "The program should be parsed successfully.");
+        assertEquals(2, parses.get(0).getInt("items"), "The program has two commands.");
+    }
+
+    /**
+     * Verifies that the commands stepped on the workers of a pool are tallied once per tick.
+     */
+    @Test
+    public void testCommandBatchesOfParallelRun() throws IOException {
+        Path file = directory.resolve("parallel.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PREFIX + "CommandBatch");
+            recording.start();
+
+            Environment environment = new Environment(1);
+            List<Robot> robots = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                Robot robot = new Robot(new Point(i % 50, i / 50), environment);
+                robot.setCommands(List.of(new MoveCommand(1, 0, 1), new ContinueCommand(2)));
+                environment.addRobot(robot);
+                robots.add(robot);
+            }
+            RobotSimulator simulator = new RobotSimulator(robots);
+            simulator.setHeadless(true);
+            simulator.setParallelism(4);
+            simulator.simulate(1.0, 3.0);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> batches = ofType(RecordingFile.readAllEvents(file), "CommandBatch");
+        assertEquals(List.of("MoveCommand", "ContinueCommand", "ContinueCommand"),
+                batches.stream().map(batch -> batch.getString("commandClass")).toList(),
+                "Each tick should commit one batch per command class.");
+        assertEquals(1000, batches.get(0).getInt("completions"), "Every robot should complete its MOVE.");
+        assertEquals(1000, batches.get(1).getInt("executions"), "Every robot should run its CONTINUE.");
+        assertEquals(0, batches.get(1).getInt("completions"), "The CONTINUE is still running.");
+        assertEquals(1000, batches.get(2).getInt("completions"), "Every robot should complete its CONTINUE.");
+    }
+
+    /**
+     * Returns the events of one type of the simulator, in recording order.
+     *
+     * @param events All the recorded events.
+     * @param name   The name of the type, without the common prefix.
+     * @return The matching events.
+     */
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(PREFIX + name))
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .toList();
+    }
+}
@@ -0,0 +1,77 @@
+package it.unicam.cs.pa.robotswarmsim.library.kinematics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link PositionIntegrator} implementations.
+ */
+public class PositionIntegratorTest {
+
+    private static final int ROBOTS = 1000;
+
+    /**
+     * Verifies that the scalar integrator moves the listed robots, and only them, along their heading.
+     */
+    @Test
+    public void testScalarMovesListedRobots() {
+        double[] x = {1, 2, 3};
+        double[] y = {1, 2, 3};
+        double[] speed = {2, 2, 2};
+        double[] headingX = {1, 0, -1};
+        double[] headingY = {0, 1, 0};
+
+        PositionIntegrator.scalar().integrate(x, y, speed, headingX, headingY, new int[]{2, 0}, 2, 0.5);
+
+        assertArrayEquals(new double[]{2, 2, 2}, x, "The listed robots should move along x by speed * dt.");
+        assertArrayEquals(new double[]{1, 2, 3}, y, "No robot should move along y.");
+    }
+
+    /**
+     * Verifies that the preferred integrator is the SIMD one exactly when the Vector API module is present.
+     */
+    @Test
+    public void testPreferredDependsOnVectorModule() {
+        boolean vectorModule = ModuleLayer.boot().findModule(PositionIntegrator.VECTOR_MODULE).isPresent();
+        assertEquals(vectorModule, !(PositionIntegrator.preferred() instanceof ScalarPositionIntegrator),
+                "The SIMD integrator should be preferred only when the Vector API is available.");
+    }
+
+    /**
+     * Verifies that the preferred integrator gives bit-identical results to the scalar one, for runs of
+     * consecutive ids, scattered ids and a count that is not a multiple of the number of lanes.
+     */
+    @Test
+    public void testPreferredMatchesScalar() {
+        SplittableRandom random = new SplittableRandom(11);
+        double[][] columns = new double[5][ROBOTS];
+        for (double[] column : columns) {
+            for (int i = 0; i < ROBOTS; i++) {
+                column[i] = random.nextDouble(-100, 100);
+            }
+        }
+        int[] ids = new int[ROBOTS];
+        int count = 0;
+        for (int i = 0; i < ROBOTS; i++) {
+            // Long runs of consecutive ids, broken by gaps
+            if (i % 97 != 0 && random.nextInt(10) != 0) {
+                ids[count++] = i;
+            }
+        }
+        for (int length : new int[]{count, count - 3, 5}) {
+            double[] scalarX = columns[0].clone();
+            double[] scalarY = columns[1].clone();
+            double[] preferredX = columns[0].clone();
+            double[] preferredY = columns[1].clone();
+            PositionIntegrator.scalar().integrate(scalarX, scalarY, columns[2], columns[3], columns[4],
+                    ids, length, 0.1);
+            PositionIntegrator.preferred().integrate(preferredX, preferredY, columns[2], columns[3], columns[4],
+                    ids, length, 0.1);
+            assertArrayEquals(scalarX, preferredX, "The x-coordinates should match the scalar integrator.");
+            assertArrayEquals(scalarY, preferredY, "The y-coordinates should match the scalar integrator.");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package it.unicam.cs.pa.robotswarmsim.library.label;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.program.Program;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.SignalCommand;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link LabelRegistry}.
+ */
+public class LabelRegistryTest {
+
+    private final LabelRegistry registry = new LabelRegistry();
+
+    @Test
+    void testInternIsStable() {
+        int id = registry.intern("labelRegistryTestA");
+
+        assertEquals(id, registry.intern("labelRegistryTestA"), "A label should always get the same id");
+        assertEquals(id, registry.find("labelRegistryTestA"), "Finding a label should return its id");
+        assertEquals("labelRegistryTestA", registry.getName(id), "An id should map back to its label");
+        assertNotEquals(id, registry.intern("labelRegistryTestB"), "Different labels should get different ids");
+    }
+
+    @Test
+    void testFindDoesNotIntern() {
+        int size = registry.size();
+
+        assertEquals(-1, registry.find("labelRegistryTestMissing"), "An unknown label should have no id");
+        assertEquals(size, registry.size(), "Finding a label should not intern it");
+        assertThrows(IllegalArgumentException.class, () -> registry.getName(-1), "Negative ids are invalid");
+    }
+
+    @Test
+    void testEnvironmentsHaveTheirOwnLabels() {
+        Environment first = new Environment(1);
+        first.addArea(new Circle(new Point(0, 0), 1, "labelRegistryTestArea"));
+        Environment second = new Environment(1);
+        Program program = Program.compile(List.of(new SignalCommand("labelRegistryTestSignal")));
+        Robot inFirst = new Robot(new Point(0, 0), first);
+        Robot inSecond = new Robot(new Point(0, 0), second);
+        inFirst.setProgram(program);
+        inSecond.setProgram(program);
+
+        assertEquals(2, first.getLabels().size(), "An environment should intern its areas and programs");
+        assertEquals(1, second.getLabels().size(), "The labels of another environment should not leak");
+        inFirst.runProgram(1);
+        inSecond.runProgram(1);
+        assertTrue(inFirst.isSignaling("labelRegistryTestSignal"), "A shared command should signal in each environment");
+        assertTrue(inSecond.getSignals().contains(second.getLabels().find("labelRegistryTestSignal")),
+                "A shared command should use the ids of the environment it runs in");
+    }
+}
@@ -0,0 +1,86 @@
+package it.unicam.cs.pa.robotswarmsim.library.label;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link LabelSet}.
+ */
+public class LabelSetTest {
+
+    private LabelSet set;
+
+    @BeforeEach
+    void setUp() {
+        set = new LabelSet();
+    }
+
+    @Test
+    void testAddRemoveContains() {
+        assertTrue(set.add(3), "Adding a new id should change the set");
+        assertFalse(set.add(3), "Adding an id twice should not change the set");
+        assertTrue(set.contains(3), "An added id should be contained");
+        assertFalse(set.contains(4), "An id never added should not be contained");
+        assertFalse(set.contains(-1), "Unknown labels have negative ids and are never contained");
+        assertTrue(set.remove(3), "Removing a contained id should change the set");
+        assertFalse(set.remove(3), "Removing a missing id should not change the set");
+        assertTrue(set.isEmpty(), "The set should be empty after removing its only id");
+    }
+
+    @Test
+    void testIdsBeyondOneWord() {
+        set.add(1);
+        set.add(63);
+        set.add(64);
+        set.add(200);
+
+        assertEquals(4, set.size(), "Ids on both sides of the first word should be counted");
+        assertTrue(set.contains(64) && set.contains(200), "Large ids should be contained");
+        assertEquals((1L << 1) | (1L << 63), set.getLowBits(), "The low word should hold ids below 64");
+
+        List<Integer> ids = new ArrayList<>();
+        set.forEach(ids::add);
+        assertEquals(List.of(1, 63, 64, 200), ids, "Ids should be visited in increasing order");
+
+        set.clear();
+        assertTrue(set.isEmpty(), "Clearing should remove large ids too");
+    }
+
+    @Test
+    void testCopyFrom() {
+        LabelSet other = new LabelSet();
+        other.add(5);
+        other.add(100);
+        set.add(7);
+        set.add(300);
+
+        set.copyFrom(other);
+
+        List<Integer> ids = new ArrayList<>();
+        set.forEach(ids::add);
+        assertEquals(List.of(5, 100), ids, "A copy should contain exactly the ids of the source");
+        other.add(6);
+        assertFalse(set.contains(6), "A copy should not follow later changes of the source");
+    }
+
+    @Test
+    void testLabelView() {
+        LabelRegistry registry = new LabelRegistry();
+        Set<String> labels = set.asLabels(registry);
+
+        labels.add("labelSetTestA");
+        set.add(registry.intern("labelSetTestB"));
+
+        assertEquals(Set.of("labelSetTestA", "labelSetTestB"), labels, "The view should show the labels of the ids");
+        assertTrue(set.contains(registry.find("labelSetTestA")), "Adding to the view should add the id");
+        assertFalse(labels.contains("labelSetTestNeverInterned"), "Unknown labels should not be contained");
+        labels.remove("labelSetTestB");
+        assertFalse(set.contains(registry.find("labelSetTestB")), "Removing from the view should remove the id");
+    }
+}
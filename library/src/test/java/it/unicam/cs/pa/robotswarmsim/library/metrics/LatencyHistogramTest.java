@@ -0,0 +1,73 @@
+package it.unicam.cs.pa.robotswarmsim.library.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    /**
+     * Verifies that small values are recorded exactly.
+     */
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100, histogram.getCount(), "Every value should be counted.");
+        assertEquals(5050, histogram.getTotal(), "The total should be the exact sum of the values.");
+        assertEquals(1, histogram.getMin(), "The minimum should be the smallest value.");
+        assertEquals(100, histogram.getMax(), "The maximum should be the largest value.");
+        assertEquals(50, histogram.getValueAtPercentile(50), "Values below 256 should have exact percentiles.");
+        assertEquals(99, histogram.getValueAtPercentile(99), "Values below 256 should have exact percentiles.");
+    }
+
+    /**
+     * Verifies that the percentiles of large values are within 1% of the exact ones.
+     */
+    @Test
+    public void testPercentilePrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1_000_000; value++) {
+            histogram.record(value * 1000);
+        }
+        for (double percentile : new double[]{10, 50, 90, 99, 99.9}) {
+            double exact = percentile * 10_000_000;
+            long estimate = histogram.getValueAtPercentile(percentile);
+            assertEquals(exact, estimate, exact * 0.01, "Percentile " + percentile + " should be within 1%.");
+        }
+        assertEquals(1_000_000_000L, histogram.getValueAtPercentile(100), "The 100th percentile should be the maximum.");
+    }
+
+    /**
+     * Verifies that merging histograms and resetting them keep the statistics consistent.
+     */
+    @Test
+    public void testAddAndReset() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(5_000);
+        first.add(second);
+        assertEquals(2, first.getCount(), "The merged histogram should count both values.");
+        assertEquals(10, first.getMin(), "The merged minimum should be the smaller one.");
+        assertEquals(5_000, first.getMax(), "The merged maximum should be the larger one.");
+        first.reset();
+        assertEquals(0, first.getCount(), "A reset histogram should be empty.");
+        assertEquals(0, first.getValueAtPercentile(50), "An empty histogram should report 0.");
+        assertEquals(0, first.getMean(), "An empty histogram should have a mean of 0.");
+    }
+
+    /**
+     * Verifies that percentiles outside 0 to 100 are rejected.
+     */
+    @Test
+    public void testInvalidPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(-1),
+                "A negative percentile should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(100.5),
+                "A percentile above 100 should be rejected.");
+    }
+}
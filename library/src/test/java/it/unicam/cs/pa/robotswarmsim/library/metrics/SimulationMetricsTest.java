@@ -0,0 +1,87 @@
+package it.unicam.cs.pa.robotswarmsim.library.metrics;
+
+import it.unicam.cs.pa.robotswarmsim.library.metrics.SimulationMetrics.Counter;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulationMetricsTest {
+
+    /**
+     * Verifies that the counts of a tick become the values of the last tick and are added to the totals.
+     */
+    @Test
+    public void testPerTickAndCumulativeValues() {
+        SimulationMetrics metrics = new SimulationMetrics();
+        metrics.add(Counter.NEIGHBOUR_CANDIDATES, 10);
+        metrics.add(Counter.NEIGHBOUR_CANDIDATES, 5);
+        metrics.endTick();
+        metrics.add(Counter.NEIGHBOUR_CANDIDATES, 7);
+        metrics.add(Counter.AREA_TESTS, 3);
+        assertEquals(15, metrics.getLastTick(Counter.NEIGHBOUR_CANDIDATES),
+                "Counts of a tick in progress should not be visible.");
+        metrics.endTick();
+
+        assertEquals(2, metrics.getTickCount(), "Both ticks should be counted.");
+        assertEquals(7, metrics.getLastTickNeighbourCandidates(), "The last tick should hold its own counts.");
+        assertEquals(22, metrics.getNeighbourCandidates(), "The total should sum every tick.");
+        assertEquals(3, metrics.getAreaTests(), "Each counter should be kept separately.");
+
+        metrics.reset();
+        assertEquals(0, metrics.getTickCount(), "Reset should clear the tick count.");
+        assertEquals(0, metrics.getNeighbourCandidates(), "Reset should clear the totals.");
+        assertEquals(0, metrics.getLastTickAreaTests(), "Reset should clear the values of the last tick.");
+    }
+
+    /**
+     * Verifies that the allocations of the calling thread are measured.
+     */
+    @Test
+    public void testAllocatedBytes() {
+        SimulationMetrics metrics = new SimulationMetrics();
+        long start = SimulationMetrics.threadAllocatedBytes();
+        long[][] garbage = new long[64][];
+        for (int i = 0; i < garbage.length; i++) {
+            garbage[i] = new long[1024];
+        }
+        metrics.addAllocatedSince(start);
+        metrics.endTick();
+        if (start >= 0) {
+            assertTrue(metrics.getAllocatedBytes() >= 64 * 1024 * Long.BYTES,
+                    "The allocated arrays should be counted.");
+        }
+        assertEquals(1024, garbage[63].length, "The arrays should be allocated.");
+    }
+
+    /**
+     * Verifies that the registry can be read through the platform MBean server and that names are unique.
+     */
+    @Test
+    public void testMBean() throws Exception {
+        SimulationMetrics metrics = new SimulationMetrics();
+        SimulationMetrics other = new SimulationMetrics();
+        metrics.registerMBean("test");
+        try {
+            metrics.add(Counter.AREA_QUERIES, 4);
+            metrics.endTick();
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = metrics.getObjectName();
+            assertEquals(4L, server.getAttribute(name, "AreaQueries"), "The total should be exposed.");
+            assertEquals(4L, server.getAttribute(name, "LastTickAreaQueries"), "The last tick should be exposed.");
+            assertEquals(1L, server.getAttribute(name, "TickCount"), "The tick count should be exposed.");
+            assertThrows(IllegalArgumentException.class, () -> other.registerMBean("test"),
+                    "A name in use should be rejected.");
+            assertThrows(IllegalStateException.class, () -> metrics.registerMBean("again"),
+                    "A registered registry should not be registered twice.");
+        } finally {
+            metrics.unregisterMBean();
+        }
+        assertNull(metrics.getObjectName(), "An unregistered registry should have no name.");
+        other.registerMBean("test");
+        other.unregisterMBean();
+    }
+}
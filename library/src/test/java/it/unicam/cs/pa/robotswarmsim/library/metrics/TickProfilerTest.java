@@ -0,0 +1,58 @@
+package it.unicam.cs.pa.robotswarmsim.library.metrics;
+
+import it.unicam.cs.pa.robotswarmsim.library.metrics.TickProfiler.Phase;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TickProfilerTest {
+
+    /**
+     * Verifies that the tick time is the sum of its phases, excluding the wait.
+     */
+    @Test
+    public void testTickTimeExcludesWait() {
+        TickProfiler profiler = new TickProfiler();
+        long start = System.nanoTime();
+        long mark = profiler.record(Phase.WAIT, start - 1_000_000);
+        profiler.record(Phase.STEP, mark - 3_000);
+        profiler.addNested(Phase.NEIGHBOUR_QUERY, 1_000);
+        profiler.endTick();
+
+        assertEquals(1, profiler.getTickHistogram().getCount(), "One tick should be recorded.");
+        assertTrue(profiler.getTickHistogram().getMax() < 1_000_000, "The wait should not count as tick time.");
+        assertEquals(1, profiler.getPhaseHistogram(Phase.WAIT).getCount(), "The wait should have its own histogram.");
+        assertEquals(1_000, profiler.getPhaseHistogram(Phase.NEIGHBOUR_QUERY).getTotal(),
+                "Nested time should be recorded as added.");
+        double share = profiler.getShare(Phase.NEIGHBOUR_QUERY);
+        assertTrue(share > 0 && share <= 1, "A nested share should be relative to the step phase.");
+    }
+
+    /**
+     * Verifies that nested time can only be added to nested phases.
+     */
+    @Test
+    public void testAddNestedToTopLevelPhase() {
+        TickProfiler profiler = new TickProfiler();
+        assertThrows(IllegalArgumentException.class, () -> profiler.addNested(Phase.STEP, 1),
+                "Only nested phases should accept summed time.");
+    }
+
+    /**
+     * Verifies that the report lists every phase and that reset clears the recorded ticks.
+     */
+    @Test
+    public void testReportAndReset() {
+        TickProfiler profiler = new TickProfiler();
+        profiler.record(Phase.COMMIT, System.nanoTime());
+        profiler.endTick();
+        String report = profiler.report();
+        assertTrue(report.startsWith("Ticks: 1,"), "The report should start with the tick count.");
+        for (String phase : new String[]{"wait", "commit", "index", "step", "area update", "neighbour query",
+                "report", "retire"}) {
+            assertTrue(report.contains(phase), "The report should list the " + phase + " phase.");
+        }
+        profiler.reset();
+        assertEquals(0, profiler.getTickHistogram().getCount(), "Reset should clear the recorded ticks.");
+    }
+}
@@ -0,0 +1,257 @@
+package it.unicam.cs.pa.robotswarmsim.library.net;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.ContinueCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RobotCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.SignalCommand;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static it.unicam.cs.pa.robotswarmsim.library.simulator.SwarmFixtures.headless;
+import static it.unicam.cs.pa.robotswarmsim.library.simulator.SwarmFixtures.swarm;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link StateServer}.
+ */
+public class StateServerTest {
+
+    @Test
+    public void testStreamsFinalState() throws Exception {
+        List<Robot> robots = robots(3, List.of(new SignalCommand("Streamed"), new MoveCommand(1, 0, 2),
+                new ContinueCommand(3)));
+        RobotSimulator simulator = headless(robots);
+        try (StateServer server = new StateServer(0, robots.get(0).getLabels()); Socket socket = connect(server)) {
+            simulator.addListener(server);
+            awaitClients(server, 1);
+            simulator.simulate(1.0, 4.0);
+
+            InputStream in = socket.getInputStream();
+            ByteBuffer hello = read(in, 8 + 4 + 8 + 4);
+            byte[] magic = new byte[8];
+            hello.get(magic);
+            assertEquals("RSWSTREM", new String(magic, StandardCharsets.US_ASCII), "The hello message should start with the magic bytes.");
+            assertEquals(1, hello.getInt(), "The protocol version should be sent.");
+            assertEquals(1.0, hello.getDouble(), "The time step should be sent.");
+            assertEquals(3, hello.getInt(), "The number of robots should be sent.");
+            ByteBuffer ids = read(in, 3 * 4);
+            for (Robot robot : robots) {
+                assertEquals(robot.getId(), ids.getInt(), "The robot ids should be sent in order.");
+            }
+            int labelCount = read(in, 4).getInt();
+            List<String> labels = new ArrayList<>();
+            for (int i = 0; i < labelCount; i++) {
+                labels.add(new String(read(in, read(in, 4).getInt()).array(), StandardCharsets.UTF_8));
+            }
+            int signal = labels.indexOf("Streamed");
+            assertEquals(robots.get(0).getLabels().find("Streamed"), signal, "The labels should be sent.");
+
+            long step = -1;
+            ByteBuffer frame = null;
+            while (step < 4) {
+                frame = read(in, read(in, 4).getInt());
+                long frameStep = frame.getLong();
+                assertTrue(frameStep > step, "Frames should arrive in step order.");
+                step = frameStep;
+            }
+            int labelWords = frame.getInt();
+            for (int i = 0; i < robots.size(); i++) {
+                assertEquals(robots.get(i).getX(), frame.getDouble(8 + 4 + i * 8), "The x-coordinates should be streamed.");
+                assertEquals(robots.get(i).getY(), frame.getDouble(8 + 4 + (3 + i) * 8), "The y-coordinates should be streamed.");
+                long word = frame.getLong(8 + 4 + 6 * 8 + (i * labelWords + signal / 64) * 8);
+                assertTrue((word & (1L << (signal % 64))) != 0, "The signals should be streamed.");
+            }
+        }
+    }
+
+    @Test
+    public void testSlowClientDoesNotBlockSimulation() throws Exception {
+        List<Robot> robots = robots(5000, List.of(new MoveCommand(1, 1, 1), new ContinueCommand(1000)));
+        RobotSimulator simulator = headless(robots);
+        try (StateServer server = new StateServer(0, robots.get(0).getLabels()); Socket socket = connect(server)) {
+            simulator.addListener(server);
+            awaitClients(server, 1);
+            // The client reads nothing while the run produces far more frames than the socket buffers can hold
+            simulator.simulate(1.0, 200.0);
+            assertEquals(201, server.getPublishedFrameCount(), "Every tick should be encoded once.");
+
+            InputStream in = socket.getInputStream();
+            read(in, 8 + 4 + 8 + 4 + 5000 * 4);
+            int labelCount = read(in, 4).getInt();
+            for (int i = 0; i < labelCount; i++) {
+                read(in, read(in, 4).getInt());
+            }
+            int frames = 0;
+            long step = -1;
+            while (step < 200) {
+                step = read(in, read(in, 4).getInt()).getLong();
+                frames++;
+            }
+            assertTrue(frames < 201, "A slow client should receive fewer frames instead of blocking the run.");
+            assertTrue(server.getDroppedFrameCount() > 0, "The skipped frames should be counted.");
+        }
+    }
+
+    @Test
+    public void testClientRate() throws Exception {
+        List<Robot> robots = robots(2, List.of(new MoveCommand(1, 0, 1), new ContinueCommand(100)));
+        RobotSimulator simulator = headless(robots);
+        try (StateServer server = new StateServer(0, robots.get(0).getLabels()); Socket socket = connect(server)) {
+            simulator.addListener(server);
+            awaitClients(server, 1);
+            socket.getOutputStream().write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(5).array());
+            socket.getOutputStream().flush();
+            Thread.sleep(200);
+            simulator.simulate(1.0, 20.0);
+
+            InputStream in = socket.getInputStream();
+            read(in, 8 + 4 + 8 + 4 + 2 * 4);
+            int labelCount = read(in, 4).getInt();
+            for (int i = 0; i < labelCount; i++) {
+                read(in, read(in, 4).getInt());
+            }
+            long previous = read(in, read(in, 4).getInt()).getLong();
+            while (previous < 20) {
+                long step = read(in, read(in, 4).getInt()).getLong();
+                assertTrue(step - previous >= 5, "Frames should be at least the requested number of steps apart.");
+                previous = step;
+            }
+            assertTrue(server.getPublishedFrameCount() <= 6, "Only the frames some client wants should be encoded.");
+        }
+    }
+
+    @Test
+    public void testRatesOfSeveralClients() throws Exception {
+        List<Robot> robots = robots(2, List.of(new MoveCommand(1, 0, 1), new ContinueCommand(100)));
+        RobotSimulator simulator = new RobotSimulator(robots);
+        simulator.setRealTimeFactor(100);
+        try (StateServer server = new StateServer(0, robots.get(0).getLabels());
+             Socket every4 = connect(server); Socket every6 = connect(server)) {
+            simulator.addListener(server);
+            awaitClients(server, 2);
+            requestRate(every4, 4);
+            requestRate(every6, 6);
+            Thread.sleep(200);
+            simulator.simulate(1.0, 24.0);
+
+            assertEquals(List.of(0L, 4L, 8L, 12L, 16L, 20L, 24L), frameSteps(every4, 2, 24), "A client should receive a frame every 4 steps.");
+            assertEquals(List.of(0L, 6L, 12L, 18L, 24L), frameSteps(every6, 2, 24), "A client should receive a frame every 6 steps.");
+            assertEquals(13, server.getPublishedFrameCount(), "Frames should be encoded every 2 steps, the divisor of both rates.");
+            assertTrue(server.getAllocatedFrameCount() < server.getPublishedFrameCount(), "Frame buffers should be reused once every client has written them.");
+        }
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        StateServer server = new StateServer(0, new LabelRegistry());
+        Socket socket = connect(server);
+        awaitClients(server, 1);
+        server.close();
+
+        assertEquals(-1, socket.getInputStream().read(), "Clients should be disconnected when the server closes.");
+        socket.close();
+    }
+
+    /**
+     * Creates robots running the same commands in a row, in a new environment.
+     *
+     * @param count    The number of robots.
+     * @param commands The commands of the robots.
+     * @return The robots.
+     */
+    private static List<Robot> robots(int count, List<RobotCommand> commands) {
+
+        return swarm(new Environment(1), count, count, robot -> robot.setCommands(commands));
+    }
+
+    /**
+     * Connects a client to a server.
+     *
+     * @param server The server.
+     * @return The connected socket, timing out reads after ten seconds.
+     * @throws IOException if the connection fails.
+     */
+    private static Socket connect(StateServer server) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    /**
+     * Waits until a server has accepted the given number of clients.
+     *
+     * @param server The server.
+     * @param count  The number of clients.
+     * @throws InterruptedException if the wait is interrupted.
+     */
+    private static void awaitClients(StateServer server, int count) throws InterruptedException {
+        for (int i = 0; i < 1000 && server.getClientCount() < count; i++) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, server.getClientCount(), "The clients should be accepted.");
+    }
+
+    /**
+     * Asks a server for a frame every given number of steps.
+     *
+     * @param socket The socket of the client.
+     * @param rate   The number of steps per frame.
+     * @throws IOException if the request cannot be sent.
+     */
+    private static void requestRate(Socket socket, int rate) throws IOException {
+        socket.getOutputStream().write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(rate).array());
+        socket.getOutputStream().flush();
+    }
+
+    /**
+     * Skips the hello message, then reads the steps of the frames up to the given one.
+     *
+     * @param socket     The socket of the client.
+     * @param robotCount The number of robots of the run.
+     * @param lastStep   The step of the last frame to read.
+     * @return The step of each frame, in order.
+     * @throws IOException if the stream ends first.
+     */
+    private static List<Long> frameSteps(Socket socket, int robotCount, long lastStep) throws IOException {
+        InputStream in = socket.getInputStream();
+        read(in, 8 + 4 + 8 + 4 + robotCount * 4);
+        int labelCount = read(in, 4).getInt();
+        for (int i = 0; i < labelCount; i++) {
+            read(in, read(in, 4).getInt());
+        }
+        List<Long> steps = new ArrayList<>();
+        long step = -1;
+        while (step < lastStep) {
+            step = read(in, read(in, 4).getInt()).getLong();
+            steps.add(step);
+        }
+        return steps;
+    }
+
+    /**
+     * Reads an exact number of bytes.
+     *
+     * @param in     The stream.
+     * @param length The number of bytes.
+     * @return The bytes, as a little-endian buffer.
+     * @throws IOException if the stream ends first.
+     */
+    private static ByteBuffer read(InputStream in, int length) throws IOException {
+        byte[] bytes = in.readNBytes(length);
+        assertEquals(length, bytes.length, "The stream should not end early.");
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,135 @@
+package it.unicam.cs.pa.robotswarmsim.library.program;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Rectangle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for Program.
+ */
+public class ProgramTest {
+
+    private Environment environment;
+
+    @BeforeEach
+    public void setUp() {
+
+        environment = new Environment(1);
+    }
+
+    /**
+     * Runs a program on a robot until it completes or the given number of ticks elapses.
+     *
+     * @param robot The robot running its program.
+     * @param ticks The maximum number of ticks.
+     * @return The number of ticks run.
+     */
+    private static int run(Robot robot, int ticks) {
+        int tick = 0;
+        while (tick < ticks && robot.hasPendingCommands()) {
+            robot.getProgram().step(robot, 1.0);
+            tick++;
+        }
+        return tick;
+    }
+
+    /**
+     * Verifies that nested REPEAT blocks run the expected number of commands.
+     */
+    @Test
+    public void testNestedRepeat() {
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setProgram(Program.compile(List.of(
+                new RepeatCommand(2, List.of(
+                        new RepeatCommand(3, List.of(new MoveCommand(1, 0, 1))),
+                        new MoveCommand(0, 1, 1))))));
+
+        assertEquals(8, run(robot, 100), "Two iterations of three moves and one move should take eight ticks.");
+        assertEquals(new Point(6, 2), robot.getPosition(), "The robot should have run every nested command.");
+        assertFalse(robot.hasPendingCommands(), "The program should be completed.");
+    }
+
+    /**
+     * Verifies that robots sharing a program keep independent execution state.
+     */
+    @Test
+    public void testSharedProgramHasPerRobotState() {
+        Program program = Program.compile(List.of(
+                new RepeatCommand(2, List.of(new MoveCommand(1, 0, 1))),
+                new ContinueCommand(2)));
+        Robot first = new Robot(new Point(0, 0), environment);
+        Robot second = new Robot(new Point(0, 0), environment);
+        first.setProgram(program);
+        second.setProgram(program);
+
+        run(first, 100);
+        assertFalse(first.hasPendingCommands(), "The first robot should have completed the program.");
+        assertEquals(0, second.getCurrentCommandIndex(), "The second robot should not be affected by the first one.");
+        assertEquals(4, run(second, 100), "The second robot should run the whole program on its own.");
+        assertEquals(first.getPosition(), second.getPosition(), "Both robots should end in the same position.");
+    }
+
+    /**
+     * Verifies that an UNTIL block stops once the robot enters the target area.
+     */
+    @Test
+    public void testUntilStopsInTargetArea() {
+        environment.addArea(new Rectangle(new Point(3, -1), 10, 2, "goal"));
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setProgram(Program.compile(List.of(
+                new UntilCommand("goal", List.of(new MoveCommand(1, 0, 1))),
+                new SignalCommand("arrived"))));
+
+        run(robot, 100);
+
+        assertTrue(robot.isSignaling("arrived"), "The command after the UNTIL block should run.");
+        assertTrue(robot.getCurrentAreaLabels().contains("goal"), "The robot should be in the target area.");
+    }
+
+    /**
+     * Verifies that a DO FOREVER block without commands idles instead of hanging the tick.
+     */
+    @Test
+    public void testEmptyForeverDoesNotHang() {
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setProgram(Program.compile(List.of(new ForeverCommand(List.of()))));
+
+        assertNull(robot.getProgram().step(robot, 1.0), "An empty loop should not complete any command.");
+        assertTrue(robot.hasPendingCommands(), "A DO FOREVER block never completes.");
+    }
+
+    /**
+     * Verifies that a timed command spans several ticks inside a loop.
+     */
+    @Test
+    public void testTimedCommandInsideRepeat() {
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setProgram(Program.compile(List.of(
+                new MoveCommand(1, 0, 1),
+                new RepeatCommand(2, List.of(new ContinueCommand(3))))));
+
+        assertEquals(7, run(robot, 100), "One move and two three-second waits should take seven ticks.");
+        assertEquals(0, robot.getTimedCommandTime(), "The elapsed time should be reset after the timed command.");
+    }
+
+    /**
+     * Verifies that a program keeps the commands it was compiled from.
+     */
+    @Test
+    public void testGetCommands() {
+        List<RobotCommand> commands = List.of(new StopCommand(), new SignalCommand("a"));
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setCommands(commands);
+
+        assertEquals(commands, robot.getCommands(), "The robot should expose the commands of its program.");
+        assertEquals(2, robot.getProgram().size(), "Simple commands should compile to one instruction each.");
+    }
+}
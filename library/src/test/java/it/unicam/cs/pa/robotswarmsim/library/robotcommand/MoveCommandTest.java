@@ -23,21 +23,7 @@ public class MoveCommandTest {
         };
 
         // Instantiate the Robot with the required parameters.
-        mockRobot = new Robot(startPosition, mockEnvironment) {
-            private Point position = startPosition;
-
-            @Override
-            public void setPosition(Point newPosition) {
-                this.position = newPosition;
-            }
-
-            @Override
-            public Point getPosition() {
-                return this.position;
-            }
-
-            // Implement other necessary methods, such as setHeading and setSpeed.
-        };
+        mockRobot = new Robot(startPosition, mockEnvironment);
     }
 
     @Test
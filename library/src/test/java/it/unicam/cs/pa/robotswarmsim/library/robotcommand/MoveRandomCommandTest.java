@@ -24,21 +24,7 @@ public class MoveRandomCommandTest {
         };
 
         // Instantiate the Robot with the required parameters.
-        mockRobot = new Robot(startPosition, mockEnvironment) {
-            private Point position = startPosition;
-
-            @Override
-            public void setPosition(Point newPosition) {
-                this.position = newPosition;
-            }
-
-            @Override
-            public Point getPosition() {
-                return this.position;
-            }
-
-            // Implement other necessary methods, such as setHeading, etc.
-        };
+        mockRobot = new Robot(startPosition, mockEnvironment);
 
         // Initialize MoveRandomCommand with a specific area and speed.
         command = new MoveRandomCommand(0, 10, 0, 10, 1);
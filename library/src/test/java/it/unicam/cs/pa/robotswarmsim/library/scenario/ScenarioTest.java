@@ -0,0 +1,65 @@
+package it.unicam.cs.pa.robotswarmsim.library.scenario;
+
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScenarioTest {
+
+    /**
+     * Verifies that a scenario has the requested robots, areas and roles.
+     */
+    @Test
+    public void testGenerate() {
+        Scenario scenario = Scenario.generate(new ScenarioParameters(100, 7, 1, 0, 0.2, 0.3, 1));
+        List<Robot> robots = scenario.getRobots();
+
+        assertEquals(100, robots.size(), "Every robot should be created.");
+        assertEquals(100, scenario.getEnvironment().getRobots().size(), "Robots should be added to the environment.");
+        assertEquals(7, scenario.getEnvironment().getAreas().size(), "Every area should be created.");
+        assertEquals(100, scenario.getWorldSize(), 1e-9, "An automatic world should hold a robot every 100 m2.");
+        assertSame(robots.get(0).getProgram(), robots.get(19).getProgram(), "Signallers should share a program.");
+        assertNotSame(robots.get(19).getProgram(), robots.get(20).getProgram(), "Followers come after signallers.");
+        assertNotSame(robots.get(49).getProgram(), robots.get(50).getProgram(), "Wanderers come after followers.");
+        for (Robot robot : robots) {
+            assertTrue(robot.getPosition().x() >= 0 && robot.getPosition().x() < 100,
+                    "Robots should be placed inside the world.");
+        }
+    }
+
+    /**
+     * Verifies that the same parameters always generate the same scenario.
+     */
+    @Test
+    public void testDeterministic() {
+        ScenarioParameters parameters = ScenarioParameters.defaults(500, 7);
+        Scenario first = Scenario.generate(parameters);
+        Scenario second = Scenario.generate(parameters);
+        for (int i = 0; i < 500; i++) {
+            assertEquals(first.getRobots().get(i).getPosition(), second.getRobots().get(i).getPosition(),
+                    "Robot " + i + " should be placed at the same position.");
+        }
+        assertEquals(first.getEnvironment().getAreas().toString(), second.getEnvironment().getAreas().toString(),
+                "The areas should be the same.");
+        assertEquals(1000, parameters.withRobots(1000).robots(), "The robot count should be replaced.");
+        assertEquals(parameters.seed(), parameters.withRobots(1000).seed(), "The other parameters should be kept.");
+    }
+
+    /**
+     * Verifies that invalid parameters are rejected.
+     */
+    @Test
+    public void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new ScenarioParameters(-1, 0, 0, 0, 0, 0, 0),
+                "A negative robot count should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> new ScenarioParameters(1, 0, 1.5, 0, 0, 0, 0),
+                "A share above 1 should be rejected.");
+        assertThrows(IllegalArgumentException.class, () -> new ScenarioParameters(1, 0, 0, 0, 0.6, 0.6, 0),
+                "Signallers and followers cannot exceed the swarm.");
+        assertThrows(IllegalArgumentException.class, () -> new ScenarioParameters(1, 0, 0, -5, 0, 0, 0),
+                "A negative world size should be rejected.");
+    }
+}
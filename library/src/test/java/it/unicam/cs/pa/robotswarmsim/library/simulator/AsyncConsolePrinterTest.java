@@ -0,0 +1,169 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.ContinueCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.SignalCommand;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.AsyncConsolePrinter.Backpressure;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link AsyncConsolePrinter}.
+ */
+public class AsyncConsolePrinterTest {
+
+    @Test
+    public void testSameOutputAsConsolePrinter() {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Environment synchronous = environment();
+        run(synchronous, new ConsolePrinter(new PrintStream(expected, true), synchronous.getLabels()));
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        Environment environment = environment();
+        AsyncConsolePrinter printer = new AsyncConsolePrinter(actual, environment.getLabels(), 4, Backpressure.BLOCK, 1);
+        run(environment, printer);
+        printer.close();
+
+        assertEquals(expected.toString(), actual.toString(), "The output should match the synchronous printer.");
+        assertEquals(0, printer.getDroppedCount(), "Blocking printers should not drop events.");
+    }
+
+    @Test
+    public void testDrop() {
+        StalledStream stream = new StalledStream();
+        Environment environment = environment();
+        AsyncConsolePrinter printer = new AsyncConsolePrinter(stream, environment.getLabels(), 4, Backpressure.DROP, 1);
+        stream.resumeLater();
+        run(environment, printer);
+        printer.close();
+
+        assertTrue(printer.getDroppedCount() > 0, "Events that do not fit should be dropped.");
+        String output = stream.bytes.toString();
+        assertTrue(output.contains("Step 0: Initial state of the robot:"), "The initial state should never be dropped.");
+        assertTrue(output.contains("All robots have completed their commands."), "The end of the programs should never be dropped.");
+        assertTrue(output.endsWith("Output events dropped: " + printer.getDroppedCount() + "\n"), "The dropped events should be reported.");
+    }
+
+    @Test
+    public void testSample() {
+        StalledStream stream = new StalledStream();
+        Environment environment = environment();
+        AsyncConsolePrinter printer = new AsyncConsolePrinter(stream, environment.getLabels(), 8, Backpressure.SAMPLE, 3);
+        stream.resumeLater();
+        run(environment, printer);
+        printer.close();
+
+        assertTrue(printer.getDroppedCount() > 0, "States of ticks out of the sample should be dropped.");
+        String output = stream.bytes.toString();
+        assertTrue(output.contains("Step 3: Current state of the robot:"), "States of sampled ticks should be kept.");
+        assertTrue(output.contains("All robots have completed their commands."), "The end of the programs should be kept.");
+    }
+
+    @Test
+    public void testClosed() {
+        AsyncConsolePrinter printer = new AsyncConsolePrinter(new ByteArrayOutputStream(), new LabelRegistry(), 4,
+                Backpressure.BLOCK, 1);
+        printer.close();
+        printer.close();
+
+        assertThrows(IllegalStateException.class, () -> printer.allRobotsCompleted(1), "Closed printers should reject events.");
+        assertThrows(IllegalArgumentException.class,
+                () -> new AsyncConsolePrinter(new ByteArrayOutputStream(), new LabelRegistry(), 4, Backpressure.SAMPLE, 0),
+                "The sampling interval should be positive.");
+    }
+
+    /**
+     * Creates the environment of the simulation, the same at every call.
+     *
+     * @return The environment.
+     */
+    private static Environment environment() {
+        Environment environment = new Environment(1);
+        environment.addArea(new Circle(new Point(0, 0), 5, "Home"));
+        return environment;
+    }
+
+    /**
+     * Runs a small simulation observed by a listener.
+     *
+     * @param environment The environment of the robots.
+     * @param listener    The listener.
+     */
+    private static void run(Environment environment, SimulationListener listener) {
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Robot robot = new Robot(new Point(i, 0), environment);
+            robot.setCommands(List.of(new SignalCommand("Ready"), new MoveCommand(1, 0, 1), new ContinueCommand(5)));
+            robots.add(robot);
+        }
+        RobotSimulator simulator = new RobotSimulator(robots);
+        simulator.setHeadless(true);
+        simulator.addListener(listener);
+        simulator.simulate(1.0, 10.0);
+    }
+
+    /**
+     * This class is an output stream holding its writers until it is resumed, shortly after being asked to.
+     * Events that are never dropped wait for the stream to resume.
+     */
+    private static class StalledStream extends OutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final CountDownLatch resumed = new CountDownLatch(1);
+
+        /**
+         * Lets the writers through after a short delay, on another thread.
+         */
+        private void resumeLater() {
+            Thread resumer = new Thread(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                resumed.countDown();
+            });
+            resumer.setDaemon(true);
+            resumer.start();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            await();
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            await();
+            bytes.write(b, off, len);
+        }
+
+        /**
+         * Waits until the stream is resumed.
+         *
+         * @throws IOException if the thread is interrupted.
+         */
+        private void await() throws IOException {
+            try {
+                resumed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.SignalCommand;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link ConsolePrinter}.
+ */
+public class ConsolePrinterTest {
+
+    @Test
+    public void testPrintsStepsAndCompletions() {
+        Environment environment = new Environment(1);
+        environment.addArea(new Circle(new Point(0, 0), 5, "Home"));
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setCommands(List.of(new SignalCommand("Ready"), new MoveCommand(1, 0, 1)));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RobotSimulator simulator = new RobotSimulator(List.of(robot));
+        simulator.addListener(new ConsolePrinter(new PrintStream(bytes, true), environment.getLabels()));
+        simulator.setHeadless(true);
+
+        simulator.simulate(1.0, 2.0);
+
+        String output = bytes.toString();
+        assertTrue(output.contains("Step 0: Initial state of the robot:"), "The initial state should be printed.");
+        assertTrue(output.contains("Command SignalCommand completed."), "Completed commands should be printed.");
+        assertTrue(output.contains("Step 2: Current state of the robot:\n" + robot), "Robots should print like toString.");
+        assertTrue(output.contains("Areas: Home"), "Area labels should be printed.");
+        assertTrue(output.contains("Active signals: Ready"), "Signals should be printed.");
+        assertTrue(output.endsWith("All robots have completed their commands.\n"), "The end of the programs should be printed.");
+    }
+
+    @Test
+    public void testSilentWithoutListeners() {
+        PrintStream previous = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            Robot robot = new Robot(new Point(0, 0), new Environment(1));
+            robot.setCommands(List.of(new MoveCommand(1, 0, 1)));
+            RobotSimulator simulator = new RobotSimulator(List.of(robot));
+            simulator.setHeadless(true);
+            simulator.simulate(1.0, 2.0);
+        } finally {
+            System.setOut(previous);
+        }
+
+        assertEquals("", bytes.toString(), "A simulation without listeners should print nothing.");
+    }
+}
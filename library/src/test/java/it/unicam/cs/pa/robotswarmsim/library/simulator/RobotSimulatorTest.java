@@ -1,17 +1,34 @@
 package it.unicam.cs.pa.robotswarmsim.library.simulator;
 
+import it.unicam.cs.pa.robotswarmsim.library.entity.HeapRobotStore;
 import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.entity.RobotStore;
 import it.unicam.cs.pa.robotswarmsim.library.Environment;
 import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
+import it.unicam.cs.pa.robotswarmsim.library.area.Rectangle;
+import it.unicam.cs.pa.robotswarmsim.library.kinematics.PositionIntegrator;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.SimulationMetrics;
+import it.unicam.cs.pa.robotswarmsim.library.metrics.TickProfiler;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.ContinueCommand;
 import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RobotCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.FollowCommand;
 import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveRandomCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.SignalCommand;
+import it.unicam.cs.pa.robotswarmsim.library.scenario.Scenario;
+import it.unicam.cs.pa.robotswarmsim.library.scenario.ScenarioParameters;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class RobotSimulatorTest {
 
@@ -107,4 +124,450 @@ public class RobotSimulatorTest {
         assertDoesNotThrow(() -> simulator.simulate(dt, time));
     }
 
+    /**
+     * Verifies that a headless simulation reaches the same state without waiting for the wall clock.
+     */
+    @Test
+    public void testHeadlessSimulation() {
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robots.add(robot);
+        List<RobotCommand> commands = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            commands.add(new MoveCommand(1, 0, 1));
+        }
+        robot.setCommands(commands);
+
+        simulator.setHeadless(true);
+        long start = System.nanoTime();
+        simulator.simulate(1.0, 100.0);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(new Point(100, 0), robot.getPosition(), "Headless runs should not change the simulated time step.");
+        assertEquals(100, simulator.getStepNumber(), "Every time step should be simulated.");
+        assertTrue(elapsedMillis < 10_000, "A headless run should not wait for 100 simulated seconds.");
+    }
+
+    /**
+     * Verifies that the real-time factor shortens the wall-clock duration of the run.
+     */
+    @Test
+    public void testRealTimeFactor() {
+        simulator.setRealTimeFactor(10);
+        long start = System.nanoTime();
+        simulator.simulate(1.0, 5.0);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(5, simulator.getStepNumber(), "Step number should be equal to the number of iterations.");
+        assertTrue(elapsedMillis >= 500, "Five seconds at 10x should last at least half a second.");
+        assertTrue(elapsedMillis < 5_000, "Five seconds at 10x should last less than five seconds.");
+    }
+
+    /**
+     * Verifies that invalid real-time factors are rejected.
+     */
+    @Test
+    public void testInvalidRealTimeFactor() {
+        assertThrows(IllegalArgumentException.class, () -> simulator.setRealTimeFactor(0));
+        assertThrows(IllegalArgumentException.class, () -> simulator.setRealTimeFactor(-2));
+        assertThrows(IllegalArgumentException.class, () -> simulator.setRealTimeFactor(Double.NaN));
+    }
+
+    /**
+     * Verifies that robots leave the active set once their command index runs past the end of their program.
+     */
+    @Test
+    public void testCompletedRobotsLeaveActiveSet() {
+        Robot shortProgram = new Robot(new Point(0, 0), environment);
+        shortProgram.setCommands(List.of(new MoveCommand(1, 0, 1)));
+        Robot longProgram = new Robot(new Point(0, 0), environment);
+        longProgram.setCommands(List.of(new MoveCommand(1, 0, 1), new MoveCommand(1, 0, 1), new MoveCommand(1, 0, 1)));
+        Robot noProgram = new Robot(new Point(0, 0), environment);
+        noProgram.setCommands(new ArrayList<>());
+        robots.addAll(List.of(shortProgram, longProgram, noProgram));
+
+        simulator.setHeadless(true);
+        simulator.simulate(1.0, 2.0);
+        assertEquals(1, simulator.getActiveRobotCount(), "Only the robot with commands left should be active.");
+        assertEquals(new Point(1, 0), shortProgram.getPosition(), "A completed robot should not be stepped again.");
+        assertEquals(new Point(1, 0), shortProgram.getSnapshotPosition(), "A completed robot should commit its final state.");
+    }
+
+    /**
+     * Verifies that the run can end early once every robot has completed its commands.
+     */
+    @Test
+    public void testStopWhenAllCompleted() {
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setCommands(List.of(new MoveCommand(1, 0, 1), new MoveCommand(1, 0, 1)));
+        robots.add(robot);
+
+        simulator.setHeadless(true);
+        simulator.setStopWhenAllCompleted(true);
+        simulator.simulate(1.0, 1000.0);
+
+        assertEquals(2, simulator.getStepNumber(), "The run should end on the step in which the last robot completed.");
+        assertEquals(0, simulator.getActiveRobotCount(), "No robot should be left in the active set.");
+    }
+
+    /**
+     * Verifies that a parallel run gives exactly the same result as a sequential one.
+     */
+    @Test
+    public void testParallelRunMatchesSequentialRun() {
+        List<Point> sequential = runSwarm(1);
+        List<Point> parallel = runSwarm(4);
+
+        assertEquals(sequential, parallel, "The outcome should not depend on the number of threads.");
+    }
+
+    /**
+     * Verifies that a pool supplied by the caller steps the robots and survives the runs.
+     */
+    @Test
+    public void testSharedPool() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Point> sequential = runSwarm(1);
+            assertEquals(sequential, runSwarm(1, pool), "A supplied pool should step the robots like any other.");
+            assertFalse(pool.isShutdown(), "A supplied pool should not be shut down by the simulator.");
+            assertEquals(sequential, runSwarm(1, pool), "A supplied pool should be reusable across runs.");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Verifies that non-positive thread counts are rejected.
+     */
+    @Test
+    public void testInvalidParallelism() {
+        assertThrows(IllegalArgumentException.class, () -> simulator.setParallelism(0));
+    }
+
+    /**
+     * Verifies that listeners receive the events of a run in order.
+     */
+    @Test
+    public void testListenerEvents() {
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robots.add(robot);
+        robot.setCommands(List.of(new MoveCommand(1, 0, 1), new ContinueCommand(2)));
+        List<String> events = new ArrayList<>();
+        simulator.addListener(new SimulationListener() {
+            @Override
+            public void simulationStarted(double dt, RobotStateBatch initialState) {
+                events.add("start " + initialState.size());
+            }
+
+            @Override
+            public void tickStarted(int step) {
+                events.add("tick " + step);
+            }
+
+            @Override
+            public void commandCompleted(int step, int robotId, RobotCommand command) {
+                events.add("completed " + command.getClass().getSimpleName());
+            }
+
+            @Override
+            public void robotStates(int step, RobotStateBatch states) {
+                events.add("states " + states.size() + " x=" + states.getX(0));
+            }
+
+            @Override
+            public void allRobotsCompleted(int step) {
+                events.add("done " + step);
+            }
+
+            @Override
+            public void simulationEnded(int steps) {
+                events.add("end " + steps);
+            }
+        });
+        simulator.setHeadless(true);
+        simulator.setStopWhenAllCompleted(true);
+        simulator.simulate(1.0, 10.0);
+
+        assertEquals(List.of("start 1",
+                "tick 1", "completed MoveCommand", "states 1 x=1.0",
+                "tick 2", "states 1 x=2.0",
+                "tick 3", "completed ContinueCommand", "states 1 x=3.0", "done 3",
+                "end 3"), events, "Listeners should receive every event of the run in order.");
+    }
+
+    /**
+     * Verifies that a detached listener receives no events.
+     */
+    @Test
+    public void testRemoveListener() {
+        List<Integer> ticks = new ArrayList<>();
+        SimulationListener listener = new SimulationListener() {
+            @Override
+            public void tickStarted(int step) {
+                ticks.add(step);
+            }
+        };
+        simulator.addListener(listener);
+        simulator.removeListener(listener);
+        simulator.setHeadless(true);
+        simulator.simulate(1.0, 3.0);
+
+        assertTrue(ticks.isEmpty(), "A detached listener should not be notified.");
+    }
+
+    /**
+     * Runs a swarm of leaders and followers with a fixed seed and returns the final positions.
+     *
+     * @param parallelism The number of threads stepping the robots.
+     * @return The final position of every robot, in creation order.
+     */
+    private List<Point> runSwarm(int parallelism) {
+
+        return runSwarm(parallelism, null);
+    }
+
+    /**
+     * Runs a swarm of leaders and followers with a fixed seed, on a pool supplied to the simulator.
+     *
+     * @param parallelism The number of threads stepping the robots when no pool is supplied.
+     * @param pool        The pool stepping the robots, or null.
+     * @return The final position of every robot, in creation order.
+     */
+    private List<Point> runSwarm(int parallelism, ForkJoinPool pool) {
+        Environment seededEnvironment = new Environment(42);
+        List<Robot> swarm = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Robot robot = new Robot(new Point(i % 20, i / 20), seededEnvironment);
+            List<RobotCommand> commands = new ArrayList<>();
+            if (i % 10 == 0) {
+                commands.add(new SignalCommand("LEADER"));
+                commands.add(new MoveRandomCommand(0, 20, 0, 20, 1));
+                commands.add(new MoveCommand(1, 0, 1));
+            } else {
+                for (int j = 0; j < 3; j++) {
+                    commands.add(new FollowCommand("LEADER", 5, 1));
+                }
+            }
+            robot.setCommands(commands);
+            swarm.add(robot);
+            seededEnvironment.addRobot(robot);
+        }
+
+        RobotSimulator swarmSimulator = new RobotSimulator(swarm);
+        swarmSimulator.setHeadless(true);
+        swarmSimulator.setParallelism(parallelism);
+        swarmSimulator.setPool(pool);
+        swarmSimulator.simulate(1.0, 3.0);
+
+        List<Point> positions = new ArrayList<>();
+        for (Robot robot : swarm) {
+            positions.add(robot.getPosition());
+        }
+        return positions;
+    }
+
+
+    /**
+     * Verifies that entering and leaving areas is reported once per transition, at the step it happens.
+     */
+    @Test
+    public void testAreaTransitions() {
+        environment.addArea(new Rectangle(new Point(1.5, -1), 2, 2, "Gate"));
+        environment.addArea(new Circle(new Point(3, 0), 0.5, "Core"));
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setCommands(List.of(new MoveCommand(1, 0, 1), new ContinueCommand(5)));
+        robots.add(robot);
+        Robot idle = new Robot(new Point(100, 100), environment);
+        idle.setCommands(List.of(new ContinueCommand(6)));
+        robots.add(idle);
+
+        List<String> events = new ArrayList<>();
+        simulator.setHeadless(true);
+        simulator.addListener(new SimulationListener() {
+            @Override
+            public void areaTransitions(int step, AreaTransitionBatch transitions) {
+                assertTrue(transitions.size() > 0, "Ticks without transitions should not be reported.");
+                for (int i = 0; i < transitions.size(); i++) {
+                    events.add(step + " " + transitions.getRobotId(i) + " "
+                            + environment.getLabels().getName(transitions.getLabelId(i))
+                            + (transitions.isEntering(i) ? " in" : " out"));
+                }
+            }
+        });
+        simulator.simulate(1.0, 6.0);
+
+        int id = robot.getId();
+        events.sort(null);
+        assertEquals(List.of("2 " + id + " Gate in", "3 " + id + " Core in", "4 " + id + " Core out",
+                "4 " + id + " Gate out"), events, "Every entry and exit should be reported once.");
+    }
+
+    /**
+     * Verifies that a profiler records every tick and its phases, including the nested lookups.
+     */
+    @Test
+    public void testProfiler() {
+        environment.addArea(new Rectangle(new Point(0, 0), 10, 10, "Zone"));
+        for (int i = 0; i < 4; i++) {
+            Robot robot = new Robot(new Point(i, 0), environment);
+            robot.setCommands(List.of(new FollowCommand("Zone", 5, 1), new ContinueCommand(10)));
+            robots.add(robot);
+        }
+        TickProfiler profiler = new TickProfiler();
+        simulator.setProfiler(profiler);
+        simulator.setHeadless(true);
+        simulator.simulate(1.0, 10.0);
+
+        assertSame(profiler, simulator.getProfiler(), "The simulator should keep the profiler.");
+        assertEquals(10, profiler.getTickHistogram().getCount(), "Every tick should be recorded.");
+        for (TickProfiler.Phase phase : TickProfiler.Phase.values()) {
+            double share = phase == TickProfiler.Phase.WAIT ? 0 : profiler.getShare(phase);
+            assertTrue(share >= 0 && share <= 1, "The share of " + phase + " should be between 0 and 1.");
+        }
+        assertTrue(profiler.getPhaseHistogram(TickProfiler.Phase.STEP).getTotal() > 0,
+                "Stepping the robots should take time.");
+        assertTrue(profiler.getPhaseHistogram(TickProfiler.Phase.AREA_UPDATE).getTotal() > 0,
+                "Moving robots should look up their areas.");
+    }
+
+    /**
+     * Verifies that a metrics registry counts the neighbour queries and the area tests of every tick.
+     */
+    @Test
+    public void testMetrics() {
+        // FOLLOW finds no signaller and heads somewhere random: seed it, and start the robots inside the area
+        environment = new Environment(20);
+        environment.addArea(new Rectangle(new Point(0, 0), 10, 10, "Zone"));
+        for (int i = 0; i < 4; i++) {
+            Robot robot = new Robot(new Point(i, 5), environment);
+            robot.setCommands(List.of(new FollowCommand("Zone", 5, 1), new ContinueCommand(10)));
+            environment.addRobot(robot);
+            robots.add(robot);
+        }
+        SimulationMetrics metrics = new SimulationMetrics();
+        simulator.setMetrics(metrics);
+        simulator.setHeadless(true);
+        simulator.setParallelism(2);
+        simulator.simulate(1.0, 10.0);
+
+        assertSame(metrics, simulator.getMetrics(), "The simulator should keep the registry.");
+        assertEquals(10, metrics.getTickCount(), "Every tick should be counted.");
+        assertEquals(4, metrics.getNeighbourQueries(), "Each robot should run one FOLLOW query.");
+        assertEquals(16, metrics.getNeighbourCandidates(), "Each query should examine the four robots.");
+        assertEquals(16, metrics.getNeighbourHits(), "The four robots should be within range of each other.");
+        assertTrue(metrics.getAreaQueries() >= 4, "Moving robots should look up their areas.");
+        assertTrue(metrics.getAreaTests() > 0 && metrics.getAreaTests() <= metrics.getAreaQueries(),
+                "Lookups should test the single area only when its bounding box contains the robot.");
+        assertTrue(metrics.getAllocatedBytes() >= 0, "Allocations should never be negative.");
+    }
+
+    /**
+     * Verifies that once the robots are running, a sequential tick reporting to a listener allocates nothing:
+     * a long run allocates as much as a short one, whatever the number of ticks.
+     */
+    @Test
+    public void testSteadyStateTickAllocatesNothing() {
+        assumeTrue(SimulationMetrics.threadAllocatedBytes() >= 0, "The JVM does not measure thread allocations.");
+        Scenario scenario = Scenario.generate(ScenarioParameters.defaults(500, 7));
+        RobotSimulator scenarioSimulator = new RobotSimulator(scenario.getRobots());
+        scenarioSimulator.setHeadless(true);
+        scenarioSimulator.addListener(new SimulationListener() {
+        });
+        scenarioSimulator.simulate(1.0, 200.0);
+
+        long start = SimulationMetrics.threadAllocatedBytes();
+        scenarioSimulator.simulate(1.0, 10.0);
+        long shortRun = SimulationMetrics.threadAllocatedBytes() - start;
+        start = SimulationMetrics.threadAllocatedBytes();
+        scenarioSimulator.simulate(1.0, 210.0);
+        long longRun = SimulationMetrics.threadAllocatedBytes() - start;
+
+        assertTrue(longRun - shortRun < 128,
+                "A tick should allocate nothing, but 200 more ticks allocated " + (longRun - shortRun) + " bytes.");
+    }
+
+    /**
+     * Verifies that a label first interned while the robots are stepped in parallel, beyond the signal words
+     * of the heap store, is committed for every robot: the store is sized before the parallel commit phase,
+     * so no worker of the pool ever grows it.
+     */
+    @Test
+    public void testParallelCommitOfLabelInternedMidRun() {
+        Environment lateEnvironment = new Environment(5);
+        AtomicInteger growthsOnWorkers = new AtomicInteger();
+        lateEnvironment.setRobotStore(new HeapRobotStore() {
+            @Override
+            public void setSignalWord(int id, int word, long mask) {
+                if (word >= getSignalWords() && mask != 0 && Thread.currentThread() instanceof ForkJoinWorkerThread) {
+                    growthsOnWorkers.incrementAndGet();
+                }
+                super.setSignalWord(id, word, mask);
+            }
+        });
+        for (int i = 0; i < Long.SIZE; i++) {
+            lateEnvironment.getLabels().intern("Filler" + i);
+        }
+        RobotCommand signalLate = new RobotCommand() {
+            @Override
+            public void execute(Robot robot, double dt) {
+                robot.signalLabel("Late");
+            }
+        };
+        List<Robot> swarm = SwarmFixtures.swarm(lateEnvironment, 4000, 100, robot -> robot.setCommands(
+                List.of(new ContinueCommand(2), signalLate, new ContinueCommand(3))));
+        RobotSimulator lateSimulator = SwarmFixtures.headless(swarm);
+        lateSimulator.setParallelism(4);
+        lateSimulator.simulate(1.0, 10.0);
+
+        assertEquals(Long.SIZE, lateEnvironment.getLabels().find("Late"), "The label should be interned in the second word.");
+        assertEquals(0, growthsOnWorkers.get(), "The store should be grown before the parallel commit phase.");
+        RobotStore store = lateEnvironment.getRobotStore();
+        assertEquals(2, store.getSignalWords(), "The store should hold the second word.");
+        for (Robot robot : swarm) {
+            assertEquals(1L, store.getSignalWord(robot.getId(), 1), "Every robot should have committed the late signal.");
+        }
+    }
+
+    /**
+     * Verifies that batching the straight-line ticks gives bit-identical results to stepping every robot
+     * on its own, with the scalar and the preferred integrators, sequentially and in parallel.
+     */
+    @Test
+    public void testPositionIntegratorsMatchRobotByRobot() {
+        List<String> expected = runKinematicSwarm(null, 1);
+        assertEquals(expected, runKinematicSwarm(PositionIntegrator.scalar(), 1),
+                "The scalar integrator should not change the results.");
+        assertEquals(expected, runKinematicSwarm(PositionIntegrator.preferred(), 1),
+                "The preferred integrator should not change the results.");
+        assertEquals(expected, runKinematicSwarm(PositionIntegrator.preferred(), 3),
+                "Batching on several threads should not change the results.");
+    }
+
+    /**
+     * Runs a swarm mixing MOVE, CONTINUE, UNTIL, REPEAT and MOVE RANDOM with a time step that ends
+     * timed commands in the middle of a tick.
+     *
+     * @param integrator  The integrator of the straight-line ticks, or null.
+     * @param parallelism The number of threads stepping the robots.
+     * @return The final state of every robot, with the coordinates as raw bits.
+     */
+    private static List<String> runKinematicSwarm(PositionIntegrator integrator, int parallelism) {
+        Environment swarmEnvironment = new Environment(3);
+        SwarmFixtures.addGoal(swarmEnvironment);
+        List<Robot> swarm = SwarmFixtures.kinematicSwarm(swarmEnvironment, SwarmFixtures.kinematicPrograms(), 300);
+        RobotSimulator swarmSimulator = new RobotSimulator(swarm);
+        swarmSimulator.setPositionIntegrator(integrator);
+        swarmSimulator.setParallelism(parallelism);
+        SwarmFixtures.simulateKinematicSwarm(swarmSimulator);
+
+        List<String> states = new ArrayList<>();
+        for (Robot robot : swarm) {
+            states.add(Double.doubleToLongBits(robot.getX()) + " " + Double.doubleToLongBits(robot.getY()) + " "
+                    + robot.getHeading() + " " + robot.getSpeed() + " " + robot.getCurrentCommandIndex() + " "
+                    + robot.getTimedCommandTime() + " " + robot.getCurrentAreaLabels() + " "
+                    + robot.isSignaling(SwarmFixtures.ARRIVED));
+        }
+        return states;
+    }
 }
+
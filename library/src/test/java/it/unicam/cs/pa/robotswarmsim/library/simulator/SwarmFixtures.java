@@ -0,0 +1,128 @@
+package it.unicam.cs.pa.robotswarmsim.library.simulator;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Rectangle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.program.Program;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.ContinueCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveRandomCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RepeatCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.SignalCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.UntilCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This class builds the swarms and simulators shared by the tests of several packages.
+ * The kinematic swarm mixes MOVE, CONTINUE, UNTIL, REPEAT and MOVE RANDOM with a time step that ends timed
+ * commands in the middle of a tick; tests run it in different configurations and compare the final states.
+ */
+public final class SwarmFixtures {
+
+    /**
+     * The label of the area the kinematic swarm moves to.
+     */
+    public static final String GOAL = "goal";
+
+    /**
+     * The label signalled by the robots of the kinematic swarm that reached the goal.
+     */
+    public static final String ARRIVED = "arrived";
+
+    /**
+     * Prevents instantiation.
+     */
+    private SwarmFixtures() {
+    }
+
+    /**
+     * Builds a swarm laid out in rows, and adds every robot to its environment.
+     *
+     * @param environment The environment of the robots.
+     * @param count       The number of robots.
+     * @param rowLength   The number of robots of a row, one unit apart.
+     * @param programmer  The action giving each robot its program.
+     * @return The robots, in creation order.
+     */
+    public static List<Robot> swarm(Environment environment, int count, int rowLength, Consumer<Robot> programmer) {
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Robot robot = new Robot(new Point(i % rowLength, i / rowLength), environment);
+            programmer.accept(robot);
+            robots.add(robot);
+            environment.addRobot(robot);
+        }
+        return robots;
+    }
+
+    /**
+     * Compiles the programs of the kinematic swarm.
+     *
+     * @return The programs: moving until the goal then signalling, a REPEAT block, and a random move.
+     */
+    public static List<Program> kinematicPrograms() {
+        return List.of(
+                Program.compile(List.of(
+                        new UntilCommand(GOAL, List.of(new MoveCommand(1, 0, 1))),
+                        new SignalCommand(ARRIVED),
+                        new ContinueCommand(4.5))),
+                Program.compile(List.of(
+                        new RepeatCommand(3, List.of(new MoveCommand(0.6, -0.8, 1.3), new ContinueCommand(2.2))))),
+                Program.compile(List.of(new MoveRandomCommand(-10, 10, -10, 10, 1), new ContinueCommand(3))));
+    }
+
+    /**
+     * Adds the goal area of the kinematic swarm to an environment.
+     *
+     * @param environment The environment.
+     */
+    public static void addGoal(Environment environment) {
+
+        environment.addArea(new Rectangle(new Point(6, -10), 4, 20, GOAL));
+    }
+
+    /**
+     * Builds the kinematic swarm, the robots running the programs in turn, and adds every robot to its environment.
+     *
+     * @param environment The environment of the robots, holding the goal area.
+     * @param programs    The programs of the robots, usually {@link #kinematicPrograms()}.
+     * @param count       The number of robots.
+     * @return The robots, in creation order.
+     */
+    public static List<Robot> kinematicSwarm(Environment environment, List<Program> programs, int count) {
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Robot robot = new Robot(new Point(i % 7, i % 11), environment);
+            robot.setProgram(programs.get(i % programs.size()));
+            environment.addRobot(robot);
+            robots.add(robot);
+        }
+        return robots;
+    }
+
+    /**
+     * Runs a simulator of the kinematic swarm headless, with a time step ending timed commands mid-tick.
+     *
+     * @param simulator The simulator of the swarm.
+     */
+    public static void simulateKinematicSwarm(RobotSimulator simulator) {
+        simulator.setHeadless(true);
+        simulator.simulate(0.7, 20);
+    }
+
+    /**
+     * Creates a headless simulator.
+     *
+     * @param robots The robots to simulate.
+     * @return The simulator.
+     */
+    public static RobotSimulator headless(List<Robot> robots) {
+        RobotSimulator simulator = new RobotSimulator(robots);
+        simulator.setHeadless(true);
+        return simulator;
+    }
+}
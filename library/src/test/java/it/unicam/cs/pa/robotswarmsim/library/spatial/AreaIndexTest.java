@@ -0,0 +1,100 @@
+package it.unicam.cs.pa.robotswarmsim.library.spatial;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Area;
+import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
+import it.unicam.cs.pa.robotswarmsim.library.area.Rectangle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link AreaIndex}.
+ */
+public class AreaIndexTest {
+
+    /**
+     * Collects the labels of the areas the index reports as containing a point.
+     */
+    private static Set<String> labelsAt(AreaIndex index, double x, double y) {
+        Set<String> labels = new TreeSet<>();
+        index.forEachContaining(new Point(x, y), area -> labels.add(area.getLabel()));
+        return labels;
+    }
+
+    @Test
+    void testCircleAndRectangle() {
+        AreaIndex index = new AreaIndex(List.of(
+                new Circle(new Point(0, 0), 5, "circle"),
+                new Rectangle(new Point(3, 3), 4, 2, "rectangle")), new LabelRegistry());
+
+        assertEquals(Set.of("circle"), labelsAt(index, 0, 0), "The center of the circle is only in the circle");
+        assertEquals(Set.of("circle", "rectangle"), labelsAt(index, 3.5, 3.2), "The point is in both areas");
+        assertEquals(Set.of("rectangle"), labelsAt(index, 7, 5), "Rectangle corners are part of the rectangle");
+        assertTrue(labelsAt(index, 4, -4).isEmpty(), "A point in the bounding box but outside the circle is in no area");
+    }
+
+    @Test
+    void testUnboundedArea() {
+        Area everywhere = new Area() {
+            @Override
+            public boolean contains(Point point) {
+                return true;
+            }
+
+            @Override
+            public String getLabel() {
+                return "everywhere";
+            }
+        };
+        AreaIndex index = new AreaIndex(List.of(everywhere, new Circle(new Point(0, 0), 1, "circle")),
+                new LabelRegistry());
+
+        assertEquals(Set.of("everywhere"), labelsAt(index, 1e9, -1e9), "Areas without bounds should always be tested");
+        assertEquals(2, index.size(), "Every area should be counted");
+    }
+
+    @Test
+    void testMatchesBruteForce() {
+        Random random = new Random(7);
+        List<Area> areas = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Point corner = new Point(random.nextDouble() * 1000, random.nextDouble() * 1000);
+            if (random.nextBoolean()) {
+                areas.add(new Circle(corner, random.nextDouble() * 20, "area" + i));
+            } else {
+                areas.add(new Rectangle(corner, random.nextDouble() * 40, random.nextDouble() * 40, "area" + i));
+            }
+        }
+        AreaIndex index = new AreaIndex(areas, new LabelRegistry());
+
+        for (int query = 0; query < 1000; query++) {
+            Point point = new Point(random.nextDouble() * 1040 - 20, random.nextDouble() * 1040 - 20);
+            Set<String> expected = new TreeSet<>();
+            for (Area area : areas) {
+                if (area.contains(point)) {
+                    expected.add(area.getLabel());
+                }
+            }
+            assertEquals(expected, labelsAt(index, point.x(), point.y()), "The index should match a linear scan");
+        }
+    }
+
+    @Test
+    void testEnvironmentRebuildsIndexAfterAddingAreas() {
+        Environment environment = new Environment(1);
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setPosition(new Point(1, 1));
+        assertTrue(robot.getCurrentAreaLabels().isEmpty(), "No area has been added yet");
+
+        environment.addArea(new Circle(new Point(0, 0), 2, "base"));
+        robot.setPosition(new Point(1, 1));
+
+        assertEquals(Set.of("base"), robot.getCurrentAreaLabels(), "An area added later should be indexed");
+    }
+}
@@ -0,0 +1,108 @@
+package it.unicam.cs.pa.robotswarmsim.library.spatial;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link SpatialGrid}.
+ */
+public class SpatialGridTest {
+
+    private SpatialGrid grid;
+
+    @BeforeEach
+    void setUp() {
+        grid = new SpatialGrid(2.0);
+    }
+
+    @Test
+    void testInsertAndQuery() {
+        grid.insert(0, 0, 0);
+        grid.insert(1, 3, 4);
+        grid.insert(2, 10, 10);
+
+        assertEquals(Set.of(0, 1), query(0, 0, 5), "Robots at distance 0 and 5 should be within range 5");
+        assertEquals(Set.of(0), query(0, 0, 4.99), "The robot at distance 5 should be out of range 4.99");
+        assertEquals(3, grid.size(), "Every inserted robot should be counted");
+    }
+
+    @Test
+    void testCandidateCount() {
+        grid.insert(0, 0, 0);
+        grid.insert(1, 1, 1);
+        grid.insert(2, 50, 50);
+
+        int candidates = grid.forEachWithinRange(0.5, 0.5, 0.1, id -> { });
+        assertEquals(2, candidates, "Only the robots of the scanned cell should be examined");
+        assertEquals(0, grid.forEachWithinRange(0, 0, -1, id -> { }), "An invalid range should examine no robot");
+    }
+
+    @Test
+    void testMoveAcrossCells() {
+        grid.insert(0, 0, 0);
+        grid.move(0, 100, -100);
+
+        assertTrue(query(0, 0, 10).isEmpty(), "A moved robot should leave its old cell");
+        assertEquals(Set.of(0), query(100, -100, 1), "A moved robot should be found in its new cell");
+    }
+
+    @Test
+    void testMatchesBruteForce() {
+        Random random = new Random(1);
+        int robots = 500;
+        double[] xs = new double[robots];
+        double[] ys = new double[robots];
+        for (int id = 0; id < robots; id++) {
+            xs[id] = random.nextDouble() * 100 - 50;
+            ys[id] = random.nextDouble() * 100 - 50;
+            grid.insert(id, xs[id], ys[id]);
+        }
+        for (int round = 0; round < 20; round++) {
+            // Move every robot a little, then compare a few queries with a linear scan
+            for (int id = 0; id < robots; id++) {
+                xs[id] += random.nextDouble() * 6 - 3;
+                ys[id] += random.nextDouble() * 6 - 3;
+                grid.move(id, xs[id], ys[id]);
+            }
+            for (int q = 0; q < 10; q++) {
+                double x = random.nextDouble() * 100 - 50;
+                double y = random.nextDouble() * 100 - 50;
+                double range = random.nextDouble() * 20;
+                Set<Integer> expected = new TreeSet<>();
+                for (int id = 0; id < robots; id++) {
+                    if (Math.sqrt((x - xs[id]) * (x - xs[id]) + (y - ys[id]) * (y - ys[id])) <= range) {
+                        expected.add(id);
+                    }
+                }
+                assertEquals(expected, query(x, y, range), "The grid should find the same robots as a linear scan");
+            }
+        }
+    }
+
+    @Test
+    void testHugeRangeFindsEveryRobot() {
+        grid.insert(0, -1e6, 1e6);
+        grid.insert(1, 1e6, -1e6);
+        assertEquals(Set.of(0, 1), query(0, 0, Double.MAX_VALUE), "A huge range should scan every occupied cell");
+    }
+
+    @Test
+    void testInvalidCellSize() {
+        assertThrows(IllegalArgumentException.class, () -> new SpatialGrid(0));
+    }
+
+    /**
+     * Collects the ids of the robots within range of a point.
+     */
+    private Set<Integer> query(double x, double y, double range) {
+        Set<Integer> ids = new TreeSet<>();
+        grid.forEachWithinRange(x, y, range, ids::add);
+        return ids;
+    }
+}
@@ -0,0 +1,179 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.program.Program;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.ContinueCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.FollowCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.ForeverCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveRandomCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.RepeatCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.SignalCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.UnsignalCommand;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.SwarmFixtures;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static it.unicam.cs.pa.robotswarmsim.library.simulator.SwarmFixtures.headless;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link Checkpoint} and {@link CheckpointWriter}.
+ */
+public class CheckpointTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRestoredRunContinuesIdentically() throws IOException {
+        List<Robot> uninterrupted = swarm(20);
+        headless(uninterrupted).simulate(1.0, 20.0);
+
+        List<Robot> first = swarm(20);
+        RobotSimulator interrupted = headless(first);
+        interrupted.simulate(1.0, 8.0);
+        Path file = directory.resolve("run.checkpoint");
+        interrupted.checkpoint().write(file);
+
+        List<Robot> second = swarm(20);
+        RobotSimulator resumed = headless(second);
+        resumed.restore(Checkpoint.read(file));
+        assertEquals(8, resumed.getStepNumber(), "The step number should be restored.");
+        assertEquals(describe(first), describe(second), "The restored robots should match the captured ones.");
+        resumed.simulate(1.0, 12.0);
+
+        assertEquals(20, resumed.getStepNumber(), "The resumed run should continue the step count.");
+        assertEquals(describe(uninterrupted), describe(second),
+                "The resumed run should end in the same state as an uninterrupted one.");
+    }
+
+    @Test
+    public void testCheckpointWriter() throws IOException {
+        RobotSimulator simulator = headless(swarm(5));
+        Path file = directory.resolve("periodic.checkpoint");
+        try (CheckpointWriter writer = new CheckpointWriter(simulator, file, 5)) {
+            simulator.addListener(writer);
+            simulator.simulate(1.0, 12.0);
+        }
+
+        Checkpoint checkpoint = Checkpoint.read(file);
+        assertEquals(12, checkpoint.getStep(), "The final state should be saved when the run ends.");
+        assertEquals(5, checkpoint.getRobotCount(), "Every robot should be saved.");
+        assertEquals("Nest", checkpoint.getAreas().get(0).getLabel(), "The areas should be saved.");
+        assertFalse(Files.exists(directory.resolve("periodic.checkpoint.tmp")), "No temporary file should be left.");
+        assertThrows(IllegalArgumentException.class, () -> new CheckpointWriter(simulator, file, 0),
+                "The interval should be positive.");
+    }
+
+    @Test
+    public void testRestoreIntoEmptyEnvironment() throws IOException {
+        RobotSimulator simulator = headless(swarm(3));
+        simulator.simulate(1.0, 4.0);
+        Path file = directory.resolve("areas.checkpoint");
+        simulator.checkpoint().write(file);
+
+        Environment environment = new Environment(3);
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Robot robot = new Robot(new Point(0, 0), environment);
+            robot.setProgram(program());
+            robots.add(robot);
+            environment.addRobot(robot);
+        }
+        new RobotSimulator(robots).restore(Checkpoint.read(file));
+
+        assertEquals(1, environment.getAreas().size(), "The areas should be added to an empty environment.");
+        assertTrue(environment.getAreas().get(0).contains(new Point(0, 0)), "The shape of the areas should be restored.");
+    }
+
+    @Test
+    public void testMismatchedRobots() throws IOException {
+        Path file = directory.resolve("mismatch.checkpoint");
+        headless(swarm(4)).checkpoint().write(file);
+        Checkpoint checkpoint = Checkpoint.read(file);
+
+        assertThrows(IllegalArgumentException.class, () -> headless(swarm(3)).restore(checkpoint),
+                "The number of robots should match.");
+        Environment environment = new Environment(1);
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Robot robot = new Robot(new Point(0, 0), environment);
+            robot.setCommands(List.of(new ContinueCommand(1)));
+            robots.add(robot);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new RobotSimulator(robots).restore(checkpoint),
+                "The programs should match.");
+    }
+
+    @Test
+    public void testNotACheckpoint() throws IOException {
+        Path file = directory.resolve("garbage.checkpoint");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> Checkpoint.read(file), "A file without the magic bytes should be rejected.");
+    }
+
+    /**
+     * Builds a swarm wandering randomly inside loops, signaling and following each other.
+     *
+     * @param count The number of robots.
+     * @return The robots, in a new environment with the same seed every time.
+     */
+    private static List<Robot> swarm(int count) {
+        Environment environment = new Environment(42);
+        environment.addArea(new Circle(new Point(0, 0), 3, "Nest"));
+        Program program = program();
+        return SwarmFixtures.swarm(environment, count, 5, robot -> robot.setProgram(program));
+    }
+
+    /**
+     * Returns the program of the swarm.
+     *
+     * @return The compiled program.
+     */
+    private static Program program() {
+        return Program.compile(List.of(new ForeverCommand(List.of(
+                new RepeatCommand(2, List.of(new MoveRandomCommand(-5, 5, -5, 5, 1), new ContinueCommand(2.5))),
+                new SignalCommand("Scout"),
+                new FollowCommand("Scout", 4, 0.5),
+                new ContinueCommand(1.5),
+                new UnsignalCommand("Scout")))));
+    }
+
+    /**
+     * Describes the exact state of every robot, with the bits of every number.
+     *
+     * @param robots The robots.
+     * @return The description.
+     */
+    private static List<String> describe(List<Robot> robots) {
+        List<String> states = new ArrayList<>();
+        for (Robot robot : robots) {
+            StringBuilder state = new StringBuilder()
+                    .append(Double.doubleToRawLongBits(robot.getX())).append(' ')
+                    .append(Double.doubleToRawLongBits(robot.getY())).append(' ')
+                    .append(Double.doubleToRawLongBits(robot.getHeading())).append(' ')
+                    .append(Double.doubleToRawLongBits(robot.getSpeed())).append(' ')
+                    .append(Double.doubleToRawLongBits(robot.getTimedCommandTime())).append(' ')
+                    .append(robot.getRandomState()).append(' ')
+                    .append(robot.getCurrentCommandIndex()).append(' ')
+                    .append(robot.getSignals().getLowBits()).append(' ')
+                    .append(robot.getCurrentAreas().getLowBits());
+            for (int slot = 0; slot < robot.getProgram().getLoopCounterCount(); slot++) {
+                state.append(' ').append(robot.getLoopCounter(slot));
+            }
+            states.add(state.toString());
+        }
+        return states;
+    }
+}
@@ -0,0 +1,375 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
+import it.unicam.cs.pa.robotswarmsim.library.area.Rectangle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.ContinueCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.SignalCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.UnsignalCommand;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotStateBatch;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.SimulationListener;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link TraceReader}.
+ */
+public class TraceReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testStatesMatchLiveRun() throws IOException {
+        Environment environment = new Environment(1);
+        environment.addArea(new Circle(new Point(0, 0), 2.5, "Home"));
+        environment.addArea(new Rectangle(new Point(10, 10), 2, 3, "Box"));
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Robot robot = new Robot(new Point(i, 0), environment);
+            robot.setCommands(List.of(new SignalCommand("Robot" + i), new MoveCommand(0, 1, i + 1),
+                    new ContinueCommand(i + 1)));
+            robots.add(robot);
+        }
+        StateRecorder live = new StateRecorder(environment.getLabels());
+        Path file = record(environment, robots, live, 1.0, 5.0);
+
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(1.0, reader.getTimeStep(), "The time step should be read.");
+            assertEquals(live.steps.size(), reader.getStepCount(), "Every step should be recorded.");
+            assertEquals(3, reader.getRobotCount(), "Every robot should be recorded.");
+            assertEquals(2, reader.getAreas().size(), "The areas should be read.");
+            assertEquals("Box", reader.getAreas().get(1).getLabel(), "The labels of the areas should be read.");
+            assertTrue(reader.getAreas().get(1).contains(new Point(11, 12)), "The shape of the areas should be read.");
+
+            for (Robot robot : robots) {
+                assertEquals(robot.getId(), reader.getRobotId(reader.getColumn(robot.getId())), "Robot ids should match the live run.");
+            }
+            for (int step = reader.getStepCount() - 1; step >= 0; step--) {
+                assertEquals(live.steps.get(step), describe(reader.getStep(step), reader.getLabelRegistry()), "Step " + step + " should match the live run.");
+            }
+        }
+    }
+
+    @Test
+    public void testCompressedStatesMatchLiveRun() throws IOException {
+        Environment environment = new Environment(1);
+        environment.addArea(new Circle(new Point(0, 0), 2.5, "Home"));
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Robot robot = new Robot(new Point(i, 0), environment);
+            robot.setCommands(List.of(new SignalCommand("Robot" + i), new MoveCommand(0, 1, i + 1),
+                    new ContinueCommand(i + 2), new UnsignalCommand("Robot" + i)));
+            robots.add(robot);
+        }
+        StateRecorder live = new StateRecorder(environment.getLabels(), 0.25);
+        Path file = record(environment, robots, live, 1.0, 8.0, 0.25, 3);
+
+        try (TraceReader reader = new TraceReader(file)) {
+            assertEquals(0.25, reader.getPrecision(), "The precision should be read.");
+            assertEquals(live.steps.size(), reader.getStepCount(), "Every step should be recorded.");
+            for (int step = reader.getStepCount() - 1; step >= 0; step--) {
+                assertEquals(live.steps.get(step), describe(reader.getStep(step), reader.getLabelRegistry()), "Step " + step + " should match the live run.");
+            }
+            for (int step : new int[]{0, 1, 2, 3, 4, 7, 5, 6, 8, 2}) {
+                assertEquals(live.steps.get(step), describe(reader.getStep(step), reader.getLabelRegistry()), "Step " + step + " should match the live run.");
+            }
+        }
+    }
+
+    @Test
+    public void testCompressedChunks() throws IOException {
+        Environment environment = new Environment(1);
+        List<Robot> robots = chunkedSwarm(environment);
+        StateRecorder live = new StateRecorder(environment.getLabels(), 0.25);
+        Path file = record(environment, robots, live, 1.0, 4.0, 0.25, 2);
+
+        try (TraceReader reader = new TraceReader(file)) {
+            for (int step = 0; step < reader.getStepCount(); step++) {
+                assertEquals(live.steps.get(step), describe(reader.getStep(step), reader.getLabelRegistry()), "Step " + step + " should match the live run.");
+            }
+        }
+    }
+
+    @Test
+    public void testCompressedChunksOnPool() throws IOException {
+        Environment environment = new Environment(1);
+        Path sequential = record(environment, chunkedSwarm(environment), new StateRecorder(environment.getLabels()),
+                1.0, 4.0, 0.25, 2);
+        byte[] expected = Files.readAllBytes(sequential);
+        Environment other = new Environment(1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Path parallel = record(other, chunkedSwarm(other), new StateRecorder(other.getLabels()),
+                    1.0, 4.0, 0.25, 2, pool);
+            assertArrayEquals(expected, Files.readAllBytes(parallel), "Encoding the chunks on a pool should not change the trace.");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompressionOfIdleRobots() throws IOException {
+        Environment environment = new Environment(1);
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Robot robot = new Robot(new Point(i, i), environment);
+            robot.setCommands(List.of(new SignalCommand("Idle")));
+            robots.add(robot);
+        }
+        Path raw = record(environment, robots, new StateRecorder(environment.getLabels()), 1.0, 20.0);
+        long rawSize = Files.size(raw);
+        Path compressed = record(environment, robots, new StateRecorder(environment.getLabels()), 1.0, 20.0, 0.001, 10);
+
+        assertTrue(Files.size(compressed) * 10 < rawSize, "Idle robots should take about a byte per step.");
+        try (TraceReader reader = new TraceReader(compressed)) {
+            RobotStateBatch last = reader.getStep(reader.getStepCount() - 1);
+            assertEquals(999.0, last.getX(reader.getColumn(robots.get(999).getId())), 1e-9, "Positions should be kept to the precision.");
+        }
+    }
+
+    @Test
+    public void testInvalidCompression() {
+        Environment environment = new Environment(1);
+        Path file = directory.resolve("invalid.trace");
+
+        assertThrows(IllegalArgumentException.class, () -> new TraceWriter(file, environment, 0, 10), "The precision should be positive.");
+        assertThrows(IllegalArgumentException.class, () -> new TraceWriter(file, environment, 0.1, 0), "The keyframe interval should be positive.");
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        Environment environment = new Environment(1);
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setCommands(List.of(new SignalCommand("Replayed"), new MoveCommand(1, 0, 1), new ContinueCommand(10)));
+        StateRecorder live = new StateRecorder(environment.getLabels());
+        Path file = record(environment, List.of(robot), live, 1.0, 6.0);
+
+        StateRecorder replayed;
+        try (TraceReader reader = new TraceReader(file)) {
+            replayed = new StateRecorder(reader.getLabelRegistry());
+            reader.replay(2, 5, replayed);
+        }
+
+        assertEquals(live.steps.subList(2, 6), replayed.steps, "A replay should deliver the recorded states.");
+        assertEquals(List.of(3, 4, 5), replayed.ticks, "A replay should deliver the steps of the range.");
+        assertEquals(3, replayed.endedSteps, "A replay should report the number of replayed steps.");
+    }
+
+    @Test
+    public void testInvalidSteps() throws IOException {
+        Environment environment = new Environment(1);
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setCommands(List.of(new MoveCommand(1, 0, 1)));
+        Path file = record(environment, List.of(robot), new StateRecorder(environment.getLabels()), 1.0, 2.0);
+
+        try (TraceReader reader = new TraceReader(file)) {
+            assertThrows(IllegalArgumentException.class, () -> reader.getStep(-1), "Negative steps should be rejected.");
+            assertThrows(IllegalArgumentException.class, () -> reader.getStep(reader.getStepCount()), "Steps past the end should be rejected.");
+            assertThrows(IllegalArgumentException.class, () -> reader.replay(2, 1, new StateRecorder(reader.getLabelRegistry())), "Reversed ranges should be rejected.");
+            assertEquals(-1, reader.getColumn(robot.getId() + 1), "Unknown robots should have no column.");
+        }
+    }
+
+    @Test
+    public void testNotATrace() throws IOException {
+        Path file = directory.resolve("other.trace");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> new TraceReader(file), "Files without the magic bytes should be rejected.");
+    }
+
+    /**
+     * Records a run, collecting the states delivered to a listener.
+     *
+     * @param environment    The environment of the robots.
+     * @param robots         The robots to simulate.
+     * @param live           The listener collecting the live states.
+     * @param dt             The time step.
+     * @param simulationTime The simulated time.
+     * @return The trace file.
+     * @throws IOException if the trace cannot be written.
+     */
+    private Path record(Environment environment, List<Robot> robots, StateRecorder live, double dt,
+                        double simulationTime) throws IOException {
+
+        return record(environment, robots, live, dt, simulationTime, 0, 0);
+    }
+
+    /**
+     * Records a run, collecting the states delivered to a listener.
+     *
+     * @param environment      The environment of the robots.
+     * @param robots           The robots to simulate.
+     * @param live             The listener collecting the live states.
+     * @param dt               The time step.
+     * @param simulationTime   The simulated time.
+     * @param precision        The quantization step of a compressed trace, 0 for a raw trace.
+     * @param keyframeInterval The keyframe interval of a compressed trace.
+     * @return The trace file.
+     * @throws IOException if the trace cannot be written.
+     */
+    private Path record(Environment environment, List<Robot> robots, StateRecorder live, double dt,
+                        double simulationTime, double precision, int keyframeInterval) throws IOException {
+
+        return record(environment, robots, live, dt, simulationTime, precision, keyframeInterval, null);
+    }
+
+    /**
+     * Records a run, collecting the states delivered to a listener and encoding the trace on a pool.
+     *
+     * @param environment      The environment of the robots.
+     * @param robots           The robots to simulate.
+     * @param live             The listener collecting the live states.
+     * @param dt               The time step.
+     * @param simulationTime   The simulated time.
+     * @param precision        The quantization step of a compressed trace, 0 for a raw trace.
+     * @param keyframeInterval The keyframe interval of a compressed trace.
+     * @param pool             The pool encoding the compressed trace, or null.
+     * @return The trace file.
+     * @throws IOException if the trace cannot be written.
+     */
+    private Path record(Environment environment, List<Robot> robots, StateRecorder live, double dt,
+                        double simulationTime, double precision, int keyframeInterval, ForkJoinPool pool)
+            throws IOException {
+        Path file = directory.resolve(precision > 0 ? "compressed.trace" : "run.trace");
+        try (TraceWriter writer = precision > 0
+                ? new TraceWriter(file, environment, precision, keyframeInterval)
+                : new TraceWriter(file, environment)) {
+            writer.setPool(pool);
+            RobotSimulator simulator = new RobotSimulator(robots);
+            simulator.setHeadless(true);
+            simulator.addListener(writer);
+            simulator.addListener(live);
+            simulator.simulate(dt, simulationTime);
+        }
+        return file;
+    }
+
+    /**
+     * Creates a swarm large enough to be split in several chunks by a compressed trace.
+     *
+     * @param environment The environment of the robots.
+     * @return The robots, moving at different speeds.
+     */
+    private static List<Robot> chunkedSwarm(Environment environment) {
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Robot robot = new Robot(new Point(i * 0.5, 0), environment);
+            robot.setCommands(List.of(new MoveCommand(1, 0, (i % 4) * 0.5), new ContinueCommand(3)));
+            robots.add(robot);
+        }
+        return robots;
+    }
+
+    /**
+     * Describes the state of every robot of a batch, ordered by id.
+     *
+     * @param batch  The batch.
+     * @param labels The registry of the label ids of the batch.
+     * @return The description of each robot.
+     */
+    private static List<String> describe(RobotStateBatch batch, LabelRegistry labels) {
+        Map<Integer, String> robots = new TreeMap<>();
+        describe(batch, labels, robots, 0);
+        return List.copyOf(robots.values());
+    }
+
+    /**
+     * Stores the description of every robot of a batch under its id.
+     *
+     * @param batch     The batch.
+     * @param labels    The registry of the label ids of the batch.
+     * @param robots    The descriptions by robot id.
+     * @param precision The step the numbers are rounded to, 0 to keep them exact.
+     */
+    private static void describe(RobotStateBatch batch, LabelRegistry labels, Map<Integer, String> robots,
+                                 double precision) {
+        for (int i = 0; i < batch.size(); i++) {
+            robots.put(batch.getId(i), Robot.describe(batch.getId(i), batch.getAreas(i).asLabels(labels),
+                    round(batch.getX(i), precision), round(batch.getY(i), precision),
+                    round(batch.getHeading(i), precision), round(batch.getSpeed(i), precision),
+                    batch.getSignals(i).asLabels(labels)));
+        }
+    }
+
+    /**
+     * Rounds a value to the nearest multiple of a precision, as a compressed trace does.
+     *
+     * @param value     The value.
+     * @param precision The precision, 0 to keep the value exact.
+     * @return The rounded value.
+     */
+    private static double round(double value, double precision) {
+
+        return precision > 0 ? Math.round(value / precision) * precision : value;
+    }
+
+    /**
+     * This class collects the full state of the robots at every step, carrying over robots that were not stepped.
+     */
+    private static class StateRecorder implements SimulationListener {
+        private final Map<Integer, String> current = new TreeMap<>();
+        private final List<List<String>> steps = new ArrayList<>();
+        private final List<Integer> ticks = new ArrayList<>();
+        private final LabelRegistry labels;
+        private final double precision;
+        private int endedSteps = -1;
+
+        /**
+         * Creates a recorder keeping exact values.
+         *
+         * @param labels The registry of the label ids of the recorded states.
+         */
+        private StateRecorder(LabelRegistry labels) {
+
+            this(labels, 0);
+        }
+
+        /**
+         * Creates a recorder rounding the values to a precision.
+         *
+         * @param labels    The registry of the label ids of the recorded states.
+         * @param precision The precision.
+         */
+        private StateRecorder(LabelRegistry labels, double precision) {
+            this.labels = labels;
+            this.precision = precision;
+        }
+
+        @Override
+        public void simulationStarted(double dt, RobotStateBatch initialState) {
+            describe(initialState, labels, current, precision);
+            steps.add(List.copyOf(current.values()));
+        }
+
+        @Override
+        public void robotStates(int step, RobotStateBatch states) {
+            ticks.add(step);
+            describe(states, labels, current, precision);
+            steps.add(List.copyOf(current.values()));
+        }
+
+        @Override
+        public void simulationEnded(int steps) {
+
+            endedSteps = steps;
+        }
+    }
+}
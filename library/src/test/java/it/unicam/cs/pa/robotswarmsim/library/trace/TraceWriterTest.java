@@ -0,0 +1,156 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Circle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.label.LabelRegistry;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.SignalCommand;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link TraceWriter}.
+ */
+public class TraceWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testHeader() throws IOException {
+        Environment environment = new Environment(1);
+        environment.addArea(new Circle(new Point(1, 2), 3, "Home"));
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setCommands(List.of(new MoveCommand(1, 0, 1)));
+
+        ByteBuffer trace = record(environment, List.of(robot), 0.5, 2.0);
+
+        assertArrayEquals(TraceFormat.MAGIC, Arrays.copyOf(trace.array(), TraceFormat.MAGIC.length), "The trace should start with the magic bytes.");
+        assertEquals(TraceFormat.VERSION, trace.getInt(TraceFormat.VERSION_OFFSET), "The version should be written.");
+        assertEquals(TraceFormat.ENCODING_COLUMNAR, trace.getInt(TraceFormat.ENCODING_OFFSET), "The encoding should be columnar.");
+        assertEquals(1, trace.getInt(TraceFormat.ROBOT_COUNT_OFFSET), "The number of robots should be written.");
+        assertEquals(0.5, trace.getDouble(TraceFormat.DT_OFFSET), "The time step should be written.");
+        assertEquals(5, trace.getLong(TraceFormat.STEP_COUNT_OFFSET), "The initial state and four ticks should be recorded.");
+
+        int labelWords = trace.getInt(TraceFormat.LABEL_WORDS_OFFSET);
+        long dataOffset = trace.getLong(TraceFormat.DATA_OFFSET_OFFSET);
+        assertEquals(0, dataOffset % Long.BYTES, "Records should be aligned.");
+        assertEquals(dataOffset + 5 * TraceFormat.recordSize(1, labelWords), trace.capacity(), "The file should end with the last record.");
+
+        trace.position(TraceFormat.LABELS_OFFSET);
+        int labelCount = trace.getInt();
+        assertEquals(1, labelCount, "Only the labels of the environment should be written.");
+        for (int i = 0; i < labelCount; i++) {
+            int length = trace.getInt();
+            trace.position(trace.position() + length);
+        }
+        assertEquals(1, trace.getInt(), "The areas should be written.");
+        assertEquals(TraceFormat.AREA_CIRCLE, trace.get(), "The kind of the area should be written.");
+        assertEquals(environment.getLabels().find("Home"), trace.getInt(), "The label of the area should be written.");
+        assertEquals(1.0, trace.getDouble(), "The center of the circle should be written.");
+        assertEquals(2.0, trace.getDouble(), "The center of the circle should be written.");
+        assertEquals(3.0, trace.getDouble(), "The radius of the circle should be written.");
+        trace.getDouble();
+        assertEquals(robot.getId(), trace.getInt(), "The id of the column should be written.");
+    }
+
+    @Test
+    public void testRecords() throws IOException {
+        Environment environment = new Environment(1);
+        environment.addArea(new Circle(new Point(0, 0), 1.5, "Home"));
+        Robot mover = new Robot(new Point(0, 0), environment);
+        mover.setCommands(List.of(new SignalCommand("Trace"), new MoveCommand(1, 0, 1)));
+        Robot idle = new Robot(new Point(5, 5), environment);
+        idle.setCommands(List.of(new SignalCommand("Idle")));
+
+        ByteBuffer trace = record(environment, List.of(mover, idle), 1.0, 3.0);
+
+        int labelWords = trace.getInt(TraceFormat.LABEL_WORDS_OFFSET);
+        long recordSize = TraceFormat.recordSize(2, labelWords);
+        int dataOffset = (int) trace.getLong(TraceFormat.DATA_OFFSET_OFFSET);
+        LabelRegistry labels = environment.getLabels();
+        int traceLabel = labels.find("Trace");
+        int idleLabel = labels.find("Idle");
+        int homeLabel = labels.find("Home");
+        assertEquals(4, trace.getLong(TraceFormat.STEP_COUNT_OFFSET), "The initial state and three ticks should be recorded.");
+
+        for (int step = 0; step < 4; step++) {
+            int record = (int) (dataOffset + step * recordSize);
+            assertEquals(step, trace.getLong(record), "Each record should start with its step.");
+        }
+
+        int last = (int) (dataOffset + 3 * recordSize);
+        assertEquals(1.0, trace.getDouble(last + Long.BYTES), "The x column should hold the position of the first robot.");
+        assertEquals(5.0, trace.getDouble(last + Long.BYTES + Double.BYTES), "A completed robot should keep its last state.");
+        assertEquals(0.0, trace.getDouble(last + Long.BYTES + 2 * Double.BYTES), "The y column should follow the x column.");
+        assertEquals(1.0, trace.getDouble(last + Long.BYTES + 6 * Double.BYTES), "The speed column should follow the heading column.");
+
+        int signals = last + Long.BYTES + 8 * Double.BYTES;
+        assertTrue(hasBit(trace, signals, traceLabel), "The signals of the first robot should be recorded.");
+        assertTrue(hasBit(trace, signals + labelWords * Long.BYTES, idleLabel), "The signals of the second robot should be recorded.");
+        int areas = signals + 2 * labelWords * Long.BYTES;
+        assertTrue(hasBit(trace, areas, homeLabel), "The areas of the first robot should be recorded.");
+        assertFalse(hasBit(trace, areas + labelWords * Long.BYTES, homeLabel), "The second robot should be outside the area.");
+    }
+
+    @Test
+    public void testSingleRun() throws IOException {
+        Environment environment = new Environment(1);
+        Robot robot = new Robot(new Point(0, 0), environment);
+        robot.setCommands(List.of(new MoveCommand(1, 0, 1)));
+        try (TraceWriter writer = new TraceWriter(directory.resolve("run.trace"), environment)) {
+            RobotSimulator simulator = new RobotSimulator(List.of(robot));
+            simulator.setHeadless(true);
+            simulator.addListener(writer);
+            simulator.simulate(1.0, 1.0);
+            assertThrows(IllegalStateException.class, () -> simulator.simulate(1.0, 1.0), "A writer should record a single run.");
+        }
+    }
+
+    /**
+     * Records a run and returns the content of the trace file.
+     *
+     * @param environment    The environment of the robots.
+     * @param robots         The robots to simulate.
+     * @param dt             The time step.
+     * @param simulationTime The simulated time.
+     * @return The content of the trace, in the trace byte order.
+     * @throws IOException if the trace cannot be written or read.
+     */
+    private ByteBuffer record(Environment environment, List<Robot> robots, double dt, double simulationTime)
+            throws IOException {
+        Path file = directory.resolve("run.trace");
+        try (TraceWriter writer = new TraceWriter(file, environment)) {
+            RobotSimulator simulator = new RobotSimulator(robots);
+            simulator.setHeadless(true);
+            simulator.addListener(writer);
+            simulator.simulate(dt, simulationTime);
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(file)).order(TraceFormat.ORDER);
+    }
+
+    /**
+     * Checks whether a label bitmask of a trace holds a label.
+     *
+     * @param trace  The content of the trace.
+     * @param offset The offset of the bitmask.
+     * @param label  The label id.
+     * @return true if the bit of the label is set.
+     */
+    private static boolean hasBit(ByteBuffer trace, int offset, int label) {
+        long word = trace.getLong(offset + (label / Long.SIZE) * Long.BYTES);
+        return (word & (1L << (label % Long.SIZE))) != 0;
+    }
+}
@@ -0,0 +1,70 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import it.unicam.cs.pa.robotswarmsim.library.Environment;
+import it.unicam.cs.pa.robotswarmsim.library.Point;
+import it.unicam.cs.pa.robotswarmsim.library.area.Rectangle;
+import it.unicam.cs.pa.robotswarmsim.library.entity.Robot;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.ContinueCommand;
+import it.unicam.cs.pa.robotswarmsim.library.robotcommand.MoveCommand;
+import it.unicam.cs.pa.robotswarmsim.library.simulator.RobotSimulator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link TransitionWriter}.
+ */
+public class TransitionWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRecords() throws IOException {
+        Environment environment = new Environment(1);
+        environment.addArea(new Rectangle(new Point(1.5, -1), 2, 2, "Strip"));
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Robot robot = new Robot(new Point(-i, 0), environment);
+            robot.setCommands(List.of(new MoveCommand(1, 0, 1), new ContinueCommand(6)));
+            robots.add(robot);
+        }
+        RobotSimulator simulator = new RobotSimulator(robots);
+        simulator.setHeadless(true);
+        Path file = directory.resolve("run.transitions");
+        try (TransitionWriter writer = new TransitionWriter(file, environment)) {
+            simulator.addListener(writer);
+            simulator.simulate(1.0, 6.0);
+            assertEquals(4, writer.getTransitionCount(), "Each robot should enter and leave the strip once.");
+        }
+
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(TraceFormat.ORDER);
+        byte[] magic = new byte[TransitionWriter.MAGIC.length];
+        bytes.get(magic);
+        assertTrue(Arrays.equals(TransitionWriter.MAGIC, magic), "The file should start with the magic bytes.");
+        assertEquals(TransitionWriter.VERSION, bytes.getInt(), "The version should be written.");
+        List<String> labels = TraceFormat.getLabels(bytes);
+        assertEquals(4 * TransitionWriter.RECORD_SIZE, bytes.remaining(), "There should be one record per transition.");
+
+        List<String> records = new ArrayList<>();
+        while (bytes.hasRemaining()) {
+            int step = bytes.getInt();
+            int robot = bytes.getInt();
+            int area = bytes.getInt();
+            records.add(step + " " + robot + " " + labels.get(area >>> 1) + ((area & 1) != 0 ? " in" : " out"));
+        }
+        int first = robots.get(0).getId();
+        int second = robots.get(1).getId();
+        assertEquals(List.of("2 " + first + " Strip in", "3 " + second + " Strip in", "4 " + first + " Strip out",
+                "5 " + second + " Strip out"), records, "The records should hold the step, robot, area and direction.");
+    }
+}
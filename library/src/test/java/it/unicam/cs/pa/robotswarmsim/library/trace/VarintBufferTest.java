@@ -0,0 +1,42 @@
+package it.unicam.cs.pa.robotswarmsim.library.trace;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link VarintBuffer}.
+ */
+public class VarintBufferTest {
+
+    @Test
+    public void testRoundTrip() {
+        long[] values = {0, 1, -1, 63, -64, 64, 300, -300, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        VarintBuffer buffer = new VarintBuffer();
+        for (long value : values) {
+            buffer.putZigZag(value);
+            buffer.putVarLong(value);
+        }
+
+        ByteBuffer encoded = buffer.wrap();
+        for (long value : values) {
+            assertEquals(value, VarintBuffer.getZigZag(encoded), "Zig-zag varints should round-trip.");
+            assertEquals(value, VarintBuffer.getVarLong(encoded), "Unsigned varints should round-trip.");
+        }
+        assertFalse(encoded.hasRemaining(), "Every byte should be read.");
+    }
+
+    @Test
+    public void testSmallValuesTakeOneByte() {
+        VarintBuffer buffer = new VarintBuffer();
+        buffer.putZigZag(-64);
+        buffer.putZigZag(63);
+        buffer.putVarLong(127);
+
+        assertEquals(3, buffer.size(), "Small values should take a single byte.");
+        buffer.reset();
+        assertEquals(0, buffer.size(), "A reset buffer should be empty.");
+    }
+}